@@ -0,0 +1,268 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import uk.org.okapibarcode.backend.Barcode;
+import uk.org.okapibarcode.backend.EncodedSymbol;
+import uk.org.okapibarcode.backend.Symbology;
+import uk.org.okapibarcode.output.PostScript;
+import uk.org.okapibarcode.output.Raster;
+import uk.org.okapibarcode.output.ScalableVectorGraphics;
+
+/**
+ * Throughput and allocation benchmark for every symbology.
+ * <p>
+ * Each {@link Workload} is run through each stage in turn: encoding alone,
+ * encoding and building the rectangles, encoding and writing SVG or EPS,
+ * and encoding and drawing a bitmap. A stage is warmed up and then timed
+ * on a single thread, and the bytes allocated by that thread are read
+ * from the JVM so that changes which reduce garbage show up as well as
+ * changes which save time.
+ * <p>
+ * The benchmark needs nothing beyond the JDK. From the "Okapi Barcode"
+ * directory:
+ * <pre>
+ * javac -d bench-classes -sourcepath src:bench bench/uk/org/okapibarcode/bench/EncodeBenchmark.java
+ * java -cp bench-classes uk.org.okapibarcode.bench.EncodeBenchmark [options]
+ * </pre>
+ * Options are <code>-w millis</code> (warm up time per stage, default 1000),
+ * <code>-m millis</code> (measured time per stage, default 2000),
+ * <code>-s stage</code> (one of encode, plot, svg, eps or raster; may be
+ * repeated) and <code>-f text</code> (only run workloads whose name
+ * contains text).
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+public class EncodeBenchmark {
+
+    public enum Stage {
+        ENCODE, PLOT, SVG, EPS, RASTER
+    }
+
+    /** Keeps results alive so the JIT cannot discard the work */
+    private static volatile long sink;
+
+    private final PrintStream report;
+    private final com.sun.management.ThreadMXBean threads;
+
+    public EncodeBenchmark(PrintStream report) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        this.report = report;
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threads = null;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long warmup = 1000;
+        long measure = 2000;
+        String filter = "";
+        Set<Stage> stages = EnumSet.noneOf(Stage.class);
+        List<Workload> workloads = new ArrayList<>();
+        PrintStream report = System.out;
+        EncodeBenchmark benchmark;
+        int i;
+
+        for (i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-w":
+                    warmup = Long.parseLong(args[++i]);
+                    break;
+                case "-m":
+                    measure = Long.parseLong(args[++i]);
+                    break;
+                case "-s":
+                    stages.add(Stage.valueOf(args[++i].toUpperCase()));
+                    break;
+                case "-f":
+                    filter = args[++i];
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(1);
+            }
+        }
+        if (stages.isEmpty()) {
+            stages = EnumSet.allOf(Stage.class);
+        }
+
+        for (Workload workload : Workload.all()) {
+            if (workload.getName().contains(filter)) {
+                workloads.add(workload);
+            }
+        }
+        checkCoverage();
+
+        benchmark = new EncodeBenchmark(report);
+
+        // Some encoders print their working to System.out
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+
+        report.printf("%-24s %-7s %12s %12s %14s%n",
+                "Workload", "Stage", "ops/s", "us/op", "bytes/op");
+        for (Workload workload : workloads) {
+            for (Stage stage : stages) {
+                benchmark.run(workload, stage, warmup, measure);
+            }
+        }
+    }
+
+    /** Warn about any symbology which has no workload */
+    private static void checkCoverage() {
+        Set<String> covered = new HashSet<>();
+
+        for (Workload workload : Workload.all()) {
+            covered.add(workload.getRequest().getSymbology());
+        }
+        for (Symbology symbology : Symbology.values()) {
+            if (!(covered.contains(symbology.name()))) {
+                System.err.println("No workload for " + symbology.name());
+            }
+        }
+    }
+
+    public void run(Workload workload, Stage stage, long warmupMillis, long measureMillis)
+            throws IOException {
+        EncodedSymbol check = Barcode.encode(workload.getRequest());
+        long ops, start, elapsed, bytes;
+        double nanosPerOp;
+        String bytesPerOp;
+
+        if (!(check.isValid())) {
+            report.printf("%-24s %-7s invalid: %s%n", workload.getName(),
+                    stage.name().toLowerCase(), check.getErrorMessage());
+            return;
+        }
+
+        loop(workload, stage, warmupMillis * 1000000L);
+
+        bytes = allocated();
+        start = System.nanoTime();
+        ops = loop(workload, stage, measureMillis * 1000000L);
+        elapsed = System.nanoTime() - start;
+        bytes = allocated() - bytes;
+
+        nanosPerOp = (double) elapsed / ops;
+        if (threads == null) {
+            bytesPerOp = "n/a";
+        } else {
+            bytesPerOp = Long.toString(bytes / ops);
+        }
+        report.printf("%-24s %-7s %12.0f %12.2f %14s%n", workload.getName(),
+                stage.name().toLowerCase(), 1.0e9 / nanosPerOp, nanosPerOp / 1000.0, bytesPerOp);
+    }
+
+    /** Repeat one stage until the time is up, returning the number of operations */
+    private long loop(Workload workload, Stage stage, long nanos) throws IOException {
+        long end = System.nanoTime() + nanos;
+        long ops = 0;
+        long result = 0;
+
+        do {
+            result += once(workload, stage);
+            ops++;
+        } while (System.nanoTime() < end);
+        sink = result;
+        return ops;
+    }
+
+    private long once(Workload workload, Stage stage) throws IOException {
+        EncodedSymbol symbol = Barcode.encode(workload.getRequest());
+        ScalableVectorGraphics svg;
+        PostScript eps;
+        CountingWriter counter;
+        Raster raster;
+
+        switch (stage) {
+            case ENCODE:
+                return symbol.getWidth();
+            case PLOT:
+                return symbol.getRectangles().size() + symbol.getHexagons().size()
+                        + symbol.getTargets().size();
+            case SVG:
+                svg = new ScalableVectorGraphics();
+                svg.setSymbol(symbol, workload.getRequest().getContent());
+                counter = new CountingWriter();
+                svg.write(counter);
+                return counter.count;
+            case EPS:
+                eps = new PostScript();
+                eps.setSymbol(symbol, workload.getRequest().getContent());
+                counter = new CountingWriter();
+                eps.write(counter);
+                return counter.count;
+            case RASTER:
+                raster = new Raster();
+                raster.setSymbol(symbol);
+                return raster.render().length;
+            default:
+                throw new IllegalStateException("Unknown stage " + stage);
+        }
+    }
+
+    /** Discards everything written to it, keeping only the length */
+    private static class CountingWriter extends Writer {
+        long count;
+
+        @Override
+        public void write(int c) {
+            count++;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private long allocated() {
+        if (threads == null) {
+            return 0;
+        }
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import uk.org.okapibarcode.backend.BarcodeRequest;
+
+/**
+ * A named symbol to encode during a benchmark run
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+public final class Workload {
+    private final String name;
+    private final BarcodeRequest request;
+
+    private Workload(String name, BarcodeRequest request) {
+        this.name = name;
+        this.request = request;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BarcodeRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Realistic payloads for every symbology: short numeric data for the
+     * retail and postal codes, GS1 data with several AIs where GS1 is
+     * supported, near maximum capacity binary data for the large matrix
+     * and stacked codes, and a GS1-128 symbol with a CC-C component.
+     */
+    public static List<Workload> all() {
+        List<Workload> list = new ArrayList<>();
+        String gs1 = "[01]09501101530003[17]141120[10]AB-123[21]1234567890";
+
+        add(list, "UPCA", "BARCODE_UPCA", "72527273070");
+        add(list, "UPCE", "BARCODE_UPCE", "0123456");
+        add(list, "EANX", "BARCODE_EANX", "501234567890");
+        add(list, "ITF14", "BARCODE_ITF14", "1540014128876");
+        add(list, "CODE128", "BARCODE_CODE128", "Okapi Barcode 0123456789");
+        list.add(new Workload("CODE128 gs1", BarcodeRequest.builder("BARCODE_CODE128", gs1)
+                .gs1(true).build()));
+        add(list, "HIBC_128", "BARCODE_HIBC_128", "A123BJC5D6E71");
+        add(list, "CODABAR", "BARCODE_CODABAR", "A37859B");
+        add(list, "C25MATRIX", "BARCODE_C25MATRIX", "87654321");
+        add(list, "C25IND", "BARCODE_C25IND", "87654321");
+        add(list, "C25INTER", "BARCODE_C25INTER", "8765432109");
+        add(list, "C25IATA", "BARCODE_C25IATA", "87654321");
+        add(list, "C25LOGIC", "BARCODE_C25LOGIC", "87654321");
+        add(list, "DPLEIT", "BARCODE_DPLEIT", "2106107604302");
+        add(list, "DPIDENT", "BARCODE_DPIDENT", "39601313414");
+        add(list, "MSI_PLESSEY", "BARCODE_MSI_PLESSEY", "1234567");
+        add(list, "CODE39", "BARCODE_CODE39", "OKAPI-1234");
+        add(list, "HIBC_39", "BARCODE_HIBC_39", "A123BJC5D6E71");
+        add(list, "LOGMARS", "BARCODE_LOGMARS", "LOGMARS-12");
+        add(list, "CODE11", "BARCODE_CODE11", "123-45");
+        add(list, "CODE93", "BARCODE_CODE93", "OKAPI 93");
+        add(list, "PZN", "BARCODE_PZN", "123456");
+        add(list, "EXCODE39", "BARCODE_EXCODE39", "Okapi Barcode");
+        add(list, "TELEPEN", "BARCODE_TELEPEN", "Okapi");
+        add(list, "TELEPEN_NUM", "BARCODE_TELEPEN_NUM", "12345678");
+        add(list, "CODE49", "BARCODE_CODE49", "Okapi 49 0123456789");
+        add(list, "KOREAPOST", "BARCODE_KOREAPOST", "123456");
+        add(list, "CODE16K", "BARCODE_CODE16K", "Okapi Code 16K");
+        add(list, "POSTNET", "BARCODE_POSTNET", "12345678901");
+        add(list, "PLANET", "BARCODE_PLANET", "12345678901");
+        add(list, "RM4SCC", "BARCODE_RM4SCC", "SN34RD1A");
+        add(list, "KIX", "BARCODE_KIX", "2500GG30250");
+        add(list, "JAPANPOST", "BARCODE_JAPANPOST", "15400233-16-4-205");
+        add(list, "AUSPOST", "BARCODE_AUSPOST", "12345678");
+        add(list, "AUSREPLY", "BARCODE_AUSREPLY", "12345678");
+        add(list, "AUSROUTE", "BARCODE_AUSROUTE", "34567890");
+        add(list, "AUSREDIRECT", "BARCODE_AUSREDIRECT", "98765432");
+        add(list, "CHANNEL", "BARCODE_CHANNEL", "1234");
+        add(list, "PHARMA", "BARCODE_PHARMA", "131070");
+        add(list, "PHARMA_TWO", "BARCODE_PHARMA_TWO", "64570080");
+        add(list, "CODE32", "BARCODE_CODE32", "14352312");
+        add(list, "PDF417", "BARCODE_PDF417", "Okapi PDF417 0123456789");
+        add(list, "PDF417 max binary", "BARCODE_PDF417", binary(1000, 255));
+        list.add(new Workload("PDF417 optimize", BarcodeRequest.builder(
+                "BARCODE_PDF417", repeat("Okapi 0123456789" + binary(3, 255) + "pdf417 ", 40))
+                .optimize(true).build()));
+        add(list, "HIBC_PDF", "BARCODE_HIBC_PDF", "A123BJC5D6E71");
+        add(list, "PDF417TRUNC", "BARCODE_PDF417TRUNC", "Okapi PDF417 0123456789");
+        add(list, "MICROPDF417", "BARCODE_MICROPDF417", "Okapi 0123456789");
+        add(list, "HIBC_MICPDF", "BARCODE_HIBC_MICPDF", "A123BJC5D6E71");
+        add(list, "AZTEC", "BARCODE_AZTEC", "Okapi Aztec 0123456789");
+        list.add(new Workload("AZTEC gs1", BarcodeRequest.builder("BARCODE_AZTEC", gs1)
+                .gs1(true).build()));
+        add(list, "AZTEC max binary", "BARCODE_AZTEC", binary(1500, 127));
+        list.add(new Workload("AZTEC optimize", BarcodeRequest.builder(
+                "BARCODE_AZTEC", repeat("Okapi Aztec 0123456789, " + binary(3, 255) + "ticket ", 40))
+                .optimize(true).build()));
+        add(list, "HIBC_AZTEC", "BARCODE_HIBC_AZTEC", "A123BJC5D6E71");
+        add(list, "AZRUNE", "BARCODE_AZRUNE", "125");
+        add(list, "DATAMATRIX", "BARCODE_DATAMATRIX", "Okapi Data Matrix 0123456789");
+        list.add(new Workload("DATAMATRIX gs1", BarcodeRequest.builder("BARCODE_DATAMATRIX", gs1)
+                .gs1(true).build()));
+        add(list, "DATAMATRIX max binary", "BARCODE_DATAMATRIX", binary(1500, 255));
+        add(list, "DATAMATRIX max text", "BARCODE_DATAMATRIX", repeat("okapi data matrix ", 2000));
+        add(list, "DATAMATRIX max mixed", "BARCODE_DATAMATRIX",
+                repeat("0123456789" + binary(8, 255) + "OKAPI", 1300));
+        list.add(new Workload("DATAMATRIX optimize", BarcodeRequest.builder(
+                "BARCODE_DATAMATRIX", repeat("0123456789" + binary(8, 255) + "OKAPI", 1300))
+                .optimize(true).build()));
+        add(list, "HIBC_DM", "BARCODE_HIBC_DM", "A123BJC5D6E71");
+        add(list, "ONECODE", "BARCODE_ONECODE", "01234567094987654321-01234567891");
+        add(list, "QRCODE", "BARCODE_QRCODE", "https://okapibarcode.example/0123456789");
+        list.add(new Workload("QRCODE gs1", BarcodeRequest.builder("BARCODE_QRCODE", gs1)
+                .gs1(true).build()));
+        add(list, "QRCODE max binary", "BARCODE_QRCODE", binary(2900, 255));
+        add(list, "HIBC_QR", "BARCODE_HIBC_QR", "A123BJC5D6E7");
+        add(list, "MICROQR", "BARCODE_MICROQR", "01234567");
+        add(list, "MICROQR part number", "BARCODE_MICROQR", "PN-4711-A03B");
+        add(list, "CODEONE", "BARCODE_CODEONE", "Okapi Code One 0123456789");
+        add(list, "GRIDMATRIX", "BARCODE_GRIDMATRIX", "Okapi Grid Matrix 0123456789");
+        add(list, "RSS14", "BARCODE_RSS14", "0950110153000");
+        add(list, "RSS14STACK_OMNI", "BARCODE_RSS14STACK_OMNI", "0950110153000");
+        add(list, "RSS14STACK", "BARCODE_RSS14STACK", "0950110153000");
+        add(list, "RSS_LTD", "BARCODE_RSS_LTD", "1501234567890");
+        list.add(new Workload("RSS_EXP", BarcodeRequest.builder("BARCODE_RSS_EXP", gs1)
+                .gs1(true).build()));
+        list.add(new Workload("RSS_EXPSTACK", BarcodeRequest.builder("BARCODE_RSS_EXPSTACK", gs1)
+                .gs1(true).build()));
+        list.add(new Workload("MAXICODE", BarcodeRequest.builder("BARCODE_MAXICODE",
+                "Okapi MaxiCode 0123456789").option1(1).build()));
+        add(list, "CODABLOCKF", "BARCODE_CODABLOCKF", "Okapi Codablock-F 0123456789");
+        add(list, "HIBC_BLOCKF", "BARCODE_HIBC_BLOCKF", "A123BJC5D6E71");
+        list.add(new Workload("CODE128 + CC-C", BarcodeRequest.builder("BARCODE_CODE128",
+                "[01]09501101530003").gs1(true)
+                .composite("[10]ABCDEFGHIJKL[21]1234567890123456789012[90]OKAPI0123456789", 3)
+                .build()));
+        return list;
+    }
+
+    private static void add(List<Workload> list, String name, String symbology, String content) {
+        list.add(new Workload(name, BarcodeRequest.builder(symbology, content).build()));
+    }
+
+    /** Copies of text cut to exactly length characters */
+    private static String repeat(String text, int length) {
+        StringBuilder data = new StringBuilder(length + text.length());
+
+        while (data.length() < length) {
+            data.append(text);
+        }
+        data.setLength(length);
+        return data.toString();
+    }
+
+    /** Pseudo-random bytes 0x01 to limit, the same on every run */
+    private static String binary(int length, int limit) {
+        StringBuilder data = new StringBuilder(length);
+        int i, seed = 12345;
+
+        for (i = 0; i < length; i++) {
+            seed = (seed * 1103515245) + 12345;
+            data.append((char) (1 + ((seed >>> 16) % limit)));
+        }
+        return data.toString();
+    }
+}
@@ -10,9 +10,14 @@ import uk.org.okapibarcode.gui.*;
 public class OkapiBarcode {
 
     /**
-     * @param args the command line arguments
+     * @param args the command line arguments; if there are any, a batch is
+     * run without the user interface (see {@link OkapiBatch})
      */
     public static void main(String[] args) {
+        if (args.length > 0) {
+            OkapiBatch.main(args);
+            return;
+        }
         OkapiUI okapiUi = new OkapiUI();
         okapiUi.setVisible(true);
     }
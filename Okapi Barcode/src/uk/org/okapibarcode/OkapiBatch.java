@@ -0,0 +1,363 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import uk.org.okapibarcode.backend.BarcodeRequest;
+import uk.org.okapibarcode.backend.Barcode;
+import uk.org.okapibarcode.backend.EncodedSymbol;
+import uk.org.okapibarcode.backend.Symbology;
+import uk.org.okapibarcode.output.PostScript;
+import uk.org.okapibarcode.output.Raster;
+import uk.org.okapibarcode.output.ScalableVectorGraphics;
+
+/**
+ * Headless batch encoding from the command line.
+ * <p>
+ * Works like the batch tab of the user interface: each line of the input
+ * is encoded as one symbol and saved to a file named either after the data
+ * itself or after the line number, with an optional prefix. The input is
+ * read a line at a time and handed to a fixed number of worker threads
+ * through a short queue, so memory use does not depend on the size of the
+ * input. Lines which cannot be encoded or saved are reported to stderr with
+ * their line number, and a summary with the throughput is printed when the
+ * batch is finished.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+public class OkapiBatch {
+    private static final String USAGE =
+            "Usage: OkapiBatch -s SYMBOLOGY [options] [input file]\n"
+            + "  -s name      symbology, e.g. BARCODE_QRCODE\n"
+            + "  -i file      input file, one symbol per line (default: standard input)\n"
+            + "  -o folder    output folder (default: current folder)\n"
+            + "  -p prefix    prefix for output file names\n"
+            + "  -n naming    data (\"Same as Data\", default) or serial (\"Serial Number\")\n"
+            + "  -f format    png, jpg, gif, bmp, svg or eps (default: png)\n"
+            + "  -t threads   number of worker threads (default: number of processors)\n"
+            + "  -x factor    magnification for png, jpg, gif and bmp output (default: 4)\n"
+            + "  -q modules   quiet zone around png, jpg, gif and bmp output (default: 0)\n"
+            + "  -d dpi       resolution to record in png, jpg and bmp output\n"
+            + "  -e charset   character set of the input (default: ISO-8859-1)\n"
+            + "  -m           write each svg symbol as a single path\n"
+            + "  --gs1        encode data as GS1\n"
+            + "  --option1 n  symbology specific option 1\n"
+            + "  --option2 n  symbology specific option 2\n"
+            + "  --primary d  primary message (Maxicode only)\n";
+
+    private String symbology;
+    private String inputFile;
+    private String folder = "";
+    private String prefix = "";
+    private boolean serialNaming = false;
+    private String format = "png";
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int factor = 4;
+    private int quietZone = 0;
+    private int dpi = 0;
+    private String charset = "ISO-8859-1";
+    private boolean gs1 = false;
+    private boolean mergePaths = false;
+    private int option1;
+    private int option2;
+    private String primaryData = "";
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public static void main(String[] args) {
+        OkapiBatch batch = new OkapiBatch();
+        String problem = batch.parse(args);
+
+        if (!(problem.isEmpty())) {
+            System.err.println(problem);
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+        try {
+            if (!(batch.run())) {
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            System.err.println("I/O error: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            System.err.println("Batch interrupted");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Read the command line
+     *
+     * @return an error message, or an empty string if the arguments are valid
+     */
+    String parse(String[] args) {
+        int i;
+
+        try {
+            for (i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-s":
+                        symbology = args[++i];
+                        break;
+                    case "-i":
+                        inputFile = args[++i];
+                        break;
+                    case "-o":
+                        folder = args[++i];
+                        if (!(folder.isEmpty()) && !(folder.endsWith(File.separator))) {
+                            folder += File.separator;
+                        }
+                        break;
+                    case "-p":
+                        prefix = args[++i];
+                        break;
+                    case "-n":
+                        switch (args[++i]) {
+                            case "data":
+                                serialNaming = false;
+                                break;
+                            case "serial":
+                                serialNaming = true;
+                                break;
+                            default:
+                                return "Unknown naming option " + args[i];
+                        }
+                        break;
+                    case "-f":
+                        format = args[++i].toLowerCase();
+                        break;
+                    case "-t":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-x":
+                        factor = Integer.parseInt(args[++i]);
+                        break;
+                    case "-q":
+                        quietZone = Integer.parseInt(args[++i]);
+                        break;
+                    case "-d":
+                        dpi = Integer.parseInt(args[++i]);
+                        break;
+                    case "-e":
+                        charset = args[++i];
+                        break;
+                    case "-m":
+                        mergePaths = true;
+                        break;
+                    case "--gs1":
+                        gs1 = true;
+                        break;
+                    case "--option1":
+                        option1 = Integer.parseInt(args[++i]);
+                        break;
+                    case "--option2":
+                        option2 = Integer.parseInt(args[++i]);
+                        break;
+                    case "--primary":
+                        primaryData = args[++i];
+                        break;
+                    default:
+                        if (args[i].startsWith("-") || inputFile != null) {
+                            return "Unknown option " + args[i];
+                        }
+                        inputFile = args[i];
+                        break;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return "Missing value for " + args[args.length - 1];
+        } catch (NumberFormatException e) {
+            return "Invalid number: " + e.getMessage();
+        }
+
+        if (symbology == null) {
+            return "No symbology given";
+        }
+        if (Symbology.forName(symbology) == null) {
+            return "Symbology not recognised: " + symbology;
+        }
+        switch (format) {
+            case "png":
+            case "jpg":
+            case "gif":
+            case "bmp":
+            case "svg":
+            case "eps":
+                break;
+            default:
+                return "Unsupported output format " + format;
+        }
+        if (threads < 1) {
+            return "Need at least one worker thread";
+        }
+        if (factor < 1) {
+            return "Magnification must be at least 1";
+        }
+        if (quietZone < 0) {
+            return "Quiet zone cannot be negative";
+        }
+        if (dpi < 0) {
+            return "Resolution cannot be negative";
+        }
+        if (!(Charset.isSupported(charset))) {
+            return "Unknown character set " + charset;
+        }
+        return "";
+    }
+
+    /**
+     * Encode every line of the input
+     *
+     * @return true if every line was encoded and saved
+     */
+    boolean run() throws IOException, InterruptedException {
+        ThreadPoolExecutor workers;
+        InputStream in;
+        String line;
+        long lineCount = 0;
+        long start, elapsed;
+
+        // A short queue keeps the reader only a little ahead of the workers;
+        // once it is full the reader encodes the next line itself
+        workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * 4),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        if (inputFile == null || inputFile.equals("-")) {
+            in = System.in;
+        } else {
+            in = new FileInputStream(inputFile);
+        }
+
+        start = System.nanoTime();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset))) {
+            while ((line = reader.readLine()) != null) {
+                lineCount++;
+                if (!(line.isEmpty())) {
+                    workers.execute(new Job(line, lineCount));
+                }
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        elapsed = System.nanoTime() - start;
+
+        System.err.printf("Finished: %d lines, %d symbols written, %d errors in %.2f s (%.0f symbols/s)%n",
+                lineCount, written.get(), failed.get(), elapsed / 1.0e9,
+                written.get() / Math.max(elapsed / 1.0e9, 1.0e-9));
+        return failed.get() == 0;
+    }
+
+    private BarcodeRequest request(String data) {
+        BarcodeRequest.Builder builder = BarcodeRequest.builder(symbology, data);
+
+        builder.gs1(gs1).option1(option1).option2(option2).primary(primaryData);
+        return builder.build();
+    }
+
+    /** Output file for one line, named as in the batch tab of the user interface */
+    private File outputFile(String data, long lineNumber) {
+        if (serialNaming) {
+            // Serial numbers count lines from zero, blank lines included
+            return new File(folder + prefix + (lineNumber - 1) + "." + format);
+        }
+        return new File(folder + prefix + data + "." + format);
+    }
+
+    private void save(EncodedSymbol symbol, String data, File file) throws IOException {
+        ScalableVectorGraphics svg;
+        PostScript eps;
+        Raster raster;
+
+        switch (format) {
+            case "svg":
+                svg = new ScalableVectorGraphics();
+                svg.setSymbol(symbol, data);
+                svg.setMergePaths(mergePaths);
+                try (OutputStream out = new FileOutputStream(file)) {
+                    svg.write(out);
+                }
+                break;
+            case "eps":
+                eps = new PostScript();
+                eps.setSymbol(symbol, data);
+                try (OutputStream out = new FileOutputStream(file)) {
+                    eps.write(out);
+                }
+                break;
+            default:
+                raster = new Raster();
+                raster.setSymbol(symbol);
+                raster.setModuleSize(factor);
+                raster.setQuietZone(quietZone);
+                raster.setDpi(dpi);
+                try (OutputStream out = new FileOutputStream(file)) {
+                    raster.write(out, format);
+                }
+                break;
+        }
+    }
+
+    /** Encodes and saves one line of input */
+    private class Job implements Runnable {
+        private final String data;
+        private final long lineNumber;
+
+        Job(String data, long lineNumber) {
+            this.data = data;
+            this.lineNumber = lineNumber;
+        }
+
+        @Override
+        public void run() {
+            EncodedSymbol symbol;
+            File file = outputFile(data, lineNumber);
+
+            try {
+                symbol = Barcode.encode(request(data));
+                if (!(symbol.isValid())) {
+                    failed.incrementAndGet();
+                    System.err.println(symbol.getErrorMessage() + " at line " + lineNumber);
+                    return;
+                }
+                save(symbol, data, file);
+                written.incrementAndGet();
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                System.err.println("I/O Exception writing to " + file.getPath()
+                        + " at line " + lineNumber);
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                System.err.println("Internal error (" + e + ") at line " + lineNumber);
+            }
+        }
+    }
+}
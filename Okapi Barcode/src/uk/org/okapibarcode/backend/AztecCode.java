@@ -15,6 +15,9 @@
  */
 package uk.org.okapibarcode.backend;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Implements Aztec Code bar code symbology
  * According to ISO/IEC 24778:2008
@@ -24,7 +27,10 @@ package uk.org.okapibarcode.backend;
  */
 public class AztecCode extends Symbol {
 
-    private final int[] CompactAztecMap = { //27 x 27 data grid
+    /* Module values of the 27 x 27 compact symbol: 0 is light, 1 is dark,
+     * n >= 2 holds data bit n - 2 and 2000 + n holds bit n of the mode
+     * message */
+    private static final short[] CompactAztecMap = {
         609, 608, 411, 413, 415, 417, 419, 421, 423, 425, 427, 429, 431, 433, 435, 437, 439, 441, 443, 445, 447, 449, 451, 453, 455, 457, 459,
         607, 606, 410, 412, 414, 416, 418, 420, 422, 424, 426, 428, 430, 432, 434, 436, 438, 440, 442, 444, 446, 448, 450, 452, 454, 456, 458,
         605, 604, 409, 408, 243, 245, 247, 249, 251, 253, 255, 257, 259, 261, 263, 265, 267, 269, 271, 273, 275, 277, 279, 281, 283, 460, 461,
@@ -54,7 +60,9 @@ public class AztecCode extends Symbol {
         559, 557, 555, 553, 551, 549, 547, 545, 543, 541, 539, 537, 535, 533, 531, 529, 527, 525, 523, 521, 519, 517, 515, 513, 511, 508, 509
     };
 
-    private final int[][] AztecMap = new int[151][151];
+    /* The same for the 151 x 151 full range symbol, held row by row, with the
+     * mode message from 20000. Smaller symbols are a window on the middle. */
+    private static final AtomicReference<short[]> FULL_MAP = new AtomicReference<>();
 
     private final int[] AztecCodeSet = { /* From Table 2 */
         32, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 12, 32, 32, 32, 32, 32, 32,
@@ -82,21 +90,6 @@ public class AztecCode extends Symbol {
 	302: Full Stop (ASCII 46)
 */
 
-    private final String[] hexbit = {
-        "00000", "00001", "00010", "00011", "00100", "00101", "00110", "00111", "01000", "01001",
-            "01010", "01011", "01100", "01101", "01110", "01111", "10000", "10001", "10010", "10011", "10100", "10101",
-            "10110", "10111", "11000", "11001", "11010", "11011", "11100", "11101", "11110", "11111"
-    };
-
-    private final String[] pentbit = {
-        "0000", "0001", "0010", "0011", "0100", "0101", "0110", "0111", "1000", "1001",
-            "1010", "1011", "1100", "1101", "1110", "1111"
-    };
-
-    private final String[] tribit = {
-        "000", "001", "010", "011", "100", "101", "110", "111"
-    };
-
     private final int[] AztecSizes = { /* Codewords per symbol */
         21, 48, 60, 88, 120, 156, 196, 240, 230, 272, 316, 364, 416, 470, 528, 588, 652, 720, 790,
         864, 940, 1020, 920, 992, 1066, 1144, 1224, 1306, 1392, 1480, 1570, 1664
@@ -143,6 +136,15 @@ public class AztecCode extends Symbol {
         36, 102, 176, 280
     };
 
+    private final int[][] AztecDataSizes = {
+        Aztec10DataSizes, Aztec23DataSizes, Aztec36DataSizes, Aztec50DataSizes
+    };
+
+    private final int[][] AztecCompactDataSizes = {
+        AztecCompact10DataSizes, AztecCompact23DataSizes, AztecCompact36DataSizes,
+        AztecCompact50DataSizes
+    };
+
     private final int[] AztecOffset = {
         66, 64, 62, 60, 57, 55, 53, 51, 49, 47, 45, 42, 40, 38, 36, 34, 32, 30, 28, 25, 23, 21,
         19, 17, 15, 13, 10, 8, 6, 4, 2, 0
@@ -153,16 +155,20 @@ public class AztecCode extends Symbol {
     };
 
 
-    public AztecCode() {
+    /**
+     * Module values of the largest full range symbol, as for the compact
+     * map: built the first time it is needed and then shared
+     */
+    private static short[] fullMap() {
+        short[] map = FULL_MAP.get();
         int layer, start, length, n, i;
         int x, y;
 
-        for (x = 0; x < 151; x++) {
-            for (y = 0; y < 151; y++) {
-                AztecMap[x][y] = 0;
-            }
+        if (map != null) {
+            return map;
         }
 
+        map = new short[151 * 151];
         for (layer = 1; layer < 33; layer++) {
             start = (112 * (layer - 1)) + (16 * (layer - 1) * (layer - 1)) + 2;
             length = 28 + ((layer - 1) * 4) + (layer * 4);
@@ -171,8 +177,8 @@ public class AztecCode extends Symbol {
             x = 64 - ((layer - 1) * 2);
             y = 63 - ((layer - 1) * 2);
             for (n = start; n < (start + length); n += 2) {
-                AztecMap[avoidReferenceGrid(x + i)][avoidReferenceGrid(y)] = n;
-                AztecMap[avoidReferenceGrid(x + i)][avoidReferenceGrid(y - 1)] = n + 1;
+                map[(avoidReferenceGrid(y) * 151) + avoidReferenceGrid(x + i)] = (short) n;
+                map[(avoidReferenceGrid(y - 1) * 151) + avoidReferenceGrid(x + i)] = (short) (n + 1);
                 i++;
             }
             /* Right */
@@ -180,8 +186,8 @@ public class AztecCode extends Symbol {
             x = 78 + ((layer - 1) * 2);
             y = 64 - ((layer - 1) * 2);
             for (n = start + length; n < (start + (length * 2)); n += 2) {
-                AztecMap[avoidReferenceGrid(x)][avoidReferenceGrid(y + i)] = n;
-                AztecMap[avoidReferenceGrid(x + 1)][avoidReferenceGrid(y + i)] = n + 1;
+                map[(avoidReferenceGrid(y + i) * 151) + avoidReferenceGrid(x)] = (short) n;
+                map[(avoidReferenceGrid(y + i) * 151) + avoidReferenceGrid(x + 1)] = (short) (n + 1);
                 i++;
             }
             /* Bottom */
@@ -189,8 +195,8 @@ public class AztecCode extends Symbol {
             x = 77 + ((layer - 1) * 2);
             y = 78 + ((layer - 1) * 2);
             for (n = start + (length * 2); n < (start + (length * 3)); n += 2) {
-                AztecMap[avoidReferenceGrid(x - i)][avoidReferenceGrid(y)] = n;
-                AztecMap[avoidReferenceGrid(x - i)][avoidReferenceGrid(y + 1)] = n + 1;
+                map[(avoidReferenceGrid(y) * 151) + avoidReferenceGrid(x - i)] = (short) n;
+                map[(avoidReferenceGrid(y + 1) * 151) + avoidReferenceGrid(x - i)] = (short) (n + 1);
                 i++;
             }
             /* Left */
@@ -198,8 +204,8 @@ public class AztecCode extends Symbol {
             x = 63 - ((layer - 1) * 2);
             y = 77 + ((layer - 1) * 2);
             for (n = start + (length * 3); n < (start + (length * 4)); n += 2) {
-                AztecMap[avoidReferenceGrid(x)][avoidReferenceGrid(y - i)] = n;
-                AztecMap[avoidReferenceGrid(x - 1)][avoidReferenceGrid(y - i)] = n + 1;
+                map[(avoidReferenceGrid(y - i) * 151) + avoidReferenceGrid(x)] = (short) n;
+                map[(avoidReferenceGrid(y - i) * 151) + avoidReferenceGrid(x - 1)] = (short) (n + 1);
                 i++;
             }
         }
@@ -207,67 +213,70 @@ public class AztecCode extends Symbol {
         /* Central finder pattern */
         for (y = 69; y <= 81; y++) {
             for (x = 69; x <= 81; x++) {
-                AztecMap[x][y] = 1;
+                map[(y * 151) + x] = 1;
             }
         }
         for (y = 70; y <= 80; y++) {
             for (x = 70; x <= 80; x++) {
-                AztecMap[x][y] = 0;
+                map[(y * 151) + x] = 0;
             }
         }
         for (y = 71; y <= 79; y++) {
             for (x = 71; x <= 79; x++) {
-                AztecMap[x][y] = 1;
+                map[(y * 151) + x] = 1;
             }
         }
         for (y = 72; y <= 78; y++) {
             for (x = 72; x <= 78; x++) {
-                AztecMap[x][y] = 0;
+                map[(y * 151) + x] = 0;
             }
         }
         for (y = 73; y <= 77; y++) {
             for (x = 73; x <= 77; x++) {
-                AztecMap[x][y] = 1;
+                map[(y * 151) + x] = 1;
             }
         }
         for (y = 74; y <= 76; y++) {
             for (x = 74; x <= 76; x++) {
-                AztecMap[x][y] = 0;
+                map[(y * 151) + x] = 0;
             }
         }
 
         /* Guide bars */
         for (y = 11; y < 151; y += 16) {
             for (x = 1; x < 151; x += 2) {
-                AztecMap[x][y] = 1;
-                AztecMap[y][x] = 1;
+                map[(y * 151) + x] = 1;
+                map[(x * 151) + y] = 1;
             }
         }
 
         /* Descriptor */
         for (i = 0; i < 10; i++) { /* Top */
-            AztecMap[avoidReferenceGrid(66 + i)][avoidReferenceGrid(64)] = 20000 + i;
+            map[(avoidReferenceGrid(64) * 151) + avoidReferenceGrid(66 + i)] = (short) (20000 + i);
         }
         for (i = 0; i < 10; i++) { /* Right */
-            AztecMap[avoidReferenceGrid(77)][avoidReferenceGrid(66 + i)] = 20010 + i;
+            map[(avoidReferenceGrid(66 + i) * 151) + avoidReferenceGrid(77)] = (short) (20010 + i);
         }
         for (i = 0; i < 10; i++) { /* Bottom */
-            AztecMap[avoidReferenceGrid(75 - i)][avoidReferenceGrid(77)] = 20020 + i;
+            map[(avoidReferenceGrid(77) * 151) + avoidReferenceGrid(75 - i)] = (short) (20020 + i);
         }
         for (i = 0; i < 10; i++) { /* Left */
-            AztecMap[avoidReferenceGrid(64)][avoidReferenceGrid(75 - i)] = 20030 + i;
+            map[(avoidReferenceGrid(75 - i) * 151) + avoidReferenceGrid(64)] = (short) (20030 + i);
         }
 
         /* Orientation */
-        AztecMap[avoidReferenceGrid(64)][avoidReferenceGrid(64)] = 1;
-        AztecMap[avoidReferenceGrid(65)][avoidReferenceGrid(64)] = 1;
-        AztecMap[avoidReferenceGrid(64)][avoidReferenceGrid(65)] = 1;
-        AztecMap[avoidReferenceGrid(77)][avoidReferenceGrid(64)] = 1;
-        AztecMap[avoidReferenceGrid(77)][avoidReferenceGrid(65)] = 1;
-        AztecMap[avoidReferenceGrid(77)][avoidReferenceGrid(76)] = 1;
+        map[(avoidReferenceGrid(64) * 151) + avoidReferenceGrid(64)] = 1;
+        map[(avoidReferenceGrid(64) * 151) + avoidReferenceGrid(65)] = 1;
+        map[(avoidReferenceGrid(65) * 151) + avoidReferenceGrid(64)] = 1;
+        map[(avoidReferenceGrid(64) * 151) + avoidReferenceGrid(77)] = 1;
+        map[(avoidReferenceGrid(65) * 151) + avoidReferenceGrid(77)] = 1;
+        map[(avoidReferenceGrid(76) * 151) + avoidReferenceGrid(77)] = 1;
+    
+        FULL_MAP.compareAndSet(null, map);
+        return FULL_MAP.get();
     }
 
-    private int avoidReferenceGrid(int input) {
+    private static int avoidReferenceGrid(int input) {
         int output;
 
         output = input;
@@ -307,26 +316,25 @@ public class AztecCode extends Symbol {
     };
 
     String local_source;
-    String binary_string;
+    BitBuffer binary_string;
+    /* Length of binary_string after bit stuffing */
+    int stuffed_length;
 
     @Override
     public boolean encode() {
         int i, ecc_level, data_length, layers, data_maxsize;
-        int adjustment_size, codeword_size;
-        int j, count, adjusted_length, padbits, remainder;
-        String adjusted_string = "", bit_pattern = "";
+        int adjustment_size, codeword_size, size;
+        int j, adjusted_length;
+        int[] data_part, ecc_part, words, sizes, compactSizes;
         int comp_loop = 4;
         int data_blocks, ecc_blocks, total_bits;
         boolean compact;
-        ReedSolomon rs = new ReedSolomon();
-        ReedSolomon rs2 = new ReedSolomon();
-        String descriptor = "";
+        BitBuffer descriptor = new BitBuffer(40);
         int[] desc_data = new int[4];
         int[] desc_ecc = new int[6];
-        int y, x, weight;
-        String bin;
-        int t;
-        boolean done;
+        int y, x;
+        int offset;
+        short[] map;
         
         if(readerInit) { 
             comp_loop = 1; 
@@ -347,10 +355,17 @@ public class AztecCode extends Symbol {
 
         local_source = content;
 
-        if (generateAztecBinary() == false) {
+        if (optimize) {
+            generateOptimalBinary();
+        } else if (generateAztecBinary() == false) {
             error_msg = "Input too long or too many extended ASCII characters";
             return false;
         }
+        if (binary_string.length() == 0) {
+            /* A lone character from the binary-only range gives no data */
+            error_msg = "Invalid character in input data";
+            return false;
+        }
         
         // Set the error correction level
         if ((option1 <= 0) || (option1 > 4)) {
@@ -364,80 +379,29 @@ public class AztecCode extends Symbol {
         layers = 0; /* Keep compiler happy! */
         data_maxsize = 0; /* Keep compiler happy! */
         adjustment_size = 0;
+        data_part = null;
         
         if(option2 == 0) { /* The size of the symbol can be determined by Zint */
+            sizes = AztecDataSizes[ecc_level - 1];
+            compactSizes = AztecCompactDataSizes[ecc_level - 1];
+            codeword_size = 0;
             do {
-                /* Decide what size symbol to use - the smallest that fits the data */
-                compact = false; /* 1 = Aztec Compact, 0 = Normal Aztec */
+                /* Decide what size symbol to use - the smallest that fits the data,
+                   compact if one of those will do */
+                compact = false;
                 layers = 0;
-
-                switch (ecc_level) {
-                    /* For each level of error correction work out the smallest symbol which
-                                    the data will fit in */
-                case 1:
-                    for (i = 32; i > 0; i--) {
-                        if ((data_length + adjustment_size) < Aztec10DataSizes[i - 1]) {
-                            layers = i;
-                            compact = false;
-                            data_maxsize = Aztec10DataSizes[i - 1];
-                        }
-                    }
-                    for (i = comp_loop; i > 0; i--) {
-                        if ((data_length + adjustment_size) < AztecCompact10DataSizes[i - 1]) {
-                            layers = i;
-                            compact = true;
-                            data_maxsize = AztecCompact10DataSizes[i - 1];
-                        }
-                    }
-                    break;
-                case 2:
-                    for (i = 32; i > 0; i--) {
-                        if ((data_length + adjustment_size) < Aztec23DataSizes[i - 1]) {
-                            layers = i;
-                            compact = false;
-                            data_maxsize = Aztec23DataSizes[i - 1];
-                        }
-                    }
-                    for (i = comp_loop; i > 0; i--) {
-                        if ((data_length + adjustment_size) < AztecCompact23DataSizes[i - 1]) {
-                            layers = i;
-                            compact = true;
-                            data_maxsize = AztecCompact23DataSizes[i - 1];
-                        }
-                    }
-                    break;
-                case 3:
-                    for (i = 32; i > 0; i--) {
-                        if ((data_length + adjustment_size) < Aztec36DataSizes[i - 1]) {
-                            layers = i;
-                            compact = false;
-                            data_maxsize = Aztec36DataSizes[i - 1];
-                        }
-                    }
-                    for (i = comp_loop; i > 0; i--) {
-                        if ((data_length + adjustment_size) < AztecCompact36DataSizes[i - 1]) {
-                            layers = i;
-                            compact = true;
-                            data_maxsize = AztecCompact36DataSizes[i - 1];
-                        }
+                for (i = 1; (i <= comp_loop) && (layers == 0); i++) {
+                    if ((data_length + adjustment_size) < compactSizes[i - 1]) {
+                        layers = i;
+                        compact = true;
+                        data_maxsize = compactSizes[i - 1];
                     }
-                    break;
-                case 4:
-                    for (i = 32; i > 0; i--) {
-                        if ((data_length + adjustment_size) < Aztec50DataSizes[i - 1]) {
-                            layers = i;
-                            compact = false;
-                            data_maxsize = Aztec50DataSizes[i - 1];
-                        }
-                    }
-                    for (i = comp_loop; i > 0; i--) {
-                        if ((data_length + adjustment_size) < AztecCompact50DataSizes[i - 1]) {
-                            layers = i;
-                            compact = true;
-                            data_maxsize = AztecCompact50DataSizes[i - 1];
-                        }
+                }
+                for (i = 1; (i <= 32) && (layers == 0); i++) {
+                    if ((data_length + adjustment_size) < sizes[i - 1]) {
+                        layers = i;
+                        data_maxsize = sizes[i - 1];
                     }
-                    break;
                 }
 
                 if (layers == 0) { /* Couldn't find a symbol which fits the data */
@@ -445,97 +409,15 @@ public class AztecCode extends Symbol {
                     return false;
                 }
 
-                /* Determine codeword bitlength - Table 3 */
-                codeword_size = 6; /* if (layers <= 2) */
-                if ((layers >= 3) && (layers <= 8)) {
-                    codeword_size = 8;
-                }
-                if ((layers >= 9) && (layers <= 22)) {
-                    codeword_size = 10;
-                }
-                if (layers >= 23) {
-                    codeword_size = 12;
-                }
-
-                j = 0;
-                i = 0;
-
-                do {
-                    if ((j + 1) % codeword_size == 0) {
-                        /* Last bit of codeword */
-                        done = false;
-                        count = 0;
-
-                        /* Discover how many '1's in current codeword */
-                        for (t = 0; t < (codeword_size - 1); t++) {
-                            if (binary_string.charAt((i - (codeword_size - 1)) + t) == '1') count++;
-                        }
-
-                        if (count == (codeword_size - 1)) {
-                            adjusted_string += '0';
-                            j++;
-                            done = true;
-                        }
-
-                        if (count == 0) {
-                            adjusted_string += '1';
-                            j++;
-                            done = true;
-                        }
-
-                        if (!done) {
-                            adjusted_string += binary_string.charAt(i);
-                            j++;
-                            i++;
-                        }
-                    } else {
-                        adjusted_string += binary_string.charAt(i);
-                        j++;
-                        i++;
-                    }
-                } while (i < data_length);
-
-                adjusted_length = adjusted_string.length();
-                adjustment_size = adjusted_length - data_length;
-
-                /* Add padding */
-                remainder = adjusted_length % codeword_size;
-
-                padbits = codeword_size - remainder;
-                if (padbits == codeword_size) {
-                    padbits = 0;
-                }
-
-                for (i = 0; i < padbits; i++) {
-                    adjusted_string += "1";
-                }
-                adjusted_length = adjusted_string.length();
-
-                count = 0;
-                for (i = (adjusted_length - codeword_size); i < adjusted_length; i++) {
-                    if (adjusted_string.charAt(i) == '1') {
-                        count++;
-                    }
-                }
-                if (count == codeword_size) {
-                    adjusted_string = adjusted_string.substring(0, adjusted_length - 1) + '0';
+                /* The stuffing only depends on the codeword length, so it is
+                   only done again if the new size has longer codewords */
+                size = codewordSize(layers);
+                if (size != codeword_size) {
+                    codeword_size = size;
+                    data_part = stuffBits(codeword_size);
+                    adjustment_size = stuffed_length - data_length;
                 }
-
-                if (debug) {
-                    System.out.printf("Codewords:\n");
-                    for (i = 0; i < (adjusted_length / codeword_size); i++) {
-                        int l = 0, m = (1 << (codeword_size - 1));
-                        for (j = 0; j < codeword_size; j++) {
-                            if (adjusted_string.charAt((i * codeword_size) + j) == '1') {
-                                l += m;
-                            }
-                            m = m >> 1;
-                        }
-                        System.out.print("[" + l + "] ");
-                    }
-                    System.out.println();
-                }
-
+                adjusted_length = data_part.length * codeword_size;
             } while (adjusted_length > data_maxsize);
             /* This loop will only repeat on the rare occasions when the rule about not having all 1s or all 0s
                     means that the binary string has had to be lengthened beyond the maximum number of bits that can
@@ -557,77 +439,10 @@ public class AztecCode extends Symbol {
                 error_msg = "Invalid Aztec Code size";
                 return false;
             }
-            /* Determine codeword bitlength - Table 3 */
-            codeword_size = 6;
-            if((layers >= 3) && (layers <= 8)) { 
-                codeword_size = 8; 
-            }
-            if((layers >= 9) && (layers <= 22)) { 
-                codeword_size = 10; 
-            }
-            if(layers >= 23) { 
-                codeword_size = 12; 
-            }
-            j = 0; i = 0;
-            do {
-                if(((j + 1) % codeword_size) == 0) {
-                    /* Last bit of codeword */
-                    done = false;
-                    count = 0;
-
-                    /* Discover how many '1's in current codeword */
-                    for(t = 0; t < (codeword_size - 1); t++) {
-                        if(binary_string.charAt((i - (codeword_size - 1)) + t) == '1') {
-                            count++;
-                        }
-                    }
+            codeword_size = codewordSize(layers);
+            data_part = stuffBits(codeword_size);
+            adjusted_length = data_part.length * codeword_size;
 
-                    if(count == (codeword_size - 1)) {
-                        adjusted_string += '0';
-                        j++;
-                        done = true;
-                    }
-
-                    if(count == 0) {
-                        adjusted_string += '1';
-                        j++;
-                        done = true;
-                    }
-
-                    if(!done) {
-                        adjusted_string += binary_string.charAt(i);
-                        j++;
-                        i++;
-                    }
-                } else {
-                    adjusted_string += binary_string.charAt(i);
-                    j++;
-                    i++;
-                }
-        } while (i < binary_string.length());
-        
-        adjusted_length = adjusted_string.length();
-        remainder = adjusted_length % codeword_size;
-        padbits = codeword_size - remainder;
-        
-        if(padbits == codeword_size) { padbits = 0; }
-            for(i = 0; i < padbits; i++) {
-                adjusted_string += "1";
-            }
-            
-            adjusted_length = adjusted_string.length();
-            count = 0;
-            
-            for(i = (adjusted_length - codeword_size); i < adjusted_length; i++) {
-                if(adjusted_string.charAt(i) == '1') { 
-                    count++;
-                }
-            }
-            
-            if(count == codeword_size) { 
-                adjusted_string = adjusted_string.substring(0, adjusted_length - 1) + '0'; 
-            }
-            
             /* Check if the data actually fits into the selected symbol size */
             if (compact) {
                 data_maxsize = codeword_size * (AztecCompactSizes[layers - 1] - 3);
@@ -639,16 +454,14 @@ public class AztecCode extends Symbol {
                 error_msg = "Data too long for specified Aztec Code symbol size";
                 return false;
             }
-            
-            if (debug) {
-                System.out.printf("Codewords:\n");
-                for (i = 0; i < (adjusted_length / codeword_size); i++) {
-                    for (j = 0; j < codeword_size; j++) {
-                        System.out.printf("%c", adjusted_string.charAt((i * codeword_size) + j));
-                    }
-                    System.out.printf("\n");
-                }
+        }
+
+        if (debug) {
+            System.out.printf("Codewords:\n");
+            for (i = 0; i < data_part.length; i++) {
+                System.out.print("[" + data_part[i] + "] ");
             }
+            System.out.println();
         }
         
         if(readerInit && (layers > 22)) {
@@ -656,7 +469,7 @@ public class AztecCode extends Symbol {
             return false;
         }
 
-        data_blocks = adjusted_length / codeword_size;
+        data_blocks = data_part.length;
 
         if (compact) {
             ecc_blocks = AztecCompactSizes[layers - 1] - data_blocks;
@@ -693,173 +506,55 @@ public class AztecCode extends Symbol {
         encodeInfo += "Data Codewords: " + data_blocks + '\n';
         encodeInfo += "ECC Codewords: " + ecc_blocks + '\n';
 
-        int[] data_part = new int[data_blocks + 3];
-        int[] ecc_part = new int[ecc_blocks + 3];
+        ecc_part = new int[ecc_blocks];
 
-        /* Split into codewords and calculate reed-colomon error correction codes */
+        /* Calculate reed-colomon error correction codes */
         switch (codeword_size) {
         case 6:
-            for (i = 0; i < data_blocks; i++) {
-                for (weight = 0; weight < 6; weight++) {
-                    if (adjusted_string.charAt((i * codeword_size) + weight) == '1') {
-                        data_part[i] += (32 >> weight);
-                    }
-                }
-            }
-            rs.init_gf(0x43);
-            rs.init_code(ecc_blocks, 1);
-            rs.encode(data_blocks, data_part);
-            for (i = 0; i < ecc_blocks; i++) {
-                ecc_part[i] = rs.getResult(i);
-            }
-            for (i = (ecc_blocks - 1); i >= 0; i--) {
-                for(weight = 0x20; weight > 0; weight = weight >> 1) {
-                    if ((ecc_part[i] & weight) != 0) {
-                        adjusted_string += "1";
-                    } else {
-                        adjusted_string += "0";
-                    }
-                }
-            }
+            ReedSolomon.encode(0x43, ecc_blocks, 1, data_part, data_blocks, ecc_part);
             break;
         case 8:
-            for (i = 0; i < data_blocks; i++) {
-                for (weight = 0; weight < 8; weight++) {
-                    if (adjusted_string.charAt((i * codeword_size) + weight) == '1') {
-                        data_part[i] += (128 >> weight);
-                    }
-                }
-            }
-            rs.init_gf(0x12d);
-            rs.init_code(ecc_blocks, 1);
-            rs.encode(data_blocks, data_part);
-            for (i = 0; i < ecc_blocks; i++) {
-                ecc_part[i] = rs.getResult(i);
-            }
-            for (i = (ecc_blocks - 1); i >= 0; i--) {
-                for(weight = 0x80; weight > 0; weight = weight >> 1) {
-                    if ((ecc_part[i] & weight) != 0) {
-                        adjusted_string += "1";
-                    } else {
-                        adjusted_string += "0";
-                    }
-                }
-            }
+            ReedSolomon.encode(0x12d, ecc_blocks, 1, data_part, data_blocks, ecc_part);
             break;
         case 10:
-            for (i = 0; i < data_blocks; i++) {
-                for (weight = 0; weight < 10; weight++) {
-                    if (adjusted_string.charAt((i * codeword_size) + weight) == '1') {
-                        data_part[i] += (512 >> weight);
-                    }
-                }
-            }
-            rs.init_gf(0x409);
-            rs.init_code(ecc_blocks, 1);
-            rs.encode(data_blocks, data_part);
-            for (i = 0; i < ecc_blocks; i++) {
-                ecc_part[i] = rs.getResult(i);
-            }
-            for (i = (ecc_blocks - 1); i >= 0; i--) {
-                for(weight = 0x200; weight > 0; weight = weight >> 1) {
-                    if ((ecc_part[i] & weight) != 0) {
-                        adjusted_string += "1";
-                    } else {
-                        adjusted_string += "0";
-                    }
-                }
-            }
+            ReedSolomon.encode(0x409, ecc_blocks, 1, data_part, data_blocks, ecc_part);
             break;
         case 12:
-            for (i = 0; i < data_blocks; i++) {
-                for (weight = 0; weight < 12; weight++) {
-                    if (adjusted_string.charAt((i * codeword_size) + weight) == '1') {
-                        data_part[i] += (2048 >> weight);
-                    }
-                }                
-            }
-            rs.init_gf(0x1069);
-            rs.init_code(ecc_blocks, 1);
-            rs.encode(data_blocks, data_part);
-            for (i = 0; i < ecc_blocks; i++) {
-                ecc_part[i] = rs.getResult(i);
-            }
-            for (i = (ecc_blocks - 1); i >= 0; i--) {
-                for(weight = 0x800; weight > 0; weight = weight >> 1) {
-                    if ((ecc_part[i] & weight) != 0) {
-                        adjusted_string += "1";
-                    } else {
-                        adjusted_string += "0";
-                    }
-                }
-            }
+            ReedSolomon.encode(0x1069, ecc_blocks, 1, data_part, data_blocks, ecc_part);
             break;
         }
+        words = new int[data_blocks + ecc_blocks];
+        System.arraycopy(data_part, 0, words, 0, data_blocks);
+        for (i = 0; i < ecc_blocks; i++) {
+            words[data_blocks + i] = ecc_part[ecc_blocks - 1 - i];
+        }
 
-        /* Invert the data so that actual data is on the outside and reed-solomon on the inside */
+        /* The data is read backwards so that actual data is on the outside and reed-solomon on the inside */
         total_bits = (data_blocks + ecc_blocks) * codeword_size;
-        for (i = 0; i < total_bits; i++) {
-            bit_pattern += adjusted_string.charAt(total_bits - i - 1);
-        }
 
         if (compact) {
             /* The first 2 bits represent the number of layers minus 1 */
-            if (((layers - 1) & 0x02) != 0) {
-                descriptor += '1';
-            } else {
-                descriptor += '0';
-            }
-            if (((layers - 1) & 0x01) != 0) {
-                descriptor += '1';
-            } else {
-                descriptor += '0';
-            }
+            descriptor.append(layers - 1, 2);
             /* The next 6 bits represent the number of data blocks minus 1 */
             if(readerInit) {
-                descriptor += '1';
+                descriptor.append(true);
             } else {
-                if (((data_blocks - 1) & 0x20) != 0) {
-                    descriptor += '1';
-                } else {
-                    descriptor += '0';
-                }
-            }
-            for(i = 0x10; i > 0; i = i >> 1) {
-                if (((data_blocks - 1) & i) != 0) {
-                    descriptor += '1';
-                } else {
-                    descriptor += '0';
-                }
+                descriptor.append((data_blocks - 1) >> 5, 1);
             }
+            descriptor.append(data_blocks - 1, 5);
             if (debug) System.out.printf("Mode Message = %s\n", descriptor);
             j = 2;
         } else {
             /* The first 5 bits represent the number of layers minus 1 */
-            for(i = 0x10; i > 0; i = i >> 1) {
-                if (((layers - 1) & i) != 0) {
-                    descriptor += '1';
-                } else {
-                    descriptor += '0';
-                }
-            }
+            descriptor.append(layers - 1, 5);
 
             /* The next 11 bits represent the number of data blocks minus 1 */
             if(readerInit) {
-                descriptor += '1';
+                descriptor.append(true);
             } else {
-                if (((data_blocks - 1) & 0x400) != 0) {
-                    descriptor += '1';
-                } else {
-                    descriptor += '0';
-                }
-            }
-            for(i = 0x200; i > 0; i = i >> 1) {
-                if (((data_blocks - 1) & i) != 0) {
-                    descriptor += '1';
-                } else {
-                    descriptor += '0';
-                }
+                descriptor.append((data_blocks - 1) >> 10, 1);
             }
+            descriptor.append(data_blocks - 1, 10);
             
             if (debug) System.out.printf("Mode Message = %s\n", descriptor);
             j = 4;
@@ -867,46 +562,21 @@ public class AztecCode extends Symbol {
 
         /* Split into 4-bit codewords */
         for (i = 0; i < j; i++) {
-            for(weight = 0; weight < 4; weight++) {
-                if (descriptor.charAt((i * 4) + weight) == '1') {
-                    desc_data[i] += (8 >> weight);
-                }
-            }
+            desc_data[i] = descriptor.get(i * 4, 4);
         }
 
         /* Add reed-solomon error correction with Galois field GF(16) and prime modulus
 	x^4 + x + 1 (section 7.2.3)*/
 
-        rs2.init_gf(0x13);
         if (compact) {
-            rs2.init_code(5, 1);
-            rs2.encode(2, desc_data);
-            for (j = 0; j < 5; j++) {
-                desc_ecc[j] = rs2.getResult(j);
-            }
+            ReedSolomon.encode(0x13, 5, 1, desc_data, 2, desc_ecc);
             for (i = 0; i < 5; i++) {
-                for (weight = 0x08; weight > 0; weight = weight >> 1) {
-                    if ((desc_ecc[4 - i] & weight) != 0) {
-                        descriptor += '1';
-                    } else {
-                        descriptor += '0';
-                    }
-                }
+                descriptor.append(desc_ecc[4 - i], 4);
             }
         } else {
-            rs2.init_code(6, 1);
-            rs2.encode(4, desc_data);
-            for (j = 0; j < 6; j++) {
-                desc_ecc[j] = rs2.getResult(j);
-            }
+            ReedSolomon.encode(0x13, 6, 1, desc_data, 4, desc_ecc);
             for (i = 0; i < 6; i++) {
-                for (weight = 0x08; weight > 0; weight = weight >> 1) {
-                    if ((desc_ecc[5 - i] & weight) != 0) {
-                        descriptor += '1';
-                    } else {
-                        descriptor += '0';
-                    }
-                }
+                descriptor.append(desc_ecc[5 - i], 4);
             }
         }
 
@@ -917,77 +587,212 @@ public class AztecCode extends Symbol {
         /* Plot all of the data into the symbol in pre-defined spiral pattern */
         if (compact) {
 
-            row_count = 27 - (2 * AztecCompactOffset[layers - 1]);
-            row_height = new int[row_count];
-            row_height[0] = -1;
-            pattern = new String[row_count];
-            bin = "";
-            for (y = AztecCompactOffset[layers - 1]; y < (27 - AztecCompactOffset[layers - 1]); y++) {
-                for (x = AztecCompactOffset[layers - 1]; x < (27 - AztecCompactOffset[layers - 1]); x++) {
+            offset = AztecCompactOffset[layers - 1];
+            matrix = new BitMatrix(27 - (2 * offset), 27 - (2 * offset));
+            for (y = offset; y < (27 - offset); y++) {
+                for (x = offset; x < (27 - offset); x++) {
                     j = CompactAztecMap[(y * 27) + x];
 
-                    if (j == 0) {
-                        bin += "0";
-                    }
                     if (j == 1) {
-                        bin += "1";
+                        matrix.set(x - offset, y - offset);
                     }
 
                     if (j >= 2) {
-                        if ((j - 2) < bit_pattern.length()) {
-                            bin += bit_pattern.charAt(j - 2);
+                        if ((j - 2) < total_bits) {
+                            if (bit(words, codeword_size, total_bits - (j - 2) - 1)) {
+                                matrix.set(x - offset, y - offset);
+                            }
                         } else {
                             if (j > 2000) {
-                                bin += descriptor.charAt(j - 2000);
-                            } else {
-                                bin += "0";
+                                if (descriptor.get(j - 2000)) {
+                                    matrix.set(x - offset, y - offset);
+                                }
                             }
                         }
                     }
                 }
-                row_height[y - AztecCompactOffset[layers - 1]] = 1;
-                pattern[y - AztecCompactOffset[layers - 1]] = bin2pat(bin);
-                bin = "";
             }
 
         } else {
-            row_count = 151 - (2 * AztecOffset[layers - 1]);
-            row_height = new int[row_count];
-            row_height[0] = -1;
-            pattern = new String[row_count];
-            bin = "";
-            for (y = AztecOffset[layers - 1]; y < (151 - AztecOffset[layers - 1]); y++) {
-                for (x = AztecOffset[layers - 1]; x < (151 - AztecOffset[layers - 1]); x++) {
-                    j = AztecMap[x][y];
+            map = fullMap();
+            offset = AztecOffset[layers - 1];
+            matrix = new BitMatrix(151 - (2 * offset), 151 - (2 * offset));
+            for (y = offset; y < (151 - offset); y++) {
+                for (x = offset; x < (151 - offset); x++) {
+                    j = map[(y * 151) + x];
                     if (j == 1) {
-                        bin += "1";
-                    }
-                    if (j == 0) {
-                        bin += "0";
+                        matrix.set(x - offset, y - offset);
                     }
                     if (j >= 2) {
-                        if ((j - 2) < bit_pattern.length()) {
-                            bin += bit_pattern.charAt(j - 2);
+                        if ((j - 2) < total_bits) {
+                            if (bit(words, codeword_size, total_bits - (j - 2) - 1)) {
+                                matrix.set(x - offset, y - offset);
+                            }
                         } else {
                             if (j > 20000) {
-                                bin += descriptor.charAt(j - 20000);
-                            } else {
-                                bin += "0";
+                                if (descriptor.get(j - 20000)) {
+                                    matrix.set(x - offset, y - offset);
+                                }
                             }
                         }
                     }
                 }
-                row_height[y - AztecOffset[layers - 1]] = 1;
-                pattern[y - AztecOffset[layers - 1]] = bin2pat(bin);
-                bin = "";
             }
         }
 
 
-        plotSymbol();
+        plotMatrix();
         return true;
     }
 
+    /** Codeword length for a number of layers - Table 3 */
+    private static int codewordSize(int layers) {
+        if (layers <= 2) {
+            return 6;
+        }
+        if (layers <= 8) {
+            return 8;
+        }
+        if (layers <= 22) {
+            return 10;
+        }
+        return 12;
+    }
+
+    /**
+     * Split the data into codewords, adding a bit to the end of any codeword
+     * which would otherwise be all 0s or all 1s, and pad the last one with
+     * 1s. The length of the data after stuffing but before padding is left
+     * in stuffed_length.
+     */
+    private int[] stuffBits(int codeword_size) {
+        int data_length = binary_string.length();
+        int[] codewords = new int[(data_length / (codeword_size - 1)) + 1];
+        int ones = (1 << (codeword_size - 1)) - 1;
+        int i, count, top, padbits, n;
+
+        i = 0;
+        n = 0;
+        stuffed_length = 0;
+        while (i < data_length) {
+            count = Math.min(codeword_size - 1, data_length - i);
+            top = binary_string.get(i, count);
+            i += count;
+
+            if ((count == (codeword_size - 1)) && (i < data_length)) {
+                /* Last bit of codeword */
+                if (top == ones) {
+                    codewords[n] = top << 1;
+                } else if (top == 0) {
+                    codewords[n] = 1;
+                } else {
+                    codewords[n] = (top << 1) | (binary_string.get(i) ? 1 : 0);
+                    i++;
+                }
+                stuffed_length += codeword_size;
+            } else {
+                /* Pad the last codeword with 1s, but not to all 1s */
+                padbits = codeword_size - count;
+                codewords[n] = (top << padbits) | ((1 << padbits) - 1);
+                if (codewords[n] == (1 << codeword_size) - 1) {
+                    codewords[n]--;
+                }
+                stuffed_length += count;
+            }
+            n++;
+        }
+
+        return Arrays.copyOf(codewords, n);
+    }
+
+    /** Bit of the codewords counting from the most significant of the first */
+    private static boolean bit(int[] words, int codeword_size, int index) {
+        return ((words[index / codeword_size] >> (codeword_size - 1 - (index % codeword_size))) & 1) != 0;
+    }
+
+    /**
+     * Encode the input data into binary_string in the way found by
+     * {@link AztecPlanner}, which takes the fewest bits
+     */
+    private void generateOptimalBinary() {
+        int length = local_source.length() + (gs1 ? 1 : 0);
+        int[] source = new int[length];
+        int[] plan = new int[length];
+        int[] latch;
+        int i, j, k, c, kind, mode, bytes;
+
+        /* Add FNC1 to beginning of GS1 messages */
+        i = 0;
+        if (gs1) {
+            source[i++] = '[';
+        }
+        for (j = 0; j < local_source.length(); j++) {
+            source[i++] = local_source.charAt(j);
+        }
+        new AztecPlanner(source, length, gs1).plan(plan);
+
+        binary_string = new BitBuffer();
+        mode = AztecPlanner.UPPER;
+        for (i = 0; i < length; i = j) {
+            c = source[i];
+            kind = plan[i] & AztecPlanner.KIND_MASK;
+            j = i + (((plan[i] & AztecPlanner.PAIR) != 0) ? 2 : 1);
+
+            if (kind >= AztecPlanner.BINARY) {
+                /* Latch to the mode the run returns to, then B/S */
+                latch = AztecPlanner.LATCH[mode][kind - AztecPlanner.BINARY];
+                for (k = 0; k < latch.length; k += 2) {
+                    binary_string.append(latch[k], latch[k + 1]);
+                }
+                mode = kind - AztecPlanner.BINARY;
+                while ((j < length) && (plan[j] == kind)) {
+                    j++;
+                }
+                bytes = j - i;
+                binary_string.append(31, 5);
+                if (bytes > 31) {
+                    binary_string.append(0, 5);
+                    binary_string.append(bytes - 31, 11);
+                } else {
+                    binary_string.append(bytes, 5);
+                }
+                for (; i < j; i++) {
+                    binary_string.append(source[i], 8);
+                }
+                continue;
+            }
+
+            latch = AztecPlanner.LATCH[mode][kind];
+            for (k = 0; k < latch.length; k += 2) {
+                binary_string.append(latch[k], latch[k + 1]);
+            }
+            mode = kind;
+            if ((plan[i] & AztecPlanner.SHIFT) != 0) {
+                if (((plan[i] & AztecPlanner.PAIR) == 0)
+                        && (AztecPlanner.value(AztecPlanner.UPPER, c) >= 0)) {
+                    /* U/S */
+                    binary_string.append((mode == AztecPlanner.DIGIT) ? 15 : 28,
+                            AztecPlanner.BITS[mode]);
+                    binary_string.append(AztecPlanner.value(AztecPlanner.UPPER, c), 5);
+                    continue;
+                }
+                /* P/S */
+                binary_string.append(0, AztecPlanner.BITS[mode]);
+                kind = AztecPlanner.PUNCTUATION;
+            }
+
+            if ((plan[i] & AztecPlanner.PAIR) != 0) {
+                binary_string.append(AztecPlanner.pairValue(c, source[i + 1]), 5);
+            } else if (gs1 && (c == '[')) {
+                /* FNC1 represented by FLG(0) */
+                binary_string.append(0, 5);
+                binary_string.append(0, 3);
+            } else {
+                binary_string.append(AztecPlanner.value(kind, c), AztecPlanner.BITS[kind]);
+            }
+        }
+    }
+
     private boolean generateAztecBinary() {
         /* Encode input data into a binary string */
         int i, j, k, bytes;
@@ -996,7 +801,6 @@ public class AztecCode extends Symbol {
         int[] typemap = new int[2 * local_source.length()];
         int[] blockmap0 = new int[local_source.length()];
         int[] blockmap1 = new int[local_source.length()];
-        int weight;
 
         /* Lookup input string in encoding table */
         maplength = 0;
@@ -1228,7 +1032,7 @@ public class AztecCode extends Symbol {
                 }
             }
         }
-        binary_string = "";
+        binary_string = new BitBuffer();
 
         if (debug) {
             System.out.print("Text string: ");
@@ -1252,24 +1056,24 @@ public class AztecCode extends Symbol {
                             switch (curtable) {
                             case 2:
                                 /* US */
-                                    binary_string += hexbit[28];
+                                    binary_string.append(28, 5);
                                 if (debug) System.out.printf("US ");
                                 break;
                             case 4:
                                 /* UL */
-                                    binary_string += hexbit[29];
+                                    binary_string.append(29, 5);
                                 if (debug) System.out.printf("UL ");
                                 newtable = 1;
                                 break;
                             case 8:
                                 /* UL */
-                                    binary_string += hexbit[31];
+                                    binary_string.append(31, 5);
                                 if (debug) System.out.printf("UL ");
                                 newtable = 1;
                                 break;
                             case 16:
                                 /* US */
-                                    binary_string += pentbit[15];
+                                    binary_string.append(15, 4);
                                 if (debug) System.out.printf("US ");
                                 break;
                         }
@@ -1279,29 +1083,29 @@ public class AztecCode extends Symbol {
                             switch (curtable) {
                             case 1:
                                 /* LL */
-                                    binary_string += hexbit[28];
+                                    binary_string.append(28, 5);
                                 if (debug) System.out.printf("LL ");
                                 newtable = 2;
                                 break;
                             case 4:
                                 /* LL */
-                                    binary_string += hexbit[28];
+                                    binary_string.append(28, 5);
                                 if (debug) System.out.printf("LL ");
                                 newtable = 2;
                                 break;
                             case 8:
                                 /* UL LL */
-                                    binary_string += hexbit[31];
+                                    binary_string.append(31, 5);
                                 if (debug) System.out.printf("UL ");
-                                binary_string += hexbit[28];
+                                binary_string.append(28, 5);
                                 if (debug) System.out.printf("LL ");
                                 newtable = 2;
                                 break;
                             case 16:
                                 /* UL LL */
-                                    binary_string += pentbit[14];
+                                    binary_string.append(14, 4);
                                 if (debug) System.out.printf("UL ");
-                                binary_string += hexbit[28];
+                                binary_string.append(28, 5);
                                 if (debug) System.out.printf("LL ");
                                 newtable = 2;
                                 break;
@@ -1312,29 +1116,29 @@ public class AztecCode extends Symbol {
                             switch (curtable) {
                             case 1:
                                 /* ML */
-                                    binary_string += hexbit[29];
+                                    binary_string.append(29, 5);
                                 if (debug) System.out.printf("ML ");
                                 newtable = 4;
                                 break;
                             case 2:
                                 /* ML */
-                                    binary_string += hexbit[29];
+                                    binary_string.append(29, 5);
                                 if (debug) System.out.printf("ML ");
                                 newtable = 4;
                                 break;
                             case 8:
                                 /* UL ML */
-                                    binary_string += hexbit[31];
+                                    binary_string.append(31, 5);
                                 if (debug) System.out.printf("UL ");
-                                binary_string += hexbit[29];
+                                binary_string.append(29, 5);
                                 if (debug) System.out.printf("ML ");
                                 newtable = 4;
                                 break;
                             case 16:
                                 /* UL ML */
-                                    binary_string += pentbit[14];
+                                    binary_string.append(14, 4);
                                 if (debug) System.out.printf("UL ");
-                                binary_string += hexbit[29];
+                                binary_string.append(29, 5);
                                 if (debug) System.out.printf("ML ");
                                 newtable = 4;
                                 break;
@@ -1345,22 +1149,22 @@ public class AztecCode extends Symbol {
                             switch (curtable) {
                             case 1:
                                 /* PS */
-                                    binary_string += hexbit[0];
+                                    binary_string.append(0, 5);
                                 if (debug) System.out.printf("PS ");
                                 break;
                             case 2:
                                 /* PS */
-                                    binary_string += hexbit[0];
+                                    binary_string.append(0, 5);
                                 if (debug) System.out.printf("PS ");
                                 break;
                             case 4:
                                 /* PS */
-                                    binary_string += hexbit[0];
+                                    binary_string.append(0, 5);
                                 if (debug) System.out.printf("PS ");
                                 break;
                             case 16:
                                 /* PS */
-                                    binary_string += pentbit[0];
+                                    binary_string.append(0, 4);
                                 if (debug) System.out.printf("PS ");
                                 break;
                         }
@@ -1370,29 +1174,29 @@ public class AztecCode extends Symbol {
                             switch (curtable) {
                             case 1:
                                 /* DL */
-                                    binary_string += hexbit[30];
+                                    binary_string.append(30, 5);
                                 if (debug) System.out.printf("DL ");
                                 newtable = 16;
                                 break;
                             case 2:
                                 /* DL */
-                                    binary_string += hexbit[30];
+                                    binary_string.append(30, 5);
                                 if (debug) System.out.printf("DL ");
                                 newtable = 16;
                                 break;
                             case 4:
                                 /* UL DL */
-                                    binary_string += hexbit[29];
+                                    binary_string.append(29, 5);
                                 if (debug) System.out.printf("UL ");
-                                binary_string += hexbit[30];
+                                binary_string.append(30, 5);
                                 if (debug) System.out.printf("DL ");
                                 newtable = 16;
                                 break;
                             case 8:
                                 /* UL DL */
-                                    binary_string += hexbit[31];
+                                    binary_string.append(31, 5);
                                 if (debug) System.out.printf("UL ");
-                                binary_string += hexbit[30];
+                                binary_string.append(30, 5);
                                 if (debug) System.out.printf("DL ");
                                 newtable = 16;
                                 break;
@@ -1407,27 +1211,27 @@ public class AztecCode extends Symbol {
                             switch (curtable) {
                             case 2:
                                 /* ML UL */
-                                    binary_string += hexbit[29];
+                                    binary_string.append(29, 5);
                                 if (debug) System.out.printf("ML ");
-                                binary_string += hexbit[29];
+                                binary_string.append(29, 5);
                                 if (debug) System.out.printf("UL ");
                                 newtable = 1;
                                 break;
                             case 4:
                                 /* UL */
-                                    binary_string += hexbit[29];
+                                    binary_string.append(29, 5);
                                 if (debug) System.out.printf("UL ");
                                 newtable = 1;
                                 break;
                             case 8:
                                 /* UL */
-                                    binary_string += hexbit[31];
+                                    binary_string.append(31, 5);
                                 if (debug) System.out.printf("UL ");
                                 newtable = 1;
                                 break;
                             case 16:
                                 /* UL */
-                                    binary_string += pentbit[14];
+                                    binary_string.append(14, 4);
                                 if (debug) System.out.printf("UL ");
                                 newtable = 1;
                                 break;
@@ -1438,29 +1242,29 @@ public class AztecCode extends Symbol {
                             switch (curtable) {
                             case 1:
                                 /* LL */
-                                    binary_string += hexbit[28];
+                                    binary_string.append(28, 5);
                                 if (debug) System.out.printf("LL ");
                                 newtable = 2;
                                 break;
                             case 4:
                                 /* LL */
-                                    binary_string += hexbit[28];
+                                    binary_string.append(28, 5);
                                 if (debug) System.out.printf("LL ");
                                 newtable = 2;
                                 break;
                             case 8:
                                 /* UL LL */
-                                    binary_string += hexbit[31];
+                                    binary_string.append(31, 5);
                                 if (debug) System.out.printf("UL ");
-                                binary_string += hexbit[28];
+                                binary_string.append(28, 5);
                                 if (debug) System.out.printf("LL ");
                                 newtable = 2;
                                 break;
                             case 16:
                                 /* UL LL */
-                                    binary_string += pentbit[14];
+                                    binary_string.append(14, 4);
                                 if (debug) System.out.printf("UL ");
-                                binary_string += hexbit[28];
+                                binary_string.append(28, 5);
                                 if (debug) System.out.printf("LL ");
                                 newtable = 2;
                                 break;
@@ -1471,29 +1275,29 @@ public class AztecCode extends Symbol {
                             switch (curtable) {
                             case 1:
                                 /* ML */
-                                    binary_string += hexbit[29];
+                                    binary_string.append(29, 5);
                                 if (debug) System.out.printf("ML ");
                                 newtable = 4;
                                 break;
                             case 2:
                                 /* ML */
-                                    binary_string += hexbit[29];
+                                    binary_string.append(29, 5);
                                 if (debug) System.out.printf("ML ");
                                 newtable = 4;
                                 break;
                             case 8:
                                 /* UL ML */
-                                    binary_string += hexbit[31];
+                                    binary_string.append(31, 5);
                                 if (debug) System.out.printf("UL ");
-                                binary_string += hexbit[29];
+                                binary_string.append(29, 5);
                                 if (debug) System.out.printf("ML ");
                                 newtable = 4;
                                 break;
                             case 16:
                                 /* UL ML */
-                                    binary_string += pentbit[14];
+                                    binary_string.append(14, 4);
                                 if (debug) System.out.printf("UL ");
-                                binary_string += hexbit[29];
+                                binary_string.append(29, 5);
                                 if (debug) System.out.printf("ML ");
                                 newtable = 4;
                                 break;
@@ -1504,33 +1308,33 @@ public class AztecCode extends Symbol {
                             switch (curtable) {
                             case 1:
                                 /* ML PL */
-                                    binary_string += hexbit[29];
+                                    binary_string.append(29, 5);
                                 if (debug) System.out.printf("ML ");
-                                binary_string += hexbit[30];
+                                binary_string.append(30, 5);
                                 if (debug) System.out.printf("PL ");
                                 newtable = 8;
                                 break;
                             case 2:
                                 /* ML PL */
-                                    binary_string += hexbit[29];
+                                    binary_string.append(29, 5);
                                 if (debug) System.out.printf("ML ");
-                                binary_string += hexbit[30];
+                                binary_string.append(30, 5);
                                 if (debug) System.out.printf("PL ");
                                 newtable = 8;
                                 break;
                             case 4:
                                 /* PL */
-                                    binary_string += hexbit[30];
+                                    binary_string.append(30, 5);
                                 if (debug) System.out.printf("PL ");
                                 newtable = 8;
                                 break;
                             case 16:
                                 /* UL ML PL */
-                                    binary_string += pentbit[14];
+                                    binary_string.append(14, 4);
                                 if (debug) System.out.printf("UL ");
-                                binary_string += hexbit[29];
+                                binary_string.append(29, 5);
                                 if (debug) System.out.printf("ML ");
-                                binary_string += hexbit[30];
+                                binary_string.append(30, 5);
                                 if (debug) System.out.printf("PL ");
                                 newtable = 8;
                                 break;
@@ -1541,29 +1345,29 @@ public class AztecCode extends Symbol {
                             switch (curtable) {
                             case 1:
                                 /* DL */
-                                    binary_string += hexbit[30];
+                                    binary_string.append(30, 5);
                                 if (debug) System.out.printf("DL ");
                                 newtable = 16;
                                 break;
                             case 2:
                                 /* DL */
-                                    binary_string += hexbit[30];
+                                    binary_string.append(30, 5);
                                 if (debug) System.out.printf("DL ");
                                 newtable = 16;
                                 break;
                             case 4:
                                 /* UL DL */
-                                    binary_string += hexbit[29];
+                                    binary_string.append(29, 5);
                                 if (debug) System.out.printf("UL ");
-                                binary_string += hexbit[30];
+                                binary_string.append(30, 5);
                                 if (debug) System.out.printf("DL ");
                                 newtable = 16;
                                 break;
                             case 8:
                                 /* UL DL */
-                                    binary_string += hexbit[31];
+                                    binary_string.append(31, 5);
                                 if (debug) System.out.printf("UL ");
-                                binary_string += hexbit[30];
+                                binary_string.append(30, 5);
                                 if (debug) System.out.printf("DL ");
                                 newtable = 16;
                                 break;
@@ -1575,35 +1379,35 @@ public class AztecCode extends Symbol {
                         switch (curtable) {
                         case 1:
                             /* BS */
-                                binary_string += hexbit[31];
+                                binary_string.append(31, 5);
                             if (debug) System.out.printf("BS ");
                             newtable = 3;
                             break;
                         case 2:
                             /* BS */
-                                binary_string += hexbit[31];
+                                binary_string.append(31, 5);
                             if (debug) System.out.printf("BS ");
                             newtable = 3;
                             break;
                         case 4:
                             /* BS */
-                                binary_string += hexbit[31];
+                                binary_string.append(31, 5);
                             if (debug) System.out.printf("BS ");
                             newtable = 3;
                             break;
                         case 8:
                             /* UL BS */
-                                binary_string += hexbit[31];
+                                binary_string.append(31, 5);
                             if (debug) System.out.printf("UL ");
-                            binary_string += hexbit[31];
+                            binary_string.append(31, 5);
                             if (debug) System.out.printf("BS ");
                             newtable = 3;
                             break;
                         case 16:
                             /* UL BS */
-                                binary_string += pentbit[14];
+                                binary_string.append(14, 4);
                             if (debug) System.out.printf("UL ");
-                            binary_string += hexbit[31];
+                            binary_string.append(31, 5);
                             if (debug) System.out.printf("BS ");
                             newtable = 3;
                             break;
@@ -1621,22 +1425,10 @@ public class AztecCode extends Symbol {
                         }
 
                         if (bytes > 31) { /* Put 00000 followed by 11-bit number of bytes less 31 */
-                            binary_string += "00000";
-                            for (weight = 0x400; weight > 0; weight = weight >> 1) {
-                                if (((bytes - 31) & weight) != 0) {
-                                    binary_string += "1";
-                                } else {
-                                    binary_string += "0";
-                                }
-                            }
+                            binary_string.append(0, 5);
+                            binary_string.append(bytes - 31, 11);
                         } else { /* Put 5-bit number of bytes */
-                            for (weight = 0x10; weight > 0; weight = weight >> 1) {
-                                if ((bytes & weight) != 0) {
-                                    binary_string += "1";
-                                } else {
-                                    binary_string += "0";
-                                }
-                            }
+                            binary_string.append(bytes, 5);
                         }
                         if (debug) System.out.printf("(%d bytes) ", bytes);
 
@@ -1656,26 +1448,28 @@ public class AztecCode extends Symbol {
             case 4:
             case 8:
                 if (charmap[i] >= 400) {
-                    binary_string += tribit[charmap[i] - 400];
+                    binary_string.append(charmap[i] - 400, 3);
                     if (debug) System.out.printf("FLG(%d) ", charmap[i] - 400);
                 } else {
-                    binary_string += hexbit[charmap[i]];
+                    if (charmap[i] > 31) {
+                        /* Not in the five bit tables */
+                        return false;
+                    }
+                    binary_string.append(charmap[i], 5);
                     if (!((chartype == 8) && (charmap[i] == 0)))
                         if (debug) System.out.printf("%d ", charmap[i]);
                 }
                 break;
             case 16:
-                binary_string += pentbit[charmap[i]];
+                if (charmap[i] > 15) {
+                    /* Not in the digit table */
+                    return false;
+                }
+                binary_string.append(charmap[i], 4);
                 if (debug) System.out.printf("%d ", charmap[i]);
                 break;
             case 3:
-                for (weight = 0x80; weight > 0; weight = weight >> 1) {
-                    if ((charmap[i] & weight) != 0) {
-                        binary_string += "1";
-                    } else {
-                        binary_string += "0";
-                    }
-                }
+                binary_string.append(charmap[i], 8);
                 if (debug) System.out.printf("%d ", charmap[i]);
                 break;
             }
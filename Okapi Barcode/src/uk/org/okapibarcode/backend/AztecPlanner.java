@@ -0,0 +1,338 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.backend;
+
+/**
+ * Chooses the Aztec Code mode of every character so that the data takes the
+ * fewest bits, as an alternative to the block rules of {@link AztecCode}.
+ * <p>
+ * Each of the five character modes is a state, and so is Binary Shift for
+ * each mode it can return to, once for every count of bytes up to 31 and
+ * once for longer runs, which need an 11 bit length. Latches between modes
+ * are charged as the shortest sequence of latch codes, so a single pass
+ * over the data finds the cheapest way of reaching every state. A
+ * character may also be sent with Upper Shift or Punctuation Shift without
+ * leaving the current mode, and the pairs CR LF, ". ", ", " and ": " may be
+ * sent as one Punctuation value.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+final class AztecPlanner {
+
+    /* Plan values: a character in mode Upper, Lower, Mixed, Punctuation or
+     * Digit, latching to it first if need be */
+    static final int UPPER = 0;
+    static final int LOWER = 1;
+    static final int MIXED = 2;
+    static final int PUNCTUATION = 3;
+    static final int DIGIT = 4;
+    /* A byte sent with Binary Shift from Upper, Lower or Mixed, which the
+     * run returns to */
+    static final int BINARY = 5;
+    /* Flags on a plan value: the first of a Punctuation pair, the first
+     * byte of a Binary Shift run, and a character sent with Upper Shift or
+     * Punctuation Shift from the mode */
+    static final int PAIR = 0x10;
+    static final int RUN_START = 0x20;
+    static final int SHIFT = 0x40;
+    static final int KIND_MASK = 0x0f;
+
+    /* Bits in a code word of each mode */
+    static final int[] BITS = { 5, 5, 5, 5, 4 };
+
+    /* Codes which latch from one mode to another, as value and bit count */
+    static final int[][][] LATCH = {
+        { {}, { 28, 5 }, { 29, 5 }, { 29, 5, 30, 5 }, { 30, 5 } },
+        { { 30, 5, 14, 4 }, {}, { 29, 5 }, { 29, 5, 30, 5 }, { 30, 5 } },
+        { { 29, 5 }, { 28, 5 }, {}, { 30, 5 }, { 29, 5, 30, 5 } },
+        { { 31, 5 }, { 31, 5, 28, 5 }, { 31, 5, 29, 5 }, {}, { 31, 5, 30, 5 } },
+        { { 14, 4 }, { 14, 4, 28, 5 }, { 14, 4, 29, 5 }, { 14, 4, 29, 5, 30, 5 }, {} }
+    };
+
+    /* Longest Binary Shift run */
+    static final int MAX_RUN = 2078;
+
+    /* Value of each ASCII character in each mode, or -1 */
+    private static final int[][] VALUE = new int[5][128];
+    private static final int[][] LATCH_BITS = new int[5][5];
+
+    /* States: the five modes, then Binary Shift back to Upper, Lower or
+     * Mixed with 0 to 31 bytes of the run sent, and with 32 or more */
+    private static final int S_BINARY = 5;
+    private static final int RUN_STATES = 33;
+    private static final int STATES = S_BINARY + (3 * RUN_STATES);
+    /* Marks how a character was sent from a mode */
+    private static final int VIA_SHIFT = 0x100;
+    private static final int VIA_PAIR = 0x200;
+    private static final int STATE_MASK = 0xff;
+    private static final int NONE = Integer.MAX_VALUE / 2;
+
+    static {
+        String punctuation = "!\"#$%&'()*+,-./:;<=>?[]{}";
+        String mixed = "@\\^_`|~";
+        int mode, to, c, i;
+
+        for (mode = 0; mode < 5; mode++) {
+            for (c = 0; c < 128; c++) {
+                VALUE[mode][c] = -1;
+            }
+            if (mode != PUNCTUATION) {
+                VALUE[mode][' '] = 1;
+            }
+            for (to = 0; to < 5; to++) {
+                for (i = 1; i < LATCH[mode][to].length; i += 2) {
+                    LATCH_BITS[mode][to] += LATCH[mode][to][i];
+                }
+            }
+        }
+        for (c = 0; c < 26; c++) {
+            VALUE[UPPER]['A' + c] = c + 2;
+            VALUE[LOWER]['a' + c] = c + 2;
+        }
+        for (c = 1; c <= 13; c++) {
+            VALUE[MIXED][c] = c + 1;
+        }
+        for (c = 27; c <= 31; c++) {
+            VALUE[MIXED][c] = c - 12;
+        }
+        for (i = 0; i < mixed.length(); i++) {
+            VALUE[MIXED][mixed.charAt(i)] = i + 20;
+        }
+        VALUE[MIXED][127] = 27;
+        VALUE[PUNCTUATION][13] = 1;
+        for (i = 0; i < punctuation.length(); i++) {
+            VALUE[PUNCTUATION][punctuation.charAt(i)] = i + 6;
+        }
+        for (c = 0; c < 10; c++) {
+            VALUE[DIGIT]['0' + c] = c + 2;
+        }
+        VALUE[DIGIT][','] = 12;
+        VALUE[DIGIT]['.'] = 13;
+    }
+
+    private final int[] data;
+    private final int length;
+    private final boolean gs1;
+
+    /**
+     * @param data input characters
+     * @param length number of characters to plan
+     * @param gs1 true if '[' stands for FNC1, sent as FLG(0)
+     */
+    AztecPlanner(int[] data, int length, boolean gs1) {
+        this.data = data;
+        this.length = length;
+        this.gs1 = gs1;
+    }
+
+    /**
+     * Finds the plan which takes the fewest bits.
+     *
+     * @param plan receives the way each character is sent
+     * @return number of bits the characters take
+     */
+    int plan(int[] plan) {
+        int[] cost = new int[(length + 1) * STATES];
+        /* State at the previous position each state was reached from, with
+         * flags for a shift or a pair, and the state at the same position it
+         * was switched to from */
+        short[] from = new short[(length + 1) * STATES];
+        byte[] switched = new byte[(length + 1) * STATES];
+        /* Bytes in the long Binary Shift run back to each mode */
+        int[] run = new int[(length + 1) * 3];
+        int i, s, m, k, base, next, c, units, pair, best, bestState;
+        boolean flag;
+
+        for (i = 0; i < cost.length; i++) {
+            cost[i] = NONE;
+            switched[i] = -1;
+        }
+        /* A symbol starts in mode Upper */
+        cost[UPPER] = 0;
+
+        for (i = 0; i < length; i++) {
+            base = i * STATES;
+            next = base + STATES;
+            c = data[i];
+            flag = gs1 && (c == '[');
+
+            /* End a Binary Shift run, latch between the modes and then
+             * start a run, so that any of them can follow the others here */
+            for (m = 0; m < 3; m++) {
+                for (k = 1; k < RUN_STATES; k++) {
+                    change(cost, switched, base, binary(m, k), m, 0);
+                }
+            }
+            for (s = 0; s < S_BINARY; s++) {
+                for (m = 0; m < S_BINARY; m++) {
+                    if (m != s) {
+                        change(cost, switched, base, s, m, LATCH_BITS[s][m]);
+                    }
+                }
+            }
+            for (m = 0; m < 3; m++) {
+                /* B/S and a 5 bit length */
+                change(cost, switched, base, m, binary(m, 0), 10);
+            }
+
+            /* Send the character in each way which can hold it */
+            pair = (i + 1 < length) ? pairValue(c, data[i + 1]) : -1;
+            for (s = 0; s < S_BINARY; s++) {
+                if (cost[base + s] >= NONE) {
+                    continue;
+                }
+                if (flag) {
+                    /* FLG(0) is Punctuation value 0 and 3 bits of flag */
+                    if (s == PUNCTUATION) {
+                        move(cost, from, next + s, base, s, 8, 0);
+                    } else {
+                        move(cost, from, next + s, base, s, BITS[s] + 8, VIA_SHIFT);
+                    }
+                    continue;
+                }
+                if (pair >= 0) {
+                    units = (s == PUNCTUATION) ? 5 : BITS[s] + 5;
+                    move(cost, from, next + STATES + s, base, s, units,
+                            VIA_PAIR | ((s == PUNCTUATION) ? 0 : VIA_SHIFT));
+                }
+                if (value(s, c) >= 0) {
+                    move(cost, from, next + s, base, s, BITS[s], 0);
+                }
+                if ((s != PUNCTUATION) && (value(PUNCTUATION, c) >= 0)) {
+                    /* P/S */
+                    move(cost, from, next + s, base, s, BITS[s] + 5, VIA_SHIFT);
+                }
+                if (((s == LOWER) || (s == DIGIT)) && (value(UPPER, c) >= 0)) {
+                    /* U/S */
+                    move(cost, from, next + s, base, s, BITS[s] + 5, VIA_SHIFT);
+                }
+            }
+            if (!flag) {
+                for (m = 0; m < 3; m++) {
+                    for (k = 0; k < 31; k++) {
+                        move(cost, from, next + binary(m, k + 1), base, binary(m, k), 8, 0);
+                    }
+                    /* A run of more than 31 bytes takes 11 more bits of length */
+                    if (move(cost, from, next + binary(m, 32), base, binary(m, 31), 19, 0)) {
+                        run[((i + 1) * 3) + m] = 32;
+                    }
+                    if (run[(i * 3) + m] < MAX_RUN) {
+                        if (move(cost, from, next + binary(m, 32), base, binary(m, 32), 8, 0)) {
+                            run[((i + 1) * 3) + m] = run[(i * 3) + m] + 1;
+                        }
+                    }
+                }
+            }
+        }
+
+        base = length * STATES;
+        best = NONE;
+        bestState = UPPER;
+        for (s = 0; s < STATES; s++) {
+            if ((s >= S_BINARY) && (((s - S_BINARY) % RUN_STATES) == 0)) {
+                /* A run with no bytes in it */
+                continue;
+            }
+            if (cost[base + s] < best) {
+                best = cost[base + s];
+                bestState = s;
+            }
+        }
+
+        /* Walk back through the choices to label each character */
+        s = bestState;
+        i = length;
+        while (i > 0) {
+            next = from[(i * STATES) + s];
+            if (s >= S_BINARY) {
+                m = (s - S_BINARY) / RUN_STATES;
+                plan[i - 1] = BINARY + m;
+                if ((next & STATE_MASK) == binary(m, 0)) {
+                    plan[i - 1] |= RUN_START;
+                }
+                i--;
+            } else if ((next & VIA_PAIR) != 0) {
+                plan[i - 2] = s | PAIR | (((next & VIA_SHIFT) != 0) ? SHIFT : 0);
+                plan[i - 1] = plan[i - 2];
+                i -= 2;
+            } else {
+                plan[i - 1] = s | (((next & VIA_SHIFT) != 0) ? SHIFT : 0);
+                i--;
+            }
+            s = next & STATE_MASK;
+            while (switched[(i * STATES) + s] >= 0) {
+                s = switched[(i * STATES) + s];
+            }
+        }
+
+        return best;
+    }
+
+    /** Value of a character in a mode, or -1 if the mode does not hold it */
+    static int value(int mode, int c) {
+        return (c < 128) ? VALUE[mode][c] : -1;
+    }
+
+    /**
+     * Punctuation value of two characters sent together, or -1 if they are
+     * not one of the pairs
+     */
+    static int pairValue(int c, int next) {
+        if ((c == 13) && (next == 10)) {
+            return 2;
+        }
+        if (next != ' ') {
+            return -1;
+        }
+        switch (c) {
+        case '.':
+            return 3;
+        case ',':
+            return 4;
+        case ':':
+            return 5;
+        }
+        return -1;
+    }
+
+    private static int binary(int mode, int count) {
+        return S_BINARY + (mode * RUN_STATES) + count;
+    }
+
+    /** Keeps the cheaper way of reaching a state by changing mode */
+    private static void change(int[] cost, byte[] switched, int base, int previous,
+            int state, int extra) {
+        int total = cost[base + previous] + extra;
+
+        if (total < cost[base + state]) {
+            cost[base + state] = total;
+            switched[base + state] = (byte) previous;
+        }
+    }
+
+    /** Keeps the cheaper way of reaching a state at a later position */
+    private static boolean move(int[] cost, short[] from, int target, int base, int previous,
+            int extra, int flag) {
+        int total = cost[base + previous] + extra;
+
+        if (total < cost[target] && total < NONE) {
+            cost[target] = total;
+            from[target] = (short) (previous | flag);
+            return true;
+        }
+        return false;
+    }
+}
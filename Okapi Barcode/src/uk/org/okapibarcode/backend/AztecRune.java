@@ -15,16 +15,24 @@
  */
 package uk.org.okapibarcode.backend;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Implements Aztec Runes bar code symbology
  * According to ISO/IEC 24778:2008 Annex A
+ * <p>
+ * There are only 256 runes, so all of them are built the first time one is
+ * needed and then shared. {@link #getRune(int)} and {@link #getRunes(int[],
+ * BitMatrix[])} hand out the shared modules without encoding anything;
+ * a {@link BitMatrix} is read-only outside this package, so no caller can
+ * change a rune for the others.
  *
  * @author Robin Stuart <rstuart114@gmail.com>
  * @version 0.1
  */
 public class AztecRune extends Symbol {
 
-    private int[] bitPlacementMap = {
+    private static final int[] bitPlacementMap = {
          1, 1, 2, 3, 4, 5, 6, 7, 8, 0, 1, 
          1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 
         29, 1, 0, 0, 0, 0, 0, 0, 0, 1, 9, 
@@ -38,42 +46,32 @@ public class AztecRune extends Symbol {
          0, 0, 22, 21, 20, 19, 18, 17, 16, 0, 0
     };
 
+    /* Modules of every rune, indexed by value */
+    private static final AtomicReference<BitMatrix[]> RUNES = new AtomicReference<>();
+
     @Override
     public boolean encode() {
         int decimalValue = 0;
         int i;
-        int row;
-        int column;
-        String binaryDataStream;
-        String reversedBinaryDataStream;
-        int[] dataCodeword = new int[3];
-        int[] errorCorrectionCodeword = new int[6];
-        ReedSolomon rs = new ReedSolomon();
-        String rowBinary;
+        char c;
 
         if (content.length() > 3) {
             error_msg = "Input too large";
             return false;
         }
 
-        if (!(content.matches("[0-9]+?"))) {
+        if (content.isEmpty()) {
             error_msg = "Invalid input data";
             return false;
         }
 
-        switch (content.length()) {
-        case 3:
-            decimalValue = 100 * (content.charAt(0) - '0');
-            decimalValue += 10 * (content.charAt(1) - '0');
-            decimalValue += (content.charAt(2) - '0');
-            break;
-        case 2:
-            decimalValue = 10 * (content.charAt(0) - '0');
-            decimalValue += (content.charAt(1) - '0');
-            break;
-        case 1:
-            decimalValue = (content.charAt(0) - '0');
-            break;
+        for (i = 0; i < content.length(); i++) {
+            c = content.charAt(i);
+            if ((c < '0') || (c > '9')) {
+                error_msg = "Invalid input data";
+                return false;
+            }
+            decimalValue = (10 * decimalValue) + (c - '0');
         }
 
         if (decimalValue > 255) {
@@ -81,104 +79,99 @@ public class AztecRune extends Symbol {
             return false;
         }
 
-        binaryDataStream = "";
-        for (i = 0x80; i > 0; i = i >> 1) {
-            if ((decimalValue & i) != 0) {
-                binaryDataStream += "1";
-            } else {
-                binaryDataStream += "0";
-            }
+        if (debug) {
+            System.out.println("Binary: "
+                    + Integer.toBinaryString(runeBits(decimalValue) | (1 << 28)).substring(1));
         }
 
-        dataCodeword[0] = 0;
-        dataCodeword[1] = 0;
+        readable = "";
+        matrix = runes()[decimalValue];
+        plotMatrix();
+        return true;
+    }
 
-        for (i = 0; i < 2; i++) {
-            if (binaryDataStream.charAt(i * 4) == '1') {
-                dataCodeword[i] += 8;
-            }
-            if (binaryDataStream.charAt((i * 4) + 1) == '1') {
-                dataCodeword[i] += 4;
-            }
-            if (binaryDataStream.charAt((i * 4) + 2) == '1') {
-                dataCodeword[i] += 2;
-            }
-            if (binaryDataStream.charAt((i * 4) + 3) == '1') {
-                dataCodeword[i] += 1;
-            }
+    /**
+     * Modules of one rune. The read-only matrix is shared by every caller.
+     *
+     * @param value rune value, from 0 to 255
+     * @return the rune's modules
+     */
+    public static BitMatrix getRune(int value) {
+        if ((value < 0) || (value > 255)) {
+            throw new IllegalArgumentException("Invalid rune value " + value);
         }
+        return runes()[value];
+    }
 
-        rs.init_gf(0x13);
-        rs.init_code(5, 1);
-        rs.encode(2, dataCodeword);
+    /**
+     * Modules of many runes at once. The read-only matrices are shared by
+     * every caller.
+     *
+     * @param values rune values, each from 0 to 255
+     * @param runes receives the modules of each rune, {@code runes[i]} for
+     * {@code values[i]}; at least as long as {@code values}
+     * @return {@code runes}
+     */
+    public static BitMatrix[] getRunes(int[] values, BitMatrix[] runes) {
+        BitMatrix[] all = runes();
+        int i;
 
-        for (i = 0; i < 5; i++) {
-            errorCorrectionCodeword[i] = rs.getResult(i);
+        if (runes.length < values.length) {
+            throw new IllegalArgumentException("Room for " + runes.length
+                    + " runes, " + values.length + " needed");
         }
-
-        for (i = 0; i < 5; i++) {
-            if ((errorCorrectionCodeword[4 - i] & 0x08) != 0) {
-                binaryDataStream += '1';
-            } else {
-                binaryDataStream += '0';
-            }
-            if ((errorCorrectionCodeword[4 - i] & 0x04) != 0) {
-                binaryDataStream += '1';
-            } else {
-                binaryDataStream += '0';
-            }
-            if ((errorCorrectionCodeword[4 - i] & 0x02) != 0) {
-                binaryDataStream += '1';
-            } else {
-                binaryDataStream += '0';
-            }
-            if ((errorCorrectionCodeword[4 - i] & 0x01) != 0) {
-                binaryDataStream += '1';
-            } else {
-                binaryDataStream += '0';
+        for (i = 0; i < values.length; i++) {
+            if ((values[i] < 0) || (values[i] > 255)) {
+                throw new IllegalArgumentException("Invalid rune value " + values[i]);
             }
+            runes[i] = all[values[i]];
         }
+        return runes;
+    }
 
-        reversedBinaryDataStream = "";
-        for (i = 0; i < binaryDataStream.length(); i++) {
-            if ((i & 1) == 0) {
-                if (binaryDataStream.charAt(i) == '0') {
-                    reversedBinaryDataStream += "1";
-                } else {
-                    reversedBinaryDataStream += "0";
-                }
-            } else {
-                reversedBinaryDataStream += binaryDataStream.charAt(i);
-            }
-        }
+    /** All 256 runes, built the first time they are needed */
+    private static BitMatrix[] runes() {
+        BitMatrix[] runes = RUNES.get();
+        BitMatrix rune;
+        int value, bits, row, column, place;
 
-        if (debug) {
-            System.out.println("Binary: " + reversedBinaryDataStream);
+        if (runes != null) {
+            return runes;
         }
 
-        rowBinary = "";
-        readable = "";
-        pattern = new String[11];
-        row_count = 11;
-        row_height = new int[11];
-        for (row = 0; row < 11; row++) {
-            for (column = 0; column < 11; column++) {
-                if (bitPlacementMap[(row * 11) + column] == 1) {
-                    rowBinary += "1";
-                }
-                if (bitPlacementMap[(row * 11) + column] == 0) {
-                    rowBinary += "0";
-                }
-                if (bitPlacementMap[(row * 11) + column] >= 2) {
-                    rowBinary += reversedBinaryDataStream.charAt(bitPlacementMap[(row * 11) + column] - 2);
+        runes = new BitMatrix[256];
+        for (value = 0; value < 256; value++) {
+            bits = runeBits(value);
+            rune = new BitMatrix(11, 11);
+            for (row = 0; row < 11; row++) {
+                for (column = 0; column < 11; column++) {
+                    place = bitPlacementMap[(row * 11) + column];
+                    if ((place == 1) || ((place >= 2) && (((bits >>> (29 - place)) & 1) != 0))) {
+                        rune.set(column, row);
+                    }
                 }
             }
-            pattern[row] = bin2pat(rowBinary);
-            row_height[row] = 1;
-            rowBinary = "";
+            runes[value] = rune;
         }
 
-        plotSymbol();
-        return true;
+        RUNES.compareAndSet(null, runes);
+        return RUNES.get();
+    }
+
+    /**
+     * The 28 bits of a rune, first bit highest: the value, then five error
+     * correction codewords of four bits, with every other bit inverted
+     */
+    private static int runeBits(int value) {
+        int[] dataCodeword = { value >> 4, value & 0x0f };
+        int[] errorCorrectionCodeword = new int[5];
+        int bits = value;
+        int i;
+
+        ReedSolomon.encode(0x13, 5, 1, dataCodeword, 2, errorCorrectionCodeword);
+        for (i = 0; i < 5; i++) {
+            bits = (bits << 4) | errorCorrectionCodeword[4 - i];
+        }
+        return bits ^ 0xaaaaaaa;
     }
 }
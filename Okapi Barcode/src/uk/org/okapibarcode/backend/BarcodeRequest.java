@@ -0,0 +1,196 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.backend;
+
+/**
+ * Immutable description of a symbol to be encoded, for use with
+ * {@link Barcode#encode(BarcodeRequest)}. A request can be shared freely
+ * between threads.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+public final class BarcodeRequest {
+    private final String symbology;
+    private final String content;
+    private final boolean gs1;
+    private final boolean readerInit;
+    private final int option1;
+    private final int option2;
+    private final String primaryData;
+    private final String compositeContent;
+    private final int compositePreferredMode;
+    private final boolean parallel;
+    private final boolean optimize;
+
+    private BarcodeRequest(Builder builder) {
+        symbology = builder.symbology;
+        content = builder.content;
+        gs1 = builder.gs1;
+        readerInit = builder.readerInit;
+        option1 = builder.option1;
+        option2 = builder.option2;
+        primaryData = builder.primaryData;
+        compositeContent = builder.compositeContent;
+        compositePreferredMode = builder.compositePreferredMode;
+        parallel = builder.parallel;
+        optimize = builder.optimize;
+    }
+
+    /**
+     * Start a new request
+     *
+     * @param symbology symbology name, e.g. "BARCODE_QRCODE"
+     * @param content data to encode
+     */
+    public static Builder builder(String symbology, String content) {
+        return new Builder(symbology, content);
+    }
+
+    public String getSymbology() {
+        return symbology;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public boolean isGs1() {
+        return gs1;
+    }
+
+    public boolean isReaderInit() {
+        return readerInit;
+    }
+
+    public int getOption1() {
+        return option1;
+    }
+
+    public int getOption2() {
+        return option2;
+    }
+
+    public String getPrimaryData() {
+        return primaryData;
+    }
+
+    public String getCompositeContent() {
+        return compositeContent;
+    }
+
+    public int getCompositePreferredMode() {
+        return compositePreferredMode;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public boolean isOptimize() {
+        return optimize;
+    }
+
+    /** Copy the settings of this request onto a fresh Barcode */
+    void applyTo(Barcode barcode) {
+        barcode.setOption1(option1);
+        barcode.setOption2(option2);
+        if (gs1) {
+            barcode.setGs1Mode();
+        } else if (readerInit) {
+            barcode.setInitMode();
+        } else {
+            barcode.setNormalMode();
+        }
+        barcode.setPrimary(primaryData);
+        if (!(compositeContent.isEmpty())) {
+            barcode.setCompositeContent(compositeContent);
+            barcode.setCompositePreferredMode(compositePreferredMode);
+        }
+        barcode.setParallel(parallel);
+        barcode.setOptimize(optimize);
+    }
+
+    /**
+     * Collects the settings for a {@link BarcodeRequest}. A builder is not
+     * thread safe, but the requests it builds are.
+     */
+    public static final class Builder {
+        private final String symbology;
+        private final String content;
+        private boolean gs1 = false;
+        private boolean readerInit = false;
+        private int option1;
+        private int option2;
+        private String primaryData = "";
+        private String compositeContent = "";
+        private int compositePreferredMode;
+        private boolean parallel = false;
+        private boolean optimize = false;
+
+        private Builder(String symbology, String content) {
+            this.symbology = symbology;
+            this.content = content;
+        }
+
+        public Builder gs1(boolean input) {
+            gs1 = input;
+            return this;
+        }
+
+        public Builder readerInit(boolean input) {
+            readerInit = input;
+            return this;
+        }
+
+        public Builder option1(int input) {
+            option1 = input;
+            return this;
+        }
+
+        public Builder option2(int input) {
+            option2 = input;
+            return this;
+        }
+
+        /** Primary message, only used for Maxicode */
+        public Builder primary(String input) {
+            primaryData = input;
+            return this;
+        }
+
+        public Builder composite(String input, int preferredMode) {
+            compositeContent = input;
+            compositePreferredMode = preferredMode;
+            return this;
+        }
+
+        /** Allow large symbols to be encoded using several threads */
+        public Builder parallel(boolean input) {
+            parallel = input;
+            return this;
+        }
+
+        /** Encode in the fewest codewords, see {@link Barcode#setOptimize} */
+        public Builder optimize(boolean input) {
+            optimize = input;
+            return this;
+        }
+
+        public BarcodeRequest build() {
+            return new BarcodeRequest(this);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.backend;
+
+import java.util.Arrays;
+
+/**
+ * A growable string of bits, packed 64 to a word, which encoders build
+ * their data streams in before cutting them up into codewords.
+ * <p>
+ * Bits are numbered from 0 in the order they were appended, and values of
+ * several bits are always written and read most significant bit first, so
+ * {@code append(5, 4)} adds the bits 0101. Up to 32 bits can be written or
+ * read at a time.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+final class BitBuffer {
+
+    private long[] words;
+    private int length;
+
+    BitBuffer() {
+        this(256);
+    }
+
+    /** @param capacity number of bits to make room for up front */
+    BitBuffer(int capacity) {
+        words = new long[Math.max((capacity + 63) >>> 6, 1)];
+    }
+
+    /** Number of bits in the buffer */
+    int length() {
+        return length;
+    }
+
+    /** Remove all of the bits */
+    void clear() {
+        Arrays.fill(words, 0, Math.min((length + 63) >>> 6, words.length), 0);
+        length = 0;
+    }
+
+    /** Add the lowest {@code count} bits of {@code value} to the end */
+    void append(int value, int count) {
+        ensureCapacity(length + count);
+        write(length, value, count);
+        length += count;
+    }
+
+    /** Add a single bit to the end */
+    void append(boolean bit) {
+        append(bit ? 1 : 0, 1);
+    }
+
+    /** Add all of the bits of another buffer to the end */
+    void append(BitBuffer other) {
+        int i, n;
+
+        ensureCapacity(length + other.length);
+        for (i = 0; i < other.length; i += 32) {
+            n = Math.min(32, other.length - i);
+            append(other.get(i, n), n);
+        }
+    }
+
+    /** True if the bit at {@code index} is set */
+    boolean get(int index) {
+        return (words[index >>> 6] & (1L << (63 - (index & 63)))) != 0;
+    }
+
+    /** The {@code count} bits starting at {@code index} as a number */
+    int get(int index, int count) {
+        int w = index >>> 6;
+        int offset = index & 63;
+        long value;
+
+        if (count == 0) {
+            return 0;
+        }
+        value = words[w] << offset;
+        if (offset + count > 64) {
+            value |= words[w + 1] >>> (64 - offset);
+        }
+        return (int) (value >>> (64 - count));
+    }
+
+    /** Overwrite the bit at {@code index} */
+    void set(int index, boolean bit) {
+        write(index, bit ? 1 : 0, 1);
+    }
+
+    /** Overwrite the {@code count} bits starting at {@code index} */
+    void set(int index, int value, int count) {
+        write(index, value, count);
+    }
+
+    /**
+     * Insert the lowest {@code count} bits of {@code value} at
+     * {@code index}, moving the bits from there on along to make room.
+     */
+    void insert(int index, int value, int count) {
+        int end, n;
+
+        ensureCapacity(length + count);
+        /* Move the tail from the back so nothing is overwritten before it is read */
+        end = length;
+        while (end > index) {
+            n = Math.min(32, end - index);
+            end -= n;
+            write(end + count, get(end, n), n);
+        }
+        write(index, value, count);
+        length += count;
+    }
+
+    /** Remove {@code count} bits starting at {@code index} */
+    void delete(int index, int count) {
+        int from, n;
+
+        for (from = index + count; from < length; from += n) {
+            n = Math.min(32, length - from);
+            write(from - count, get(from, n), n);
+        }
+        truncate(length - count);
+    }
+
+    /** Drop bits from the end so that {@code newLength} remain */
+    void truncate(int newLength) {
+        int w = newLength >>> 6;
+
+        if (newLength >= length) {
+            return;
+        }
+        /* Keep everything past the end clear so that appends can just set bits */
+        if ((newLength & 63) != 0) {
+            words[w] &= -1L << (64 - (newLength & 63));
+            w++;
+        }
+        Arrays.fill(words, w, (length + 63) >>> 6, 0);
+        length = newLength;
+    }
+
+    /** The bits as a string of 0s and 1s, for debug output */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(length);
+        int i;
+
+        for (i = 0; i < length; i++) {
+            sb.append(get(i) ? '1' : '0');
+        }
+        return sb.toString();
+    }
+
+    private void write(int index, int value, int count) {
+        int w = index >>> 6;
+        int shift = 64 - (index & 63) - count;
+        long mask = (1L << count) - 1;
+        long bits = value & mask;
+
+        if (count == 0) {
+            return;
+        }
+        if (shift >= 0) {
+            words[w] = (words[w] & ~(mask << shift)) | (bits << shift);
+        } else {
+            words[w] = (words[w] & ~(mask >>> -shift)) | (bits >>> -shift);
+            words[w + 1] = (words[w + 1] & ~(mask << (64 + shift))) | (bits << (64 + shift));
+        }
+    }
+
+    private void ensureCapacity(int bits) {
+        int needed = (bits + 63) >>> 6;
+
+        if (needed > words.length) {
+            words = Arrays.copyOf(words, Math.max(needed, words.length * 2));
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.backend;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+
+/**
+ * Packed grid of modules for two-dimensional matrix symbols. Each row is
+ * held as a run of 64-bit words with the leftmost module in the lowest bit
+ * of the first word. A set bit is a dark module.
+ * <p>
+ * Matrix encoders write their finished symbol straight into a BitMatrix and
+ * renderers can walk the dark runs of each row with {@link #nextSetBit} and
+ * {@link #nextClearBit}, so no rectangles need to exist unless a caller asks
+ * for them with {@link #toRectangles()}.
+ * <p>
+ * Only the encoders in this package can make modules dark. Everyone else
+ * sees a read-only matrix, so one finished symbol can be shared between
+ * any number of callers and threads.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+public final class BitMatrix {
+    private final int width;
+    private final int height;
+    private final int rowWords;
+    private final long[] bits;
+
+    BitMatrix(int width, int height) {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Invalid matrix size " + width + " x " + height);
+        }
+        this.width = width;
+        this.height = height;
+        rowWords = (width + 63) >>> 6;
+        bits = new long[rowWords * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** True if the module at column x, row y is dark */
+    public boolean get(int x, int y) {
+        return (bits[(y * rowWords) + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /** Make the module at column x, row y dark */
+    void set(int x, int y) {
+        bits[(y * rowWords) + (x >>> 6)] |= 1L << x;
+    }
+
+    void set(int x, int y, boolean dark) {
+        if (dark) {
+            bits[(y * rowWords) + (x >>> 6)] |= 1L << x;
+        } else {
+            bits[(y * rowWords) + (x >>> 6)] &= ~(1L << x);
+        }
+    }
+
+    /**
+     * Make dark the modules of row y which match the set bits among the
+     * lowest {@code count} bits of {@code value}, starting at column x. The
+     * most significant of those bits is the leftmost module, and up to 32
+     * modules can be written at once.
+     */
+    void setBits(int x, int y, int value, int count) {
+        int index = (y * rowWords) + (x >>> 6);
+        int shift = x & 63;
+        long reversed;
+
+        if (count == 0) {
+            return;
+        }
+        reversed = (Integer.reverse(value) >>> (32 - count)) & 0xffffffffL;
+        bits[index] |= reversed << shift;
+        if (shift + count > 64) {
+            bits[index + 1] |= reversed >>> (64 - shift);
+        }
+    }
+
+    /**
+     * Find the first dark module in row y at or after column from
+     *
+     * @return column of the dark module, or the width of the matrix if there
+     * is none
+     */
+    public int nextSetBit(int y, int from) {
+        int base = y * rowWords;
+        int word = from >>> 6;
+        long w;
+
+        if (from >= width) {
+            return width;
+        }
+        w = bits[base + word] & (-1L << from);
+        while (w == 0) {
+            word++;
+            if (word == rowWords) {
+                return width;
+            }
+            w = bits[base + word];
+        }
+        return Math.min((word << 6) + Long.numberOfTrailingZeros(w), width);
+    }
+
+    /**
+     * Find the first light module in row y at or after column from
+     *
+     * @return column of the light module, or the width of the matrix if
+     * the row is dark to the end
+     */
+    public int nextClearBit(int y, int from) {
+        int base = y * rowWords;
+        int word = from >>> 6;
+        long w;
+
+        if (from >= width) {
+            return width;
+        }
+        w = ~bits[base + word] & (-1L << from);
+        while (w == 0) {
+            word++;
+            if (word == rowWords) {
+                return width;
+            }
+            w = ~bits[base + word];
+        }
+        return Math.min((word << 6) + Long.numberOfTrailingZeros(w), width);
+    }
+
+    /** Number of dark modules in the whole matrix */
+    public int cardinality() {
+        int i, count = 0;
+
+        for (i = 0; i < bits.length; i++) {
+            count += Long.bitCount(bits[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Width up to and including the rightmost dark module in any row. This
+     * is the width the symbol takes up once plotted.
+     */
+    public int getDarkWidth() {
+        int y, word, max = 0;
+        long w;
+
+        for (y = 0; y < height; y++) {
+            for (word = rowWords - 1; word >= 0; word--) {
+                w = bits[(y * rowWords) + word];
+                if (w != 0) {
+                    max = Math.max(max, (word << 6) + 64 - Long.numberOfLeadingZeros(w));
+                    break;
+                }
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Build one rectangle, a single module high, for each horizontal run of
+     * dark modules, working from the top row down and left to right
+     */
+    public ArrayList<Rectangle> toRectangles() {
+        ArrayList<Rectangle> rectangles = new ArrayList<>();
+        int x, y, end;
+
+        for (y = 0; y < height; y++) {
+            x = nextSetBit(y, 0);
+            while (x < width) {
+                end = nextClearBit(y, x);
+                rectangles.add(new Rectangle(x, y, end - x, 1));
+                x = nextSetBit(y, end);
+            }
+        }
+        return rectangles;
+    }
+}
@@ -109,11 +109,10 @@ public class CodeOne extends Symbol {
         int[] stream = new int[2100];
         int block_width;
         int length = content.length();
-        ReedSolomon rs = new ReedSolomon();
         int data_length;
         int data_cw, ecc_cw;
         int[] sub_data = new int[190];
-        String bin;
+        int[] sub_ecc = new int[70];
 
         if (option2 == 9) {
             /* Version S */
@@ -152,13 +151,11 @@ public class CodeOne extends Symbol {
                 data[codewords - i - 1] = codewordValue.intValue();
             }
 
-            rs.init_gf(0x25);
-            rs.init_code(codewords, 1);
-            rs.encode(codewords, data);
+            ReedSolomon.encode(0x25, codewords, 1, data, codewords, sub_ecc);
 
             for (i = 0; i < codewords; i++) {
                 stream[i] = data[i];
-                stream[i + codewords] = rs.getResult(codewords - i - 1);
+                stream[i + codewords] = sub_ecc[codewords - i - 1];
             }
 
             for (i = 0; i < 136; i++) {
@@ -252,16 +249,14 @@ public class CodeOne extends Symbol {
             }
 
             /* Calculate error correction data */
-            rs.init_gf(0x12d);
-            rs.init_code(ecc_cw, 1);
-            rs.encode(data_cw, data);
+            ReedSolomon.encode(0x12d, ecc_cw, 1, data, data_cw, sub_ecc);
 
             /* "Stream" combines data and error correction data */
             for (i = 0; i < data_cw; i++) {
                 stream[i] = data[i];
             }
             for (i = 0; i < ecc_cw; i++) {
-                stream[data_cw + i] = rs.getResult(ecc_cw - i - 1);
+                stream[data_cw + i] = sub_ecc[ecc_cw - i - 1];
             }
 
             for (i = 0; i < 136; i++) {
@@ -338,17 +333,16 @@ public class CodeOne extends Symbol {
 
             data_blocks = c1_blocks[size - 1];
 
-            rs.init_gf(0x12d);
-            rs.init_code(c1_ecc_blocks[size - 1], 0);
             for (i = 0; i < data_blocks; i++) {
                 for (j = 0; j < c1_data_blocks[size - 1]; j++) {
 
                     sub_data[j] = data[j * data_blocks + i];
                 }
-                rs.encode(c1_data_blocks[size - 1], sub_data);
+                ReedSolomon.encode(0x12d, c1_ecc_blocks[size - 1], 0, sub_data, 
+                        c1_data_blocks[size - 1], sub_ecc);
                 for (j = 0; j < c1_ecc_blocks[size - 1]; j++) {
                     ecc[c1_ecc_length[size - 1] - (j * data_blocks + i) - 1] 
-                            = rs.getResult(j);
+                            = sub_ecc[j];
                 }
             }
             
@@ -693,21 +687,15 @@ public class CodeOne extends Symbol {
         }
 
         readable = "";
-        pattern = new String[row_count];
-        row_height = new int[row_count];
+        matrix = new BitMatrix(symbol_width, row_count);
         for (i = 0; i < row_count; i++) {
-            bin = "";
             for (j = 0; j < symbol_width; j++) {
                 if (outputGrid[i][j]) {
-                    bin += "1";
-                } else {
-                    bin += "0";
+                    matrix.set(j, i);
                 }
             }
-            pattern[i] = bin2pat(bin);
-            row_height[i] = 1;
         }
-        plotSymbol();
+        plotMatrix();
         return true;
     }
 
@@ -723,7 +711,7 @@ public class CodeOne extends Symbol {
         int[] c40_buffer = new int[6];
         int[] text_buffer = new int[6];
         int[] edi_buffer = new int[6];
-        String decimal_binary = "";
+        BitBuffer decimal_binary = new BitBuffer(64);
         int length = content.length();
         int shift_set, value;
         int data_left, decimal_count;
@@ -796,7 +784,7 @@ public class CodeOne extends Symbol {
 
                     if (j == 21) {
                         next_mode = c1Mode.C1_DECIMAL;
-                        decimal_binary += "1111";
+                        decimal_binary.append(0b1111, 4);
                     }
                 }
 
@@ -820,7 +808,7 @@ public class CodeOne extends Symbol {
 
                         if (!(latch)) {
                             next_mode = c1Mode.C1_DECIMAL;
-                            decimal_binary += "1111";
+                            decimal_binary.append(0b1111, 4);
                         }
                     }
                 }
@@ -1254,7 +1242,7 @@ public class CodeOne extends Symbol {
 
                     /* Finish Decimal mode and go back to ASCII */
 
-                    decimal_binary += "111111"; /* Unlatch */
+                    decimal_binary.append(0b111111, 6); /* Unlatch */
 
                     target_count = 3;
                     if (decimal_binary.length() <= 16) {
@@ -1269,57 +1257,38 @@ public class CodeOne extends Symbol {
                     }
 
                     if (bits_left_in_byte == 2) {
-                        decimal_binary += "01";
+                        decimal_binary.append(0b01, 2);
                     }
 
                     if ((bits_left_in_byte == 4) || (bits_left_in_byte == 6)) {
                         if (decimal_count >= 1) {
                             sub_value = source[sourcePoint] - '0' + 1;
                             
-                            for (i = 0x08; i > 0; i = i >> 1) {
-                                if ((sub_value & i) != 0) {
-                                    decimal_binary += "1";
-                                } else {
-                                    decimal_binary += "0";
-                                }
-                            }
+                            decimal_binary.append(sub_value, 4);
                             sourcePoint++;
                         } else {
-                            decimal_binary += "1111";
+                            decimal_binary.append(0b1111, 4);
                         }
                     }
 
                     if (bits_left_in_byte == 6) {
-                        decimal_binary += "01";
+                        decimal_binary.append(0b01, 2);
                     }
 
                     /* Binary buffer is full - transfer to data */
                     if (target_count >= 1) {
-                        for(i = 0; i < 8; i++) {
-                            if(decimal_binary.charAt(i) == '1') {
-                                data[targetPoint] += 128 >> i;
-                            }
-                        }
+                        data[targetPoint] += decimal_binary.get(0, 8);
                         targetPoint++;
                     }
                     if (target_count >= 2) {
-                        for(i = 0; i < 8; i++) {
-                            if(decimal_binary.charAt(8 + i) == '1') {
-                                data[targetPoint] += 128 >> i;
-                            }
-                            
-                        }
+                        data[targetPoint] += decimal_binary.get(8, 8);
                         targetPoint++;
                     }
                     if (target_count == 3) {
-                        for(i = 0; i < 8; i++) {
-                            if(decimal_binary.charAt(16 + i) == '1') {
-                                data[targetPoint] += 128 >> i;
-                            }
-                            
-                        }
+                        data[targetPoint] += decimal_binary.get(16, 8);
                         targetPoint++;
                     }
+                    decimal_binary.clear();
 
                     next_mode = c1Mode.C1_ASCII;
                 } else {
@@ -1328,37 +1297,18 @@ public class CodeOne extends Symbol {
                             + (10 * (source[sourcePoint + 1] - '0')) 
                             + (source[sourcePoint + 2] - '0') + 1;
 
-                    for (i = 0x200; i > 0; i = i >> 1) {
-                        if ((value & i) != 0) {
-                            decimal_binary += "1";
-                        } else {
-                            decimal_binary += "0";
-                        }
-                    }
+                    decimal_binary.append(value, 10);
                     sourcePoint += 3;
                 }
 
                 if (decimal_binary.length() >= 24) {
                     /* Binary buffer is full - transfer to data */
-                    for(i = 0; i < 8; i++) {
-                        if (decimal_binary.charAt(i) == '1') {
-                            data[targetPoint] += 128 >> i;
-                        }
-                        
-                        if (decimal_binary.charAt(8 + i) == '1') {
-                            data[targetPoint + 1] += 128 >> i;
-                        }
-                        
-                        if (decimal_binary.charAt(16 + i) == '1') {
-                            data[targetPoint + 2] += 128 >> i;
-                        }
-                        
-                    }
+                    data[targetPoint] += decimal_binary.get(0, 8);
+                    data[targetPoint + 1] += decimal_binary.get(8, 8);
+                    data[targetPoint + 2] += decimal_binary.get(16, 8);
                     targetPoint += 3;
 
-                    if (decimal_binary.length() > 24) {
-                        decimal_binary = decimal_binary.substring(24);
-                    }
+                    decimal_binary.delete(0, 24);
                 }
             }
 
@@ -1462,7 +1412,7 @@ public class CodeOne extends Symbol {
         if (current_mode == c1Mode.C1_DECIMAL) {
             /* Finish Decimal mode and go back to ASCII */
 
-            decimal_binary += "111111"; /* Unlatch */
+            decimal_binary.append(0b111111, 6); /* Unlatch */
 
             target_count = 3;
             if (decimal_binary.length() <= 16) {
@@ -1477,40 +1427,28 @@ public class CodeOne extends Symbol {
             }
 
             if (bits_left_in_byte == 2) {
-                decimal_binary += "01";
+                decimal_binary.append(0b01, 2);
             }
 
             if ((bits_left_in_byte == 4) || (bits_left_in_byte == 6)) {
-                decimal_binary += "1111";
+                decimal_binary.append(0b1111, 4);
             }
 
             if (bits_left_in_byte == 6) {
-                decimal_binary += "01";
+                decimal_binary.append(0b01, 2);
             }
 
             /* Binary buffer is full - transfer to data */
             if (target_count >= 1) {
-                for(i = 0; i < 8; i++) {
-                    if(decimal_binary.charAt(i) == '1') {
-                        data[targetPoint] += 128 >> i;
-                    }
-                }
+                data[targetPoint] += decimal_binary.get(0, 8);
                 targetPoint++;
             }
             if (target_count >= 2) {
-                for(i = 0; i < 8; i++) {
-                    if(decimal_binary.charAt(8 + i) == '1') {
-                        data[targetPoint] += 128 >> i;
-                    }
-                }
+                data[targetPoint] += decimal_binary.get(8, 8);
                 targetPoint++;
             }
             if (target_count == 3) {
-                for(i = 0; i < 8; i++) {
-                    if(decimal_binary.charAt(16 + i) == '1') {
-                        data[targetPoint] += 128 >> i;
-                    }
-                }
+                data[targetPoint] += decimal_binary.get(16, 8);
                 targetPoint++;
             }
         }
@@ -125,248 +125,7 @@ public class Composite extends Symbol {
     private int[] aRAPTable = {
         39, 1, 32, 8, 14, 43, 20, 11, 1, 5, 15, 21, 40, 43, 46, 34, 29, 0, 0, 0, 0, 0, 0, 0, 43, 33, 37, 47, 1, 20, 23, 26, 14, 9, 19, 33, 12, 40, 46, 23, 52, 23, 13, 17, 27, 33, 52, 3, 6, 46, 41, 6, 0, 3, 3, 3, 0, 3, 3, 0, 3, 6, 6, 0, 0, 0, 0, 3
     };
-    private String[] codagemc = {
-        "urA", "xfs", "ypy", "unk", "xdw", "yoz", "pDA", "uls", "pBk", "eBA",
-        "pAs", "eAk", "prA", "uvs", "xhy", "pnk", "utw", "xgz", "fDA", "pls", "fBk", "frA", "pvs",
-        "uxy", "fnk", "ptw", "uwz", "fls", "psy", "fvs", "pxy", "ftw", "pwz", "fxy", "yrx", "ufk",
-        "xFw", "ymz", "onA", "uds", "xEy", "olk", "ucw", "dBA", "oks", "uci", "dAk", "okg", "dAc",
-        "ovk", "uhw", "xaz", "dnA", "ots", "ugy", "dlk", "osw", "ugj", "dks", "osi", "dvk", "oxw",
-        "uiz", "dts", "owy", "dsw", "owj", "dxw", "oyz", "dwy", "dwj", "ofA", "uFs", "xCy", "odk",
-        "uEw", "xCj", "clA", "ocs", "uEi", "ckk", "ocg", "ckc", "ckE", "cvA", "ohs", "uay", "ctk",
-        "ogw", "uaj", "css", "ogi", "csg", "csa", "cxs", "oiy", "cww", "oij", "cwi", "cyy", "oFk",
-        "uCw", "xBj", "cdA", "oEs", "uCi", "cck", "oEg", "uCb", "ccc", "oEa", "ccE", "oED", "chk",
-        "oaw", "uDj", "cgs", "oai", "cgg", "oab", "cga", "cgD", "obj", "cib", "cFA", "oCs", "uBi",
-        "cEk", "oCg", "uBb", "cEc", "oCa", "cEE", "oCD", "cEC", "cas", "cag", "caa", "cCk", "uAr",
-        "oBa", "oBD", "cCB", "tfk", "wpw", "yez", "mnA", "tds", "woy", "mlk", "tcw", "woj", "FBA",
-        "mks", "FAk", "mvk", "thw", "wqz", "FnA", "mts", "tgy", "Flk", "msw", "Fks", "Fkg", "Fvk",
-        "mxw", "tiz", "Fts", "mwy", "Fsw", "Fsi", "Fxw", "myz", "Fwy", "Fyz", "vfA", "xps", "yuy",
-        "vdk", "xow", "yuj", "qlA", "vcs", "xoi", "qkk", "vcg", "xob", "qkc", "vca", "mfA", "tFs",
-        "wmy", "qvA", "mdk", "tEw", "wmj", "qtk", "vgw", "xqj", "hlA", "Ekk", "mcg", "tEb", "hkk",
-        "qsg", "hkc", "EvA", "mhs", "tay", "hvA", "Etk", "mgw", "taj", "htk", "qww", "vij", "hss",
-        "Esg", "hsg", "Exs", "miy", "hxs", "Eww", "mij", "hww", "qyj", "hwi", "Eyy", "hyy", "Eyj",
-        "hyj", "vFk", "xmw", "ytj", "qdA", "vEs", "xmi", "qck", "vEg", "xmb", "qcc", "vEa", "qcE",
-        "qcC", "mFk", "tCw", "wlj", "qhk", "mEs", "tCi", "gtA", "Eck", "vai", "tCb", "gsk", "Ecc",
-        "mEa", "gsc", "qga", "mED", "EcC", "Ehk", "maw", "tDj", "gxk", "Egs", "mai", "gws", "qii",
-        "mab", "gwg", "Ega", "EgD", "Eiw", "mbj", "gyw", "Eii", "gyi", "Eib", "gyb", "gzj", "qFA",
-        "vCs", "xli", "qEk", "vCg", "xlb", "qEc", "vCa", "qEE", "vCD", "qEC", "qEB", "EFA", "mCs",
-        "tBi", "ghA", "EEk", "mCg", "tBb", "ggk", "qag", "vDb", "ggc", "EEE", "mCD", "ggE", "qaD",
-        "ggC", "Eas", "mDi", "gis", "Eag", "mDb", "gig", "qbb", "gia", "EaD", "giD", "gji", "gjb",
-        "qCk", "vBg", "xkr", "qCc", "vBa", "qCE", "vBD", "qCC", "qCB", "ECk", "mBg", "tAr", "gak",
-        "ECc", "mBa", "gac", "qDa", "mBD", "gaE", "ECC", "gaC", "ECB", "EDg", "gbg", "gba", "gbD",
-        "vAq", "vAn", "qBB", "mAq", "EBE", "gDE", "gDC", "gDB", "lfA", "sps", "wey", "ldk", "sow",
-        "ClA", "lcs", "soi", "Ckk", "lcg", "Ckc", "CkE", "CvA", "lhs", "sqy", "Ctk", "lgw", "sqj",
-        "Css", "lgi", "Csg", "Csa", "Cxs", "liy", "Cww", "lij", "Cwi", "Cyy", "Cyj", "tpk", "wuw",
-        "yhj", "ndA", "tos", "wui", "nck", "tog", "wub", "ncc", "toa", "ncE", "toD", "lFk", "smw",
-        "wdj", "nhk", "lEs", "smi", "atA", "Cck", "tqi", "smb", "ask", "ngg", "lEa", "asc", "CcE",
-        "asE", "Chk", "law", "snj", "axk", "Cgs", "trj", "aws", "nii", "lab", "awg", "Cga", "awa",
-        "Ciw", "lbj", "ayw", "Cii", "ayi", "Cib", "Cjj", "azj", "vpA", "xus", "yxi", "vok", "xug",
-        "yxb", "voc", "xua", "voE", "xuD", "voC", "nFA", "tms", "wti", "rhA", "nEk", "xvi", "wtb",
-        "rgk", "vqg", "xvb", "rgc", "nEE", "tmD", "rgE", "vqD", "nEB", "CFA", "lCs", "sli", "ahA",
-        "CEk", "lCg", "slb", "ixA", "agk", "nag", "tnb", "iwk", "rig", "vrb", "lCD", "iwc", "agE",
-        "naD", "iwE", "CEB", "Cas", "lDi", "ais", "Cag", "lDb", "iys", "aig", "nbb", "iyg", "rjb",
-        "CaD", "aiD", "Cbi", "aji", "Cbb", "izi", "ajb", "vmk", "xtg", "ywr", "vmc", "xta", "vmE",
-        "xtD", "vmC", "vmB", "nCk", "tlg", "wsr", "rak", "nCc", "xtr", "rac", "vna", "tlD", "raE",
-        "nCC", "raC", "nCB", "raB", "CCk", "lBg", "skr", "aak", "CCc", "lBa", "iik", "aac", "nDa",
-        "lBD", "iic", "rba", "CCC", "iiE", "aaC", "CCB", "aaB", "CDg", "lBr", "abg", "CDa", "ijg",
-        "aba", "CDD", "ija", "abD", "CDr", "ijr", "vlc", "xsq", "vlE", "xsn", "vlC", "vlB", "nBc",
-        "tkq", "rDc", "nBE", "tkn", "rDE", "vln", "rDC", "nBB", "rDB", "CBc", "lAq", "aDc", "CBE",
-        "lAn", "ibc", "aDE", "nBn", "ibE", "rDn", "CBB", "ibC", "aDB", "ibB", "aDq", "ibq", "ibn",
-        "xsf", "vkl", "tkf", "nAm", "nAl", "CAo", "aBo", "iDo", "CAl", "aBl", "kpk", "BdA", "kos",
-        "Bck", "kog", "seb", "Bcc", "koa", "BcE", "koD", "Bhk", "kqw", "sfj", "Bgs", "kqi", "Bgg",
-        "kqb", "Bga", "BgD", "Biw", "krj", "Bii", "Bib", "Bjj", "lpA", "sus", "whi", "lok", "sug",
-        "loc", "sua", "loE", "suD", "loC", "BFA", "kms", "sdi", "DhA", "BEk", "svi", "sdb", "Dgk",
-        "lqg", "svb", "Dgc", "BEE", "kmD", "DgE", "lqD", "BEB", "Bas", "kni", "Dis", "Bag", "knb",
-        "Dig", "lrb", "Dia", "BaD", "Bbi", "Dji", "Bbb", "Djb", "tuk", "wxg", "yir", "tuc", "wxa",
-        "tuE", "wxD", "tuC", "tuB", "lmk", "stg", "nqk", "lmc", "sta", "nqc", "tva", "stD", "nqE",
-        "lmC", "nqC", "lmB", "nqB", "BCk", "klg", "Dak", "BCc", "str", "bik", "Dac", "lna", "klD",
-        "bic", "nra", "BCC", "biE", "DaC", "BCB", "DaB", "BDg", "klr", "Dbg", "BDa", "bjg", "Dba",
-        "BDD", "bja", "DbD", "BDr", "Dbr", "bjr", "xxc", "yyq", "xxE", "yyn", "xxC", "xxB", "ttc",
-        "wwq", "vvc", "xxq", "wwn", "vvE", "xxn", "vvC", "ttB", "vvB", "llc", "ssq", "nnc", "llE",
-        "ssn", "rrc", "nnE", "ttn", "rrE", "vvn", "llB", "rrC", "nnB", "rrB", "BBc", "kkq", "DDc",
-        "BBE", "kkn", "bbc", "DDE", "lln", "jjc", "bbE", "nnn", "BBB", "jjE", "rrn", "DDB", "jjC",
-        "BBq", "DDq", "BBn", "bbq", "DDn", "jjq", "bbn", "jjn", "xwo", "yyf", "xwm", "xwl", "tso",
-        "wwf", "vto", "xwv", "vtm", "tsl", "vtl", "lko", "ssf", "nlo", "lkm", "rno", "nlm", "lkl",
-        "rnm", "nll", "rnl", "BAo", "kkf", "DBo", "lkv", "bDo", "DBm", "BAl", "jbo", "bDm", "DBl",
-        "jbm", "bDl", "jbl", "DBv", "jbv", "xwd", "vsu", "vst", "nku", "rlu", "rlt", "DAu", "bBu",
-        "jDu", "jDt", "ApA", "Aok", "keg", "Aoc", "AoE", "AoC", "Aqs", "Aqg", "Aqa", "AqD", "Ari",
-        "Arb", "kuk", "kuc", "sha", "kuE", "shD", "kuC", "kuB", "Amk", "kdg", "Bqk", "kvg", "kda",
-        "Bqc", "kva", "BqE", "kvD", "BqC", "AmB", "BqB", "Ang", "kdr", "Brg", "kvr", "Bra", "AnD",
-        "BrD", "Anr", "Brr", "sxc", "sxE", "sxC", "sxB", "ktc", "lvc", "sxq", "sgn", "lvE", "sxn",
-        "lvC", "ktB", "lvB", "Alc", "Bnc", "AlE", "kcn", "Drc", "BnE", "AlC", "DrE", "BnC", "AlB",
-        "DrC", "BnB", "Alq", "Bnq", "Aln", "Drq", "Bnn", "Drn", "wyo", "wym", "wyl", "swo", "txo",
-        "wyv", "txm", "swl", "txl", "kso", "sgf", "lto", "swv", "nvo", "ltm", "ksl", "nvm", "ltl",
-        "nvl", "Ako", "kcf", "Blo", "ksv", "Dno", "Blm", "Akl", "bro", "Dnm", "Bll", "brm", "Dnl",
-        "Akv", "Blv", "Dnv", "brv", "yze", "yzd", "wye", "xyu", "wyd", "xyt", "swe", "twu", "swd",
-        "vxu", "twt", "vxt", "kse", "lsu", "ksd", "ntu", "lst", "rvu", "ypk", "zew", "xdA", "yos",
-        "zei", "xck", "yog", "zeb", "xcc", "yoa", "xcE", "yoD", "xcC", "xhk", "yqw", "zfj", "utA",
-        "xgs", "yqi", "usk", "xgg", "yqb", "usc", "xga", "usE", "xgD", "usC", "uxk", "xiw", "yrj",
-        "ptA", "uws", "xii", "psk", "uwg", "xib", "psc", "uwa", "psE", "uwD", "psC", "pxk", "uyw",
-        "xjj", "ftA", "pws", "uyi", "fsk", "pwg", "uyb", "fsc", "pwa", "fsE", "pwD", "fxk", "pyw",
-        "uzj", "fws", "pyi", "fwg", "pyb", "fwa", "fyw", "pzj", "fyi", "fyb", "xFA", "yms", "zdi",
-        "xEk", "ymg", "zdb", "xEc", "yma", "xEE", "ymD", "xEC", "xEB", "uhA", "xas", "yni", "ugk",
-        "xag", "ynb", "ugc", "xaa", "ugE", "xaD", "ugC", "ugB", "oxA", "uis", "xbi", "owk", "uig",
-        "xbb", "owc", "uia", "owE", "uiD", "owC", "owB", "dxA", "oys", "uji", "dwk", "oyg", "ujb",
-        "dwc", "oya", "dwE", "oyD", "dwC", "dys", "ozi", "dyg", "ozb", "dya", "dyD", "dzi", "dzb",
-        "xCk", "ylg", "zcr", "xCc", "yla", "xCE", "ylD", "xCC", "xCB", "uak", "xDg", "ylr", "uac",
-        "xDa", "uaE", "xDD", "uaC", "uaB", "oik", "ubg", "xDr", "oic", "uba", "oiE", "ubD", "oiC",
-        "oiB", "cyk", "ojg", "ubr", "cyc", "oja", "cyE", "ojD", "cyC", "cyB", "czg", "ojr", "cza",
-        "czD", "czr", "xBc", "ykq", "xBE", "ykn", "xBC", "xBB", "uDc", "xBq", "uDE", "xBn", "uDC",
-        "uDB", "obc", "uDq", "obE", "uDn", "obC", "obB", "cjc", "obq", "cjE", "obn", "cjC", "cjB",
-        "cjq", "cjn", "xAo", "ykf", "xAm", "xAl", "uBo", "xAv", "uBm", "uBl", "oDo", "uBv", "oDm",
-        "oDl", "cbo", "oDv", "cbm", "cbl", "xAe", "xAd", "uAu", "uAt", "oBu", "oBt", "wpA", "yes",
-        "zFi", "wok", "yeg", "zFb", "woc", "yea", "woE", "yeD", "woC", "woB", "thA", "wqs", "yfi",
-        "tgk", "wqg", "yfb", "tgc", "wqa", "tgE", "wqD", "tgC", "tgB", "mxA", "tis", "wri", "mwk",
-        "tig", "wrb", "mwc", "tia", "mwE", "tiD", "mwC", "mwB", "FxA", "mys", "tji", "Fwk", "myg",
-        "tjb", "Fwc", "mya", "FwE", "myD", "FwC", "Fys", "mzi", "Fyg", "mzb", "Fya", "FyD", "Fzi",
-        "Fzb", "yuk", "zhg", "hjs", "yuc", "zha", "hbw", "yuE", "zhD", "hDy", "yuC", "yuB", "wmk",
-        "ydg", "zEr", "xqk", "wmc", "zhr", "xqc", "yva", "ydD", "xqE", "wmC", "xqC", "wmB", "xqB",
-        "tak", "wng", "ydr", "vik", "tac", "wna", "vic", "xra", "wnD", "viE", "taC", "viC", "taB",
-        "viB", "mik", "tbg", "wnr", "qyk", "mic", "tba", "qyc", "vja", "tbD", "qyE", "miC", "qyC",
-        "miB", "qyB", "Eyk", "mjg", "tbr", "hyk", "Eyc", "mja", "hyc", "qza", "mjD", "hyE", "EyC",
-        "hyC", "EyB", "Ezg", "mjr", "hzg", "Eza", "hza", "EzD", "hzD", "Ezr", "ytc", "zgq", "grw",
-        "ytE", "zgn", "gny", "ytC", "glz", "ytB", "wlc", "ycq", "xnc", "wlE", "ycn", "xnE", "ytn",
-        "xnC", "wlB", "xnB", "tDc", "wlq", "vbc", "tDE", "wln", "vbE", "xnn", "vbC", "tDB", "vbB",
-        "mbc", "tDq", "qjc", "mbE", "tDn", "qjE", "vbn", "qjC", "mbB", "qjB", "Ejc", "mbq", "gzc",
-        "EjE", "mbn", "gzE", "qjn", "gzC", "EjB", "gzB", "Ejq", "gzq", "Ejn", "gzn", "yso", "zgf",
-        "gfy", "ysm", "gdz", "ysl", "wko", "ycf", "xlo", "ysv", "xlm", "wkl", "xll", "tBo", "wkv",
-        "vDo", "tBm", "vDm", "tBl", "vDl", "mDo", "tBv", "qbo", "vDv", "qbm", "mDl", "qbl", "Ebo",
-        "mDv", "gjo", "Ebm", "gjm", "Ebl", "gjl", "Ebv", "gjv", "yse", "gFz", "ysd", "wke", "xku",
-        "wkd", "xkt", "tAu", "vBu", "tAt", "vBt", "mBu", "qDu", "mBt", "qDt", "EDu", "gbu", "EDt",
-        "gbt", "ysF", "wkF", "xkh", "tAh", "vAx", "mAx", "qBx", "wek", "yFg", "zCr", "wec", "yFa",
-        "weE", "yFD", "weC", "weB", "sqk", "wfg", "yFr", "sqc", "wfa", "sqE", "wfD", "sqC", "sqB",
-        "lik", "srg", "wfr", "lic", "sra", "liE", "srD", "liC", "liB", "Cyk", "ljg", "srr", "Cyc",
-        "lja", "CyE", "ljD", "CyC", "CyB", "Czg", "ljr", "Cza", "CzD", "Czr", "yhc", "zaq", "arw",
-        "yhE", "zan", "any", "yhC", "alz", "yhB", "wdc", "yEq", "wvc", "wdE", "yEn", "wvE", "yhn",
-        "wvC", "wdB", "wvB", "snc", "wdq", "trc", "snE", "wdn", "trE", "wvn", "trC", "snB", "trB",
-        "lbc", "snq", "njc", "lbE", "snn", "njE", "trn", "njC", "lbB", "njB", "Cjc", "lbq", "azc",
-        "CjE", "lbn", "azE", "njn", "azC", "CjB", "azB", "Cjq", "azq", "Cjn", "azn", "zio", "irs",
-        "rfy", "zim", "inw", "rdz", "zil", "ily", "ikz", "ygo", "zaf", "afy", "yxo", "ziv", "ivy",
-        "adz", "yxm", "ygl", "itz", "yxl", "wco", "yEf", "wto", "wcm", "xvo", "yxv", "wcl", "xvm",
-        "wtl", "xvl", "slo", "wcv", "tno", "slm", "vro", "tnm", "sll", "vrm", "tnl", "vrl", "lDo",
-        "slv", "nbo", "lDm", "rjo", "nbm", "lDl", "rjm", "nbl", "rjl", "Cbo", "lDv", "ajo", "Cbm",
-        "izo", "ajm", "Cbl", "izm", "ajl", "izl", "Cbv", "ajv", "zie", "ifw", "rFz", "zid", "idy",
-        "icz", "yge", "aFz", "ywu", "ygd", "ihz", "ywt", "wce", "wsu", "wcd", "xtu", "wst", "xtt",
-        "sku", "tlu", "skt", "vnu", "tlt", "vnt", "lBu", "nDu", "lBt", "rbu", "nDt", "rbt", "CDu",
-        "abu", "CDt", "iju", "abt", "ijt", "ziF", "iFy", "iEz", "ygF", "ywh", "wcF", "wsh", "xsx",
-        "skh", "tkx", "vlx", "lAx", "nBx", "rDx", "CBx", "aDx", "ibx", "iCz", "wFc", "yCq", "wFE",
-        "yCn", "wFC", "wFB", "sfc", "wFq", "sfE", "wFn", "sfC", "sfB", "krc", "sfq", "krE", "sfn",
-        "krC", "krB", "Bjc", "krq", "BjE", "krn", "BjC", "BjB", "Bjq", "Bjn", "yao", "zDf", "Dfy",
-        "yam", "Ddz", "yal", "wEo", "yCf", "who", "wEm", "whm", "wEl", "whl", "sdo", "wEv", "svo",
-        "sdm", "svm", "sdl", "svl", "kno", "sdv", "lro", "knm", "lrm", "knl", "lrl", "Bbo", "knv",
-        "Djo", "Bbm", "Djm", "Bbl", "Djl", "Bbv", "Djv", "zbe", "bfw", "npz", "zbd", "bdy", "bcz",
-        "yae", "DFz", "yiu", "yad", "bhz", "yit", "wEe", "wgu", "wEd", "wxu", "wgt", "wxt", "scu",
-        "stu", "sct", "tvu", "stt", "tvt", "klu", "lnu", "klt", "nru", "lnt", "nrt", "BDu", "Dbu",
-        "BDt", "bju", "Dbt", "bjt", "jfs", "rpy", "jdw", "roz", "jcy", "jcj", "zbF", "bFy", "zjh",
-        "jhy", "bEz", "jgz", "yaF", "yih", "yyx", "wEF", "wgh", "wwx", "xxx", "sch", "ssx", "ttx",
-        "vvx", "kkx", "llx", "nnx", "rrx", "BBx", "DDx", "bbx", "jFw", "rmz", "jEy", "jEj", "bCz",
-        "jaz", "jCy", "jCj", "jBj", "wCo", "wCm", "wCl", "sFo", "wCv", "sFm", "sFl", "kfo", "sFv",
-        "kfm", "kfl", "Aro", "kfv", "Arm", "Arl", "Arv", "yDe", "Bpz", "yDd", "wCe", "wau", "wCd",
-        "wat", "sEu", "shu", "sEt", "sht", "kdu", "kvu", "kdt", "kvt", "Anu", "Bru", "Ant", "Brt",
-        "zDp", "Dpy", "Doz", "yDF", "ybh", "wCF", "wah", "wix", "sEh", "sgx", "sxx", "kcx", "ktx",
-        "lvx", "Alx", "Bnx", "Drx", "bpw", "nuz", "boy", "boj", "Dmz", "bqz", "jps", "ruy", "jow",
-        "ruj", "joi", "job", "bmy", "jqy", "bmj", "jqj", "jmw", "rtj", "jmi", "jmb", "blj", "jnj",
-        "jli", "jlb", "jkr", "sCu", "sCt", "kFu", "kFt", "Afu", "Aft", "wDh", "sCh", "sax", "kEx",
-        "khx", "Adx", "Avx", "Buz", "Duy", "Duj", "buw", "nxj", "bui", "bub", "Dtj", "bvj", "jus",
-        "rxi", "jug", "rxb", "jua", "juD", "bti", "jvi", "btb", "jvb", "jtg", "rwr", "jta", "jtD",
-        "bsr", "jtr", "jsq", "jsn", "Bxj", "Dxi", "Dxb", "bxg", "nyr", "bxa", "bxD", "Dwr", "bxr",
-        "bwq", "bwn", "pjk", "urw", "ejA", "pbs", "uny", "ebk", "pDw", "ulz", "eDs", "pBy", "eBw",
-        "zfc", "fjk", "prw", "zfE", "fbs", "pny", "zfC", "fDw", "plz", "zfB", "fBy", "yrc", "zfq",
-        "frw", "yrE", "zfn", "fny", "yrC", "flz", "yrB", "xjc", "yrq", "xjE", "yrn", "xjC", "xjB",
-        "uzc", "xjq", "uzE", "xjn", "uzC", "uzB", "pzc", "uzq", "pzE", "uzn", "pzC", "djA", "ors",
-        "ufy", "dbk", "onw", "udz", "dDs", "oly", "dBw", "okz", "dAy", "zdo", "drs", "ovy", "zdm",
-        "dnw", "otz", "zdl", "dly", "dkz", "yno", "zdv", "dvy", "ynm", "dtz", "ynl", "xbo", "ynv",
-        "xbm", "xbl", "ujo", "xbv", "ujm", "ujl", "ozo", "ujv", "ozm", "ozl", "crk", "ofw", "uFz",
-        "cns", "ody", "clw", "ocz", "cky", "ckj", "zcu", "cvw", "ohz", "zct", "cty", "csz", "ylu",
-        "cxz", "ylt", "xDu", "xDt", "ubu", "ubt", "oju", "ojt", "cfs", "oFy", "cdw", "oEz", "ccy",
-        "ccj", "zch", "chy", "cgz", "ykx", "xBx", "uDx", "cFw", "oCz", "cEy", "cEj", "caz", "cCy",
-        "cCj", "FjA", "mrs", "tfy", "Fbk", "mnw", "tdz", "FDs", "mly", "FBw", "mkz", "FAy", "zFo",
-        "Frs", "mvy", "zFm", "Fnw", "mtz", "zFl", "Fly", "Fkz", "yfo", "zFv", "Fvy", "yfm", "Ftz",
-        "yfl", "wro", "yfv", "wrm", "wrl", "tjo", "wrv", "tjm", "tjl", "mzo", "tjv", "mzm", "mzl",
-        "qrk", "vfw", "xpz", "hbA", "qns", "vdy", "hDk", "qlw", "vcz", "hBs", "qky", "hAw", "qkj",
-        "hAi", "Erk", "mfw", "tFz", "hrk", "Ens", "mdy", "hns", "qty", "mcz", "hlw", "Eky", "hky",
-        "Ekj", "hkj", "zEu", "Evw", "mhz", "zhu", "zEt", "hvw", "Ety", "zht", "hty", "Esz", "hsz",
-        "ydu", "Exz", "yvu", "ydt", "hxz", "yvt", "wnu", "xru", "wnt", "xrt", "tbu", "vju", "tbt",
-        "vjt", "mju", "mjt", "grA", "qfs", "vFy", "gnk", "qdw", "vEz", "gls", "qcy", "gkw", "qcj",
-        "gki", "gkb", "Efs", "mFy", "gvs", "Edw", "mEz", "gtw", "qgz", "gsy", "Ecj", "gsj", "zEh",
-        "Ehy", "zgx", "gxy", "Egz", "gwz", "ycx", "ytx", "wlx", "xnx", "tDx", "vbx", "mbx", "gfk",
-        "qFw", "vCz", "gds", "qEy", "gcw", "qEj", "gci", "gcb", "EFw", "mCz", "ghw", "EEy", "ggy",
-        "EEj", "ggj", "Eaz", "giz", "gFs", "qCy", "gEw", "qCj", "gEi", "gEb", "ECy", "gay", "ECj",
-        "gaj", "gCw", "qBj", "gCi", "gCb", "EBj", "gDj", "gBi", "gBb", "Crk", "lfw", "spz", "Cns",
-        "ldy", "Clw", "lcz", "Cky", "Ckj", "zCu", "Cvw", "lhz", "zCt", "Cty", "Csz", "yFu", "Cxz",
-        "yFt", "wfu", "wft", "sru", "srt", "lju", "ljt", "arA", "nfs", "tpy", "ank", "ndw", "toz",
-        "als", "ncy", "akw", "ncj", "aki", "akb", "Cfs", "lFy", "avs", "Cdw", "lEz", "atw", "ngz",
-        "asy", "Ccj", "asj", "zCh", "Chy", "zax", "axy", "Cgz", "awz", "yEx", "yhx", "wdx", "wvx",
-        "snx", "trx", "lbx", "rfk", "vpw", "xuz", "inA", "rds", "voy", "ilk", "rcw", "voj", "iks",
-        "rci", "ikg", "rcb", "ika", "afk", "nFw", "tmz", "ivk", "ads", "nEy", "its", "rgy", "nEj",
-        "isw", "aci", "isi", "acb", "isb", "CFw", "lCz", "ahw", "CEy", "ixw", "agy", "CEj", "iwy",
-        "agj", "iwj", "Caz", "aiz", "iyz", "ifA", "rFs", "vmy", "idk", "rEw", "vmj", "ics", "rEi",
-        "icg", "rEb", "ica", "icD", "aFs", "nCy", "ihs", "aEw", "nCj", "igw", "raj", "igi", "aEb",
-        "igb", "CCy", "aay", "CCj", "iiy", "aaj", "iij", "iFk", "rCw", "vlj", "iEs", "rCi", "iEg",
-        "rCb", "iEa", "iED", "aCw", "nBj", "iaw", "aCi", "iai", "aCb", "iab", "CBj", "aDj", "ibj",
-        "iCs", "rBi", "iCg", "rBb", "iCa", "iCD", "aBi", "iDi", "aBb", "iDb", "iBg", "rAr", "iBa",
-        "iBD", "aAr", "iBr", "iAq", "iAn", "Bfs", "kpy", "Bdw", "koz", "Bcy", "Bcj", "Bhy", "Bgz",
-        "yCx", "wFx", "sfx", "krx", "Dfk", "lpw", "suz", "Dds", "loy", "Dcw", "loj", "Dci", "Dcb",
-        "BFw", "kmz", "Dhw", "BEy", "Dgy", "BEj", "Dgj", "Baz", "Diz", "bfA", "nps", "tuy", "bdk",
-        "now", "tuj", "bcs", "noi", "bcg", "nob", "bca", "bcD", "DFs", "lmy", "bhs", "DEw", "lmj",
-        "bgw", "DEi", "bgi", "DEb", "bgb", "BCy", "Day", "BCj", "biy", "Daj", "bij", "rpk", "vuw",
-        "xxj", "jdA", "ros", "vui", "jck", "rog", "vub", "jcc", "roa", "jcE", "roD", "jcC", "bFk",
-        "nmw", "ttj", "jhk", "bEs", "nmi", "jgs", "rqi", "nmb", "jgg", "bEa", "jga", "bED", "jgD",
-        "DCw", "llj", "baw", "DCi", "jiw", "bai", "DCb", "jii", "bab", "jib", "BBj", "DDj", "bbj",
-        "jjj", "jFA", "rms", "vti", "jEk", "rmg", "vtb", "jEc", "rma", "jEE", "rmD", "jEC", "jEB",
-        "bCs", "nli", "jas", "bCg", "nlb", "jag", "rnb", "jaa", "bCD", "jaD", "DBi", "bDi", "DBb",
-        "jbi", "bDb", "jbb", "jCk", "rlg", "vsr", "jCc", "rla", "jCE", "rlD", "jCC", "jCB", "bBg",
-        "nkr", "jDg", "bBa", "jDa", "bBD", "jDD", "DAr", "bBr", "jDr", "jBc", "rkq", "jBE", "rkn",
-        "jBC", "jBB", "bAq", "jBq", "bAn", "jBn", "jAo", "rkf", "jAm", "jAl", "bAf", "jAv", "Apw",
-        "kez", "Aoy", "Aoj", "Aqz", "Bps", "kuy", "Bow", "kuj", "Boi", "Bob", "Amy", "Bqy", "Amj",
-        "Bqj", "Dpk", "luw", "sxj", "Dos", "lui", "Dog", "lub", "Doa", "DoD", "Bmw", "ktj", "Dqw",
-        "Bmi", "Dqi", "Bmb", "Dqb", "Alj", "Bnj", "Drj", "bpA", "nus", "txi", "bok", "nug", "txb",
-        "boc", "nua", "boE", "nuD", "boC", "boB", "Dms", "lti", "bqs", "Dmg", "ltb", "bqg", "nvb",
-        "bqa", "DmD", "bqD", "Bli", "Dni", "Blb", "bri", "Dnb", "brb", "ruk", "vxg", "xyr", "ruc",
-        "vxa", "ruE", "vxD", "ruC", "ruB", "bmk", "ntg", "twr", "jqk", "bmc", "nta", "jqc", "rva",
-        "ntD", "jqE", "bmC", "jqC", "bmB", "jqB", "Dlg", "lsr", "bng", "Dla", "jrg", "bna", "DlD",
-        "jra", "bnD", "jrD", "Bkr", "Dlr", "bnr", "jrr", "rtc", "vwq", "rtE", "vwn", "rtC", "rtB",
-        "blc", "nsq", "jnc", "blE", "nsn", "jnE", "rtn", "jnC", "blB", "jnB", "Dkq", "blq", "Dkn",
-        "jnq", "bln", "jnn", "rso", "vwf", "rsm", "rsl", "bko", "nsf", "jlo", "bkm", "jlm", "bkl",
-        "jll", "Dkf", "bkv", "jlv", "rse", "rsd", "bke", "jku", "bkd", "jkt", "Aey", "Aej", "Auw",
-        "khj", "Aui", "Aub", "Adj", "Avj", "Bus", "kxi", "Bug", "kxb", "Bua", "BuD", "Ati", "Bvi",
-        "Atb", "Bvb", "Duk", "lxg", "syr", "Duc", "lxa", "DuE", "lxD", "DuC", "DuB", "Btg", "kwr",
-        "Dvg", "lxr", "Dva", "BtD", "DvD", "Asr", "Btr", "Dvr", "nxc", "tyq", "nxE", "tyn", "nxC",
-        "nxB", "Dtc", "lwq", "bvc", "nxq", "lwn", "bvE", "DtC", "bvC", "DtB", "bvB", "Bsq", "Dtq",
-        "Bsn", "bvq", "Dtn", "bvn", "vyo", "xzf", "vym", "vyl", "nwo", "tyf", "rxo", "nwm", "rxm",
-        "nwl", "rxl", "Dso", "lwf", "bto", "Dsm", "jvo", "btm", "Dsl", "jvm", "btl", "jvl", "Bsf",
-        "Dsv", "btv", "jvv", "vye", "vyd", "nwe", "rwu", "nwd", "rwt", "Dse", "bsu", "Dsd", "jtu",
-        "bst", "jtt", "vyF", "nwF", "rwh", "DsF", "bsh", "jsx", "Ahi", "Ahb", "Axg", "kir", "Axa",
-        "AxD", "Agr", "Axr", "Bxc", "kyq", "BxE", "kyn", "BxC", "BxB", "Awq", "Bxq", "Awn", "Bxn",
-        "lyo", "szf", "lym", "lyl", "Bwo", "kyf", "Dxo", "lyv", "Dxm", "Bwl", "Dxl", "Awf", "Bwv",
-        "Dxv", "tze", "tzd", "lye", "nyu", "lyd", "nyt", "Bwe", "Dwu", "Bwd", "bxu", "Dwt", "bxt",
-        "tzF", "lyF", "nyh", "BwF", "Dwh", "bwx", "Aiq", "Ain", "Ayo", "kjf", "Aym", "Ayl", "Aif",
-        "Ayv", "kze", "kzd", "Aye", "Byu", "Ayd", "Byt", "szp"
-    };
-    private char[] brSet = {
-        'A', 'B', 'C', 'D', 'E', 'F', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm',
-        'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '*', '+', '-'
-    };
-    private String[] PDFttf = {
-        "00000", "00001", "00010", "00011", "00100", "00101", "00110", "00111",
-        "01000", "01001", "01010", "01011", "01100", "01101", "01110", "01111", "10000", "10001",
-        "10010", "10011", "10100", "10101", "10110", "10111", "11000", "11001", "11010",
-        "11011", "11100", "11101", "11110", "11111", "01", "1111111101010100", "11111101000101001"
-    };
-    /* Left and Right Row Address Pattern from Table 2 */
-    private String[] RAPLR = {"", "221311", "311311", "312211", "222211", "213211", "214111", "223111",
-        "313111", "322111", "412111", "421111", "331111", "241111", "232111", "231211", "321211",
-        "411211", "411121", "411112", "321112", "312112", "311212", "311221", "311131", "311122",
-        "311113", "221113", "221122", "221131", "221221", "222121", "312121", "321121", "231121",
-        "231112", "222112", "213112", "212212", "212221", "212131", "212122", "212113", "211213",
-        "211123", "211132", "211141", "211231", "211222", "211312", "211321", "211411", "212311"};
-
-    /* Centre Row Address Pattern from Table 2 */
-    private String[] RAPC = {"", "112231", "121231", "122131", "131131", "131221", "132121", "141121",
-        "141211", "142111", "133111", "132211", "131311", "122311", "123211", "124111", "115111",
-        "114211", "114121", "123121", "123112", "122212", "122221", "121321", "121411", "112411",
-        "113311", "113221", "113212", "113122", "122122", "131122", "131113", "122113", "113113",
-        "112213", "112222", "112312", "112321", "111421", "111331", "111322", "111232", "111223",
-        "111133", "111124", "111214", "112114", "121114", "121123", "121132", "112132", "112141"};
+
     private int[] MicroVariants = {1, 1, 1, 1, 1, 1, 2, 2, 2, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4,
         11, 14, 17, 20, 24, 28, 8, 11, 14, 17, 20, 23, 26, 6, 8, 10, 12, 15, 20, 26, 32, 38, 44, 4, 6, 8, 10, 12, 15, 20, 26, 32, 38, 44,
         7, 7, 7, 8, 8, 8, 8, 9, 9, 10, 11, 13, 15, 12, 14, 16, 18, 21, 26, 32, 38, 44, 50, 8, 12, 14, 16, 18, 21, 26, 32, 38, 44, 50,
@@ -426,7 +185,7 @@ public class Composite extends Symbol {
         9, 8, 36, 19, 17, 33, 1, 9, 8, 36, 19, 17, 35, 1, 7, 15, 25, 37, 33, 17, 37, 47, 49, 43, 1, 7, 15, 25, 37, 33, 17, 37, 47, 49,
         0, 3, 6, 0, 6, 0, 0, 0, 3, 6, 0, 6, 6, 0, 0, 6, 0, 0, 0, 0, 6, 6, 0, 3, 0, 0, 6, 0, 0, 0, 0, 6, 6, 0};
     private String symbology;
-    private String binary_string;
+    private BitBuffer binary_string;
     private int ecc;
 
     private enum gfMode {
@@ -658,20 +417,20 @@ public class Composite extends Symbol {
 
         encodeInfo += "Composite encoding: " + encoding_method + "\n";
         
-        binary_string = "";
+        binary_string = new BitBuffer();
 
         if (encoding_method == 1) {
-            binary_string += "0";
+            binary_string.append(0b0, 1);
         }
 
         if (encoding_method == 2) {
             /* Encoding Method field "10" - date and lot number */
 
-            binary_string += "10";
+            binary_string.append(0b10, 2);
 
             if (content.charAt(1) == '0') {
                 /* No date data */
-                binary_string += "11";
+                binary_string.append(0b11, 2);
                 read_posn = 2;
             } else {
                 /* Production Date (11) or Expiration Date (17) */
@@ -679,20 +438,14 @@ public class Composite extends Symbol {
                 group_val += (((10 * (content.charAt(4) - '0')) + (content.charAt(5) - '0')) - 1) * 32;
                 group_val += (10 * (content.charAt(6) - '0')) + (content.charAt(7) - '0');
 
-                for (j = 0; j < 16; j++) {
-                    if ((group_val & (0x8000 >> j)) == 0) {
-                        binary_string += "0";
-                    } else {
-                        binary_string += "1";
-                    }
-                }
+                binary_string.append(group_val, 16);
 
                 if (content.charAt(1) == '1') {
                     /* Production Date AI 11 */
-                    binary_string += "0";
+                    binary_string.append(0b0, 1);
                 } else {
                     /* Expiration Date AI 17 */
-                    binary_string += "1";
+                    binary_string.append(0b1, 1);
                 }
                 read_posn = 8;
             }
@@ -802,7 +555,7 @@ public class Composite extends Symbol {
                 if (debug) {
                     System.out.println("          Using encoding method 11");
                 }
-                binary_string += "11";
+                binary_string.append(0b11, 2);
 
                 numeric -= test1;
                 alpha--;
@@ -812,16 +565,16 @@ public class Composite extends Symbol {
 
                 if (alphanum > 0) {
                     /* Alphanumeric mode */
-                    binary_string += "0";
+                    binary_string.append(0b0, 1);
                     ai90_mode = 1;
                 } else {
                     if (alpha > numeric) {
                         /* Alphabetic mode */
-                        binary_string += "11";
+                        binary_string.append(0b11, 2);
                         ai90_mode = 2;
                     } else {
                         /* Numeric mode */
-                        binary_string += "10";
+                        binary_string.append(0b10, 2);
                         ai90_mode = 3;
                     }
                 }
@@ -843,13 +596,13 @@ public class Composite extends Symbol {
 
                 switch (ai_crop) {
                     case 0:
-                        binary_string += "0";
+                        binary_string.append(0b0, 1);
                         break;
                     case 1:
-                        binary_string += "10";
+                        binary_string.append(0b10, 2);
                         break;
                     case 2:
-                        binary_string += "11";
+                        binary_string.append(0b11, 2);
                         break;
                 }
 
@@ -922,42 +675,18 @@ public class Composite extends Symbol {
                 if (table3_letter != -1) {
                     /* Encoding can be done according to 5.2.2 c) 2) */
                     /* five bit binary string representing value before letter */
-                    for (j = 0; j < 5; j++) {
-                        if ((numeric_value & (0x10 >> j)) == 0x00) {
-                            binary_string += "0";
-                        } else {
-                            binary_string += "1";
-                        }
-                    }
+                    binary_string.append(numeric_value, 5);
 
                     /* followed by four bit representation of letter from Table 3 */
-                    for (j = 0; j < 4; j++) {
-                        if ((table3_letter & (0x08 >> j)) == 0x00) {
-                            binary_string += "0";
-                        } else {
-                            binary_string += "1";
-                        }
-                    }
+                    binary_string.append(table3_letter, 4);
                 } else {
                     /* Encoding is done according to 5.2.2 c) 3) */
-                    binary_string += "11111";
+                    binary_string.append(0b11111, 5);
                     /* ten bit representation of number */
-                    for (j = 0; j < 10; j++) {
-                        if ((numeric_value & (0x200 >> j)) == 0x00) {
-                            binary_string += "0";
-                        } else {
-                            binary_string += "1";
-                        }
-                    }
+                    binary_string.append(numeric_value, 10);
 
                     /* five bit representation of ASCII character */
-                    for (j = 0; j < 5; j++) {
-                        if (((ninety.charAt(test1) - 65) & (0x10 >> j)) == 0x00) {
-                            binary_string += "0";
-                        } else {
-                            binary_string += "1";
-                        }
-                    }
+                    binary_string.append(ninety.charAt(test1) - 65, 5);
                 }
 
                 read_posn = test1 + 3;
@@ -966,7 +695,7 @@ public class Composite extends Symbol {
                     System.out.println("          AI90 compression rejected, use general field");
                 }
                 /* Use general field encodation instead */
-                binary_string += "0";
+                binary_string.append(0b0, 1);
                 read_posn = 0;
             }
         }
@@ -976,27 +705,15 @@ public class Composite extends Symbol {
             /* Alpha encodation (section 5.2.3) */
             do {
                 if ((content.charAt(read_posn) >= '0') && (content.charAt(read_posn) <= '9')) {
-                    for (j = 0; j < 5; j++) {
-                        if (((content.charAt(read_posn) + 4) & (0x10 >> j)) == 0x00) {
-                            binary_string += "0";
-                        } else {
-                            binary_string += "1";
-                        }
-                    }
+                    binary_string.append(content.charAt(read_posn) + 4, 5);
                 }
 
                 if ((content.charAt(read_posn) >= 'A') && (content.charAt(read_posn) <= 'Z')) {
-                    for (j = 0; j < 6; j++) {
-                        if (((content.charAt(read_posn) - 65) & (0x20 >> j)) == 0x00) {
-                            binary_string += "0";
-                        } else {
-                            binary_string += "1";
-                        }
-                    }
+                    binary_string.append(content.charAt(read_posn) - 65, 6);
                 }
 
                 if (content.charAt(read_posn) == '[') {
-                    binary_string += "11111";
+                    binary_string.append(0b11111, 5);
                 }
 
                 read_posn++;
@@ -1008,43 +725,31 @@ public class Composite extends Symbol {
             /* Alphanumeric mode */
             do {
                 if ((content.charAt(read_posn) >= '0') && (content.charAt(read_posn) <= '9')) {
-                    for (j = 0; j < 5; j++) {
-                        if (((content.charAt(read_posn) - 43) & (0x10 >> j)) == 0x00) {
-                            binary_string += "0";
-                        } else {
-                            binary_string += "1";
-                        }
-                    }
+                    binary_string.append(content.charAt(read_posn) - 43, 5);
                 }
 
                 if ((content.charAt(read_posn) >= 'A') && (content.charAt(read_posn) <= 'Z')) {
-                    for (j = 0; j < 6; j++) {
-                        if (((content.charAt(read_posn) - 33) & (0x20 >> j)) == 0x00) {
-                            binary_string += "0";
-                        } else {
-                            binary_string += "1";
-                        }
-                    }
+                    binary_string.append(content.charAt(read_posn) - 33, 6);
                 }
 
                 switch (content.charAt(read_posn)) {
                     case '[':
-                        binary_string += "01111";
+                        binary_string.append(0b01111, 5);
                         break;
                     case '*':
-                        binary_string += "111010";
+                        binary_string.append(0b111010, 6);
                         break;
                     case ',':
-                        binary_string += "111011";
+                        binary_string.append(0b111011, 6);
                         break;
                     case '-':
-                        binary_string += "111100";
+                        binary_string.append(0b111100, 6);
                         break;
                     case '.':
-                        binary_string += "111101";
+                        binary_string.append(0b111101, 6);
                         break;
                     case '/':
-                        binary_string += "111110";
+                        binary_string.append(0b111110, 6);
                         break;
                 }
 
@@ -1173,7 +878,7 @@ public class Composite extends Symbol {
                     case NUMERIC:
                         if (i != 0) {
                             if ((general_field_type[i - 1] != gfMode.NUMERIC) && (general_field.charAt(i - 1) != '[')) {
-                                binary_string += "000"; /* Numeric latch */
+                                binary_string.append(0b000, 3); /* Numeric latch */
                             }
                         }
 
@@ -1191,13 +896,7 @@ public class Composite extends Symbol {
 
                         value = (11 * d1) + d2 + 8;
 
-                        for (j = 0; j < 7; j++) {
-                            if ((value & 0x40 >> j) == 0x00) {
-                                binary_string += "0";
-                            } else {
-                                binary_string += "1";
-                            }
-                        }
+                        binary_string.append(value, 7);
 
                         i += 2;
                         break;
@@ -1205,10 +904,10 @@ public class Composite extends Symbol {
                     case ALPHA:
                         if (i != 0) {
                             if ((general_field_type[i - 1] == gfMode.NUMERIC) || (general_field.charAt(i - 1) == '[')) {
-                                binary_string += "0000"; /* Alphanumeric latch */
+                                binary_string.append(0b0000, 4); /* Alphanumeric latch */
                             }
                             if (general_field_type[i - 1] == gfMode.ISOIEC) {
-                                binary_string += "00100"; /* ISO/IEC 646 latch */
+                                binary_string.append(0b00100, 5); /* ISO/IEC 646 latch */
                             }
                         }
 
@@ -1216,45 +915,33 @@ public class Composite extends Symbol {
 
                             value = general_field.charAt(i) - 43;
 
-                            for (j = 0; j < 5; j++) {
-                                if ((value & (0x10 >> j)) == 0x00) {
-                                    binary_string += "0";
-                                } else {
-                                    binary_string += "1";
-                                }
-                            }
+                            binary_string.append(value, 5);
                         }
 
                         if ((general_field.charAt(i) >= 'A') && (general_field.charAt(i) <= 'Z')) {
 
                             value = general_field.charAt(i) - 33;
 
-                            for (j = 0; j < 6; j++) {
-                                if ((value & (0x20 >> j)) == 0x00) {
-                                    binary_string += "0";
-                                } else {
-                                    binary_string += "1";
-                                }
-                            }
+                            binary_string.append(value, 6);
                         }
 
                         if (general_field.charAt(i) == '[') {
-                            binary_string += "01111"; /* FNC1/Numeric latch */
+                            binary_string.append(0b01111, 5); /* FNC1/Numeric latch */
                         }
                         if (general_field.charAt(i) == '*') {
-                            binary_string += "111010"; /* asterisk */
+                            binary_string.append(0b111010, 6); /* asterisk */
                         }
                         if (general_field.charAt(i) == ',') {
-                            binary_string += "111011"; /* comma */
+                            binary_string.append(0b111011, 6); /* comma */
                         }
                         if (general_field.charAt(i) == '-') {
-                            binary_string += "111100"; /* minus or hyphen */
+                            binary_string.append(0b111100, 6); /* minus or hyphen */
                         }
                         if (general_field.charAt(i) == '.') {
-                            binary_string += "111101"; /* period or full stop */
+                            binary_string.append(0b111101, 6); /* period or full stop */
                         }
                         if (general_field.charAt(i) == '/') {
-                            binary_string += "111110"; /* slash or solidus */
+                            binary_string.append(0b111110, 6); /* slash or solidus */
                         }
 
                         i++;
@@ -1263,11 +950,11 @@ public class Composite extends Symbol {
                     case ISOIEC:
                         if (i != 0) {
                             if ((general_field_type[i - 1] == gfMode.NUMERIC) || (general_field.charAt(i - 1) == '[')) {
-                                binary_string += "0000"; /* Alphanumeric latch */
-                                binary_string += "00100"; /* ISO/IEC 646 latch */
+                                binary_string.append(0b0000, 4); /* Alphanumeric latch */
+                                binary_string.append(0b00100, 5); /* ISO/IEC 646 latch */
                             }
                             if (general_field_type[i - 1] == gfMode.ALPHA) {
-                                binary_string += "00100"; /* ISO/IEC 646 latch */
+                                binary_string.append(0b00100, 5); /* ISO/IEC 646 latch */
                             }
                         }
 
@@ -1275,106 +962,88 @@ public class Composite extends Symbol {
 
                             value = general_field.charAt(i) - 43;
 
-                            for (j = 0; j < 5; j++) {
-                                if ((value & (0x10 >> j)) == 0x00) {
-                                    binary_string += "0";
-                                } else {
-                                    binary_string += "1";
-                                }
-                            }
+                            binary_string.append(value, 5);
                         }
 
                         if ((general_field.charAt(i) >= 'A') && (general_field.charAt(i) <= 'Z')) {
 
                             value = general_field.charAt(i) - 1;
 
-                            for (j = 0; j < 7; j++) {
-                                if ((value & (0x40 >> j)) == 0x00) {
-                                    binary_string += "0";
-                                } else {
-                                    binary_string += "1";
-                                }
-                            }
+                            binary_string.append(value, 7);
                         }
 
                         if ((general_field.charAt(i) >= 'a') && (general_field.charAt(i) <= 'z')) {
 
                             value = general_field.charAt(i) - 7;
 
-                            for (j = 0; j < 7; j++) {
-                                if ((value & (0x40 >> j)) == 0x00) {
-                                    binary_string += "0";
-                                } else {
-                                    binary_string += "1";
-                                }
-                            }
+                            binary_string.append(value, 7);
                         }
 
                         if (general_field.charAt(i) == '[') {
-                            binary_string += "01111"; /* FNC1/Numeric latch */
+                            binary_string.append(0b01111, 5); /* FNC1/Numeric latch */
                         }
                         if (general_field.charAt(i) == '!') {
-                            binary_string += "11101000"; /* exclamation mark */
+                            binary_string.append(0b11101000, 8); /* exclamation mark */
                         }
                         if (general_field.charAt(i) == 34) {
-                            binary_string += "11101001"; /* quotation mark */
+                            binary_string.append(0b11101001, 8); /* quotation mark */
                         }
                         if (general_field.charAt(i) == 37) {
-                            binary_string += "11101010"; /* percent sign */
+                            binary_string.append(0b11101010, 8); /* percent sign */
                         }
                         if (general_field.charAt(i) == '&') {
-                            binary_string += "11101011"; /* ampersand */
+                            binary_string.append(0b11101011, 8); /* ampersand */
                         }
                         if (general_field.charAt(i) == 39) {
-                            binary_string += "11101100"; /* apostrophe */
+                            binary_string.append(0b11101100, 8); /* apostrophe */
                         }
                         if (general_field.charAt(i) == '(') {
-                            binary_string += "11101101"; /* left parenthesis */
+                            binary_string.append(0b11101101, 8); /* left parenthesis */
                         }
                         if (general_field.charAt(i) == ')') {
-                            binary_string += "11101110"; /* right parenthesis */
+                            binary_string.append(0b11101110, 8); /* right parenthesis */
                         }
                         if (general_field.charAt(i) == '*') {
-                            binary_string += "11101111"; /* asterisk */
+                            binary_string.append(0b11101111, 8); /* asterisk */
                         }
                         if (general_field.charAt(i) == '+') {
-                            binary_string += "11110000"; /* plus sign */
+                            binary_string.append(0b11110000, 8); /* plus sign */
                         }
                         if (general_field.charAt(i) == ',') {
-                            binary_string += "11110001"; /* comma */
+                            binary_string.append(0b11110001, 8); /* comma */
                         }
                         if (general_field.charAt(i) == '-') {
-                            binary_string += "11110010"; /* minus or hyphen */
+                            binary_string.append(0b11110010, 8); /* minus or hyphen */
                         }
                         if (general_field.charAt(i) == '.') {
-                            binary_string += "11110011"; /* period or full stop */
+                            binary_string.append(0b11110011, 8); /* period or full stop */
                         }
                         if (general_field.charAt(i) == '/') {
-                            binary_string += "11110100"; /* slash or solidus */
+                            binary_string.append(0b11110100, 8); /* slash or solidus */
                         }
                         if (general_field.charAt(i) == ':') {
-                            binary_string += "11110101"; /* colon */
+                            binary_string.append(0b11110101, 8); /* colon */
                         }
                         if (general_field.charAt(i) == ';') {
-                            binary_string += "11110110"; /* semicolon */
+                            binary_string.append(0b11110110, 8); /* semicolon */
                         }
                         if (general_field.charAt(i) == '<') {
-                            binary_string += "11110111"; /* less-than sign */
+                            binary_string.append(0b11110111, 8); /* less-than sign */
                         }
                         if (general_field.charAt(i) == '=') {
-                            binary_string += "11111000"; /* equals sign */
+                            binary_string.append(0b11111000, 8); /* equals sign */
                         }
                         if (general_field.charAt(i) == '>') {
-                            binary_string += "11111001"; /* greater-than sign */
+                            binary_string.append(0b11111001, 8); /* greater-than sign */
                         }
                         if (general_field.charAt(i) == '?') {
-                            binary_string += "11111010"; /* question mark */
+                            binary_string.append(0b11111010, 8); /* question mark */
                         }
                         if (general_field.charAt(i) == '_') {
-                            binary_string += "11111011"; /* underline or low line */
+                            binary_string.append(0b11111011, 8); /* underline or low line */
                         }
                         if (general_field.charAt(i) == ' ') {
-                            binary_string += "11111100"; /* space */
+                            binary_string.append(0b11111100, 8); /* space */
                         }
 
                         i++;
@@ -1650,26 +1319,14 @@ public class Composite extends Symbol {
                 d1 = general_field.charAt(i) - '0';
                 d1++;
 
-                for (j = 0; j < 4; j++) {
-                    if ((value & (0x08 >> j)) == 0x00) {
-                        binary_string += "0";
-                    } else {
-                        binary_string += "1";
-                    }
-                }
+                binary_string.append(value, 4);
             } else {
                 d1 = general_field.charAt(i) - '0';
                 d2 = 10;
 
                 value = (11 * d1) + d2 + 8;
 
-                for (j = 0; j < 7; j++) {
-                    if ((value & (0x40 >> j)) == 0x00) {
-                        binary_string += "0";
-                    } else {
-                        binary_string += "1";
-                    }
-                }
+                binary_string.append(value, 7);
                 /* This may push the symbol up to the next size */
             }
         }
@@ -1932,20 +1589,20 @@ public class Composite extends Symbol {
         if (binary_length < target_bitsize) {
             /* Now add padding to binary string */
             if (alpha_pad == 1) {
-                binary_string += "11111";
+                binary_string.append(0b11111, 5);
                 alpha_pad = 0;
                 /* Extra FNC1 character required after Alpha encodation (section 5.2.3) */
             }
 
             if ((general_field.length() != 0) && (general_field_type[general_field.length() - 1] == gfMode.NUMERIC)) {
-                binary_string += "0000";
+                binary_string.append(0b0000, 4);
             }
 
             while (binary_string.length() < target_bitsize) {
-                binary_string += "00100";
+                binary_string.append(0b00100, 5);
             }
 
-            binary_string = binary_string.substring(0, target_bitsize);
+            binary_string.truncate(target_bitsize);
         }
 
         return true;
@@ -2075,10 +1732,9 @@ public class Composite extends Symbol {
         int LeftRAPStart, RightRAPStart, CentreRAPStart, StartCluster;
         int LeftRAP, RightRAP, CentreRAP, Cluster;
         int[] dummy = new int[5];
-        int writer, flip, loop;
-        String codebarre;
-        String bin;
-        String local_source; /* A copy of source but with padding zeroes to make 208 bits */
+        int writer;
+        Pdf417Rows rowBits;
+        BitBuffer local_source; /* A copy of source but with padding zeroes to make 208 bits */
 
         variant = 0;
 
@@ -2089,19 +1745,15 @@ public class Composite extends Symbol {
             codeWords[i] = 0;
         }
 
-        local_source = binary_string;
+        local_source = new BitBuffer(208);
+        local_source.append(binary_string);
         for (i = binary_string.length(); i < 208; i++) {
-            local_source += "0";
+            local_source.append(false);
         }
 
         for (segment = 0; segment < 13; segment++) {
             strpos = segment * 16;
-            bitStr[segment] = 0;
-            for (i = 0; i < 16; i++) {
-                if (local_source.charAt(strpos + i) == '1') {
-                    bitStr[segment] += 0x8000 >> i;
-                }
-            }
+            bitStr[segment] = local_source.get(strpos, 16);
         }
 
         init928();
@@ -2221,70 +1873,39 @@ public class Composite extends Symbol {
         row_count = rows;
         pattern = new String[row_count];
         row_height = new int[row_count];
+        rowBits = new Pdf417Rows(row_count, cc_width);
 
         for (i = 0; i < rows; i++) {
-            codebarre = "";
-            offset = 929 * Cluster;
             for (j = 0; j < 5; j++) {
                 dummy[j] = 0;
             }
             for (j = 0; j < cc_width; j++) {
                 dummy[j + 1] = codeWords[i * cc_width + j];
             }
-            /* Copy the data into codebarre */
-            codebarre += RAPLR[LeftRAP];
-            codebarre += "1";
-            codebarre += codagemc[offset + dummy[1]];
-            codebarre += "1";
+            /* Write the row address patterns and codewords into the row */
+            rowBits.startRow(i);
+            rowBits.addRowAddress(LeftRAP);
+            rowBits.addCodeword(Cluster, dummy[1]);
             if (cc_width == 3) {
-                codebarre += RAPC[CentreRAP];
+                rowBits.addCentreRowAddress(CentreRAP);
             }
             if (cc_width >= 2) {
-                codebarre += "1";
-                codebarre += codagemc[offset + dummy[2]];
-                codebarre += "1";
+                rowBits.addCodeword(Cluster, dummy[2]);
             }
             if (cc_width == 4) {
-                codebarre += RAPC[CentreRAP];
+                rowBits.addCentreRowAddress(CentreRAP);
             }
             if (cc_width >= 3) {
-                codebarre += "1";
-                codebarre += codagemc[offset + dummy[3]];
-                codebarre += "1";
+                rowBits.addCodeword(Cluster, dummy[3]);
             }
             if (cc_width == 4) {
-                codebarre += "1";
-                codebarre += codagemc[offset + dummy[4]];
-                codebarre += "1";
-            }
-            codebarre += RAPLR[RightRAP];
-            codebarre += "1"; /* stop */
-
-            /* Now codebarre is a mixture of letters and numbers */
-
-            flip = 1;
-            bin = "";
-            for (loop = 0; loop < codebarre.length(); loop++) {
-                if ((codebarre.charAt(loop) >= '0') && (codebarre.charAt(loop) <= '9')) {
-                    for (k = 0; k < (int) (codebarre.charAt(loop) - '0'); k++) {
-                        if (flip == 0) {
-                            bin += '0';
-                        } else {
-                            bin += '1';
-                        }
-                    }
-                    if (flip == 0) {
-                        flip = 1;
-                    } else {
-                        flip = 0;
-                    }
-                } else {
-                    bin += PDFttf[positionOf(codebarre.charAt(loop), brSet)];
-                }
+                rowBits.addCodeword(Cluster, dummy[4]);
             }
+            rowBits.addRowAddress(RightRAP);
+            rowBits.addBar(); /* stop */
 
             row_height[i] = 2;
-            pattern[i] = bin2pat(bin);
+            pattern[i] = rowBits.widths();
 
             /* Set up RAPs and Cluster for next row */
             LeftRAP++;
@@ -2377,10 +1998,9 @@ public class Composite extends Symbol {
         int[] mccorrection = new int[50];
         int total;
         int[] dummy = new int[5];
-        String codebarre;
-        String bin;
+        Pdf417Rows rowBits;
         int variant, LeftRAPStart, CentreRAPStart, RightRAPStart, StartCluster;
-        int LeftRAP, CentreRAP, RightRAP, Cluster, flip, loop;
+        int LeftRAP, CentreRAP, RightRAP, Cluster, loop;
         int option_2, rows;
         inputData = new int[(binary_string.length() / 8) + 3];
 
@@ -2389,12 +2009,7 @@ public class Composite extends Symbol {
         for (i = 0; i < length; i++) {
             binloc = i * 8;
 
-            inputData[i] = 0;
-            for (j = 0; j < 8; j++) {
-                if (binary_string.charAt(binloc + j) == '1') {
-                    inputData[i] += 0x80 >> j;
-                }
-            }
+            inputData[i] = binary_string.get(binloc, 8);
         }
 
         codeWordCount = 0;
@@ -2557,69 +2172,38 @@ public class Composite extends Symbol {
         row_count = rows;
         pattern = new String[row_count];
         row_height = new int[row_count];
+        rowBits = new Pdf417Rows(row_count, option_2);
 
         for (i = 0; i < rows; i++) {
-            codebarre = "";
-            offset = 929 * Cluster;
             for (j = 0; j < 5; j++) {
                 dummy[j] = 0;
             }
             for (j = 0; j < option_2; j++) {
                 dummy[j + 1] = codeWords[i * option_2 + j];
             }
-            /* Copy the data into codebarre */
-            codebarre += RAPLR[LeftRAP];
-            codebarre += "1";
-            codebarre += codagemc[offset + dummy[1]];
-            codebarre += "1";
-            if (cc_width == 3) {
-                codebarre += RAPC[CentreRAP];
+            /* Write the row address patterns and codewords into the row */
+            rowBits.startRow(i);
+            rowBits.addRowAddress(LeftRAP);
+            rowBits.addCodeword(Cluster, dummy[1]);
+            if (option_2 == 3) {
+                rowBits.addCentreRowAddress(CentreRAP);
             }
-            if (cc_width >= 2) {
-                codebarre += "1";
-                codebarre += codagemc[offset + dummy[2]];
-                codebarre += "1";
+            if (option_2 >= 2) {
+                rowBits.addCodeword(Cluster, dummy[2]);
             }
-            if (cc_width == 4) {
-                codebarre += RAPC[CentreRAP];
+            if (option_2 == 4) {
+                rowBits.addCentreRowAddress(CentreRAP);
             }
-            if (cc_width >= 3) {
-                codebarre += "1";
-                codebarre += codagemc[offset + dummy[3]];
-                codebarre += "1";
+            if (option_2 >= 3) {
+                rowBits.addCodeword(Cluster, dummy[3]);
             }
-            if (cc_width == 4) {
-                codebarre += "1";
-                codebarre += codagemc[offset + dummy[4]];
-                codebarre += "1";
-            }
-            codebarre += RAPLR[RightRAP];
-            codebarre += "1"; /* stop */
-
-            /* Now codebarre is a mixture of letters and numbers */
-
-            flip = 1;
-            bin = "";
-            for (loop = 0; loop < codebarre.length(); loop++) {
-                if ((codebarre.charAt(loop) >= '0') && (codebarre.charAt(loop) <= '9')) {
-                    for (k = 0; k < (int) (codebarre.charAt(loop) - '0'); k++) {
-                        if (flip == 0) {
-                            bin += '0';
-                        } else {
-                            bin += '1';
-                        }
-                    }
-                    if (flip == 0) {
-                        flip = 1;
-                    } else {
-                        flip = 0;
-                    }
-                } else {
-                    bin += PDFttf[positionOf(codebarre.charAt(loop), brSet)];
-                }
+            if (option_2 == 4) {
+                rowBits.addCodeword(Cluster, dummy[4]);
             }
+            rowBits.addRowAddress(RightRAP);
+            rowBits.addBar(); /* stop */
 
-            pattern[i] = bin2pat(bin);
+            pattern[i] = rowBits.widths();
             row_height[i] = 2;
 
             /* Set up RAPs and Cluster for next row */
@@ -2651,8 +2235,7 @@ public class Composite extends Symbol {
         int[] mccorrection = new int[520];
         int c1, c2, c3;
         int[] dummy = new int[35];
-        String codebarre;
-        String bin;
+        Pdf417Rows rowBits;
         inputData = new int[(content.length() / 8) + 4];
 
         length = content.length() / 8;
@@ -2660,12 +2243,7 @@ public class Composite extends Symbol {
         for (i = 0; i < length; i++) {
             binloc = i * 8;
 
-            inputData[i] = 0;
-            for (j = 0; j < 8; j++) {
-                if (binary_string.charAt(binloc + j) == '1') {
-                    inputData[i] += 0x80 >> j;
-                }
-            }
+            inputData[i] = binary_string.get(binloc, 8);
         }
 
         codeWordCount = 0;
@@ -2751,6 +2329,7 @@ public class Composite extends Symbol {
         row_count = codeWordCount / cc_width;
         pattern = new String[row_count];
         row_height = new int[row_count];
+        rowBits = new Pdf417Rows(row_count, cc_width);
         System.out.println("cwc" + codeWordCount + "ccw" + cc_width);
         System.out.println("rows needed " + row_count);
         
@@ -2780,27 +2359,13 @@ public class Composite extends Symbol {
                     dummy[cc_width + 1] = k + c2;
                     break;
             }
-            codebarre = "+*"; /* Start with a start char and a separator */
-
+            rowBits.startRow(i);
+            rowBits.addStart();
             for (j = 0; j <= cc_width + 1; j++) {
-                switch (i % 3) {
-                    case 1:
-                        offset = 929; /* cluster(3) */ break;
-                    case 2:
-                        offset = 1858; /* cluster(6) */ break;
-                    default:
-                        offset = 0; /* cluster(0) */ break;
-                }
-                codebarre += codagemc[offset + dummy[j]];
-                codebarre += "*";
-            }
-            codebarre += "-";
-
-            bin = "";
-            for (loop = 0; loop < codebarre.length(); loop++) {
-                bin += PDFttf[positionOf(codebarre.charAt(loop), brSet)];
+                rowBits.addCodeword(i % 3, dummy[j]);
             }
-            pattern[i] = bin2pat(bin);
+            rowBits.addStop();
+            pattern[i] = rowBits.widths();
             row_height[i] = 3;
         }
     }
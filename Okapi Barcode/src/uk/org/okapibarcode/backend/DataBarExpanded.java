@@ -81,7 +81,7 @@ public class DataBarExpanded extends Symbol {
     };
 
     private String source;
-    private String binary_string;
+    private BitBuffer binary_string;
     private String general_field;
     private encodeMode[] general_field_type;
     private int[] widths = new int[8];
@@ -157,10 +157,12 @@ public class DataBarExpanded extends Symbol {
         source = content;
 
         if (linkageFlag) {
-            binary_string = "1";
+            binary_string = new BitBuffer();
+            binary_string.append(1, 1);
             compositeOffset = 1;
         } else {
-            binary_string = "0";
+            binary_string = new BitBuffer();
+            binary_string.append(0, 1);
             compositeOffset = 0;
         }
         if (calculateBinaryString() == false) {
@@ -170,12 +172,7 @@ public class DataBarExpanded extends Symbol {
         data_chars = binary_string.length() / 12;
 
         for (i = 0; i < data_chars; i++) {
-            vs[i] = 0;
-            for (j = 0; j < 12; j++) {
-                if (binary_string.charAt((i * 12) + j) == '1') {
-                    vs[i] += 2048 >> j;
-                }
-            }
+            vs[i] = binary_string.get(i * 12, 12);
             if (debug) {
                 System.out.println("Data character (vs[" + i + "]) is " + vs[i]);
             }
@@ -515,11 +512,11 @@ public class DataBarExpanded extends Symbol {
         int encoding_method, i, j, read_posn;
         boolean latch;
         int remainder, d1, d2, value;
-        String padstring;
+        BitBuffer padding;
         double weight;
         int group_val;
         int current_length;
-        String patch;
+        int patch;
 
         read_posn = 0;
 
@@ -670,59 +667,59 @@ public class DataBarExpanded extends Symbol {
 
         switch (encoding_method) { /* Encoding method - Table 10 */
         case 1:
-            binary_string += "1XX";
+            binary_string.append(0b100, 3); /* XX patched in later */
             read_posn = 16;
             break;
         case 2:
-            binary_string += "00XX";
+            binary_string.append(0b0000, 4); /* XX patched in later */
             read_posn = 0;
             break;
         case 3:
-            binary_string += "0100";
+            binary_string.append(0b0100, 4);
             read_posn = source.length();
             break;
         case 4:
-            binary_string += "0101";
+            binary_string.append(0b0101, 4);
             read_posn = source.length();
             break;
         case 5:
-            binary_string += "01100XX";
+            binary_string.append(0b0110000, 7); /* XX patched in later */
             read_posn = 20;
             break;
         case 6:
-            binary_string += "01101XX";
+            binary_string.append(0b0110100, 7); /* XX patched in later */
             read_posn = 23;
             break;
         case 7:
-            binary_string += "0111000";
+            binary_string.append(0b0111000, 7);
             read_posn = source.length();
             break;
         case 8:
-            binary_string += "0111001";
+            binary_string.append(0b0111001, 7);
             read_posn = source.length();
             break;
         case 9:
-            binary_string += "0111010";
+            binary_string.append(0b0111010, 7);
             read_posn = source.length();
             break;
         case 10:
-            binary_string += "0111011";
+            binary_string.append(0b0111011, 7);
             read_posn = source.length();
             break;
         case 11:
-            binary_string += "0111100";
+            binary_string.append(0b0111100, 7);
             read_posn = source.length();
             break;
         case 12:
-            binary_string += "0111101";
+            binary_string.append(0b0111101, 7);
             read_posn = source.length();
             break;
         case 13:
-            binary_string += "0111110";
+            binary_string.append(0b0111110, 7);
             read_posn = source.length();
             break;
         case 14:
-            binary_string += "0111111";
+            binary_string.append(0b0111111, 7);
             read_posn = source.length();
             break;
         }
@@ -751,26 +748,14 @@ public class DataBarExpanded extends Symbol {
             /* Encoding method field "1" - general item identification data */
             group_val = (int)(source.charAt(2) - '0');
 
-            for (j = 0; j < 4; j++) {
-                if ((group_val & (0x08 >> j)) == 0) {
-                    binary_string += "0";
-                } else {
-                    binary_string += "1";
-                }
-            }
+            binary_string.append(group_val, 4);
 
             for (i = 1; i < 5; i++) {
                 group_val = 100 * (int)(source.charAt(i * 3) - '0');
                 group_val += 10 * (int)(source.charAt((i * 3) + 1) - '0');
                 group_val += (int)(source.charAt((i * 3) + 2) - '0');
 
-                for (j = 0; j < 10; j++) {
-                    if ((group_val & (0x200 >> j)) == 0) {
-                        binary_string += "0";
-                    } else {
-                        binary_string += "1";
-                    }
-                }
+                binary_string.append(group_val, 10);
             }
         }
 
@@ -783,13 +768,7 @@ public class DataBarExpanded extends Symbol {
                 group_val += 10 * (source.charAt((i * 3) + 1) - '0');
                 group_val += (source.charAt((i * 3) + 2) - '0');
 
-                for (j = 0; j < 10; j++) {
-                    if ((group_val & (0x200 >> j)) == 0) {
-                        binary_string += "0";
-                    } else {
-                        binary_string += "1";
-                    }
-                }
+                binary_string.append(group_val, 10);
             }
 
             group_val = 0;
@@ -798,13 +777,7 @@ public class DataBarExpanded extends Symbol {
                 group_val += (int)(source.charAt(20 + i) - '0');
             }
 
-            for (j = 0; j < 15; j++) {
-                if ((group_val & (0x4000 >> j)) == 0) {
-                    binary_string += "0";
-                } else {
-                    binary_string += "1";
-                }
-            }
+            binary_string.append(group_val, 15);
         }
 
         if (encoding_method == 4) {
@@ -816,13 +789,7 @@ public class DataBarExpanded extends Symbol {
                 group_val += 10 * (source.charAt((i * 3) + 1) - '0');
                 group_val += (source.charAt((i * 3) + 2) - '0');
 
-                for (j = 0; j < 10; j++) {
-                    if ((group_val & (0x200 >> j)) == 0) {
-                        binary_string += "0";
-                    } else {
-                        binary_string += "1";
-                    }
-                }
+                binary_string.append(group_val, 10);
             }
 
 
@@ -836,13 +803,7 @@ public class DataBarExpanded extends Symbol {
                 group_val = group_val + 10000;
             }
 
-            for (j = 0; j < 15; j++) {
-                if ((group_val & (0x4000 >> j)) == 0) {
-                    binary_string += "0";
-                } else {
-                    binary_string += "1";
-                }
-            }
+            binary_string.append(group_val, 15);
         }
 
         if ((encoding_method >= 7) && (encoding_method <= 14)) {
@@ -854,13 +815,7 @@ public class DataBarExpanded extends Symbol {
                 group_val += 10 * (source.charAt((i * 3) + 1) - '0');
                 group_val += (source.charAt((i * 3) + 2) - '0');
 
-                for (j = 0; j < 10; j++) {
-                    if ((group_val & (0x200 >> j)) == 0) {
-                        binary_string += "0";
-                    } else {
-                        binary_string += "1";
-                    }
-                }
+                binary_string.append(group_val, 10);
             }
 
             group_val = (int)(source.charAt(19) - '0');
@@ -870,13 +825,7 @@ public class DataBarExpanded extends Symbol {
                 group_val += (int)(source.charAt(21 + i) - '0');
             }
 
-            for (j = 0; j < 20; j++) {
-                if ((group_val & (0x80000 >> j)) == 0) {
-                    binary_string += "0";
-                } else {
-                    binary_string += "1";
-                }
-            }
+            binary_string.append(group_val, 20);
 
             if (source.length() == 34) {
                 /* Date information is included */
@@ -890,13 +839,7 @@ public class DataBarExpanded extends Symbol {
                 group_val = 38400;
             }
 
-            for (j = 0; j < 16; j++) {
-                if ((group_val & (0x8000 >> j)) == 0) {
-                    binary_string += "0";
-                } else {
-                    binary_string += "1";
-                }
-            }
+            binary_string.append(group_val, 16);
         }
 
         if (encoding_method == 5) {
@@ -907,27 +850,21 @@ public class DataBarExpanded extends Symbol {
                 group_val += 10 * (source.charAt((i * 3) + 1) - '0');
                 group_val += (source.charAt((i * 3) + 2) - '0');
 
-                for (j = 0; j < 10; j++) {
-                    if ((group_val & (0x200 >> j)) == 0) {
-                        binary_string += "0";
-                    } else {
-                        binary_string += "1";
-                    }
-                }
+                binary_string.append(group_val, 10);
             }
 
             switch (source.charAt(19)) {
             case '0':
-                binary_string += "00";
+                binary_string.append(0b00, 2);
                 break;
             case '1':
-                binary_string += "01";
+                binary_string.append(0b01, 2);
                 break;
             case '2':
-                binary_string += "10";
+                binary_string.append(0b10, 2);
                 break;
             case '3':
-                binary_string += "11";
+                binary_string.append(0b11, 2);
                 break;
             }
         }
@@ -941,27 +878,21 @@ public class DataBarExpanded extends Symbol {
                 group_val += 10 * (source.charAt((i * 3) + 1) - '0');
                 group_val += (source.charAt((i * 3) + 2) - '0');
 
-                for (j = 0; j < 10; j++) {
-                    if ((group_val & (0x200 >> j)) == 0) {
-                        binary_string += "0";
-                    } else {
-                        binary_string += "1";
-                    }
-                }
+                binary_string.append(group_val, 10);
             }
 
             switch (source.charAt(19)) {
             case '0':
-                binary_string += "00";
+                binary_string.append(0b00, 2);
                 break;
             case '1':
-                binary_string += "01";
+                binary_string.append(0b01, 2);
                 break;
             case '2':
-                binary_string += "10";
+                binary_string.append(0b10, 2);
                 break;
             case '3':
-                binary_string += "11";
+                binary_string.append(0b11, 2);
                 break;
             }
 
@@ -971,13 +902,7 @@ public class DataBarExpanded extends Symbol {
                 group_val += (int)(source.charAt(20 + i) - '0');
             }
 
-            for (j = 0; j < 10; j++) {
-                if ((group_val & (0x200 >> j)) == 0) {
-                    binary_string += "0";
-                } else {
-                    binary_string += "1";
-                }
-            }
+            binary_string.append(group_val, 10);
         }
 
         /* The compressed data field has been processed if appropriate - the
@@ -1079,12 +1004,12 @@ public class DataBarExpanded extends Symbol {
 
             /* Set initial mode if not NUMERIC */
             if (general_field_type[0] == encodeMode.ALPHA) {
-                binary_string += "0000"; /* Alphanumeric latch */
+                binary_string.append(0b0000, 4); /* Alphanumeric latch */
                 last_mode = encodeMode.ALPHA;
             }
             if (general_field_type[0] == encodeMode.ISOIEC) {
-                binary_string += "0000"; /* Alphanumeric latch */
-                binary_string += "00100"; /* ISO/IEC 646 latch */
+                binary_string.append(0b0000, 4); /* Alphanumeric latch */
+                binary_string.append(0b00100, 5); /* ISO/IEC 646 latch */
                 last_mode = encodeMode.ISOIEC;
             }
 
@@ -1096,7 +1021,7 @@ public class DataBarExpanded extends Symbol {
                     if (debug) System.out.printf("as NUMERIC:");
 
                     if (last_mode != encodeMode.NUMERIC) {
-                        binary_string += "000"; /* Numeric latch */
+                        binary_string.append(0b000, 3); /* Numeric latch */
                         if (debug) System.out.printf("<NUMERIC LATCH>\n");
                     }
 
@@ -1118,10 +1043,10 @@ public class DataBarExpanded extends Symbol {
 
                     for (j = 0; j < 7; j++) {
                         if ((value & (0x40 >> j)) != 0) {
-                            binary_string += "1";
+                            binary_string.append(0b1, 1);
                             if (debug) System.out.print("1");
                         } else {
-                            binary_string += "0";
+                            binary_string.append(0b0, 1);
                             if (debug) System.out.print("0");
                         }
                     }
@@ -1135,10 +1060,10 @@ public class DataBarExpanded extends Symbol {
                     if (debug) System.out.printf("as ALPHA\n");
                     if (i != 0) {
                         if (last_mode == encodeMode.NUMERIC) {
-                            binary_string += "0000"; /* Alphanumeric latch */
+                            binary_string.append(0b0000, 4); /* Alphanumeric latch */
                         }
                         if (last_mode == encodeMode.ISOIEC) {
-                            binary_string += "00100"; /* Alphanumeric latch */
+                            binary_string.append(0b00100, 5); /* Alphanumeric latch */
                         }
                     }
 
@@ -1146,38 +1071,26 @@ public class DataBarExpanded extends Symbol {
 
                         value = general_field.charAt(i) - 43;
 
-                        for (j = 0; j < 5; j++) {
-                            if ((value & (0x10 >> j)) != 0) {
-                                binary_string += "1";
-                            } else {
-                                binary_string += "0";
-                            }
-                        }
+                        binary_string.append(value, 5);
                     }
 
                     if ((general_field.charAt(i) >= 'A') && (general_field.charAt(i) <= 'Z')) {
 
                         value = general_field.charAt(i) - 33;
 
-                        for (j = 0; j < 6; j++) {
-                            if ((value & (0x20 >> j)) != 0) {
-                                binary_string += "1";
-                            } else {
-                                binary_string += "0";
-                            }
-                        }
+                        binary_string.append(value, 6);
                     }
 
                     last_mode = encodeMode.ALPHA;
                     if (general_field.charAt(i) == '[') {
-                        binary_string += "01111";
+                        binary_string.append(0b01111, 5);
                         last_mode = encodeMode.NUMERIC;
                     } /* FNC1/Numeric latch */
-                    if (general_field.charAt(i) == '*') binary_string += "111010"; /* asterisk */
-                    if (general_field.charAt(i) == ',') binary_string += "111011"; /* comma */
-                    if (general_field.charAt(i) == '-') binary_string += "111100"; /* minus or hyphen */
-                    if (general_field.charAt(i) == '.') binary_string += "111101"; /* period or full stop */
-                    if (general_field.charAt(i) == '/') binary_string += "111110"; /* slash or solidus */
+                    if (general_field.charAt(i) == '*') binary_string.append(0b111010, 6); /* asterisk */
+                    if (general_field.charAt(i) == ',') binary_string.append(0b111011, 6); /* comma */
+                    if (general_field.charAt(i) == '-') binary_string.append(0b111100, 6); /* minus or hyphen */
+                    if (general_field.charAt(i) == '.') binary_string.append(0b111101, 6); /* period or full stop */
+                    if (general_field.charAt(i) == '/') binary_string.append(0b111110, 6); /* slash or solidus */
 
                     i++;
                     break;
@@ -1186,11 +1099,11 @@ public class DataBarExpanded extends Symbol {
                     if (debug) System.out.printf("as ISOIEC\n");
                     if (i != 0) {
                         if (last_mode == encodeMode.NUMERIC) {
-                            binary_string += "0000"; /* Alphanumeric latch */
-                            binary_string += "00100"; /* ISO/IEC 646 latch */
+                            binary_string.append(0b0000, 4); /* Alphanumeric latch */
+                            binary_string.append(0b00100, 5); /* ISO/IEC 646 latch */
                         }
                         if (last_mode == encodeMode.ALPHA) {
-                            binary_string += "00100"; /* ISO/IEC 646 latch */
+                            binary_string.append(0b00100, 5); /* ISO/IEC 646 latch */
                         }
                     }
 
@@ -1199,13 +1112,7 @@ public class DataBarExpanded extends Symbol {
 
                         value = general_field.charAt(i) - 43;
 
-                        for (j = 0; j < 5; j++) {
-                            if ((value & (0x10 >> j)) != 0) {
-                                binary_string += "1";
-                            } else {
-                                binary_string += "0";
-                            }
-                        }
+                        binary_string.append(value, 5);
                     }
 
                     if ((general_field.charAt(i) >= 'A') 
@@ -1213,13 +1120,7 @@ public class DataBarExpanded extends Symbol {
 
                         value = general_field.charAt(i) - 1;
 
-                        for (j = 0; j < 7; j++) {
-                            if ((value & (0x40 >> j)) != 0) {
-                                binary_string += "1";
-                            } else {
-                                binary_string += "0";
-                            }
-                        }
+                        binary_string.append(value, 7);
                     }
 
                     if ((general_field.charAt(i) >= 'a') 
@@ -1227,41 +1128,35 @@ public class DataBarExpanded extends Symbol {
 
                         value = general_field.charAt(i) - 7;
 
-                        for (j = 0; j < 7; j++) {
-                            if ((value & (0x40 >> j)) != 0) {
-                                binary_string += "1";
-                            } else {
-                                binary_string += "0";
-                            }
-                        }
+                        binary_string.append(value, 7);
                     }
 
                     last_mode = encodeMode.ISOIEC;
                     if (general_field.charAt(i) == '[') {
-                        binary_string += "01111";
+                        binary_string.append(0b01111, 5);
                         last_mode = encodeMode.NUMERIC;
                     } /* FNC1/Numeric latch */
-                    if (general_field.charAt(i) == '!') binary_string += "11101000"; /* exclamation mark */
-                    if (general_field.charAt(i) == 34) binary_string += "11101001"; /* quotation mark */
-                    if (general_field.charAt(i) == 37) binary_string += "11101010"; /* percent sign */
-                    if (general_field.charAt(i) == '&') binary_string += "11101011"; /* ampersand */
-                    if (general_field.charAt(i) == 39) binary_string += "11101100"; /* apostrophe */
-                    if (general_field.charAt(i) == '(') binary_string += "11101101"; /* left parenthesis */
-                    if (general_field.charAt(i) == ')') binary_string += "11101110"; /* right parenthesis */
-                    if (general_field.charAt(i) == '*') binary_string += "11101111"; /* asterisk */
-                    if (general_field.charAt(i) == '+') binary_string += "11110000"; /* plus sign */
-                    if (general_field.charAt(i) == ',') binary_string += "11110001"; /* comma */
-                    if (general_field.charAt(i) == '-') binary_string += "11110010"; /* minus or hyphen */
-                    if (general_field.charAt(i) == '.') binary_string += "11110011"; /* period or full stop */
-                    if (general_field.charAt(i) == '/') binary_string += "11110100"; /* slash or solidus */
-                    if (general_field.charAt(i) == ':') binary_string += "11110101"; /* colon */
-                    if (general_field.charAt(i) == ';') binary_string += "11110110"; /* semicolon */
-                    if (general_field.charAt(i) == '<') binary_string += "11110111"; /* less-than sign */
-                    if (general_field.charAt(i) == '=') binary_string += "11111000"; /* equals sign */
-                    if (general_field.charAt(i) == '>') binary_string += "11111001"; /* greater-than sign */
-                    if (general_field.charAt(i) == '?') binary_string += "11111010"; /* question mark */
-                    if (general_field.charAt(i) == '_') binary_string += "11111011"; /* underline or low line */
-                    if (general_field.charAt(i) == ' ') binary_string += "11111100"; /* space */
+                    if (general_field.charAt(i) == '!') binary_string.append(0b11101000, 8); /* exclamation mark */
+                    if (general_field.charAt(i) == 34) binary_string.append(0b11101001, 8); /* quotation mark */
+                    if (general_field.charAt(i) == 37) binary_string.append(0b11101010, 8); /* percent sign */
+                    if (general_field.charAt(i) == '&') binary_string.append(0b11101011, 8); /* ampersand */
+                    if (general_field.charAt(i) == 39) binary_string.append(0b11101100, 8); /* apostrophe */
+                    if (general_field.charAt(i) == '(') binary_string.append(0b11101101, 8); /* left parenthesis */
+                    if (general_field.charAt(i) == ')') binary_string.append(0b11101110, 8); /* right parenthesis */
+                    if (general_field.charAt(i) == '*') binary_string.append(0b11101111, 8); /* asterisk */
+                    if (general_field.charAt(i) == '+') binary_string.append(0b11110000, 8); /* plus sign */
+                    if (general_field.charAt(i) == ',') binary_string.append(0b11110001, 8); /* comma */
+                    if (general_field.charAt(i) == '-') binary_string.append(0b11110010, 8); /* minus or hyphen */
+                    if (general_field.charAt(i) == '.') binary_string.append(0b11110011, 8); /* period or full stop */
+                    if (general_field.charAt(i) == '/') binary_string.append(0b11110100, 8); /* slash or solidus */
+                    if (general_field.charAt(i) == ':') binary_string.append(0b11110101, 8); /* colon */
+                    if (general_field.charAt(i) == ';') binary_string.append(0b11110110, 8); /* semicolon */
+                    if (general_field.charAt(i) == '<') binary_string.append(0b11110111, 8); /* less-than sign */
+                    if (general_field.charAt(i) == '=') binary_string.append(0b11111000, 8); /* equals sign */
+                    if (general_field.charAt(i) == '>') binary_string.append(0b11111001, 8); /* greater-than sign */
+                    if (general_field.charAt(i) == '?') binary_string.append(0b11111010, 8); /* question mark */
+                    if (general_field.charAt(i) == '_') binary_string.append(0b11111011, 8); /* underline or low line */
+                    if (general_field.charAt(i) == ' ') binary_string.append(0b11111100, 8); /* space */
 
                     i++;
                     break;
@@ -1291,37 +1186,19 @@ public class DataBarExpanded extends Symbol {
                         value = general_field.charAt(i) - '0';
                         value++;
 
-                        for (j = 0; j < 4; j++) {
-                            if ((value & (0x08 >> j)) != 0) {
-                                binary_string += "1";
-                            } else {
-                                binary_string += "0";
-                            }
-                        }
+                        binary_string.append(value, 4);
                     } else {
                         d1 = general_field.charAt(i) - '0';
                         d2 = 10;
 
                         value = (11 * d1) + d2 + 8;
 
-                        for (j = 0; j < 7; j++) {
-                            if ((value & (0x40 >> j)) != 0) {
-                                binary_string += "1";
-                            } else {
-                                binary_string += "0";
-                            }
-                        }
+                        binary_string.append(value, 7);
                     }
                 } else {
                     value = general_field.charAt(i) - 43;
 
-                    for (j = 0; j < 5; j++) {
-                        if ((value & (0x10 >> j)) != 0) {
-                            binary_string += "1";
-                        } else {
-                            binary_string += "0";
-                        }
-                    }
+                    binary_string.append(value, 5);
                 }
 
                 if (debug) System.out.printf("Resultant binary = %s\n", binary_string);
@@ -1343,42 +1220,35 @@ public class DataBarExpanded extends Symbol {
 
         /* Now add padding to binary string (7.2.5.5.4) */
         i = remainder;
+        padding = new BitBuffer(remainder + 9);
         if ((general_field.length() != 0) && (last_mode == encodeMode.NUMERIC)) {
-            padstring = "0000";
+            padding.append(0b0000, 4);
             i -= 4;
-        } else {
-            padstring = "";
         }
         for (; i > 0; i -= 5) {
-            padstring += "00100";
+            padding.append(0b00100, 5);
         }
+        padding.truncate(remainder);
 
-        binary_string += padstring.substring(0, remainder);
+        binary_string.append(padding);
 
         /* Patch variable length symbol bit field */
-        patch = "";
-        if ((((binary_string.length() / 12) + 1) & 1) == 0) {
-            patch += "0";
-        } else {
-            patch += "1";
+        patch = 0;
+        if ((((binary_string.length() / 12) + 1) & 1) != 0) {
+            patch |= 0b10;
         }
-        if (binary_string.length() <= 156) {
-            patch += "0";
-        } else {
-            patch += "1";
+        if (binary_string.length() > 156) {
+            patch |= 0b01;
         }
 
         if (encoding_method == 1) {
-            binary_string = binary_string.substring(0, 2) + patch 
-                    + binary_string.substring(4);
+            binary_string.set(2, patch, 2);
         }
         if (encoding_method == 2) {
-            binary_string = binary_string.substring(0, 3) + patch 
-                    + binary_string.substring(5);
+            binary_string.set(3, patch, 2);
         }
         if ((encoding_method == 5) || (encoding_method == 6)) {
-            binary_string = binary_string.substring(0, 6) + patch 
-                    + binary_string.substring(8);
+            binary_string.set(6, patch, 2);
         }
         if (debug) System.out.printf("Resultant binary = %s\n", binary_string);
         if (debug) System.out.printf("\tLength: %d\n", binary_string.length());
@@ -16,6 +16,8 @@
 package uk.org.okapibarcode.backend;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Implements Data Matrix ECC 200 bar code symbology
@@ -26,7 +28,7 @@ import java.io.UnsupportedEncodingException;
  */
 public class DataMatrix extends Symbol {
 
-    static int[] c40_shift = {
+    static final int[] c40_shift = {
         1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 
         1, 1, 1, 1, 1, 1, 1, 1, 0, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 
         0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2, 2, 2, 2, 2, 2, 2, 0, 0, 0, 0, 0, 0, 0, 
@@ -35,7 +37,7 @@ public class DataMatrix extends Symbol {
         3, 3, 3, 3, 3, 3, 3, 3
     };
 
-    static int[] c40_value = {
+    static final int[] c40_value = {
         0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 
         20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 3, 0, 1, 2, 3, 4, 5, 6, 
         7, 8, 9, 10, 11, 12, 13, 14, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 15, 16, 
@@ -45,7 +47,7 @@ public class DataMatrix extends Symbol {
         20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31
     };
 
-    static int[] text_shift = {
+    static final int[] text_shift = {
         1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 
         1, 1, 1, 1, 1, 1, 1, 1, 0, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 
         0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2, 2, 2, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 3, 
@@ -54,7 +56,7 @@ public class DataMatrix extends Symbol {
         0, 0, 0, 3, 3, 3, 3, 3
     };
 
-    static int[] text_value = {
+    static final int[] text_value = {
         0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 
         20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 3, 0, 1, 2, 3, 4, 5, 6, 
         7, 8, 9, 10, 11, 12, 13, 14, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 15, 16, 
@@ -64,42 +66,42 @@ public class DataMatrix extends Symbol {
         33, 34, 35, 36, 37, 38, 39, 27, 28, 29, 30, 31
     };
 
-    static int[] intsymbol = {
+    static final int[] intsymbol = {
         0, 1, 3, 5, 7, 8, 10, 12, 13, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 
         25, 26, 27, 28, 29, 2, 4, 6, 9, 11, 14
     };
 
-    static int[] matrixH = {
+    static final int[] matrixH = {
         10, 12, 8, 14, 8, 16, 12, 18, 20, 12, 22, 16, 24, 26, 16, 32, 36, 40, 
         44, 48, 52, 64, 72, 80, 88, 96, 104, 120, 132, 144
     };
 
-    static int[] matrixW = {
+    static final int[] matrixW = {
         10, 12, 18, 14, 32, 16, 26, 18, 20, 36, 22, 36, 24, 26, 48, 32, 36, 40, 
         44, 48, 52, 64, 72, 80, 88, 96, 104, 120, 132, 144
     };
 
-    static int[] matrixFH = {
+    static final int[] matrixFH = {
         10, 12, 8, 14, 8, 16, 12, 18, 20, 12, 22, 16, 24, 26, 16, 16, 18, 20, 
         22, 24, 26, 16, 18, 20, 22, 24, 26, 20, 22, 24
     };
 
-    static int[] matrixFW = {
+    static final int[] matrixFW = {
         10, 12, 18, 14, 16, 16, 26, 18, 20, 18, 22, 18, 24, 26, 24, 16, 18, 20, 
         22, 24, 26, 16, 18, 20, 22, 24, 26, 20, 22, 24
     };
 
-    static int[] matrixbytes = {
+    static final int[] matrixbytes = {
         3, 5, 5, 8, 10, 12, 16, 18, 22, 22, 30, 32, 36, 44, 49, 62, 86, 114, 
         144, 174, 204, 280, 368, 456, 576, 696, 816, 1050, 1304, 1558
     };
 
-    static int[] matrixdatablock = {
+    static final int[] matrixdatablock = {
         3, 5, 5, 8, 10, 12, 16, 18, 22, 22, 30, 32, 36, 44, 49, 62, 86, 114, 
         144, 174, 102, 140, 92, 114, 144, 174, 136, 175, 163, 156
     };
 
-    static int[] matrixrsblock = {
+    static final int[] matrixrsblock = {
         5, 7, 7, 10, 11, 12, 14, 14, 18, 18, 20, 24, 24, 28, 28, 36, 42, 48, 56, 
         68, 42, 56, 36, 48, 56, 68, 56, 68, 62, 62
     };
@@ -107,9 +109,55 @@ public class DataMatrix extends Symbol {
     private enum dm_mode {
         DM_ASCII, DM_C40, DM_TEXT, DM_X12, DM_EDIFACT, DM_BASE256
     }
-    private int[] target = new int[2200];
-    private int[] binary = new int[2200];
-    private int binary_length;
+    /* Character classes used by the look ahead test, worked out once for
+       every byte value rather than for each character on every call */
+    private static final int DIGIT = 1;
+    private static final int EXTENDED = 2;
+    private static final int C40_BASIC = 4;
+    private static final int TEXT_BASIC = 8;
+    private static final int X12 = 16;
+    private static final int EDIFACT = 32;
+    private static final byte[] LOOKAHEAD_FLAGS = new byte[256];
+
+    static {
+        int c, reduced, flags;
+
+        for (c = 0; c < 256; c++) {
+            reduced = c <= 127 ? c : c - 127;
+            flags = 0;
+            if ((c >= '0') && (c <= '9')) {
+                flags |= DIGIT;
+            }
+            if (c > 127) {
+                flags |= EXTENDED;
+            }
+            if ((reduced == ' ') || ((reduced >= '0') && (reduced <= '9'))) {
+                flags |= C40_BASIC | TEXT_BASIC;
+            }
+            if ((reduced >= 'A') && (reduced <= 'Z')) {
+                flags |= C40_BASIC;
+            }
+            if ((reduced >= 'a') && (reduced <= 'z')) {
+                flags |= TEXT_BASIC;
+            }
+            if ((c == 13) || (c == 42) || (c == 62) || (c == 32)
+                    || ((c >= '0') && (c <= '9')) || ((c >= 'A') && (c <= 'Z'))) {
+                flags |= X12;
+            }
+            if ((c >= ' ') && (c <= '^')) {
+                flags |= EDIFACT;
+            }
+            LOOKAHEAD_FLAGS[c] = (byte) flags;
+        }
+    }
+
+    /* Marks a Base 256 data codeword until its field length has been added */
+    private static final int BASE256 = 0x100;
+
+    /* Module placement for each symbol size, built the first time it is needed */
+    private static final AtomicReferenceArray<Placement> PLACEMENTS = new AtomicReferenceArray<>(30);
+
+    private int[] target;
     private dm_mode last_mode;
     private int[] places;
     private boolean isSquare;
@@ -128,10 +176,9 @@ public class DataMatrix extends Symbol {
         int i, binlen, skew = 0;
         int symbolsize, optionsize, calcsize;
         int taillength;
-        int H, W, FH, FW, datablock, bytes, rsblock;
-        int x, y, NC, NR, v;
-        int[] grid;
-        String bin;
+        int H, W, datablock, bytes, rsblock;
+        int v;
+        Placement placement;
         byte[] inputBytes;
 
         try {
@@ -194,14 +241,15 @@ public class DataMatrix extends Symbol {
 
         H = matrixH[symbolsize];
         W = matrixW[symbolsize];
-        FH = matrixFH[symbolsize];
-        FW = matrixFW[symbolsize];
         bytes = matrixbytes[symbolsize];
         datablock = matrixdatablock[symbolsize];
         rsblock = matrixrsblock[symbolsize];
 
         taillength = bytes - binlen;
 
+        /* Make room for the padding and error correction codewords */
+        target = Arrays.copyOf(target, bytes + (((bytes + 2) / datablock) * rsblock) + 2);
+
         if (taillength != 0) {
             addPadBits(binlen, taillength);
         }
@@ -211,61 +259,26 @@ public class DataMatrix extends Symbol {
             skew = 1;
         }
         calculateErrorCorrection(bytes, datablock, rsblock, skew);
-        NC = W - 2 * (W / FW);
-        NR = H - 2 * (H / FH);
-        places = new int[NC * NR];
-        placeData(NR, NC);
-        grid = new int[W * H];
-        for (i = 0; i < (W * H); i++) {
-            grid[i] = 0;
-        }
-        for (y = 0; y < H; y += FH) {
-            for (x = 0; x < W; x++) {
-                grid[y * W + x] = 1;
-            }
-            for (x = 0; x < W; x += 2) {
-                grid[(y + FH - 1) * W + x] = 1;
-            }
-        }
-        for (x = 0; x < W; x += FW) {
-            for (y = 0; y < H; y++) {
-                grid[y * W + x] = 1;
-            }
-            for (y = 0; y < H; y += 2) {
-                grid[y * W + x + FW - 1] = 1;
-            }
-        }
-        for (y = 0; y < NR; y++) {
-            for (x = 0; x < NC; x++) {
-                v = places[(NR - y - 1) * NC + x];
-                if (v == 1 || (v > 7 && (target[(v >> 3) - 1] & (1 << (v & 7))) != 0)) {
-                    grid[(1 + y + 2 * (y / (FH - 2))) * W + 1 + x + 2 * (x / (FW - 2))] = 1;
-                }
-            }
-        }
+        placement = placement(symbolsize);
 
         readable = "";
-        pattern = new String[H];
-        row_count = H;
-        row_height = new int[H];
-        for (y = H - 1; y >= 0; y--) {
-            bin = "";
-            for (x = 0; x < W; x++) {
-                if (grid[W * y + x] == 1) {
-                    bin += "1";
-                } else {
-                    bin += "0";
-                }
+        matrix = new BitMatrix(W, H);
+        for (i = 0; i < placement.fixed.length; i++) {
+            v = placement.fixed[i];
+            matrix.set(v & 0xff, v >>> 8);
+        }
+        for (i = 0; i < placement.modules.length; i++) {
+            if ((target[i >>> 3] & (0x80 >>> (i & 7))) != 0) {
+                v = placement.modules[i];
+                matrix.set(v & 0xff, v >>> 8);
             }
-            pattern[(H - y) - 1] = bin2pat(bin);
-            row_height[(H - y) - 1] = 1;
         }
         
         encodeInfo += "Grid Size: " + W + " X " + H + "\n";
         encodeInfo += "Data Codewords: " + datablock + "\n";
         encodeInfo += "ECC Codewords: " + rsblock + "\n";
 
-        plotSymbol();
+        plotMatrix();
         return true;
     }
 
@@ -296,7 +309,10 @@ public class DataMatrix extends Symbol {
         }
         edifact_buffer[6] = 0;
         edifact_buffer[7] = 0;
-        binary_length = 0;
+
+        /* No character takes more than three codewords, and encoding stops
+           soon after the largest symbol is full */
+        target = new int[Math.min(3 * inputlen, 1558) + 8];
 
         /* step (a) */
         current_mode = dm_mode.DM_ASCII;
@@ -304,8 +320,6 @@ public class DataMatrix extends Symbol {
 
         if(gs1) {
             target[tp] = 232; tp++;
-            binary[binary_length] = ' ';
-            binary_length++;
             if(debug) System.out.printf("FN1 ");
         } /* FNC1 */
 
@@ -315,8 +329,6 @@ public class DataMatrix extends Symbol {
                 return 0;
             } else {
                 target[tp] = 234; tp++; /* Reader Programming */
-                binary[binary_length] = ' ';
-                binary_length++;
                 if(debug) System.out.printf("RP ");
             }
         }
@@ -341,14 +353,16 @@ public class DataMatrix extends Symbol {
 			if (debug) System.out.printf("Macro06 ");
 		}
 		tp++;
-		binary[binary_length] = ' ';
-                binary_length++;
 		/* Remove macro characters from input string */
 		sp = 7;
 		inputlen -= 2;
             }
         }
         
+        if (optimize) {
+            return finishCodewords(encodeOptimal(sp, tp, inputlen));
+        }
+
         while (sp < inputlen) {
 
             current_mode = next_mode;
@@ -362,8 +376,6 @@ public class DataMatrix extends Symbol {
                             + Character.getNumericValue(inputData[sp + 1]) + 130;
                     if (debug) System.out.printf("N%d ", target[tp] - 130);
                     tp++;
-                    binary[binary_length] = ' ';
-                    binary_length++;
                     sp += 2;
                 } else {
                     next_mode = lookAheadTest(sp, current_mode);
@@ -373,36 +385,26 @@ public class DataMatrix extends Symbol {
                         case DM_C40:
                             target[tp] = 230;
                             tp++;
-                            binary[binary_length] = ' ';
-                            binary_length++;
                             if (debug) System.out.printf("C40 ");
                             break;
                         case DM_TEXT:
                             target[tp] = 239;
                             tp++;
-                            binary[binary_length] = ' ';
-                            binary_length++;
                             if (debug) System.out.printf("TEX ");
                             break;
                         case DM_X12:
                             target[tp] = 238;
                             tp++;
-                            binary[binary_length] = ' ';
-                            binary_length++;
                             if (debug) System.out.printf("X12 ");
                             break;
                         case DM_EDIFACT:
                             target[tp] = 240;
                             tp++;
-                            binary[binary_length] = ' ';
-                            binary_length++;
                             if (debug) System.out.printf("EDI ");
                             break;
                         case DM_BASE256:
                             target[tp] = 231;
                             tp++;
-                            binary[binary_length] = ' ';
-                            binary_length++;
                             if (debug) System.out.printf("BAS ");
                             break;
                         }
@@ -414,10 +416,6 @@ public class DataMatrix extends Symbol {
                             target[tp] = (inputData[sp] - 128) + 1;
                             if (debug) System.out.printf("A%02X ", target[tp] - 1);
                             tp++;
-                            binary[binary_length] = ' ';
-                            binary_length++;
-                            binary[binary_length] = ' ';
-                            binary_length++;
                         } else {
                             if (gs1 && (inputData[sp] == '[')) {
                                 target[tp] = 232; /* FNC1 */
@@ -427,8 +425,6 @@ public class DataMatrix extends Symbol {
                                 if (debug) System.out.printf("A%02X ", target[tp] - 1);
                             }
                             tp++;
-                            binary[binary_length] = ' ';
-                            binary_length++;
                         }
                         sp++;
                     }
@@ -447,9 +443,7 @@ public class DataMatrix extends Symbol {
 
                 if (next_mode != dm_mode.DM_C40) {
                     target[tp] = 254;
-                    tp++;
-                    binary[binary_length] = ' ';
-                    binary_length++; /* Unlatch */
+                    tp++; /* Unlatch */
                     next_mode = dm_mode.DM_ASCII;
                     if (debug) System.out.printf("ASC ");
                 } else {
@@ -486,10 +480,6 @@ public class DataMatrix extends Symbol {
                         tp++;
                         target[tp] = iv % 256;
                         tp++;
-                        binary[binary_length] = ' ';
-                        binary_length++;
-                        binary[binary_length] = ' ';
-                        binary_length++;
                         if (debug) System.out.printf("[%d %d %d] ", c40_buffer[0], 
                                 c40_buffer[1], c40_buffer[2]);
 
@@ -516,9 +506,7 @@ public class DataMatrix extends Symbol {
 
                 if (next_mode != dm_mode.DM_TEXT) {
                     target[tp] = 254;
-                    tp++;
-                    binary[binary_length] = ' ';
-                    binary_length++; /* Unlatch */
+                    tp++; /* Unlatch */
                     next_mode = dm_mode.DM_ASCII;
                     if (debug) System.out.printf("ASC ");
                 } else {
@@ -555,10 +543,6 @@ public class DataMatrix extends Symbol {
                         tp++;
                         target[tp] = iv % 256;
                         tp++;
-                        binary[binary_length] = ' ';
-                        binary_length++;
-                        binary[binary_length] = ' ';
-                        binary_length++;
                         if (debug) System.out.printf("[%d %d %d] ", 
                                 text_buffer[0], text_buffer[1], text_buffer[2]);
 
@@ -585,9 +569,7 @@ public class DataMatrix extends Symbol {
 
                 if (next_mode != dm_mode.DM_X12) {
                     target[tp] = 254;
-                    tp++;
-                    binary[binary_length] = ' ';
-                    binary_length++; /* Unlatch */
+                    tp++; /* Unlatch */
                     next_mode = dm_mode.DM_ASCII;
                     if (debug) System.out.printf("ASC ");
                 } else {
@@ -622,10 +604,6 @@ public class DataMatrix extends Symbol {
                         tp++;
                         target[tp] = iv % 256;
                         tp++;
-                        binary[binary_length] = ' ';
-                        binary_length++;
-                        binary[binary_length] = ' ';
-                        binary_length++;
                         if (debug) System.out.printf("[%d %d %d] ", 
                                 x12_buffer[0], x12_buffer[1], x12_buffer[2]);
 
@@ -677,12 +655,6 @@ public class DataMatrix extends Symbol {
                     target[tp] = ((edifact_buffer[2] & 0x03) << 6) 
                             + edifact_buffer[3];
                     tp++;
-                    binary[binary_length] = ' ';
-                    binary_length++;
-                    binary[binary_length] = ' ';
-                    binary_length++;
-                    binary[binary_length] = ' ';
-                    binary_length++;
                     if (debug) System.out.printf("[%d %d %d %d] ", 
                             edifact_buffer[0], edifact_buffer[1], 
                             edifact_buffer[2], edifact_buffer[3]);
@@ -704,12 +676,10 @@ public class DataMatrix extends Symbol {
                 next_mode = lookAheadTest(sp, current_mode);
 
                 if (next_mode == dm_mode.DM_BASE256) {
-                    target[tp] = inputData[sp];
-                    if (debug) System.out.printf("B%02X ", target[tp]);
+                    target[tp] = inputData[sp] | BASE256;
+                    if (debug) System.out.printf("B%02X ", inputData[sp]);
                     tp++;
                     sp++;
-                    binary[binary_length] = 'b';
-                    binary_length++;
                 } else {
                     next_mode = dm_mode.DM_ASCII;
                     if (debug) System.out.printf("ASC ");
@@ -730,8 +700,6 @@ public class DataMatrix extends Symbol {
             tp++;
             target[tp] = inputData[inputlen - 1] + 1;
             tp++;
-            binary[binary_length] = ' ';
-            binary_length++;
             if (debug) System.out.printf("ASC A%02X A%02X ", target[tp - 2] - 1, 
                     target[tp - 1] - 1);
             current_mode = dm_mode.DM_ASCII;
@@ -741,10 +709,6 @@ public class DataMatrix extends Symbol {
             tp++; /* unlatch */
             target[tp] = inputData[inputlen - 1] + 1;
             tp++;
-            binary[binary_length] = ' ';
-            binary_length++;
-            binary[binary_length] = ' ';
-            binary_length++;
             if (debug) System.out.printf("ASC A%02X ", target[tp - 1] - 1);
             current_mode = dm_mode.DM_ASCII;
         }
@@ -756,12 +720,6 @@ public class DataMatrix extends Symbol {
             tp++;
             target[tp] = inputData[inputlen - 1] + 1;
             tp++;
-            binary[binary_length] = ' ';
-            binary_length++;
-            binary[binary_length] = ' ';
-            binary_length++;
-            binary[binary_length] = ' ';
-            binary_length++;
             if (debug) System.out.printf("ASC A%02X A%02X ", target[tp - 2] - 1, 
                     target[tp - 1] - 1);
             current_mode = dm_mode.DM_ASCII;
@@ -771,10 +729,6 @@ public class DataMatrix extends Symbol {
             tp++; /* unlatch */
             target[tp] = inputData[inputlen - 1] + 1;
             tp++;
-            binary[binary_length] = ' ';
-            binary_length++;
-            binary[binary_length] = ' ';
-            binary_length++;
             if (debug) System.out.printf("ASC A%02X ", target[tp - 1] - 1);
             current_mode = dm_mode.DM_ASCII;
         }
@@ -786,12 +740,6 @@ public class DataMatrix extends Symbol {
             tp++;
             target[tp] = inputData[inputlen - 1] + 1;
             tp++;
-            binary[binary_length] = ' ';
-            binary_length++;
-            binary[binary_length] = ' ';
-            binary_length++;
-            binary[binary_length] = ' ';
-            binary_length++;
             if (debug) System.out.printf("ASC A%02X A%02X ", target[tp - 2] - 1, 
                     target[tp - 1] - 1);
             current_mode = dm_mode.DM_ASCII;
@@ -801,54 +749,23 @@ public class DataMatrix extends Symbol {
             tp++; /* unlatch */
             target[tp] = inputData[inputlen - 1] + 1;
             tp++;
-            binary[binary_length] = ' ';
-            binary_length++;
-            binary[binary_length] = ' ';
-            binary_length++;
             if (debug) System.out.printf("ASC A%02X ", target[tp - 1] - 1);
             current_mode = dm_mode.DM_ASCII;
         }
 
-        /* Add length and randomising algorithm to b256 */
-        i = 0;
-        while (i < tp) {
-            if (binary[i] == 'b') {
-                if ((i == 0) || ((i != 0) && (binary[i - 1] != 'b'))) {
-                    /* start of binary data */
-                    int binary_count; /* length of b256 data */
+        last_mode = current_mode;
+        return finishCodewords(tp);
+    }
 
-                    for (binary_count = 0; binary[binary_count + i] == 'b'; 
-                            binary_count++);
+    private int finishCodewords(int tp) {
+        int i;
 
-                    if (binary_count <= 249) {
-                        insertAt(i, 'b');
-                        insertValueAt(i, tp, (char) binary_count);
-                        tp++;
-                    } else {
-                        insertAt(i, 'b');
-                        insertAt(i + 1, 'b');
-                        insertValueAt(i, tp, (char)((binary_count / 250) + 249));
-                        tp++;
-                        insertValueAt(i + 1, tp, (char)(binary_count % 250));
-                        tp++;
-                    }
-                }
-            }
-            i++;
+        if (tp == 0) {
+            return 0;
         }
-
-        for (i = 0; i < tp; i++) {
-            if (binary[i] == 'b') {
-                int prn, temp;
-
-                prn = ((149 * (i + 1)) % 255) + 1;
-                temp = target[i] + prn;
-                if (temp <= 255) {
-                    target[i] = temp;
-                } else {
-                    target[i] = temp - 256;
-                }
-            }
+        tp = addBase256Lengths(tp);
+        if (tp > 1558) {
+            return 0;
         }
 
         if (debug) {
@@ -859,7 +776,199 @@ public class DataMatrix extends Symbol {
             System.out.printf("\n");
         }
 
-        last_mode = current_mode;
+        return tp;
+    }
+
+    /**
+     * Encodes the data in the modes chosen by {@link DataMatrixPlanner},
+     * which takes the fewest codewords, rather than by the look ahead test.
+     *
+     * @return number of codewords written, or 0 if there are too many
+     */
+    private int encodeOptimal(int sp, int tp, int inputlen) {
+        int[] plan = new int[inputlen - sp];
+        int[] values = new int[8];
+        int mode = DataMatrixPlanner.ASCII;
+        int count = 0;
+        int i, c, m, shift_set, value, iv;
+        int[] shift, set;
+
+        if (tp + new DataMatrixPlanner(inputData, sp, inputlen, gs1).plan(plan) > 1558) {
+            return 0;
+        }
+        target = Arrays.copyOf(target, 1558);
+
+        for (i = 0; i < plan.length; i++) {
+            c = inputData[sp + i];
+            m = plan[i];
+            if (m == DataMatrixPlanner.ASCII_PAIR) {
+                m = DataMatrixPlanner.ASCII;
+            }
+
+            if (m != mode) {
+                /* The planner only leaves C40, Text, X12 and EDIFACT on a
+                   whole group of values */
+                switch (mode) {
+                case DataMatrixPlanner.C40:
+                case DataMatrixPlanner.TEXT:
+                case DataMatrixPlanner.X12:
+                    target[tp] = 254;
+                    tp++; /* Unlatch */
+                    break;
+                case DataMatrixPlanner.EDIFACT:
+                    values[count] = 31;
+                    count++; /* Unlatch */
+                    tp = packEdifact(values, count, tp);
+                    count = 0;
+                    break;
+                }
+                switch (m) {
+                case DataMatrixPlanner.C40:
+                    target[tp] = 230;
+                    break;
+                case DataMatrixPlanner.TEXT:
+                    target[tp] = 239;
+                    break;
+                case DataMatrixPlanner.X12:
+                    target[tp] = 238;
+                    break;
+                case DataMatrixPlanner.EDIFACT:
+                    target[tp] = 240;
+                    break;
+                case DataMatrixPlanner.BASE256:
+                    target[tp] = 231;
+                    break;
+                }
+                if (m != DataMatrixPlanner.ASCII) {
+                    tp++; /* Latch */
+                }
+                mode = m;
+            }
+
+            switch (mode) {
+            case DataMatrixPlanner.ASCII:
+                if (plan[i] == DataMatrixPlanner.ASCII_PAIR) {
+                    target[tp] = (10 * (c - '0')) + (inputData[sp + i + 1] - '0') + 130;
+                    i++;
+                } else if (c > 127) {
+                    target[tp] = 235; /* FNC4 */
+                    tp++;
+                    target[tp] = (c - 128) + 1;
+                } else if (gs1 && (c == '[')) {
+                    target[tp] = 232; /* FNC1 */
+                } else {
+                    target[tp] = c + 1;
+                }
+                tp++;
+                break;
+            case DataMatrixPlanner.C40:
+            case DataMatrixPlanner.TEXT:
+                shift = (mode == DataMatrixPlanner.C40) ? c40_shift : text_shift;
+                set = (mode == DataMatrixPlanner.C40) ? c40_value : text_value;
+
+                if (c > 127) {
+                    values[count] = 1;
+                    count++;
+                    values[count] = 30;
+                    count++; /* Upper Shift */
+                    c -= 128;
+                }
+                shift_set = shift[c];
+                value = set[c];
+                if (gs1 && (c == '[')) {
+                    shift_set = 2;
+                    value = 27; /* FNC1 */
+                }
+                if (shift_set != 0) {
+                    values[count] = shift_set - 1;
+                    count++;
+                }
+                values[count] = value;
+                count++;
+                break;
+            case DataMatrixPlanner.X12:
+                if (c == 13) {
+                    value = 0;
+                } else if (c == '*') {
+                    value = 1;
+                } else if (c == '>') {
+                    value = 2;
+                } else if (c == ' ') {
+                    value = 3;
+                } else if (c <= '9') {
+                    value = (c - '0') + 4;
+                } else {
+                    value = (c - 'A') + 14;
+                }
+                values[count] = value;
+                count++;
+                break;
+            case DataMatrixPlanner.EDIFACT:
+                values[count] = c & 0x3f;
+                count++;
+                if (count == 4) {
+                    tp = packEdifact(values, count, tp);
+                    count = 0;
+                }
+                break;
+            case DataMatrixPlanner.BASE256:
+                target[tp] = c | BASE256;
+                tp++;
+                break;
+            }
+
+            /* C40, Text and X12 values go out three at a time */
+            while ((mode != DataMatrixPlanner.EDIFACT) && (count >= 3)) {
+                iv = (1600 * values[0]) + (40 * values[1]) + values[2] + 1;
+                target[tp] = iv / 256;
+                tp++;
+                target[tp] = iv % 256;
+                tp++;
+                for (m = 3; m < count; m++) {
+                    values[m - 3] = values[m];
+                }
+                count -= 3;
+            }
+        }
+
+        switch (mode) {
+        case DataMatrixPlanner.C40:
+            last_mode = dm_mode.DM_C40;
+            break;
+        case DataMatrixPlanner.TEXT:
+            last_mode = dm_mode.DM_TEXT;
+            break;
+        case DataMatrixPlanner.X12:
+            last_mode = dm_mode.DM_X12;
+            break;
+        case DataMatrixPlanner.EDIFACT:
+            values[count] = 31;
+            count++; /* Unlatch */
+            tp = packEdifact(values, count, tp);
+            last_mode = dm_mode.DM_ASCII;
+            break;
+        case DataMatrixPlanner.BASE256:
+            last_mode = dm_mode.DM_BASE256;
+            break;
+        default:
+            last_mode = dm_mode.DM_ASCII;
+            break;
+        }
+        return tp;
+    }
+
+    /** Packs up to four EDIFACT values into as many codewords as they need */
+    private int packEdifact(int[] values, int count, int tp) {
+        int bits = 0;
+        int i;
+
+        for (i = 0; i < 4; i++) {
+            bits = (bits << 6) + ((i < count) ? values[i] : 0);
+        }
+        for (i = 0; i < ((6 * count) + 7) / 8; i++) {
+            target[tp] = (bits >> (16 - (8 * i))) & 0xff;
+            tp++;
+        }
         return tp;
     }
 
@@ -881,8 +990,7 @@ public class DataMatrix extends Symbol {
         /* This version is deliberately very reluctant to end a data stream with EDIFACT encoding */
 
         double ascii_count, c40_count, text_count, x12_count, edf_count, b256_count, best_count;
-        int sp, done;
-        char reduced_char;
+        int sp, flags;
         int sourcelen = content.length();
         dm_mode best_scheme;
 
@@ -923,70 +1031,47 @@ public class DataMatrix extends Symbol {
 
         for (sp = position;
         (sp < sourcelen) && (sp <= (position + 8)); sp++) {
+            /* The sums are built up term by term as before, so that ties
+               between schemes come out exactly the same */
+            flags = LOOKAHEAD_FLAGS[inputData[sp]];
 
-            if (inputData[sp] <= 127) {
-                reduced_char = (char) inputData[sp];
-            } else {
-                reduced_char = (char)(inputData[sp] - 127);
-            }
-
-            if ((inputData[sp] >= '0') && (inputData[sp] <= '9')) {
+            if ((flags & DIGIT) != 0) {
                 ascii_count += 0.5;
             } else {
                 ascii_count += 1.0;
             }
-            if (inputData[sp] > 127) {
+            if ((flags & EXTENDED) != 0) {
                 ascii_count += 1.0;
             }
 
-            done = 0;
-            if (reduced_char == ' ') {
-                c40_count += (2.0 / 3.0);
-                done = 1;
-            }
-            if ((reduced_char >= '0') && (reduced_char <= '9')) {
+            if ((flags & C40_BASIC) != 0) {
                 c40_count += (2.0 / 3.0);
-                done = 1;
             }
-            if ((reduced_char >= 'A') && (reduced_char <= 'Z')) {
-                c40_count += (2.0 / 3.0);
-                done = 1;
-            }
-            if (inputData[sp] > 127) {
+            if ((flags & EXTENDED) != 0) {
                 c40_count += (4.0 / 3.0);
             }
-            if (done == 0) {
+            if ((flags & C40_BASIC) == 0) {
                 c40_count += (4.0 / 3.0);
             }
 
-            done = 0;
-            if (reduced_char == ' ') {
-                text_count += (2.0 / 3.0);
-                done = 1;
-            }
-            if ((reduced_char >= '0') && (reduced_char <= '9')) {
-                text_count += (2.0 / 3.0);
-                done = 1;
-            }
-            if ((reduced_char >= 'a') && (reduced_char <= 'z')) {
+            if ((flags & TEXT_BASIC) != 0) {
                 text_count += (2.0 / 3.0);
-                done = 1;
             }
-            if (inputData[sp] > 127) {
+            if ((flags & EXTENDED) != 0) {
                 text_count += (4.0 / 3.0);
             }
-            if (done == 0) {
+            if ((flags & TEXT_BASIC) == 0) {
                 text_count += (4.0 / 3.0);
             }
 
-            if (isX12(inputData[sp])) {
+            if ((flags & X12) != 0) {
                 x12_count += (2.0 / 3.0);
             } else {
                 x12_count += 4.0;
             }
 
             /* step (p) */
-            if ((inputData[sp] >= ' ') && (inputData[sp] <= '^')) {
+            if ((flags & EDIFACT) != 0) {
                 edf_count += (3.0 / 4.0);
             } else {
                 edf_count += 6.0;
@@ -1036,50 +1121,19 @@ public class DataMatrix extends Symbol {
         return best_scheme;
     }
 
-    private boolean isX12(int source) {
-        if (source == 13) {
-            return true;
-        }
-        if (source == 42) {
-            return true;
-        }
-        if (source == 62) {
-            return true;
-        }
-        if (source == 32) {
-            return true;
-        }
-        if ((source >= '0') && (source <= '9')) {
-            return true;
-        }
-        if ((source >= 'A') && (source <= 'Z')) {
-            return true;
-        }
-
-        return false;
-    }
-
     private void calculateErrorCorrection(int bytes, int datablock, int rsblock, int skew) {
         // calculate and append ecc code, and if necessary interleave
         int blocks = (bytes + 2) / datablock, b;
         int n, p;
-        ReedSolomon rs = new ReedSolomon();
-
-        rs.init_gf(0x12d);
-        rs.init_code(rsblock, 1);
+        int[] buf = new int[256];
+        int[] ecc = new int[256];
 
         for (b = 0; b < blocks; b++) {
-            int[] buf = new int[256];
-            int[] ecc = new int[256];
-
             p = 0;
             for (n = b; n < bytes; n += blocks) {
                 buf[p++] = target[n];
             }
-            rs.encode(p, buf);
-            for (n = 0; n < rsblock; n++) {
-                ecc[n] = rs.getResult(n);
-            }
+            ReedSolomon.encode(0x12d, rsblock, 1, buf, p, ecc);
             p = rsblock - 1; // comes back reversed
             for (n = b; n < rsblock * blocks; n += blocks) {
                 if (skew == 1) {
@@ -1097,23 +1151,72 @@ public class DataMatrix extends Symbol {
         }
     }
 
-    private void insertAt(int pos, char newbit) {
-        /* Insert a character into the middle of a string at position posn */
-        int i;
+    private int addBase256Lengths(int tp) {
+        /* Add length and randomising algorithm to b256, copying the codewords
+           once into a new array with room for the field lengths */
+        int[] codewords;
+        int i, j, end, length, binary_count;
+
+        /* Count the field length codewords needed */
+        length = tp;
+        for (i = 0; i < tp; i = end) {
+            end = i + 1;
+            if ((target[i] & BASE256) != 0) {
+                while ((end < tp) && ((target[end] & BASE256) != 0)) {
+                    end++;
+                }
+                length += (end - i) <= 249 ? 1 : 2;
+            }
+        }
+        if (length == tp) {
+            return tp;
+        }
+
+        codewords = new int[length];
+        j = 0;
+        for (i = 0; i < tp; i = end) {
+            end = i + 1;
+            if ((target[i] & BASE256) == 0) {
+                codewords[j] = target[i];
+                j++;
+                continue;
+            }
 
-        for (i = binary_length; i > pos; i--) {
-            binary[i] = binary[i - 1];
+            /* start of binary data */
+            while ((end < tp) && ((target[end] & BASE256) != 0)) {
+                end++;
+            }
+            binary_count = end - i; /* length of b256 data */
+            if (binary_count <= 249) {
+                codewords[j] = randomise255(binary_count, j);
+                j++;
+            } else {
+                codewords[j] = randomise255((binary_count / 250) + 249, j);
+                j++;
+                codewords[j] = randomise255(binary_count % 250, j);
+                j++;
+            }
+            for (; i < end; i++) {
+                codewords[j] = randomise255(target[i] & 0xff, j);
+                j++;
+            }
         }
-        binary[pos] = newbit;
+
+        target = codewords;
+        return length;
     }
 
-    private void insertValueAt(int posn, int streamlen, char newbit) {
-        int i;
+    private int randomise255(int codeword, int position) {
+        /* 255-state randomising of a Base 256 codeword at position (from 0) */
+        int prn, temp;
 
-        for (i = streamlen; i > posn; i--) {
-            target[i] = target[i - 1];
+        prn = ((149 * (position + 1)) % 255) + 1;
+        temp = codeword + prn;
+        if (temp <= 255) {
+            return temp;
+        } else {
+            return temp - 256;
         }
-        target[posn] = newbit;
     }
 
     private void addPadBits(int tp, int tail_length) {
@@ -1147,6 +1250,82 @@ public class DataMatrix extends Symbol {
         }
     }
 
+    private Placement placement(int symbolsize) {
+        Placement placement = PLACEMENTS.get(symbolsize);
+        int H, W, FH, FW, NR, NC, x, y, v, fixed, count;
+        int[] grid, modules;
+
+        if (placement != null) {
+            return placement;
+        }
+
+        H = matrixH[symbolsize];
+        W = matrixW[symbolsize];
+        FH = matrixFH[symbolsize];
+        FW = matrixFW[symbolsize];
+        NC = W - 2 * (W / FW);
+        NR = H - 2 * (H / FH);
+        places = new int[NC * NR];
+        placeData(NR, NC);
+
+        /* Finder and alignment patterns and any unused corner are 1, data
+           bit n of the symbol is n + 2 and light modules are left as 0 */
+        grid = new int[W * H];
+        for (y = 0; y < H; y += FH) {
+            for (x = 0; x < W; x++) {
+                grid[y * W + x] = 1;
+            }
+            for (x = 0; x < W; x += 2) {
+                grid[(y + FH - 1) * W + x] = 1;
+            }
+        }
+        for (x = 0; x < W; x += FW) {
+            for (y = 0; y < H; y++) {
+                grid[y * W + x] = 1;
+            }
+            for (y = 0; y < H; y += 2) {
+                grid[y * W + x + FW - 1] = 1;
+            }
+        }
+        count = 0;
+        for (y = 0; y < NR; y++) {
+            for (x = 0; x < NC; x++) {
+                v = places[(NR - y - 1) * NC + x];
+                if (v > 7) {
+                    v = ((v >> 3) - 1) * 8 + (7 - (v & 7));
+                    count = Math.max(count, v + 1);
+                    v += 2;
+                }
+                grid[(1 + y + 2 * (y / (FH - 2))) * W + 1 + x + 2 * (x / (FW - 2))] = v;
+            }
+        }
+        places = null;
+
+        fixed = 0;
+        for (v = 0; v < grid.length; v++) {
+            if (grid[v] == 1) {
+                fixed++;
+            }
+        }
+        placement = new Placement(new int[fixed], new int[count]);
+        fixed = 0;
+        for (y = 0; y < H; y++) {
+            for (x = 0; x < W; x++) {
+                v = grid[y * W + x];
+                /* Row 0 of the grid is the bottom of the symbol */
+                if (v == 1) {
+                    placement.fixed[fixed] = ((H - y - 1) << 8) + x;
+                    fixed++;
+                } else if (v > 1) {
+                    placement.modules[v - 2] = ((H - y - 1) << 8) + x;
+                }
+            }
+        }
+
+        PLACEMENTS.compareAndSet(symbolsize, null, placement);
+        return PLACEMENTS.get(symbolsize);
+    }
+
     private void placeData(int NR, int NC) {
         int r, c, p;
         // invalidate
@@ -1269,4 +1448,20 @@ public class DataMatrix extends Symbol {
         }
         places[r * NC + c] = (p << 3) + b;
     }
+
+    /**
+     * Where each module of one symbol size comes from. Positions are held
+     * as (y << 8) + x with row 0 at the top of the symbol.
+     */
+    private static final class Placement {
+        /* Modules which are dark in every symbol of this size */
+        final int[] fixed;
+        /* Module of each data bit, most significant bit of each codeword first */
+        final int[] modules;
+
+        Placement(int[] fixed, int[] modules) {
+            this.fixed = fixed;
+            this.modules = modules;
+        }
+    }
 }
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.backend;
+
+/**
+ * Chooses the Data Matrix encodation mode of every character so that the
+ * data takes the fewest codewords, as an alternative to the look ahead
+ * test of ISO/IEC 16022:2006 Annex P.
+ * <p>
+ * C40, Text and X12 pack three values into two codewords and EDIFACT packs
+ * four into three, so those modes are tracked once for each count of values
+ * waiting to be packed. Each running total is then a whole number of
+ * codewords, and the cheapest way of reaching every state is found in one
+ * pass over the data. Modes are only left on a whole group of values, with
+ * an unlatch where the mode needs one. C40, Text and X12 may end the data
+ * without one, because {@link DataMatrix} adds the unlatch when padding the
+ * symbol. Base 256 is charged for its latch and field length, which takes
+ * a second codeword once a run reaches 250 bytes.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+final class DataMatrixPlanner {
+
+    static final int ASCII = 0;
+    static final int C40 = 1;
+    static final int TEXT = 2;
+    static final int X12 = 3;
+    static final int EDIFACT = 4;
+    static final int BASE256 = 5;
+    /* ASCII, with this digit and the next sent as one codeword */
+    static final int ASCII_PAIR = 6;
+
+    /* States: ASCII, C40, Text and X12 with 0, 1 or 2 values waiting, EDIFACT
+     * with 0 to 3 values waiting, and Base 256 before and after the run has
+     * grown long enough to need a two codeword length */
+    private static final int STATES = 16;
+    private static final int[] STATE_MODE = {
+        ASCII, C40, C40, C40, TEXT, TEXT, TEXT, X12, X12, X12,
+        EDIFACT, EDIFACT, EDIFACT, EDIFACT, BASE256, BASE256
+    };
+    private static final int S_C40 = 1;
+    private static final int S_TEXT = 4;
+    private static final int S_X12 = 7;
+    private static final int S_EDIFACT = 10;
+    private static final int S_BASE256 = 14;
+    private static final int S_BASE256_LONG = 15;
+    /* Marks a move to ASCII which took two digits */
+    private static final int PAIR = 0x10;
+    private static final int NONE = Integer.MAX_VALUE / 2;
+
+    private final int[] data;
+    private final int start;
+    private final int end;
+    private final boolean gs1;
+
+    /**
+     * @param data input bytes
+     * @param start first character to plan
+     * @param end end of the characters to plan
+     * @param gs1 true if '[' stands for FNC1
+     */
+    DataMatrixPlanner(int[] data, int start, int end, boolean gs1) {
+        this.data = data;
+        this.start = start;
+        this.end = end;
+        this.gs1 = gs1;
+    }
+
+    /**
+     * Finds the plan which takes the fewest codewords.
+     *
+     * @param plan receives the mode of each character, from {@code start}
+     * @return number of codewords the characters take
+     */
+    int plan(int[] plan) {
+        int length = end - start;
+        int[] cost = new int[(length + 1) * STATES];
+        /* State at the previous position each state was reached from, with
+         * PAIR set after two digits, and the state at the same position it
+         * was switched to from */
+        byte[] from = new byte[(length + 1) * STATES];
+        byte[] switched = new byte[(length + 1) * STATES];
+        /* Where the shorter Base 256 run in progress started */
+        int[] runStart = new int[length + 1];
+        int i, s, base, next, c, values, best, bestState;
+
+        for (i = 0; i < cost.length; i++) {
+            cost[i] = NONE;
+            switched[i] = -1;
+        }
+        cost[ASCII] = 0;
+
+        for (i = 0; i < length; i++) {
+            base = i * STATES;
+            next = base + STATES;
+            c = data[start + i];
+
+            /* Unlatch to ASCII, then latch from ASCII to the other modes */
+            for (s = S_C40; s < S_EDIFACT; s += 3) {
+                change(cost, switched, base, s, ASCII, 1);
+            }
+            for (s = 0; s < 4; s++) {
+                change(cost, switched, base, S_EDIFACT + s, ASCII, edifactUnlatch(s));
+            }
+            change(cost, switched, base, S_BASE256, ASCII, 0);
+            change(cost, switched, base, S_BASE256_LONG, ASCII, 0);
+            change(cost, switched, base, ASCII, S_C40, 1);
+            change(cost, switched, base, ASCII, S_TEXT, 1);
+            change(cost, switched, base, ASCII, S_X12, 1);
+            change(cost, switched, base, ASCII, S_EDIFACT, 1);
+            if (cost[base + ASCII] + 2 <= cost[base + S_BASE256]) {
+                /* On a tie the later start is better, as it has further to go
+                 * before the run needs a two codeword length. A run which is
+                 * cheaper by a codeword cannot lose that before the end. */
+                cost[base + S_BASE256] = cost[base + ASCII] + 2;
+                switched[base + S_BASE256] = ASCII;
+                runStart[i] = i;
+            }
+
+            /* Encode the character in each mode which can hold it */
+            if (cost[base + ASCII] < NONE) {
+                if (isDigit(c) && (i + 1 < length) && isDigit(data[start + i + 1])) {
+                    if (move(cost, from, next + STATES + ASCII, base, ASCII, 1)) {
+                        from[next + STATES + ASCII] |= PAIR;
+                    }
+                }
+                move(cost, from, next + ASCII, base, ASCII, (c > 127) ? 2 : 1);
+            }
+            values = c40Values(c, DataMatrix.c40_shift);
+            for (s = 0; s < 3; s++) {
+                move(cost, from, next + S_C40 + ((s + values) % 3), base, S_C40 + s,
+                        ((s + values) / 3) * 2);
+            }
+            values = c40Values(c, DataMatrix.text_shift);
+            for (s = 0; s < 3; s++) {
+                move(cost, from, next + S_TEXT + ((s + values) % 3), base, S_TEXT + s,
+                        ((s + values) / 3) * 2);
+            }
+            if (isX12(c)) {
+                for (s = 0; s < 3; s++) {
+                    move(cost, from, next + S_X12 + ((s + 1) % 3), base, S_X12 + s,
+                            (s == 2) ? 2 : 0);
+                }
+            }
+            if (isEdifact(c)) {
+                for (s = 0; s < 4; s++) {
+                    move(cost, from, next + S_EDIFACT + ((s + 1) % 4), base, S_EDIFACT + s,
+                            (s == 3) ? 3 : 0);
+                }
+            }
+            if (!(gs1 && (c == '['))) {
+                if (i + 1 - runStart[i] < 250) {
+                    runStart[i + 1] = runStart[i];
+                    move(cost, from, next + S_BASE256, base, S_BASE256, 1);
+                } else {
+                    move(cost, from, next + S_BASE256_LONG, base, S_BASE256, 2);
+                }
+                move(cost, from, next + S_BASE256_LONG, base, S_BASE256_LONG, 1);
+            }
+        }
+
+        /* EDIFACT has to unlatch at the end, the others need not */
+        base = length * STATES;
+        best = cost[base + ASCII];
+        bestState = ASCII;
+        for (s = 1; s < STATES; s++) {
+            c = cost[base + s];
+            if ((STATE_MODE[s] == C40) || (STATE_MODE[s] == TEXT) || (STATE_MODE[s] == X12)) {
+                if ((s - 1) % 3 != 0) {
+                    continue;
+                }
+            } else if (STATE_MODE[s] == EDIFACT) {
+                c += edifactUnlatch(s - S_EDIFACT);
+            }
+            if (c < best) {
+                best = c;
+                bestState = s;
+            }
+        }
+
+        /* Walk back through the choices to label each character */
+        s = bestState;
+        i = length;
+        while (i > 0) {
+            next = from[(i * STATES) + s];
+            if ((next & PAIR) != 0) {
+                next &= ~PAIR;
+                plan[i - 1] = ASCII_PAIR;
+                plan[i - 2] = ASCII_PAIR;
+                i -= 2;
+            } else {
+                plan[i - 1] = STATE_MODE[s];
+                i--;
+            }
+            s = next;
+            while (switched[(i * STATES) + s] >= 0) {
+                s = switched[(i * STATES) + s];
+            }
+        }
+
+        return best;
+    }
+
+    /** Number of C40 or Text values a character takes */
+    private int c40Values(int c, int[] shift) {
+        int values = 0;
+
+        if (gs1 && (c == '[')) {
+            return 2;
+        }
+        if (c > 127) {
+            values = 2; /* Upper Shift */
+            c -= 128;
+        }
+        return values + ((shift[c] != 0) ? 2 : 1);
+    }
+
+    /** Codewords taken by an EDIFACT unlatch with values still waiting */
+    private static int edifactUnlatch(int waiting) {
+        /* The unlatch value ends the group, and a part group only takes
+         * as many whole codewords as its bits need */
+        return ((6 * (waiting + 1)) + 7) / 8;
+    }
+
+    /** Keeps the cheaper way of reaching a state by changing mode */
+    private static void change(int[] cost, byte[] switched, int base, int previous,
+            int state, int extra) {
+        int total = cost[base + previous] + extra;
+
+        if (total < cost[base + state]) {
+            cost[base + state] = total;
+            switched[base + state] = (byte) previous;
+        }
+    }
+
+    /** Keeps the cheaper way of reaching a state at a later position */
+    private static boolean move(int[] cost, byte[] from, int target, int base, int previous,
+            int extra) {
+        int total = cost[base + previous] + extra;
+
+        if (total < cost[target] && total < NONE) {
+            cost[target] = total;
+            from[target] = (byte) previous;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isDigit(int c) {
+        return (c >= '0') && (c <= '9');
+    }
+
+    private boolean isX12(int c) {
+        return (c == 13) || (c == '*') || (c == '>') || (c == ' ') || isDigit(c)
+                || ((c >= 'A') && (c <= 'Z'));
+    }
+
+    private boolean isEdifact(int c) {
+        return (c >= ' ') && (c <= '^') && !(gs1 && (c == '['));
+    }
+}
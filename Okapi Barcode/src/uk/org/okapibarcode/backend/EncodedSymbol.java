@@ -0,0 +1,153 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.backend;
+
+import java.awt.Rectangle;
+import java.awt.geom.Ellipse2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of {@link Barcode#encode(BarcodeRequest)}. The shape lists cannot
+ * be modified and a {@link BitMatrix} is read-only outside the encoders, so
+ * a symbol can be handed to other threads for output once it has been
+ * returned, even when its modules are shared with other symbols.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+public final class EncodedSymbol {
+    private final String symbology;
+    private final boolean valid;
+    private final String errorMessage;
+    private final String encodeInfo;
+    private final int width;
+    private final int height;
+    private final BitMatrix matrix;
+    private final HexagonGrid hexGrid;
+    private List<Rectangle> rectangles;
+    private final List<TextBox> text;
+    private List<Hexagon> hexagons;
+    private List<Ellipse2D.Double> targets;
+
+    EncodedSymbol(String symbology, boolean valid, Barcode barcode) {
+        this.symbology = symbology;
+        this.valid = valid;
+        if (valid) {
+            errorMessage = "";
+            encodeInfo = barcode.encodeInfo;
+            width = barcode.symbol_width;
+            height = barcode.symbol_height;
+            matrix = barcode.getMatrix();
+            if (matrix == null) {
+                rectangles = freeze(barcode.rect);
+            }
+            hexGrid = barcode.getHexagonGrid();
+            if (hexGrid == null) {
+                hexagons = freeze(barcode.hex);
+                targets = freeze(barcode.target);
+            }
+            text = freeze(barcode.txt);
+        } else {
+            errorMessage = (barcode.error_msg == null) ? "" : barcode.error_msg;
+            encodeInfo = "";
+            width = 0;
+            height = 0;
+            matrix = null;
+            hexGrid = null;
+            rectangles = Collections.emptyList();
+            text = Collections.emptyList();
+            hexagons = Collections.emptyList();
+            targets = Collections.emptyList();
+        }
+    }
+
+    private static <T> List<T> freeze(List<T> shapes) {
+        return Collections.unmodifiableList(new ArrayList<>(shapes));
+    }
+
+    public String getSymbology() {
+        return symbology;
+    }
+
+    /** True if the data was encoded, false if {@link #getErrorMessage()} explains why not */
+    public boolean isValid() {
+        return valid;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public String getEncodeInfo() {
+        return encodeInfo;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** Modules of a matrix symbol, or null for other symbols */
+    public BitMatrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Rectangles making up the symbol. For matrix symbols these are built
+     * from {@link #getMatrix()} the first time they are asked for.
+     */
+    public synchronized List<Rectangle> getRectangles() {
+        if (rectangles == null) {
+            rectangles = Collections.unmodifiableList(matrix.toRectangles());
+        }
+        return rectangles;
+    }
+
+    public List<TextBox> getText() {
+        return text;
+    }
+
+    /** Modules of a MaxiCode symbol, or null for other symbols */
+    public HexagonGrid getHexagonGrid() {
+        return hexGrid;
+    }
+
+    /**
+     * Hexagons making up the symbol. For MaxiCode these are built from
+     * {@link #getHexagonGrid()} the first time they are asked for.
+     */
+    public synchronized List<Hexagon> getHexagons() {
+        if (hexagons == null) {
+            hexagons = Collections.unmodifiableList(hexGrid.toHexagons());
+        }
+        return hexagons;
+    }
+
+    /**
+     * Circles of the MaxiCode bullseye, built from {@link #getHexagonGrid()}
+     * the first time they are asked for
+     */
+    public synchronized List<Ellipse2D.Double> getTargets() {
+        if (targets == null) {
+            targets = Collections.unmodifiableList(hexGrid.toTargets());
+        }
+        return targets;
+    }
+}
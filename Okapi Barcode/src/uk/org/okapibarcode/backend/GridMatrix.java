@@ -172,7 +172,7 @@ public class GridMatrix extends Symbol {
         NULL, GM_NUMBER, GM_LOWER, GM_UPPER, GM_MIXED, GM_CONTROL, GM_BYTE, GM_CHINESE
     };
     private int[] gbdata;
-    private String binary;
+    private BitBuffer binary;
     private int[] word = new int[1460];
     private boolean[] grid;
 
@@ -195,7 +195,6 @@ public class GridMatrix extends Symbol {
         boolean reader = false; // FIXME: Get value from user
         byte[] euccn;
         String onechar;
-        String bin;
 
         for (i = 0; i < 1460; i++) {
             word[i] = 0;
@@ -360,24 +359,17 @@ public class GridMatrix extends Symbol {
 
         /* Copy values to symbol */
         symbol_width = size;
-        row_count = size;
-        row_height = new int[row_count];
-        pattern = new String[row_count];
+        matrix = new BitMatrix(size, size);
 
         for (x = 0; x < size; x++) {
-            bin = "";
             for (y = 0; y < size; y++) {
                 if (grid[(x * size) + y]) {
-                    bin += "1";
-                } else {
-                    bin += "0";
+                    matrix.set(y, x);
                 }
             }
-            row_height[x] = 1;
-            pattern[x] = bin2pat(bin);
         }
 
-        plotSymbol();
+        plotMatrix();
         return true;
     }
 
@@ -395,16 +387,15 @@ public class GridMatrix extends Symbol {
         int byte_count_posn = 0, byte_count = 0;
         int shift, i;
         int[] numbuf = new int[3];
-        String temp_binary;
 
-        binary = "";
+        binary = new BitBuffer();
 
         sp = 0;
         current_mode = gmMode.NULL;
         number_pad_posn = 0;
 
         if (reader) {
-            binary += "1010"; /* FNC3 - Reader Initialisation */
+            binary.append(0b1010, 4); /* FNC3 - Reader Initialisation */
         }
 
         do {
@@ -415,76 +406,73 @@ public class GridMatrix extends Symbol {
                 case NULL:
                     switch (next_mode) {
                     case GM_CHINESE:
-                        binary += "0001";
+                        binary.append(0b0001, 4);
                         break;
                     case GM_NUMBER:
-                        binary += "0010";
+                        binary.append(0b0010, 4);
                         break;
                     case GM_LOWER:
-                        binary += "0011";
+                        binary.append(0b0011, 4);
                         break;
                     case GM_UPPER:
-                        binary += "0100";
+                        binary.append(0b0100, 4);
                         break;
                     case GM_MIXED:
-                        binary += "0101";
+                        binary.append(0b0101, 4);
                         break;
                     case GM_BYTE:
-                        binary += "0111";
+                        binary.append(0b0111, 4);
                         break;
                     }
                     break;
                 case GM_CHINESE:
                     switch (next_mode) {
                     case GM_NUMBER:
-                        binary += "1111111100001";
+                        binary.append(0b1111111100001, 13);
                         break; // 8161
                     case GM_LOWER:
-                        binary += "1111111100010";
+                        binary.append(0b1111111100010, 13);
                         break; // 8162
                     case GM_UPPER:
-                        binary += "1111111100011";
+                        binary.append(0b1111111100011, 13);
                         break; // 8163
                     case GM_MIXED:
-                        binary += "1111111100100";
+                        binary.append(0b1111111100100, 13);
                         break; // 8164
                     case GM_BYTE:
-                        binary += "1111111100101";
+                        binary.append(0b1111111100101, 13);
                         break; // 8165
                     }
                     break;
                 case GM_NUMBER:
                     /* add numeric block padding value */
-                    temp_binary = binary.substring(0, number_pad_posn);
                     switch (p) {
                     case 1:
-                        temp_binary += "10";
+                        binary.insert(number_pad_posn, 0b10, 2);
                         break; // 2 pad digits
                     case 2:
-                        temp_binary += "01";
+                        binary.insert(number_pad_posn, 0b01, 2);
                         break; // 1 pad digit
                     case 3:
-                        temp_binary += "00";
+                        binary.insert(number_pad_posn, 0b00, 2);
                         break; // 0 pad digits
                     }
-                    temp_binary += binary.substring(number_pad_posn, binary.length());
-                    binary = temp_binary;
 
                     switch (next_mode) {
                     case GM_CHINESE:
-                        binary += "1111111011";
+                        binary.append(0b1111111011, 10);
                         break; // 1019
                     case GM_LOWER:
-                        binary += "1111111100";
+                        binary.append(0b1111111100, 10);
                         break; // 1020
                     case GM_UPPER:
-                        binary += "1111111101";
+                        binary.append(0b1111111101, 10);
                         break; // 1021
                     case GM_MIXED:
-                        binary += "1111111110";
+                        binary.append(0b1111111110, 10);
                         break; // 1022
                     case GM_BYTE:
-                        binary += "1111111111";
+                        binary.append(0b1111111111, 10);
                         break; // 1023
                     }
                     break;
@@ -492,39 +480,39 @@ public class GridMatrix extends Symbol {
                 case GM_UPPER:
                     switch (next_mode) {
                     case GM_CHINESE:
-                        binary += "11100";
+                        binary.append(0b11100, 5);
                         break; // 28
                     case GM_NUMBER:
-                        binary += "11101";
+                        binary.append(0b11101, 5);
                         break; // 29
                     case GM_LOWER:
                     case GM_UPPER:
-                        binary += "11110";
+                        binary.append(0b11110, 5);
                         break; // 30
                     case GM_MIXED:
-                        binary += "1111100";
+                        binary.append(0b1111100, 7);
                         break; // 124
                     case GM_BYTE:
-                        binary += "1111110";
+                        binary.append(0b1111110, 7);
                         break; // 126
                     }
                     break;
                 case GM_MIXED:
                     switch (next_mode) {
                     case GM_CHINESE:
-                        binary += "1111110001";
+                        binary.append(0b1111110001, 10);
                         break; // 1009
                     case GM_NUMBER:
-                        binary += "1111110010";
+                        binary.append(0b1111110010, 10);
                         break; // 1010
                     case GM_LOWER:
-                        binary += "1111110011";
+                        binary.append(0b1111110011, 10);
                         break; // 1011
                     case GM_UPPER:
-                        binary += "1111110100";
+                        binary.append(0b1111110100, 10);
                         break; // 1012
                     case GM_BYTE:
-                        binary += "1111110111";
+                        binary.append(0b1111110111, 10);
                         break; // 1015
                     }
                     break;
@@ -534,19 +522,19 @@ public class GridMatrix extends Symbol {
                     byte_count = 0;
                     switch (next_mode) {
                     case GM_CHINESE:
-                        binary += "0001";
+                        binary.append(0b0001, 4);
                         break; // 1
                     case GM_NUMBER:
-                        binary += "0010";
+                        binary.append(0b0010, 4);
                         break; // 2
                     case GM_LOWER:
-                        binary += "0011";
+                        binary.append(0b0011, 4);
                         break; // 3
                     case GM_UPPER:
-                        binary += "0100";
+                        binary.append(0b0100, 4);
                         break; // 4
                     case GM_MIXED:
-                        binary += "0101";
+                        binary.append(0b0101, 4);
                         break; // 5
                     }
                     break;
@@ -621,13 +609,7 @@ public class GridMatrix extends Symbol {
                     System.out.printf("[%d] ", glyph);
                 }
 
-                for (i = 0x1000; i > 0; i = i >> 1) {
-                    if ((glyph & i) != 0) {
-                        binary += "1";
-                    } else {
-                        binary += "0";
-                    }
-                }
+                binary.append(glyph, 13);
                 sp++;
                 break;
 
@@ -700,13 +682,7 @@ public class GridMatrix extends Symbol {
                         System.out.printf("[%d] ", glyph);
                     }
 
-                    for (i = 0x200; i > 0; i = i >> 1) {
-                        if ((glyph & i) != 0) {
-                            binary += "1";
-                        } else {
-                            binary += "0";
-                        }
-                    }
+                    binary.append(glyph, 10);
                 }
 
                 glyph = (100 * (numbuf[0] - '0')) + (10 * (numbuf[1] - '0')) + (numbuf[2] - '0');
@@ -714,13 +690,7 @@ public class GridMatrix extends Symbol {
                     System.out.printf("[%d] ", glyph);
                 }
 
-                for (i = 0x200; i > 0; i = i >> 1) {
-                    if ((glyph & i) != 0) {
-                        binary += "1";
-                    } else {
-                        binary += "0";
-                    }
-                }
+                binary.append(glyph, 10);
                 break;
 
             case GM_BYTE:
@@ -731,7 +701,7 @@ public class GridMatrix extends Symbol {
                 if (byte_count == 512) {
                     /* Maximum byte block size is 512 bytes. If longer is needed then start a new block */
                     addByteCount(byte_count_posn, byte_count);
-                    binary += "0111";
+                    binary.append(0b0111, 4);
                     byte_count_posn = binary.length();
                     byte_count = 0;
                 }
@@ -740,13 +710,7 @@ public class GridMatrix extends Symbol {
                 if (debug) {
                     System.out.printf("[%d] ", glyph);
                 }
-                for (i = 0x80; i > 0; i = i >> 1) {
-                    if ((glyph & i) != 0) {
-                        binary += "1";
-                    } else {
-                        binary += "0";
-                    }
-                }
+                binary.append(glyph, 8);
                 sp++;
                 byte_count++;
                 break;
@@ -773,16 +737,10 @@ public class GridMatrix extends Symbol {
                         System.out.printf("[%d] ", glyph);
                     }
 
-                    for (i = 0x20; i > 0; i = i >> 1) {
-                        if ((glyph & i) != 0) {
-                            binary += "1";
-                        } else {
-                            binary += "0";
-                        }
-                    }
+                    binary.append(glyph, 6);
                 } else {
                     /* Shift Mode character */
-                    binary += "1111110110"; /* 1014 - shift indicator */
+                    binary.append(0b1111110110, 10); /* 1014 - shift indicator */
                     addShiftCharacter(gbdata[sp]);
                 }
 
@@ -810,17 +768,11 @@ public class GridMatrix extends Symbol {
                         System.out.printf("[%d] ", glyph);
                     }
 
-                    for (i = 0x10; i > 0; i = i >> 1) {
-                        if ((glyph & i) != 0) {
-                            binary += "1";
-                        } else {
-                            binary += "0";
-                        }
-                    }
+                    binary.append(glyph, 5);
 
                 } else {
                     /* Shift Mode character */
-                    binary += "1111101"; /* 127 - shift indicator */
+                    binary.append(0b1111101, 7); /* 127 - shift indicator */
                     addShiftCharacter(gbdata[sp]);
                 }
 
@@ -844,17 +796,11 @@ public class GridMatrix extends Symbol {
                         System.out.printf("[%d] ", glyph);
                     }
 
-                    for (i = 0x10; i > 0; i = i >> 1) {
-                        if ((glyph & i) != 0) {
-                            binary += "1";
-                        } else {
-                            binary += "0";
-                        }
-                    }
+                    binary.append(glyph, 5);
 
                 } else {
                     /* Shift Mode character */
-                    binary += "1111101"; /* 127 - shift indicator */
+                    binary.append(0b1111101, 7); /* 127 - shift indicator */
                     addShiftCharacter(gbdata[sp]);
                 }
 
@@ -869,20 +815,17 @@ public class GridMatrix extends Symbol {
 
         if (current_mode == gmMode.GM_NUMBER) {
             /* add numeric block padding value */
-            temp_binary = binary.substring(0, number_pad_posn);
             switch (p) {
             case 1:
-                temp_binary += "10";
+                binary.insert(number_pad_posn, 0b10, 2);
                 break; // 2 pad digits
             case 2:
-                temp_binary += "01";
+                binary.insert(number_pad_posn, 0b01, 2);
                 break; // 1 pad digit
             case 3:
-                temp_binary += "00";
+                binary.insert(number_pad_posn, 0b00, 2);
                 break; // 0 pad digits
             }
-            temp_binary += binary.substring(number_pad_posn, binary.length());
-            binary = temp_binary;
         }
 
         if (current_mode == gmMode.GM_BYTE) {
@@ -893,20 +836,20 @@ public class GridMatrix extends Symbol {
         /* Add "end of data" character */
         switch (current_mode) {
         case GM_CHINESE:
-            binary += "1111111100000";
+            binary.append(0b1111111100000, 13);
             break; // 8160
         case GM_NUMBER:
-            binary += "1111111010";
+            binary.append(0b1111111010, 10);
             break; // 1018
         case GM_LOWER:
         case GM_UPPER:
-            binary += "11011";
+            binary.append(0b11011, 5);
             break; // 27
         case GM_MIXED:
-            binary += "1111110000";
+            binary.append(0b1111110000, 10);
             break; // 1008
         case GM_BYTE:
-            binary += "0000";
+            binary.append(0b0000, 4);
             break; // 0
         }
 
@@ -915,9 +858,7 @@ public class GridMatrix extends Symbol {
         if (p == 7) {
             p = 0;
         }
-        for (i = 0; i < p; i++) {
-            binary += "0";
-        }
+        binary.append(0, p);
 
         if (binary.length() > 9191) {
             return 1;
@@ -1200,19 +1141,8 @@ public class GridMatrix extends Symbol {
 
     private void addByteCount(int byte_count_posn, int byte_count) {
         /* Add the length indicator for byte encoded blocks */
-        int i;
-        String temp_binary;
-
-        temp_binary = binary.substring(0, byte_count_posn);
-        for (i = 0; i < 9; i++) {
-            if ((byte_count & (0x100 >> i)) != 0) {
-                temp_binary += "0";
-            } else {
-                temp_binary += "1";
-            }
-        }
-        temp_binary += binary.substring(byte_count_posn, binary.length());
-        binary = temp_binary;
+        /* The count is held inverted */
+        binary.insert(byte_count_posn, ~byte_count, 9);
     }
 
     void addShiftCharacter(int shifty) {
@@ -1230,13 +1160,7 @@ public class GridMatrix extends Symbol {
             System.out.printf("SHIFT [%d] ", glyph);
         }
 
-        for (i = 0x20; i > 0; i = i >> 1) {
-            if ((glyph & i) != 0) {
-                binary += "1";
-            } else {
-                binary += "0";
-            }
-        }
+        binary.append(glyph, 6);
     }
 
     private void addErrorCorrection(int data_posn, int layers, int ecc_level) {
@@ -1247,7 +1171,6 @@ public class GridMatrix extends Symbol {
         int[] block = new int[130];
         int[] data_block = new int[115];
         int[] ecc_block = new int[70];
-        ReedSolomon rs = new ReedSolomon();
 
         
         data_cw = gm_data_codewords[((layers - 1) * 5) + (ecc_level - 1)];
@@ -1258,11 +1181,7 @@ public class GridMatrix extends Symbol {
 
         /* Convert from binary sream to 7-bit codewords */
         for (i = 0; i < data_posn; i++) {
-            for (j = 0; j < 7; j++) {
-                if (binary.charAt((i * 7) + j) == '1') {
-                    data[i] += 0x40 >> j;
-                }
-            }
+            data[i] = binary.get(i * 7, 7);
         }
 
         /* Add padding codewords */
@@ -1307,12 +1226,7 @@ public class GridMatrix extends Symbol {
             }
 
             /* Calculate ECC data for this block */
-            rs.init_gf(0x89);
-            rs.init_code(ecc_size, 1);
-            rs.encode(data_size, data_block);
-            for (j = 0; j < ecc_size; j++) {
-                ecc_block[j] = rs.getResult(j);
-            }
+            ReedSolomon.encode(0x89, ecc_size, 1, data_block, data_size, ecc_block);
 
             /* Correct error correction data but in reverse order */
             for (j = 0; j < data_size; j++) {
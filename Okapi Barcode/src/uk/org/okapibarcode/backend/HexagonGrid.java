@@ -0,0 +1,133 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.backend;
+
+import java.awt.geom.Ellipse2D;
+import java.util.ArrayList;
+
+/**
+ * Modules of a MaxiCode symbol with the fixed geometry needed to draw them.
+ * <p>
+ * Every hexagon has the same outline, so only the dark modules are kept,
+ * one bit each, and a renderer places one copy of the outline at the centre
+ * of each of them. Odd rows are offset by half a module to the right. The
+ * bullseye is a set of circles about one centre, alternately dark and light
+ * from the outside in.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+public final class HexagonGrid {
+    /* Outline of a hexagon about its centre, spread a little so that
+     * neighbours touch */
+    private static final double[] VERTEX_X = {
+        0.0, 0.86 * 1.25, 0.86 * 1.25, 0.0, -0.86 * 1.25, -0.86 * 1.25
+    };
+    private static final double[] VERTEX_Y = {
+        1.0 * 1.25, 0.5 * 1.25, -0.5 * 1.25, -1.0 * 1.25, -0.5 * 1.25, 0.5 * 1.25
+    };
+    private static final double[] RING_RADII = {
+        10.85, 8.97, 7.10, 5.22, 3.31, 1.43
+    };
+    private static final double RING_CENTRE_X = 35.76;
+    private static final double RING_CENTRE_Y = 35.60;
+
+    private final BitMatrix modules;
+
+    HexagonGrid(BitMatrix modules) {
+        this.modules = modules;
+    }
+
+    /** Dark modules, by column and row */
+    public BitMatrix getModules() {
+        return modules;
+    }
+
+    /** Horizontal position of the centre of a module */
+    public double getCentreX(int column, int row) {
+        double x = (2.46 * column) + 1.23;
+
+        if ((row & 1) != 0) {
+            x += 1.23;
+        }
+        return x;
+    }
+
+    /** Vertical position of the centre of the modules in a row */
+    public double getCentreY(int row) {
+        return (2.135 * row) + 1.43;
+    }
+
+    /** Horizontal offset of one of the six vertices from a module's centre */
+    public double getVertexX(int vertex) {
+        return VERTEX_X[vertex];
+    }
+
+    /** Vertical offset of one of the six vertices from a module's centre */
+    public double getVertexY(int vertex) {
+        return VERTEX_Y[vertex];
+    }
+
+    public double getRingCentreX() {
+        return RING_CENTRE_X;
+    }
+
+    public double getRingCentreY() {
+        return RING_CENTRE_Y;
+    }
+
+    /** Number of circles in the bullseye */
+    public int getRingCount() {
+        return RING_RADII.length;
+    }
+
+    /** Radius of a circle of the bullseye, largest first */
+    public double getRingRadius(int ring) {
+        return RING_RADII[ring];
+    }
+
+    /** Build a {@link Hexagon} for each dark module, row by row */
+    public ArrayList<Hexagon> toHexagons() {
+        ArrayList<Hexagon> hexagons = new ArrayList<>();
+        Hexagon hex;
+        int x, y;
+
+        for (y = 0; y < modules.getHeight(); y++) {
+            x = modules.nextSetBit(y, 0);
+            while (x < modules.getWidth()) {
+                hex = new Hexagon();
+                hex.setCentre(getCentreX(x, y), getCentreY(y));
+                hexagons.add(hex);
+                x = modules.nextSetBit(y, x + 1);
+            }
+        }
+        return hexagons;
+    }
+
+    /** Build the circles of the bullseye, largest first */
+    public ArrayList<Ellipse2D.Double> toTargets() {
+        ArrayList<Ellipse2D.Double> targets = new ArrayList<>();
+        Ellipse2D.Double circle;
+        int i;
+
+        for (i = 0; i < RING_RADII.length; i++) {
+            circle = new Ellipse2D.Double();
+            circle.setFrameFromCenter(RING_CENTRE_X, RING_CENTRE_Y,
+                    RING_CENTRE_X + RING_RADII[i], RING_CENTRE_Y + RING_RADII[i]);
+            targets.add(circle);
+        }
+        return targets;
+    }
+}
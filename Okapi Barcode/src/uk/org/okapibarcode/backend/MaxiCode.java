@@ -16,7 +16,6 @@
 package uk.org.okapibarcode.backend;
 
 import java.io.UnsupportedEncodingException;
-import java.awt.geom.Ellipse2D;
 
 /**
  * Implements Maxicode According to ISO 16023:2000
@@ -755,19 +754,12 @@ public class MaxiCode extends Symbol {
         int j;
         int datalen = 10;
         int ecclen = 10;
-        ReedSolomon rs = new ReedSolomon();
-
-        rs.init_gf(0x43);
-        rs.init_code(ecclen, 1);
 
         for (j = 0; j < datalen; j += 1) {
             data[j] = maxi_codeword[j];
         }
 
-        rs.encode(datalen, data);
-        for (j = 0; j < ecclen; j++) {
-            results[j] = rs.getResult(j);
-        }
+        ReedSolomon.encode(0x43, ecclen, 1, data, datalen, results);
 
         for (j = 0; j < ecclen; j += 1) {
             maxi_codeword[ datalen + j] = results[ecclen - 1 - j];
@@ -780,10 +772,6 @@ public class MaxiCode extends Symbol {
         int[] results = new int[30];
         int j;
         int datalen = 68;
-        ReedSolomon rs = new ReedSolomon();
-
-        rs.init_gf(0x43);
-        rs.init_code(ecclen, 1);
 
         if (ecclen == 20) {
             datalen = 84;
@@ -795,10 +783,7 @@ public class MaxiCode extends Symbol {
             }
         }
 
-        rs.encode(datalen / 2, data);
-        for (j = 0; j < ecclen; j++) {
-            results[j] = rs.getResult(j);
-        }
+        ReedSolomon.encode(0x43, ecclen, 1, data, datalen / 2, results);
 
         for (j = 0; j < (ecclen); j += 1) {
             maxi_codeword[ datalen + (2 * j) + 1 + 20] = results[ecclen - 1 - j];
@@ -811,65 +796,41 @@ public class MaxiCode extends Symbol {
         int[] results = new int[30];
         int j;
         int datalen = 68;
-        ReedSolomon rs = new ReedSolomon();
 
         if (ecclen == 20) {
             datalen = 84;
         }
 
-        rs.init_gf(0x43);
-        rs.init_code(ecclen, 1);
-
         for (j = 0; j < datalen + 1; j += 1) {
             if ((j & 1) == 0) { // even
                 data[j / 2] = maxi_codeword[j + 20];
             }
         }
 
-        rs.encode(datalen / 2, data);
-        for (j = 0; j < ecclen; j++) {
-            results[j] = rs.getResult(j);
-        }
+        ReedSolomon.encode(0x43, ecclen, 1, data, datalen / 2, results);
 
         for (j = 0; j < (ecclen); j += 1) {
             maxi_codeword[ datalen + (2 * j) + 20] = results[ecclen - 1 - j];
         }
     }
     
+    /**
+     * Keep the modules as a {@link HexagonGrid}. Hexagons and circles are
+     * not created here, they are built from the grid only if a caller asks
+     * for them.
+     */
     @Override
     public void plotSymbol() {
+        BitMatrix modules = new BitMatrix(30, 33);
         int row, col;
-        Hexagon thisHex;
-        Ellipse2D.Double thisEllipse;
-        double x, y;
-        int i;
-        double[] radii = {
-            10.85, 8.97, 7.10, 5.22, 3.31, 1.43
-        };
-        
-        // Hexagons
+
         for (row = 0; row < 33; row++) {
             for (col = 0; col < 30; col++) {
                 if (grid[row][col]) {
-                    thisHex = new Hexagon();
-                    
-                    x = (2.46 * col) + 1.23;
-                    if ((row & 1) != 0) {
-                        x += 1.23;
-                    }
-                    y = (2.135 * row) + 1.43;
-                    
-                    thisHex.setCentre(x, y);
-                    hex.add(thisHex);
+                    modules.set(col, row);
                 }
             }
         }
-        
-        // Circles
-        for (i = 0; i < 6; i++) {
-            thisEllipse = new Ellipse2D.Double();
-            thisEllipse.setFrameFromCenter(35.76, 35.60, 35.76 + radii[i], 35.60 + radii[i]);
-            target.add(thisEllipse);
-        }
+        hexGrid = new HexagonGrid(modules);
     }
 }
@@ -125,244 +125,17 @@ public class Pdf417 extends Symbol {
         63, 310, 863, 251, 366, 304, 282, 738, 675, 410, 389, 244, 31, 121, 303, 263
     };
 
-    private final String[] codagemc = {
-        "urA", "xfs", "ypy", "unk", "xdw", "yoz", "pDA", "uls", "pBk", "eBA",
-            "pAs", "eAk", "prA", "uvs", "xhy", "pnk", "utw", "xgz", "fDA", "pls", "fBk", "frA", "pvs",
-            "uxy", "fnk", "ptw", "uwz", "fls", "psy", "fvs", "pxy", "ftw", "pwz", "fxy", "yrx", "ufk",
-            "xFw", "ymz", "onA", "uds", "xEy", "olk", "ucw", "dBA", "oks", "uci", "dAk", "okg", "dAc",
-            "ovk", "uhw", "xaz", "dnA", "ots", "ugy", "dlk", "osw", "ugj", "dks", "osi", "dvk", "oxw",
-            "uiz", "dts", "owy", "dsw", "owj", "dxw", "oyz", "dwy", "dwj", "ofA", "uFs", "xCy", "odk",
-            "uEw", "xCj", "clA", "ocs", "uEi", "ckk", "ocg", "ckc", "ckE", "cvA", "ohs", "uay", "ctk",
-            "ogw", "uaj", "css", "ogi", "csg", "csa", "cxs", "oiy", "cww", "oij", "cwi", "cyy", "oFk",
-            "uCw", "xBj", "cdA", "oEs", "uCi", "cck", "oEg", "uCb", "ccc", "oEa", "ccE", "oED", "chk",
-            "oaw", "uDj", "cgs", "oai", "cgg", "oab", "cga", "cgD", "obj", "cib", "cFA", "oCs", "uBi",
-            "cEk", "oCg", "uBb", "cEc", "oCa", "cEE", "oCD", "cEC", "cas", "cag", "caa", "cCk", "uAr",
-            "oBa", "oBD", "cCB", "tfk", "wpw", "yez", "mnA", "tds", "woy", "mlk", "tcw", "woj", "FBA",
-            "mks", "FAk", "mvk", "thw", "wqz", "FnA", "mts", "tgy", "Flk", "msw", "Fks", "Fkg", "Fvk",
-            "mxw", "tiz", "Fts", "mwy", "Fsw", "Fsi", "Fxw", "myz", "Fwy", "Fyz", "vfA", "xps", "yuy",
-            "vdk", "xow", "yuj", "qlA", "vcs", "xoi", "qkk", "vcg", "xob", "qkc", "vca", "mfA", "tFs",
-            "wmy", "qvA", "mdk", "tEw", "wmj", "qtk", "vgw", "xqj", "hlA", "Ekk", "mcg", "tEb", "hkk",
-            "qsg", "hkc", "EvA", "mhs", "tay", "hvA", "Etk", "mgw", "taj", "htk", "qww", "vij", "hss",
-            "Esg", "hsg", "Exs", "miy", "hxs", "Eww", "mij", "hww", "qyj", "hwi", "Eyy", "hyy", "Eyj",
-            "hyj", "vFk", "xmw", "ytj", "qdA", "vEs", "xmi", "qck", "vEg", "xmb", "qcc", "vEa", "qcE",
-            "qcC", "mFk", "tCw", "wlj", "qhk", "mEs", "tCi", "gtA", "Eck", "vai", "tCb", "gsk", "Ecc",
-            "mEa", "gsc", "qga", "mED", "EcC", "Ehk", "maw", "tDj", "gxk", "Egs", "mai", "gws", "qii",
-            "mab", "gwg", "Ega", "EgD", "Eiw", "mbj", "gyw", "Eii", "gyi", "Eib", "gyb", "gzj", "qFA",
-            "vCs", "xli", "qEk", "vCg", "xlb", "qEc", "vCa", "qEE", "vCD", "qEC", "qEB", "EFA", "mCs",
-            "tBi", "ghA", "EEk", "mCg", "tBb", "ggk", "qag", "vDb", "ggc", "EEE", "mCD", "ggE", "qaD",
-            "ggC", "Eas", "mDi", "gis", "Eag", "mDb", "gig", "qbb", "gia", "EaD", "giD", "gji", "gjb",
-            "qCk", "vBg", "xkr", "qCc", "vBa", "qCE", "vBD", "qCC", "qCB", "ECk", "mBg", "tAr", "gak",
-            "ECc", "mBa", "gac", "qDa", "mBD", "gaE", "ECC", "gaC", "ECB", "EDg", "gbg", "gba", "gbD",
-            "vAq", "vAn", "qBB", "mAq", "EBE", "gDE", "gDC", "gDB", "lfA", "sps", "wey", "ldk", "sow",
-            "ClA", "lcs", "soi", "Ckk", "lcg", "Ckc", "CkE", "CvA", "lhs", "sqy", "Ctk", "lgw", "sqj",
-            "Css", "lgi", "Csg", "Csa", "Cxs", "liy", "Cww", "lij", "Cwi", "Cyy", "Cyj", "tpk", "wuw",
-            "yhj", "ndA", "tos", "wui", "nck", "tog", "wub", "ncc", "toa", "ncE", "toD", "lFk", "smw",
-            "wdj", "nhk", "lEs", "smi", "atA", "Cck", "tqi", "smb", "ask", "ngg", "lEa", "asc", "CcE",
-            "asE", "Chk", "law", "snj", "axk", "Cgs", "trj", "aws", "nii", "lab", "awg", "Cga", "awa",
-            "Ciw", "lbj", "ayw", "Cii", "ayi", "Cib", "Cjj", "azj", "vpA", "xus", "yxi", "vok", "xug",
-            "yxb", "voc", "xua", "voE", "xuD", "voC", "nFA", "tms", "wti", "rhA", "nEk", "xvi", "wtb",
-            "rgk", "vqg", "xvb", "rgc", "nEE", "tmD", "rgE", "vqD", "nEB", "CFA", "lCs", "sli", "ahA",
-            "CEk", "lCg", "slb", "ixA", "agk", "nag", "tnb", "iwk", "rig", "vrb", "lCD", "iwc", "agE",
-            "naD", "iwE", "CEB", "Cas", "lDi", "ais", "Cag", "lDb", "iys", "aig", "nbb", "iyg", "rjb",
-            "CaD", "aiD", "Cbi", "aji", "Cbb", "izi", "ajb", "vmk", "xtg", "ywr", "vmc", "xta", "vmE",
-            "xtD", "vmC", "vmB", "nCk", "tlg", "wsr", "rak", "nCc", "xtr", "rac", "vna", "tlD", "raE",
-            "nCC", "raC", "nCB", "raB", "CCk", "lBg", "skr", "aak", "CCc", "lBa", "iik", "aac", "nDa",
-            "lBD", "iic", "rba", "CCC", "iiE", "aaC", "CCB", "aaB", "CDg", "lBr", "abg", "CDa", "ijg",
-            "aba", "CDD", "ija", "abD", "CDr", "ijr", "vlc", "xsq", "vlE", "xsn", "vlC", "vlB", "nBc",
-            "tkq", "rDc", "nBE", "tkn", "rDE", "vln", "rDC", "nBB", "rDB", "CBc", "lAq", "aDc", "CBE",
-            "lAn", "ibc", "aDE", "nBn", "ibE", "rDn", "CBB", "ibC", "aDB", "ibB", "aDq", "ibq", "ibn",
-            "xsf", "vkl", "tkf", "nAm", "nAl", "CAo", "aBo", "iDo", "CAl", "aBl", "kpk", "BdA", "kos",
-            "Bck", "kog", "seb", "Bcc", "koa", "BcE", "koD", "Bhk", "kqw", "sfj", "Bgs", "kqi", "Bgg",
-            "kqb", "Bga", "BgD", "Biw", "krj", "Bii", "Bib", "Bjj", "lpA", "sus", "whi", "lok", "sug",
-            "loc", "sua", "loE", "suD", "loC", "BFA", "kms", "sdi", "DhA", "BEk", "svi", "sdb", "Dgk",
-            "lqg", "svb", "Dgc", "BEE", "kmD", "DgE", "lqD", "BEB", "Bas", "kni", "Dis", "Bag", "knb",
-            "Dig", "lrb", "Dia", "BaD", "Bbi", "Dji", "Bbb", "Djb", "tuk", "wxg", "yir", "tuc", "wxa",
-            "tuE", "wxD", "tuC", "tuB", "lmk", "stg", "nqk", "lmc", "sta", "nqc", "tva", "stD", "nqE",
-            "lmC", "nqC", "lmB", "nqB", "BCk", "klg", "Dak", "BCc", "str", "bik", "Dac", "lna", "klD",
-            "bic", "nra", "BCC", "biE", "DaC", "BCB", "DaB", "BDg", "klr", "Dbg", "BDa", "bjg", "Dba",
-            "BDD", "bja", "DbD", "BDr", "Dbr", "bjr", "xxc", "yyq", "xxE", "yyn", "xxC", "xxB", "ttc",
-            "wwq", "vvc", "xxq", "wwn", "vvE", "xxn", "vvC", "ttB", "vvB", "llc", "ssq", "nnc", "llE",
-            "ssn", "rrc", "nnE", "ttn", "rrE", "vvn", "llB", "rrC", "nnB", "rrB", "BBc", "kkq", "DDc",
-            "BBE", "kkn", "bbc", "DDE", "lln", "jjc", "bbE", "nnn", "BBB", "jjE", "rrn", "DDB", "jjC",
-            "BBq", "DDq", "BBn", "bbq", "DDn", "jjq", "bbn", "jjn", "xwo", "yyf", "xwm", "xwl", "tso",
-            "wwf", "vto", "xwv", "vtm", "tsl", "vtl", "lko", "ssf", "nlo", "lkm", "rno", "nlm", "lkl",
-            "rnm", "nll", "rnl", "BAo", "kkf", "DBo", "lkv", "bDo", "DBm", "BAl", "jbo", "bDm", "DBl",
-            "jbm", "bDl", "jbl", "DBv", "jbv", "xwd", "vsu", "vst", "nku", "rlu", "rlt", "DAu", "bBu",
-            "jDu", "jDt", "ApA", "Aok", "keg", "Aoc", "AoE", "AoC", "Aqs", "Aqg", "Aqa", "AqD", "Ari",
-            "Arb", "kuk", "kuc", "sha", "kuE", "shD", "kuC", "kuB", "Amk", "kdg", "Bqk", "kvg", "kda",
-            "Bqc", "kva", "BqE", "kvD", "BqC", "AmB", "BqB", "Ang", "kdr", "Brg", "kvr", "Bra", "AnD",
-            "BrD", "Anr", "Brr", "sxc", "sxE", "sxC", "sxB", "ktc", "lvc", "sxq", "sgn", "lvE", "sxn",
-            "lvC", "ktB", "lvB", "Alc", "Bnc", "AlE", "kcn", "Drc", "BnE", "AlC", "DrE", "BnC", "AlB",
-            "DrC", "BnB", "Alq", "Bnq", "Aln", "Drq", "Bnn", "Drn", "wyo", "wym", "wyl", "swo", "txo",
-            "wyv", "txm", "swl", "txl", "kso", "sgf", "lto", "swv", "nvo", "ltm", "ksl", "nvm", "ltl",
-            "nvl", "Ako", "kcf", "Blo", "ksv", "Dno", "Blm", "Akl", "bro", "Dnm", "Bll", "brm", "Dnl",
-            "Akv", "Blv", "Dnv", "brv", "yze", "yzd", "wye", "xyu", "wyd", "xyt", "swe", "twu", "swd",
-            "vxu", "twt", "vxt", "kse", "lsu", "ksd", "ntu", "lst", "rvu", "ypk", "zew", "xdA", "yos",
-            "zei", "xck", "yog", "zeb", "xcc", "yoa", "xcE", "yoD", "xcC", "xhk", "yqw", "zfj", "utA",
-            "xgs", "yqi", "usk", "xgg", "yqb", "usc", "xga", "usE", "xgD", "usC", "uxk", "xiw", "yrj",
-            "ptA", "uws", "xii", "psk", "uwg", "xib", "psc", "uwa", "psE", "uwD", "psC", "pxk", "uyw",
-            "xjj", "ftA", "pws", "uyi", "fsk", "pwg", "uyb", "fsc", "pwa", "fsE", "pwD", "fxk", "pyw",
-            "uzj", "fws", "pyi", "fwg", "pyb", "fwa", "fyw", "pzj", "fyi", "fyb", "xFA", "yms", "zdi",
-            "xEk", "ymg", "zdb", "xEc", "yma", "xEE", "ymD", "xEC", "xEB", "uhA", "xas", "yni", "ugk",
-            "xag", "ynb", "ugc", "xaa", "ugE", "xaD", "ugC", "ugB", "oxA", "uis", "xbi", "owk", "uig",
-            "xbb", "owc", "uia", "owE", "uiD", "owC", "owB", "dxA", "oys", "uji", "dwk", "oyg", "ujb",
-            "dwc", "oya", "dwE", "oyD", "dwC", "dys", "ozi", "dyg", "ozb", "dya", "dyD", "dzi", "dzb",
-            "xCk", "ylg", "zcr", "xCc", "yla", "xCE", "ylD", "xCC", "xCB", "uak", "xDg", "ylr", "uac",
-            "xDa", "uaE", "xDD", "uaC", "uaB", "oik", "ubg", "xDr", "oic", "uba", "oiE", "ubD", "oiC",
-            "oiB", "cyk", "ojg", "ubr", "cyc", "oja", "cyE", "ojD", "cyC", "cyB", "czg", "ojr", "cza",
-            "czD", "czr", "xBc", "ykq", "xBE", "ykn", "xBC", "xBB", "uDc", "xBq", "uDE", "xBn", "uDC",
-            "uDB", "obc", "uDq", "obE", "uDn", "obC", "obB", "cjc", "obq", "cjE", "obn", "cjC", "cjB",
-            "cjq", "cjn", "xAo", "ykf", "xAm", "xAl", "uBo", "xAv", "uBm", "uBl", "oDo", "uBv", "oDm",
-            "oDl", "cbo", "oDv", "cbm", "cbl", "xAe", "xAd", "uAu", "uAt", "oBu", "oBt", "wpA", "yes",
-            "zFi", "wok", "yeg", "zFb", "woc", "yea", "woE", "yeD", "woC", "woB", "thA", "wqs", "yfi",
-            "tgk", "wqg", "yfb", "tgc", "wqa", "tgE", "wqD", "tgC", "tgB", "mxA", "tis", "wri", "mwk",
-            "tig", "wrb", "mwc", "tia", "mwE", "tiD", "mwC", "mwB", "FxA", "mys", "tji", "Fwk", "myg",
-            "tjb", "Fwc", "mya", "FwE", "myD", "FwC", "Fys", "mzi", "Fyg", "mzb", "Fya", "FyD", "Fzi",
-            "Fzb", "yuk", "zhg", "hjs", "yuc", "zha", "hbw", "yuE", "zhD", "hDy", "yuC", "yuB", "wmk",
-            "ydg", "zEr", "xqk", "wmc", "zhr", "xqc", "yva", "ydD", "xqE", "wmC", "xqC", "wmB", "xqB",
-            "tak", "wng", "ydr", "vik", "tac", "wna", "vic", "xra", "wnD", "viE", "taC", "viC", "taB",
-            "viB", "mik", "tbg", "wnr", "qyk", "mic", "tba", "qyc", "vja", "tbD", "qyE", "miC", "qyC",
-            "miB", "qyB", "Eyk", "mjg", "tbr", "hyk", "Eyc", "mja", "hyc", "qza", "mjD", "hyE", "EyC",
-            "hyC", "EyB", "Ezg", "mjr", "hzg", "Eza", "hza", "EzD", "hzD", "Ezr", "ytc", "zgq", "grw",
-            "ytE", "zgn", "gny", "ytC", "glz", "ytB", "wlc", "ycq", "xnc", "wlE", "ycn", "xnE", "ytn",
-            "xnC", "wlB", "xnB", "tDc", "wlq", "vbc", "tDE", "wln", "vbE", "xnn", "vbC", "tDB", "vbB",
-            "mbc", "tDq", "qjc", "mbE", "tDn", "qjE", "vbn", "qjC", "mbB", "qjB", "Ejc", "mbq", "gzc",
-            "EjE", "mbn", "gzE", "qjn", "gzC", "EjB", "gzB", "Ejq", "gzq", "Ejn", "gzn", "yso", "zgf",
-            "gfy", "ysm", "gdz", "ysl", "wko", "ycf", "xlo", "ysv", "xlm", "wkl", "xll", "tBo", "wkv",
-            "vDo", "tBm", "vDm", "tBl", "vDl", "mDo", "tBv", "qbo", "vDv", "qbm", "mDl", "qbl", "Ebo",
-            "mDv", "gjo", "Ebm", "gjm", "Ebl", "gjl", "Ebv", "gjv", "yse", "gFz", "ysd", "wke", "xku",
-            "wkd", "xkt", "tAu", "vBu", "tAt", "vBt", "mBu", "qDu", "mBt", "qDt", "EDu", "gbu", "EDt",
-            "gbt", "ysF", "wkF", "xkh", "tAh", "vAx", "mAx", "qBx", "wek", "yFg", "zCr", "wec", "yFa",
-            "weE", "yFD", "weC", "weB", "sqk", "wfg", "yFr", "sqc", "wfa", "sqE", "wfD", "sqC", "sqB",
-            "lik", "srg", "wfr", "lic", "sra", "liE", "srD", "liC", "liB", "Cyk", "ljg", "srr", "Cyc",
-            "lja", "CyE", "ljD", "CyC", "CyB", "Czg", "ljr", "Cza", "CzD", "Czr", "yhc", "zaq", "arw",
-            "yhE", "zan", "any", "yhC", "alz", "yhB", "wdc", "yEq", "wvc", "wdE", "yEn", "wvE", "yhn",
-            "wvC", "wdB", "wvB", "snc", "wdq", "trc", "snE", "wdn", "trE", "wvn", "trC", "snB", "trB",
-            "lbc", "snq", "njc", "lbE", "snn", "njE", "trn", "njC", "lbB", "njB", "Cjc", "lbq", "azc",
-            "CjE", "lbn", "azE", "njn", "azC", "CjB", "azB", "Cjq", "azq", "Cjn", "azn", "zio", "irs",
-            "rfy", "zim", "inw", "rdz", "zil", "ily", "ikz", "ygo", "zaf", "afy", "yxo", "ziv", "ivy",
-            "adz", "yxm", "ygl", "itz", "yxl", "wco", "yEf", "wto", "wcm", "xvo", "yxv", "wcl", "xvm",
-            "wtl", "xvl", "slo", "wcv", "tno", "slm", "vro", "tnm", "sll", "vrm", "tnl", "vrl", "lDo",
-            "slv", "nbo", "lDm", "rjo", "nbm", "lDl", "rjm", "nbl", "rjl", "Cbo", "lDv", "ajo", "Cbm",
-            "izo", "ajm", "Cbl", "izm", "ajl", "izl", "Cbv", "ajv", "zie", "ifw", "rFz", "zid", "idy",
-            "icz", "yge", "aFz", "ywu", "ygd", "ihz", "ywt", "wce", "wsu", "wcd", "xtu", "wst", "xtt",
-            "sku", "tlu", "skt", "vnu", "tlt", "vnt", "lBu", "nDu", "lBt", "rbu", "nDt", "rbt", "CDu",
-            "abu", "CDt", "iju", "abt", "ijt", "ziF", "iFy", "iEz", "ygF", "ywh", "wcF", "wsh", "xsx",
-            "skh", "tkx", "vlx", "lAx", "nBx", "rDx", "CBx", "aDx", "ibx", "iCz", "wFc", "yCq", "wFE",
-            "yCn", "wFC", "wFB", "sfc", "wFq", "sfE", "wFn", "sfC", "sfB", "krc", "sfq", "krE", "sfn",
-            "krC", "krB", "Bjc", "krq", "BjE", "krn", "BjC", "BjB", "Bjq", "Bjn", "yao", "zDf", "Dfy",
-            "yam", "Ddz", "yal", "wEo", "yCf", "who", "wEm", "whm", "wEl", "whl", "sdo", "wEv", "svo",
-            "sdm", "svm", "sdl", "svl", "kno", "sdv", "lro", "knm", "lrm", "knl", "lrl", "Bbo", "knv",
-            "Djo", "Bbm", "Djm", "Bbl", "Djl", "Bbv", "Djv", "zbe", "bfw", "npz", "zbd", "bdy", "bcz",
-            "yae", "DFz", "yiu", "yad", "bhz", "yit", "wEe", "wgu", "wEd", "wxu", "wgt", "wxt", "scu",
-            "stu", "sct", "tvu", "stt", "tvt", "klu", "lnu", "klt", "nru", "lnt", "nrt", "BDu", "Dbu",
-            "BDt", "bju", "Dbt", "bjt", "jfs", "rpy", "jdw", "roz", "jcy", "jcj", "zbF", "bFy", "zjh",
-            "jhy", "bEz", "jgz", "yaF", "yih", "yyx", "wEF", "wgh", "wwx", "xxx", "sch", "ssx", "ttx",
-            "vvx", "kkx", "llx", "nnx", "rrx", "BBx", "DDx", "bbx", "jFw", "rmz", "jEy", "jEj", "bCz",
-            "jaz", "jCy", "jCj", "jBj", "wCo", "wCm", "wCl", "sFo", "wCv", "sFm", "sFl", "kfo", "sFv",
-            "kfm", "kfl", "Aro", "kfv", "Arm", "Arl", "Arv", "yDe", "Bpz", "yDd", "wCe", "wau", "wCd",
-            "wat", "sEu", "shu", "sEt", "sht", "kdu", "kvu", "kdt", "kvt", "Anu", "Bru", "Ant", "Brt",
-            "zDp", "Dpy", "Doz", "yDF", "ybh", "wCF", "wah", "wix", "sEh", "sgx", "sxx", "kcx", "ktx",
-            "lvx", "Alx", "Bnx", "Drx", "bpw", "nuz", "boy", "boj", "Dmz", "bqz", "jps", "ruy", "jow",
-            "ruj", "joi", "job", "bmy", "jqy", "bmj", "jqj", "jmw", "rtj", "jmi", "jmb", "blj", "jnj",
-            "jli", "jlb", "jkr", "sCu", "sCt", "kFu", "kFt", "Afu", "Aft", "wDh", "sCh", "sax", "kEx",
-            "khx", "Adx", "Avx", "Buz", "Duy", "Duj", "buw", "nxj", "bui", "bub", "Dtj", "bvj", "jus",
-            "rxi", "jug", "rxb", "jua", "juD", "bti", "jvi", "btb", "jvb", "jtg", "rwr", "jta", "jtD",
-            "bsr", "jtr", "jsq", "jsn", "Bxj", "Dxi", "Dxb", "bxg", "nyr", "bxa", "bxD", "Dwr", "bxr",
-            "bwq", "bwn", "pjk", "urw", "ejA", "pbs", "uny", "ebk", "pDw", "ulz", "eDs", "pBy", "eBw",
-            "zfc", "fjk", "prw", "zfE", "fbs", "pny", "zfC", "fDw", "plz", "zfB", "fBy", "yrc", "zfq",
-            "frw", "yrE", "zfn", "fny", "yrC", "flz", "yrB", "xjc", "yrq", "xjE", "yrn", "xjC", "xjB",
-            "uzc", "xjq", "uzE", "xjn", "uzC", "uzB", "pzc", "uzq", "pzE", "uzn", "pzC", "djA", "ors",
-            "ufy", "dbk", "onw", "udz", "dDs", "oly", "dBw", "okz", "dAy", "zdo", "drs", "ovy", "zdm",
-            "dnw", "otz", "zdl", "dly", "dkz", "yno", "zdv", "dvy", "ynm", "dtz", "ynl", "xbo", "ynv",
-            "xbm", "xbl", "ujo", "xbv", "ujm", "ujl", "ozo", "ujv", "ozm", "ozl", "crk", "ofw", "uFz",
-            "cns", "ody", "clw", "ocz", "cky", "ckj", "zcu", "cvw", "ohz", "zct", "cty", "csz", "ylu",
-            "cxz", "ylt", "xDu", "xDt", "ubu", "ubt", "oju", "ojt", "cfs", "oFy", "cdw", "oEz", "ccy",
-            "ccj", "zch", "chy", "cgz", "ykx", "xBx", "uDx", "cFw", "oCz", "cEy", "cEj", "caz", "cCy",
-            "cCj", "FjA", "mrs", "tfy", "Fbk", "mnw", "tdz", "FDs", "mly", "FBw", "mkz", "FAy", "zFo",
-            "Frs", "mvy", "zFm", "Fnw", "mtz", "zFl", "Fly", "Fkz", "yfo", "zFv", "Fvy", "yfm", "Ftz",
-            "yfl", "wro", "yfv", "wrm", "wrl", "tjo", "wrv", "tjm", "tjl", "mzo", "tjv", "mzm", "mzl",
-            "qrk", "vfw", "xpz", "hbA", "qns", "vdy", "hDk", "qlw", "vcz", "hBs", "qky", "hAw", "qkj",
-            "hAi", "Erk", "mfw", "tFz", "hrk", "Ens", "mdy", "hns", "qty", "mcz", "hlw", "Eky", "hky",
-            "Ekj", "hkj", "zEu", "Evw", "mhz", "zhu", "zEt", "hvw", "Ety", "zht", "hty", "Esz", "hsz",
-            "ydu", "Exz", "yvu", "ydt", "hxz", "yvt", "wnu", "xru", "wnt", "xrt", "tbu", "vju", "tbt",
-            "vjt", "mju", "mjt", "grA", "qfs", "vFy", "gnk", "qdw", "vEz", "gls", "qcy", "gkw", "qcj",
-            "gki", "gkb", "Efs", "mFy", "gvs", "Edw", "mEz", "gtw", "qgz", "gsy", "Ecj", "gsj", "zEh",
-            "Ehy", "zgx", "gxy", "Egz", "gwz", "ycx", "ytx", "wlx", "xnx", "tDx", "vbx", "mbx", "gfk",
-            "qFw", "vCz", "gds", "qEy", "gcw", "qEj", "gci", "gcb", "EFw", "mCz", "ghw", "EEy", "ggy",
-            "EEj", "ggj", "Eaz", "giz", "gFs", "qCy", "gEw", "qCj", "gEi", "gEb", "ECy", "gay", "ECj",
-            "gaj", "gCw", "qBj", "gCi", "gCb", "EBj", "gDj", "gBi", "gBb", "Crk", "lfw", "spz", "Cns",
-            "ldy", "Clw", "lcz", "Cky", "Ckj", "zCu", "Cvw", "lhz", "zCt", "Cty", "Csz", "yFu", "Cxz",
-            "yFt", "wfu", "wft", "sru", "srt", "lju", "ljt", "arA", "nfs", "tpy", "ank", "ndw", "toz",
-            "als", "ncy", "akw", "ncj", "aki", "akb", "Cfs", "lFy", "avs", "Cdw", "lEz", "atw", "ngz",
-            "asy", "Ccj", "asj", "zCh", "Chy", "zax", "axy", "Cgz", "awz", "yEx", "yhx", "wdx", "wvx",
-            "snx", "trx", "lbx", "rfk", "vpw", "xuz", "inA", "rds", "voy", "ilk", "rcw", "voj", "iks",
-            "rci", "ikg", "rcb", "ika", "afk", "nFw", "tmz", "ivk", "ads", "nEy", "its", "rgy", "nEj",
-            "isw", "aci", "isi", "acb", "isb", "CFw", "lCz", "ahw", "CEy", "ixw", "agy", "CEj", "iwy",
-            "agj", "iwj", "Caz", "aiz", "iyz", "ifA", "rFs", "vmy", "idk", "rEw", "vmj", "ics", "rEi",
-            "icg", "rEb", "ica", "icD", "aFs", "nCy", "ihs", "aEw", "nCj", "igw", "raj", "igi", "aEb",
-            "igb", "CCy", "aay", "CCj", "iiy", "aaj", "iij", "iFk", "rCw", "vlj", "iEs", "rCi", "iEg",
-            "rCb", "iEa", "iED", "aCw", "nBj", "iaw", "aCi", "iai", "aCb", "iab", "CBj", "aDj", "ibj",
-            "iCs", "rBi", "iCg", "rBb", "iCa", "iCD", "aBi", "iDi", "aBb", "iDb", "iBg", "rAr", "iBa",
-            "iBD", "aAr", "iBr", "iAq", "iAn", "Bfs", "kpy", "Bdw", "koz", "Bcy", "Bcj", "Bhy", "Bgz",
-            "yCx", "wFx", "sfx", "krx", "Dfk", "lpw", "suz", "Dds", "loy", "Dcw", "loj", "Dci", "Dcb",
-            "BFw", "kmz", "Dhw", "BEy", "Dgy", "BEj", "Dgj", "Baz", "Diz", "bfA", "nps", "tuy", "bdk",
-            "now", "tuj", "bcs", "noi", "bcg", "nob", "bca", "bcD", "DFs", "lmy", "bhs", "DEw", "lmj",
-            "bgw", "DEi", "bgi", "DEb", "bgb", "BCy", "Day", "BCj", "biy", "Daj", "bij", "rpk", "vuw",
-            "xxj", "jdA", "ros", "vui", "jck", "rog", "vub", "jcc", "roa", "jcE", "roD", "jcC", "bFk",
-            "nmw", "ttj", "jhk", "bEs", "nmi", "jgs", "rqi", "nmb", "jgg", "bEa", "jga", "bED", "jgD",
-            "DCw", "llj", "baw", "DCi", "jiw", "bai", "DCb", "jii", "bab", "jib", "BBj", "DDj", "bbj",
-            "jjj", "jFA", "rms", "vti", "jEk", "rmg", "vtb", "jEc", "rma", "jEE", "rmD", "jEC", "jEB",
-            "bCs", "nli", "jas", "bCg", "nlb", "jag", "rnb", "jaa", "bCD", "jaD", "DBi", "bDi", "DBb",
-            "jbi", "bDb", "jbb", "jCk", "rlg", "vsr", "jCc", "rla", "jCE", "rlD", "jCC", "jCB", "bBg",
-            "nkr", "jDg", "bBa", "jDa", "bBD", "jDD", "DAr", "bBr", "jDr", "jBc", "rkq", "jBE", "rkn",
-            "jBC", "jBB", "bAq", "jBq", "bAn", "jBn", "jAo", "rkf", "jAm", "jAl", "bAf", "jAv", "Apw",
-            "kez", "Aoy", "Aoj", "Aqz", "Bps", "kuy", "Bow", "kuj", "Boi", "Bob", "Amy", "Bqy", "Amj",
-            "Bqj", "Dpk", "luw", "sxj", "Dos", "lui", "Dog", "lub", "Doa", "DoD", "Bmw", "ktj", "Dqw",
-            "Bmi", "Dqi", "Bmb", "Dqb", "Alj", "Bnj", "Drj", "bpA", "nus", "txi", "bok", "nug", "txb",
-            "boc", "nua", "boE", "nuD", "boC", "boB", "Dms", "lti", "bqs", "Dmg", "ltb", "bqg", "nvb",
-            "bqa", "DmD", "bqD", "Bli", "Dni", "Blb", "bri", "Dnb", "brb", "ruk", "vxg", "xyr", "ruc",
-            "vxa", "ruE", "vxD", "ruC", "ruB", "bmk", "ntg", "twr", "jqk", "bmc", "nta", "jqc", "rva",
-            "ntD", "jqE", "bmC", "jqC", "bmB", "jqB", "Dlg", "lsr", "bng", "Dla", "jrg", "bna", "DlD",
-            "jra", "bnD", "jrD", "Bkr", "Dlr", "bnr", "jrr", "rtc", "vwq", "rtE", "vwn", "rtC", "rtB",
-            "blc", "nsq", "jnc", "blE", "nsn", "jnE", "rtn", "jnC", "blB", "jnB", "Dkq", "blq", "Dkn",
-            "jnq", "bln", "jnn", "rso", "vwf", "rsm", "rsl", "bko", "nsf", "jlo", "bkm", "jlm", "bkl",
-            "jll", "Dkf", "bkv", "jlv", "rse", "rsd", "bke", "jku", "bkd", "jkt", "Aey", "Aej", "Auw",
-            "khj", "Aui", "Aub", "Adj", "Avj", "Bus", "kxi", "Bug", "kxb", "Bua", "BuD", "Ati", "Bvi",
-            "Atb", "Bvb", "Duk", "lxg", "syr", "Duc", "lxa", "DuE", "lxD", "DuC", "DuB", "Btg", "kwr",
-            "Dvg", "lxr", "Dva", "BtD", "DvD", "Asr", "Btr", "Dvr", "nxc", "tyq", "nxE", "tyn", "nxC",
-            "nxB", "Dtc", "lwq", "bvc", "nxq", "lwn", "bvE", "DtC", "bvC", "DtB", "bvB", "Bsq", "Dtq",
-            "Bsn", "bvq", "Dtn", "bvn", "vyo", "xzf", "vym", "vyl", "nwo", "tyf", "rxo", "nwm", "rxm",
-            "nwl", "rxl", "Dso", "lwf", "bto", "Dsm", "jvo", "btm", "Dsl", "jvm", "btl", "jvl", "Bsf",
-            "Dsv", "btv", "jvv", "vye", "vyd", "nwe", "rwu", "nwd", "rwt", "Dse", "bsu", "Dsd", "jtu",
-            "bst", "jtt", "vyF", "nwF", "rwh", "DsF", "bsh", "jsx", "Ahi", "Ahb", "Axg", "kir", "Axa",
-            "AxD", "Agr", "Axr", "Bxc", "kyq", "BxE", "kyn", "BxC", "BxB", "Awq", "Bxq", "Awn", "Bxn",
-            "lyo", "szf", "lym", "lyl", "Bwo", "kyf", "Dxo", "lyv", "Dxm", "Bwl", "Dxl", "Awf", "Bwv",
-            "Dxv", "tze", "tzd", "lye", "nyu", "lyd", "nyt", "Bwe", "Dwu", "Bwd", "bxu", "Dwt", "bxt",
-            "tzF", "lyF", "nyh", "BwF", "Dwh", "bwx", "Aiq", "Ain", "Ayo", "kjf", "Aym", "Ayl", "Aif",
-            "Ayv", "kze", "kzd", "Aye", "Byu", "Ayd", "Byt", "szp"
-    };
-
-    private final char[] brSet = {
-        'A', 'B', 'C', 'D', 'E', 'F', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm',
-            'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '*', '+', '-'
-    };
-
-    private final String[] PDFttf = {
-        "00000", "00001", "00010", "00011", "00100", "00101", "00110", "00111",
-            "01000", "01001", "01010", "01011", "01100", "01101", "01110", "01111", "10000", "10001",
-            "10010", "10011", "10100", "10101", "10110", "10111", "11000", "11001", "11010",
-            "11011", "11100", "11101", "11110", "11111", "01", "1111111101010100", "11111101000101001"
-    };
-
-    private final int[] asciix = {
+    /* Text Compaction sub-modes holding each character from space to '~',
+     * as a mask of 1 for Alpha, 2 for Lower, 4 for Mixed and 8 for
+     * Punctuation, and the value of the character in them */
+    static final int[] asciix = {
         7, 8, 8, 4, 12, 4, 4, 8, 8, 8, 12, 4, 12, 12, 12, 12, 4, 4, 4, 4, 4, 4, 4, 4,
         4, 4, 12, 8, 8, 4, 8, 8, 8, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
         1, 1, 1, 1, 8, 8, 8, 4, 8, 8, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2,
         2, 2, 2, 2, 8, 8, 8, 8
     };
 
-    private final int[] asciiy = {
+    static final int[] asciiy = {
         26, 10, 20, 15, 18, 21, 10, 28, 23, 24, 22, 20, 13, 16, 17, 19, 0, 1, 2, 3,
         4, 5, 6, 7, 8, 9, 14, 0, 1, 23, 2, 25, 3, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
         16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 4, 5, 6, 24, 7, 8, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10,
@@ -388,22 +161,6 @@ private final int[] RAPTable =
 	9, 8, 36, 19, 17, 33, 1, 9, 8, 36, 19, 17, 35, 1, 7, 15, 25, 37, 33, 17, 37, 47, 49, 43, 1, 7, 15, 25, 37, 33, 17, 37, 47, 49,
 	0, 3, 6, 0, 6, 0, 0, 0, 3, 6, 0, 6, 6, 0, 0, 6, 0, 0, 0, 0, 6, 6, 0, 3, 0, 0, 6, 0, 0, 0, 0, 6, 6, 0 };
 
-/* Left and Right Row Address Pattern from Table 2 */
-private final String[] RAPLR = {"", "221311", "311311", "312211", "222211", "213211", "214111", "223111",
-	"313111", "322111", "412111", "421111", "331111", "241111", "232111", "231211", "321211",
-	"411211", "411121", "411112", "321112", "312112", "311212", "311221", "311131", "311122",
-	"311113", "221113", "221122", "221131", "221221", "222121", "312121", "321121", "231121",
-	"231112", "222112", "213112", "212212", "212221", "212131", "212122", "212113", "211213",
-	"211123", "211132", "211141", "211231", "211222", "211312", "211321", "211411", "212311" };
-
-/* Centre Row Address Pattern from Table 2 */
-private final String[] RAPC = {"", "112231", "121231", "122131", "131131", "131221", "132121", "141121",
-	"141211", "142111", "133111", "132211", "131311", "122311", "123211", "124111", "115111",
-	"114211", "114121", "123121", "123112", "122212", "122221", "121321", "121411", "112411",
-	"113311", "113221", "113212", "113122", "122122", "131122", "131113", "122113", "113113",
-	"112213", "112222", "112312", "112321", "111421", "111331", "111322", "111232", "111223",
-	"111133", "111124", "111214", "112114", "121114", "121123", "121132", "112132", "112141" };
-    
 /* MicroPDF417 coefficients from ISO/IEC 24728:2006 Annex F */
 private final int[] Microcoeffs = {
 	/* k = 7 */
@@ -525,96 +282,70 @@ private final int[] Microcoeffs = {
         int total;
         int c1, c2, c3;
         int[] dummy = new int[35];
-        String codebarre;
         int length = content.length();
-        pdfEncodingMode currentEncodingMode;
         int selectedECCLevel, selectedSymbolWidth;
-        String bin;
-
-        blockIndex = 0;
-        blockCount = 0;
-
-        currentEncodingMode = chooseMode(inputData[blockCount]);
-
-        for (i = 0; i < 1000; i++) {
-            blockLength[i] = 0;
-        }
-
-        do {
-            blockType[blockIndex] = currentEncodingMode;
-            while ((blockType[blockIndex] == currentEncodingMode) && (blockCount < length)) {
-                blockLength[blockIndex]++;
-                blockCount++;
-                if(blockCount < length) {
-                    currentEncodingMode = chooseMode(inputData[blockCount]);
-                }
-            }
-            blockIndex++;
-        } while (blockCount < length);
-        
-        /* Watch for numeric blocks longer than 44 characters */
-        for (i = 0; i < blockIndex; i++) {
-            if ((blockType[i] == pdfEncodingMode.NUM) && (blockLength[i] > 44)) {
-                for(j = blockIndex + 1; j > (i + 1); j--) {
-                    blockType[j] = blockType[j - 1];
-                    blockLength[j] = blockLength[j - 1];
+        Pdf417Rows rowBits;
+
+        if (!(optimize)) {
+            /* The planner makes its own choices, and has no limit on the
+             * number of mode changes */
+            splitBlocks(length);
+
+            if (debug) {
+                System.out.printf("Initial block pattern:\n");
+                for (i = 0; i < blockIndex; i++) {
+                    System.out.printf("Len: %d  Type: ", blockLength[i]);
+                    switch (blockType[i]) {
+                    case TEX:
+                        System.out.printf("Text\n");
+                        break;
+                    case BYT:
+                        System.out.printf("Byte\n");
+                        break;
+                    case NUM:
+                        System.out.printf("Number\n");
+                        break;
+                    default:
+                        System.out.printf("ERROR\n");
+                        break;
+                    }
                 }
-                blockType[i + 1] = blockType[i];
-                blockLength[i + 1] = blockLength[i] - 44;
-                blockLength[i] = 44;
-                blockIndex++;
             }
         }
 
-        pdfsmooth();
+        /* now compress the data */
+        blockCount = 0;
+        codeWordCount = 0;
+        
+        if (readerInit) {
+            codeWords[codeWordCount] = 921; /* Reader Initialisation */
+            codeWordCount++;
+        }
         
-        if (debug) {
-            System.out.printf("Initial block pattern:\n");
+        if (optimize) {
+            if (!(optimalprocess(length))) {
+                error_msg = "Input data too big";
+                return false;
+            }
+        } else {
             for (i = 0; i < blockIndex; i++) {
-                System.out.printf("Len: %d  Type: ", blockLength[i]);
                 switch (blockType[i]) {
                 case TEX:
-                    System.out.printf("Text\n");
+                    /* text mode */
+                    textprocess(blockCount, blockLength[i]);
                     break;
                 case BYT:
-                    System.out.printf("Byte\n");
+                    /* octet stream mode */
+                    byteprocess(blockCount, blockLength[i]);
                     break;
                 case NUM:
-                    System.out.printf("Number\n");
-                    break;
-                default:
-                    System.out.printf("ERROR\n");
+                    /* numeric mode */
+                    numbprocess(blockCount, blockLength[i]);
                     break;
                 }
+                blockCount = blockCount + blockLength[i];
             }
         }
-
-        /* now compress the data */
-        blockCount = 0;
-        codeWordCount = 0;
-        
-        if (readerInit) {
-            codeWords[codeWordCount] = 921; /* Reader Initialisation */
-            codeWordCount++;
-        }
-        
-        for (i = 0; i < blockIndex; i++) {
-            switch (blockType[i]) {
-            case TEX:
-                /* text mode */
-                textprocess(blockCount, blockLength[i]);
-                break;
-            case BYT:
-                /* octet stream mode */
-                byteprocess(blockCount, blockLength[i]);
-                break;
-            case NUM:
-                /* numeric mode */
-                numbprocess(blockCount, blockLength[i]);
-                break;
-            }
-            blockCount = blockCount + blockLength[i];
-        }
         
         if(debug) {
 		System.out.printf("\nCompressed data stream:\n");
@@ -764,11 +495,12 @@ private final int[] Microcoeffs = {
         pattern = new String[codeWordCount / selectedSymbolWidth];
         row_count = codeWordCount / selectedSymbolWidth;
         row_height = new int[codeWordCount / selectedSymbolWidth];
+        rowBits = new Pdf417Rows(row_count, selectedSymbolWidth);
         
         encodeInfo += "Grid Size: " + selectedSymbolWidth + " X " + row_count + "\n";
         
         if(debug) {
-            System.out.println("Zebu equivalent:");
+            System.out.println("Row patterns:");
         }
 
         /* we now encode each row */
@@ -791,37 +523,23 @@ private final int[] Microcoeffs = {
                 dummy[selectedSymbolWidth + 1] = k + c2;
                 break;
             }
-            codebarre = "+*";
+            rowBits.startRow(i);
+            rowBits.addStart();
             for (j = 0; j <= selectedSymbolWidth + 1; j++) {
-                switch (i % 3) {
-                case 1:
-                    offset = 929; /* cluster(3) */
-                    break;
-                case 2:
-                    offset = 1858; /* cluster(6) */
-                    break;
-                default:
-                    offset = 0; /* cluster(0) */
-                    break;
-                }
                 if (!((symbolMode == pdfMode.TRUNCATED) && (j > selectedSymbolWidth))) {
-                    codebarre += codagemc[offset + dummy[j]];
-                    codebarre += "*";
+                    rowBits.addCodeword(i % 3, dummy[j]);
                 }
             }
             if(symbolMode != pdfMode.TRUNCATED) {
-                codebarre += "-";
-            }
-            
-            bin = "";
-            for (j = 0; j < codebarre.length(); j++) {
-                bin += PDFttf[positionOf(codebarre.charAt(j), brSet)];
+                rowBits.addStop();
+            } else {
+                rowBits.addBar();
             }
-            
+            pattern[i] = rowBits.widths();
+
             if(debug) {
-                System.out.println("   " + codebarre);
+                System.out.println("   " + pattern[i]);
             }
-            pattern[i] = bin2pat(bin);
             row_height[i] = 3;
         }
         return true;
@@ -832,68 +550,31 @@ private final int[] Microcoeffs = {
 	int i, k, j, blockCount, longueur, offset;
 	int total;
 	int variant, LeftRAPStart, CentreRAPStart, RightRAPStart, StartCluster;
-	int LeftRAP, CentreRAP, RightRAP, Cluster, flip, loop, rows;
-        String codebarre;
+	int LeftRAP, CentreRAP, RightRAP, Cluster, loop, rows;
         int[] dummy = new int[5];
         int[] mccorrection = new int[50];
         int length = content.length();
-        pdfEncodingMode currentEncodingMode;
         int selectedSymbolWidth;
-        String bin;
+        Pdf417Rows rowBits;
 	
 	/* Encoding starts out the same as PDF417, so use the same code */
 	
-	/* 456 */
-	blockIndex = 0;
-	blockCount = 0;
-	
-	currentEncodingMode = chooseMode(inputData[blockCount]);
-	
-	for(i = 0; i < 1000; i++) {
-		blockLength[i] = 0;
-	}
-	
-	/* 463 */
-	do {
-		blockType[blockIndex] = currentEncodingMode;
-		while ((blockType[blockIndex] == currentEncodingMode) && (blockCount < length)) {
-			blockLength[blockIndex]++;
-			blockCount++;
-                        if(blockCount != length) {
-                            currentEncodingMode = chooseMode(inputData[blockCount]);
-                        }
-		}
-		blockIndex++;
-	} while (blockCount < length);
+        if (!(optimize)) {
+            splitBlocks(length);
 
-        /* Watch for numeric blocks longer than 44 characters */
-        for (i = 0; i < blockIndex; i++) {
-            if ((blockType[i] == pdfEncodingMode.NUM) && (blockLength[i] > 44)) {
-                for(j = blockIndex + 1; j > (i + 1); j--) {
-                    blockType[j] = blockType[j - 1];
-                    blockLength[j] = blockLength[j - 1];
+            if(debug) {
+                System.out.printf("Initial mapping:\n");
+                for(i = 0; i < blockIndex; i++) {
+                    System.out.printf("len: %d   type: ", blockLength[i]);
+                    switch(blockType[i]) {
+                        case TEX: System.out.printf("TEXT\n"); break;
+                        case BYT: System.out.printf("BYTE\n"); break;
+                        case NUM: System.out.printf("NUMBER\n"); break;
+                        default: System.out.printf("*ERROR*\n"); break;
+                    }
                 }
-                blockType[i + 1] = blockType[i];
-                blockLength[i + 1] = blockLength[i] - 44;
-                blockLength[i] = 44;
-                blockIndex++;
             }
         }
-        
-	pdfsmooth();
-
-	if(debug) {
-		System.out.printf("Initial mapping:\n");
-		for(i = 0; i < blockIndex; i++) {
-			System.out.printf("len: %d   type: ", blockLength[i]);
-			switch(blockType[i]) {
-				case TEX: System.out.printf("TEXT\n"); break;
-				case BYT: System.out.printf("BYTE\n"); break;
-				case NUM: System.out.printf("NUMBER\n"); break;
-				default: System.out.printf("*ERROR*\n"); break;
-			}
-		}
-	}
 	
 	/* 541 - now compress the data */
 	blockCount = 0;
@@ -903,19 +584,26 @@ private final int[] Microcoeffs = {
 		codeWordCount++;
         }
         
-	for(i = 0; i < blockIndex; i++) {
-		switch(blockType[i]) {
-			case TEX: /* 547 - text mode */
-				textprocess(blockCount, blockLength[i]);
-				break;
-			case BYT: /* 670 - octet stream mode */
-				byteprocess(blockCount, blockLength[i]);
-				break;
-			case NUM: /* 712 - numeric mode */
-				numbprocess(blockCount, blockLength[i]);
-				break;
+	if(optimize) {
+		if(!(optimalprocess(length))) {
+			error_msg = "Input data too long";
+			return false;
+		}
+	} else {
+		for(i = 0; i < blockIndex; i++) {
+			switch(blockType[i]) {
+				case TEX: /* 547 - text mode */
+					textprocess(blockCount, blockLength[i]);
+					break;
+				case BYT: /* 670 - octet stream mode */
+					byteprocess(blockCount, blockLength[i]);
+					break;
+				case NUM: /* 712 - numeric mode */
+					numbprocess(blockCount, blockLength[i]);
+					break;
+			}
+			blockCount = blockCount + blockLength[i];
 		}
-		blockCount = blockCount + blockLength[i];
 	}
 
 	/* This is where it all changes! */
@@ -1093,14 +781,13 @@ private final int[] Microcoeffs = {
         pattern = new String[rows];
         row_count = rows;
         row_height = new int[rows];
+        rowBits = new Pdf417Rows(rows, selectedSymbolWidth);
         
         encodeInfo += "Grid Size: " + selectedSymbolWidth + " X " + row_count + "\n";
 	
 	if(debug) System.out.printf("\nInternal row representation:\n");
 	for(i = 0; i < rows; i++) {
 		if(debug) System.out.printf("row %d: ", i);
-                codebarre = "";
-		offset = 929 * Cluster;
 		for(j = 0; j < 5; j++) {
 			dummy[j] = 0;
 		}
@@ -1109,61 +796,30 @@ private final int[] Microcoeffs = {
 			if(debug) System.out.printf("[%d] ", dummy[j + 1]);
 		}
 		
-		/* Copy the data into codebarre */
-		codebarre += RAPLR[LeftRAP];
-		codebarre += "1";
-		codebarre += codagemc[offset + dummy[1]];
-		codebarre += "1";
+		/* Write the row address patterns and codewords into the row */
+		rowBits.startRow(i);
+		rowBits.addRowAddress(LeftRAP);
+		rowBits.addCodeword(Cluster, dummy[1]);
 		if(selectedSymbolWidth == 3) {
-			codebarre += RAPC[CentreRAP];
+			rowBits.addCentreRowAddress(CentreRAP);
 		}
 		if(selectedSymbolWidth >= 2) {
-			codebarre += "1";
-			codebarre += codagemc[offset + dummy[2]];
-			codebarre += "1";
+			rowBits.addCodeword(Cluster, dummy[2]);
 		}
 		if(selectedSymbolWidth == 4) {
-			codebarre += RAPC[CentreRAP];
+			rowBits.addCentreRowAddress(CentreRAP);
 		}
 		if(selectedSymbolWidth >= 3) {
-			codebarre += "1";
-			codebarre += codagemc[offset + dummy[3]];
-			codebarre += "1";
+			rowBits.addCodeword(Cluster, dummy[3]);
 		}
 		if(selectedSymbolWidth == 4) {
-			codebarre += "1";
-			codebarre += codagemc[offset + dummy[4]];
-			codebarre += "1";
-		}
-		codebarre += RAPLR[RightRAP];
-		codebarre += "1"; /* stop */
-		if(debug) System.out.printf("%s\n", codebarre);
-		
-		/* Now codebarre is a mixture of letters and numbers */
-		
-		flip = 1;
-                bin = "";
-		for(loop = 0; loop < codebarre.length(); loop++) {
-			if((codebarre.charAt(loop) >= '0') && (codebarre.charAt(loop) <= '9')) {
-				for(k = 0; k < Character.getNumericValue(codebarre.charAt(loop)); k++) {
-					if(flip == 0) {
-						bin += '0';
-					} else {
-						bin += '1';
-					}
-				}
-				if(flip == 0) {
-					flip = 1;
-				} else {
-					flip = 0;
-				}
-			} else {
-				bin += PDFttf[positionOf(codebarre.charAt(loop), brSet)];
-			}
+			rowBits.addCodeword(Cluster, dummy[4]);
 		}
+		rowBits.addRowAddress(RightRAP);
+		rowBits.addBar(); /* stop */
 		
-		/* so now pattern[] holds the string of '1's and '0's. - copy this to the symbol */
-		pattern[i] = bin2pat(bin);
+		pattern[i] = rowBits.widths();
+		if(debug) System.out.printf("%s\n", pattern[i]);
 		row_height[i] = 2;
 	
 		/* Set up RAPs and Cluster for next row */
@@ -1188,6 +844,52 @@ private final int[] Microcoeffs = {
         return true;
 }
 
+    /**
+     * Split the data into blocks of one mode each, as the encoding rules
+     * describe, with numeric blocks of at most 44 digits
+     */
+    private void splitBlocks(int length) {
+        int i, j, blockCount;
+        pdfEncodingMode currentEncodingMode;
+
+        blockIndex = 0;
+        blockCount = 0;
+
+        currentEncodingMode = chooseMode(inputData[blockCount]);
+
+        for (i = 0; i < 1000; i++) {
+            blockLength[i] = 0;
+        }
+
+        do {
+            blockType[blockIndex] = currentEncodingMode;
+            while ((blockType[blockIndex] == currentEncodingMode) && (blockCount < length)) {
+                blockLength[blockIndex]++;
+                blockCount++;
+                if(blockCount < length) {
+                    currentEncodingMode = chooseMode(inputData[blockCount]);
+                }
+            }
+            blockIndex++;
+        } while (blockCount < length);
+        
+        /* Watch for numeric blocks longer than 44 characters */
+        for (i = 0; i < blockIndex; i++) {
+            if ((blockType[i] == pdfEncodingMode.NUM) && (blockLength[i] > 44)) {
+                for(j = blockIndex + 1; j > (i + 1); j--) {
+                    blockType[j] = blockType[j - 1];
+                    blockLength[j] = blockLength[j - 1];
+                }
+                blockType[i + 1] = blockType[i];
+                blockLength[i + 1] = blockLength[i] - 44;
+                blockLength[i] = 44;
+                blockIndex++;
+            }
+        }
+
+        pdfsmooth();
+    }
+
     private pdfEncodingMode chooseMode(int codeascii) {
         pdfEncodingMode currentEncodingMode = pdfEncodingMode.BYT;
         if ((codeascii == '\t') || (codeascii == '\n') || (codeascii == '\r') || ((codeascii >= ' ') && (codeascii <= '~'))) {
@@ -1523,15 +1225,6 @@ private final int[] Microcoeffs = {
     }
 
     private void byteprocess(int start, int length) {
-        int len = 0;
-        int chunkLen = 0;
-        BigInteger mantisa;
-        BigInteger total;
-        BigInteger word;
-
-        mantisa = new BigInteger("0");
-        total = new BigInteger("0");
-
         if (content.length() == 1) {
             codeWords[codeWordCount++] = 913;
             codeWords[codeWordCount++] = inputData[start];
@@ -1542,46 +1235,46 @@ private final int[] Microcoeffs = {
             } else {
                 codeWords[codeWordCount++] = 901;
             }
+            bytegroups(start, length);
+        }
+    }
 
-            while (len < length) {
-                chunkLen = length - len;
-                if (6 <= chunkLen) /* Take groups of 6 */ {
-                    chunkLen = 6;
-                    len += chunkLen;
-                    total = BigInteger.valueOf(0);
-
-                    while ((chunkLen--) != 0) {
-                        mantisa = BigInteger.valueOf(inputData[start++]);
-                        total = total.or(mantisa.shiftLeft(chunkLen * 8));
-                    }
-
-                    chunkLen = 5;
-
-                    while ((chunkLen--) != 0) {
+    /**
+     * Byte Compaction after the latch: each group of 6 bytes becomes 5
+     * codewords, and any bytes left over take a codeword each
+     */
+    private void bytegroups(int start, int length) {
+        long total;
+        int i, j;
 
-                        word = total.mod(BigInteger.valueOf(900));
-                        codeWords[codeWordCount + chunkLen] = word.intValue();
-                        total = total.divide(BigInteger.valueOf(900));
-                    }
-                    codeWordCount += 5;
-                } else /*  If it remain a group of less than 6 bytes   */ {
-                    len += chunkLen;
-                    while ((chunkLen--) != 0) {
-                        codeWords[codeWordCount++] = inputData[start++];
-                    }
-                }
+        for (i = 0; (i + 6) <= length; i += 6) {
+            total = 0;
+            for (j = 0; j < 6; j++) {
+                total = (total << 8) | inputData[start + i + j];
+            }
+            for (j = 4; j >= 0; j--) {
+                codeWords[codeWordCount + j] = (int) (total % 900);
+                total /= 900;
             }
+            codeWordCount += 5;
+        }
+        for (; i < length; i++) {
+            codeWords[codeWordCount++] = inputData[start + i];
         }
     }
 
     private void numbprocess(int start, int length) {
+        codeWords[codeWordCount++] = 902; /* Latch numeric mode */
+        numbgroup(start, length);
+    }
+
+    /** Numeric Compaction of a group of up to 44 digits after the latch */
+    private void numbgroup(int start, int length) {
         String t = "1";
         BigInteger tVal, dVal;
         int[] d = new int[16];
         int cw_count, i;
         
-        codeWords[codeWordCount++] = 902; /* Latch numeric mode */
-        
         t += content.substring(start, (start + length));
         tVal = new BigInteger(t);
         
@@ -1597,4 +1290,129 @@ private final int[] Microcoeffs = {
             codeWords[codeWordCount++] = d[i];
         }
     }
+
+    /**
+     * Compact the data in the way found by {@link Pdf417Planner}, which
+     * takes the fewest codewords.
+     *
+     * @return false if the data would not fit in any symbol
+     */
+    private boolean optimalprocess(int length) {
+        int[] plan = new int[length];
+        int[] values = new int[(3 * length) + 1];
+        int count = 0;
+        int submode = Pdf417Planner.ALPHA;
+        boolean text = true; /* A symbol starts in Text Compaction */
+        int i, j, k, c;
+
+        if (new Pdf417Planner(inputData, length).plan(plan) > 928) {
+            return false;
+        }
+
+        for (i = 0; i < length; i = j) {
+            c = inputData[i];
+            j = i + 1;
+            if ((plan[i] == Pdf417Planner.BYTE) || (plan[i] == Pdf417Planner.NUMERIC)) {
+                count = textcodewords(values, count);
+                text = false;
+                while ((j < length) && (plan[j] == plan[i])) {
+                    j++;
+                }
+                if (plan[i] == Pdf417Planner.BYTE) {
+                    codeWords[codeWordCount++] = (((j - i) % 6) == 0) ? 924 : 901;
+                    bytegroups(i, j - i);
+                } else {
+                    codeWords[codeWordCount++] = 902;
+                    for (k = i; k < j; k += 44) {
+                        numbgroup(k, Math.min(44, j - k));
+                    }
+                }
+                continue;
+            }
+
+            if (!text) {
+                codeWords[codeWordCount++] = 900;
+                text = true;
+                submode = Pdf417Planner.ALPHA;
+            }
+            switch (plan[i]) {
+            case Pdf417Planner.SHIFT:
+                if ((submode == Pdf417Planner.LOWER) && ((textTables(c) & 1) != 0)) {
+                    values[count++] = 27; /* Alpha shift */
+                } else {
+                    values[count++] = 29; /* Punctuation shift */
+                }
+                values[count++] = textValue(c);
+                break;
+            case Pdf417Planner.BYTE_SHIFT:
+                if (((count & 1) != 0) && (submode == Pdf417Planner.PUNCTUATION)) {
+                    /* The padding value latches back to Alpha */
+                    submode = Pdf417Planner.ALPHA;
+                }
+                count = textcodewords(values, count);
+                codeWords[codeWordCount++] = 913;
+                codeWords[codeWordCount++] = c;
+                break;
+            default:
+                for (k = 0; k < Pdf417Planner.LATCH[submode][plan[i]].length; k++) {
+                    values[count++] = Pdf417Planner.LATCH[submode][plan[i]][k];
+                }
+                submode = plan[i];
+                values[count++] = textValue(c);
+                break;
+            }
+        }
+        textcodewords(values, count);
+        return true;
+    }
+
+    /**
+     * Pair up Text Compaction values into codewords, padding an odd one out
+     * with value 29
+     *
+     * @return 0, the number of values left
+     */
+    private int textcodewords(int[] values, int count) {
+        int i;
+
+        if ((count & 1) != 0) {
+            values[count++] = 29;
+        }
+        for (i = 0; i < count; i += 2) {
+            codeWords[codeWordCount++] = (30 * values[i]) + values[i + 1];
+        }
+        return 0;
+    }
+
+    /**
+     * Text Compaction sub-modes a character can be sent in, as a mask of 1
+     * for Alpha, 2 for Lower, 4 for Mixed and 8 for Punctuation, or 0 if it
+     * cannot be sent as text
+     */
+    static int textTables(int c) {
+        switch (c) {
+        case '\t':
+        case 13:
+            return 12;
+        case '\n':
+            return 8;
+        }
+        if ((c < ' ') || (c > '~')) {
+            return 0;
+        }
+        return asciix[c - 32];
+    }
+
+    /** Value of a character in the Text Compaction sub-modes holding it */
+    private static int textValue(int c) {
+        switch (c) {
+        case '\t':
+            return 12;
+        case '\n':
+            return 15;
+        case 13:
+            return 11;
+        }
+        return asciiy[c - 32];
+    }
 }
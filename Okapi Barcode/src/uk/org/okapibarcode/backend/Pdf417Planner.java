@@ -0,0 +1,237 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.backend;
+
+/**
+ * Chooses the PDF417 compaction mode of every character so that the data
+ * takes the fewest codewords, as an alternative to the fixed block length
+ * rules of {@link Pdf417}.
+ * <p>
+ * Costs are counted in half codewords, the size of one Text Compaction
+ * value. Text Compaction is tracked once for each sub-mode and for whether
+ * a value is left over from the last codeword, Byte Compaction once for
+ * each count of bytes waiting to make up a group of six, and Numeric
+ * Compaction once for each count of digits in its group of 44. The
+ * cheapest way of reaching every state is then found in one pass over the
+ * data. A sub-mode latch is charged together with the character it is
+ * made for, and a single byte may be shifted into text with codeword 913.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+final class Pdf417Planner {
+
+    /* Plan values: a Text Compaction character in sub-mode Alpha, Lower,
+     * Mixed or Punctuation, latching to it first if need be */
+    static final int ALPHA = 0;
+    static final int LOWER = 1;
+    static final int MIXED = 2;
+    static final int PUNCTUATION = 3;
+    /* A Text Compaction character sent with a shift from the current sub-mode */
+    static final int SHIFT = 4;
+    /* A byte sent from Text Compaction with codeword 913 */
+    static final int BYTE_SHIFT = 5;
+    static final int BYTE = 6;
+    static final int NUMERIC = 7;
+
+    /* Values which latch from one sub-mode to another */
+    static final int[][][] LATCH = {
+        { {}, { 27 }, { 28 }, { 28, 25 } },
+        { { 28, 28 }, {}, { 28 }, { 28, 25 } },
+        { { 28 }, { 27 }, {}, { 25 } },
+        { { 29 }, { 29, 27 }, { 29, 28 }, {} }
+    };
+
+    /* States: Text Compaction in each sub-mode with an even or odd number of
+     * values, Byte Compaction with 0 to 5 bytes of a group and Numeric
+     * Compaction with 0 to 44 digits of a group */
+    private static final int S_BYTE = 8;
+    private static final int S_NUMERIC = 14;
+    private static final int STATES = S_NUMERIC + 45;
+    /* Marks how a character was sent from a Text Compaction state */
+    private static final int VIA_SHIFT = 0x40;
+    private static final int VIA_BYTE_SHIFT = 0x80;
+    private static final int STATE_MASK = 0x3f;
+    private static final int NONE = Integer.MAX_VALUE / 2;
+
+    private final int[] data;
+    private final int length;
+
+    /**
+     * @param data input bytes
+     * @param length number of bytes to plan
+     */
+    Pdf417Planner(int[] data, int length) {
+        this.data = data;
+        this.length = length;
+    }
+
+    /**
+     * Finds the plan which takes the fewest codewords.
+     *
+     * @param plan receives the way each character is sent
+     * @return number of codewords the characters take
+     */
+    int plan(int[] plan) {
+        int[] cost = new int[(length + 1) * STATES];
+        /* State at the previous position each state was reached from, with
+         * a flag for a shift, and the state at the same position it was
+         * switched to from */
+        byte[] from = new byte[(length + 1) * STATES];
+        byte[] switched = new byte[(length + 1) * STATES];
+        int i, s, p, t, base, next, c, tables, total, units, best, bestState;
+
+        for (i = 0; i < cost.length; i++) {
+            cost[i] = NONE;
+            switched[i] = -1;
+        }
+        /* A symbol starts in Text Compaction, sub-mode Alpha */
+        cost[0] = 0;
+
+        for (i = 0; i < length; i++) {
+            base = i * STATES;
+            next = base + STATES;
+            c = data[i];
+
+            /* Latch from Text Compaction to the others, padding a text
+             * codeword left half full, then between Byte and Numeric
+             * Compaction, and last back to Text Compaction. In that order no
+             * mode can be left and latched to again at the same place. */
+            for (s = 0; s < S_BYTE; s++) {
+                change(cost, switched, base, s, S_BYTE, (s & 1) + 2);
+                change(cost, switched, base, s, S_NUMERIC, (s & 1) + 2);
+            }
+            for (s = S_BYTE; s < S_NUMERIC; s++) {
+                change(cost, switched, base, s, S_NUMERIC, 2);
+            }
+            for (s = S_NUMERIC + 1; s < STATES; s++) {
+                change(cost, switched, base, s, S_BYTE, 2);
+            }
+            for (s = S_BYTE; s < STATES; s++) {
+                if (s != S_NUMERIC) {
+                    change(cost, switched, base, s, 0, 2);
+                }
+            }
+
+            /* Send the character in each way which can hold it */
+            tables = Pdf417.textTables(c);
+            for (s = 0; s < S_BYTE; s++) {
+                if (cost[base + s] >= NONE) {
+                    continue;
+                }
+                p = s & 1;
+                for (t = ALPHA; t <= PUNCTUATION; t++) {
+                    if ((tables & (1 << t)) != 0) {
+                        units = LATCH[s >> 1][t].length + 1;
+                        move(cost, from, next + (t << 1) + ((p + units) & 1), base, s, units, 0);
+                    }
+                }
+                if (canShift(s >> 1, tables)) {
+                    move(cost, from, next + s, base, s, 2, VIA_SHIFT);
+                }
+                /* Padding with value 29 leaves Punctuation for Alpha */
+                t = ((s >> 1) == PUNCTUATION && p == 1) ? ALPHA : (s >> 1);
+                move(cost, from, next + (t << 1), base, s, p + 4, VIA_BYTE_SHIFT);
+            }
+            for (s = 0; s < 6; s++) {
+                move(cost, from, next + S_BYTE + ((s + 1) % 6), base, S_BYTE + s,
+                        (s == 5) ? 0 : 2, 0);
+            }
+            if ((c >= '0') && (c <= '9')) {
+                for (s = 0; s <= 44; s++) {
+                    t = (s == 44) ? 1 : s + 1;
+                    /* A group of n digits takes n / 3 + 1 codewords */
+                    units = ((s == 0) || (s == 44) || ((t % 3) == 0)) ? 2 : 0;
+                    move(cost, from, next + S_NUMERIC + t, base, S_NUMERIC + s, units, 0);
+                }
+            }
+        }
+
+        /* A text codeword left half full is padded at the end */
+        base = length * STATES;
+        best = NONE;
+        bestState = 0;
+        for (s = 0; s < STATES; s++) {
+            total = cost[base + s];
+            if (s < S_BYTE) {
+                total += s & 1;
+            }
+            if (total < best) {
+                best = total;
+                bestState = s;
+            }
+        }
+
+        /* Walk back through the choices to label each character */
+        s = bestState;
+        for (i = length; i > 0; i--) {
+            next = from[(i * STATES) + s] & 0xff;
+            if (s >= S_NUMERIC) {
+                plan[i - 1] = NUMERIC;
+            } else if (s >= S_BYTE) {
+                plan[i - 1] = BYTE;
+            } else if ((next & VIA_SHIFT) != 0) {
+                plan[i - 1] = SHIFT;
+            } else if ((next & VIA_BYTE_SHIFT) != 0) {
+                plan[i - 1] = BYTE_SHIFT;
+            } else {
+                plan[i - 1] = s >> 1;
+            }
+            s = next & STATE_MASK;
+            while (switched[((i - 1) * STATES) + s] >= 0) {
+                s = switched[((i - 1) * STATES) + s];
+            }
+        }
+
+        return best / 2;
+    }
+
+    /**
+     * True if a character can be shifted into from a sub-mode: Alpha and
+     * Mixed can shift to Punctuation, and Lower to Alpha or Punctuation
+     */
+    static boolean canShift(int submode, int tables) {
+        switch (submode) {
+        case ALPHA:
+        case MIXED:
+            return (tables & (1 << PUNCTUATION)) != 0;
+        case LOWER:
+            return (tables & ((1 << ALPHA) | (1 << PUNCTUATION))) != 0;
+        }
+        return false;
+    }
+
+    /** Keeps the cheaper way of reaching a state by changing mode */
+    private static void change(int[] cost, byte[] switched, int base, int previous,
+            int state, int extra) {
+        int total = cost[base + previous] + extra;
+
+        if (total < cost[base + state]) {
+            cost[base + state] = total;
+            switched[base + state] = (byte) previous;
+        }
+    }
+
+    /** Keeps the cheaper way of reaching a state at a later position */
+    private static void move(int[] cost, byte[] from, int target, int base, int previous,
+            int extra, int flag) {
+        int total = cost[base + previous] + extra;
+
+        if (total < cost[target] && total < NONE) {
+            cost[target] = total;
+            from[target] = (byte) (previous | flag);
+        }
+    }
+}
@@ -16,6 +16,8 @@
 package uk.org.okapibarcode.backend;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Implements QR Code 2005 bar code symbology
@@ -30,18 +32,36 @@ public class QrCode extends Symbol {
     private enum eccMode {
         L, M, Q, H
     }
+
+    /** Function patterns and data module order for each version, built on first use */
+    private static final AtomicReferenceArray<Template> TEMPLATES = new AtomicReferenceArray<>(40);
+
     private qrMode[] inputMode;
-    private String binary;
+    private BitBuffer binary;
     private int[] datastream;
     private int[] fullstream;
     private byte[] grid;
-    private byte[] eval;
+    /* Structured Append header, sent when sa_total is above zero */
+    private int sa_position;
+    private int sa_total;
+    private int sa_parity;
 
     private final char[] rhodium = {
         '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E',
             'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T',
-            'U', 'V', 'W', 'X', 'Y', 'Z', ' ', '$', '%', '*', '\'', '+', '-', '.',
-            '/', ':'
+            'U', 'V', 'W', 'X', 'Y', 'Z', ' ', '$', '%', '*', '+', '-', '.', '/',
+            ':'
+    };
+
+    private final qrMode[] qr_planned_mode = {
+        /* Mode for each QrSegmentation mode number */
+        qrMode.NUMERIC, qrMode.ALPHANUM, qrMode.BINARY, qrMode.KANJI
+    };
+
+    private final int[][] qr_count_bits = {
+        /* Character count indicator length for numeric, alphanumeric, byte and Kanji
+         * modes in versions 1-9, 10-26 and 27-40 */
+        {10, 9, 8, 8}, {12, 11, 16, 10}, {14, 13, 16, 12}
     };
 
     private final int[] qr_data_codewords_L = {
@@ -160,21 +180,72 @@ public class QrCode extends Symbol {
         0x2542e, 0x26a64, 0x27541, 0x28c69
     };
 
+    /**
+     * Make this symbol one of a Structured Append set. See
+     * {@link QrStructuredAppend} for splitting data across a set.
+     *
+     * @param position place of this symbol in the set, counting from 0
+     * @param total number of symbols in the set, from 2 to 16
+     * @param parity exclusive or of every byte of the complete message
+     */
+    void setStructuredAppend(int position, int total, int parity) {
+        sa_position = position;
+        sa_total = total;
+        sa_parity = parity;
+    }
+
+    /** Data bits held by a symbol of the given version at the level set by option1 */
+    int dataCapacity(int version) {
+        switch (option1) {
+        case 2:
+            return 8 * qr_data_codewords_M[version - 1];
+        case 3:
+            return 8 * qr_data_codewords_Q[version - 1];
+        case 4:
+            return 8 * qr_data_codewords_H[version - 1];
+        default:
+            return 8 * qr_data_codewords_L[version - 1];
+        }
+    }
+
+    /** Character count indicator lengths used by the given version */
+    int[] countBits(int version) {
+        return qr_count_bits[versionClass(version)];
+    }
+
     @Override
     public boolean encode() {
         int i, j;
         int est_binlen;
+        QrSegmentation segmentation;
+        int[][] plan;
+        int[] plan_binlen;
         eccMode ecc_level;
         int max_cw;
         int autosize;
         int target_binlen, version, blocks;
         int size;
         int bitmask;
-        String bin;
-
-        inputMode = new qrMode[content.length()];
-        define_mode();
-        est_binlen = estimate_binary_length();
+        Template template;
+
+        /* Find the shortest segmentation for each range of character count lengths */
+        segmentation = new QrSegmentation(content, gs1);
+        plan = new int[3][content.length()];
+        plan_binlen = new int[3];
+        for (i = 0; i < 3; i++) {
+            plan_binlen[i] = segmentation.plan(4, qr_count_bits[i], plan[i]);
+            if (plan_binlen[i] < 0) {
+                error_msg = "Invalid character(s) in input data";
+                return false;
+            }
+            if (gs1) {
+                plan_binlen[i] += 4; /* FNC1 */
+            }
+            if (sa_total > 0) {
+                plan_binlen[i] += 20; /* Structured Append header */
+            }
+        }
+        est_binlen = plan_binlen[2];
 
         switch (option1) {
         case 1:
@@ -206,6 +277,7 @@ public class QrCode extends Symbol {
 
         autosize = 40;
         for (i = 39; i >= 0; i--) {
+            est_binlen = plan_binlen[versionClass(i + 1)];
             switch (ecc_level) {
             case L:
                 if ((8 * qr_data_codewords_L[i]) >= est_binlen) {
@@ -237,6 +309,12 @@ public class QrCode extends Symbol {
             }
         }
 
+        est_binlen = plan_binlen[versionClass(version)];
+        inputMode = new qrMode[content.length()];
+        for (i = 0; i < content.length(); i++) {
+            inputMode[i] = qr_planned_mode[plan[versionClass(version)][i]];
+        }
+
         /* Ensure maxium error correction capacity */
         if (est_binlen <= qr_data_codewords_M[version - 1]) {
             ecc_level = eccMode.M;
@@ -277,9 +355,13 @@ public class QrCode extends Symbol {
 
         size = qr_sizes[version - 1];
 
-        grid = new byte[size * size];
-        
+        template = template(size, version);
+        grid = template.grid.clone();
+
         encodeInfo += "Version: " + version + "\n";
+        if (sa_total > 0) {
+            encodeInfo += "Structured Append: " + (sa_position + 1) + " of " + sa_total + "\n";
+        }
         encodeInfo += "ECC Level: ";
         switch (ecc_level) {
             case L:
@@ -297,14 +379,7 @@ public class QrCode extends Symbol {
                 break;
         }
 
-        for (i = 0; i < size; i++) {
-            for (j = 0; j < size; j++) {
-                grid[(i * size) + j] = 0;
-            }
-        }
-
-        setup_grid(size, version);
-        populate_grid(size, qr_total_codewords[version - 1]);
+        populate_grid(template.placement, qr_total_codewords[version - 1]);
         bitmask = apply_bitmask(size);
         encodeInfo += "Mask Pattern: " + Integer.toBinaryString(bitmask) + "\n";
         add_format_info(size, ecc_level, bitmask);
@@ -313,173 +388,28 @@ public class QrCode extends Symbol {
         }
 
         readable = "";
-        pattern = new String[size];
-        row_count = size;
-        row_height = new int[size];
+        matrix = new BitMatrix(size, size);
         for (i = 0; i < size; i++) {
-            bin = "";
             for (j = 0; j < size; j++) {
                 if ((grid[(i * size) + j] & 0x01) != 0) {
-                    bin += "1";
-                } else {
-                    bin += "0";
+                    matrix.set(j, i);
                 }
             }
-            pattern[i] = bin2pat(bin);
-            row_height[i] = 1;
         }
 
-        plotSymbol();
+        plotMatrix();
         return true;
     }
 
-    private void define_mode() {
-        int i, mlen, j;
-        int length = content.length();
-
-        for (i = 0; i < length; i++) {
-            if (content.charAt(i) > 0xff) {
-                inputMode[i] = qrMode.KANJI;
-            } else {
-                inputMode[i] = qrMode.BINARY;
-                if (in_alpha(content.charAt(i))) {
-                    inputMode[i] = qrMode.ALPHANUM;
-                }
-                if (gs1 && (content.charAt(i) == '[')) {
-                    inputMode[i] = qrMode.ALPHANUM;
-                }
-                if ((content.charAt(i) >= '0') && (content.charAt(i) <= '9')) {
-                    inputMode[i] = qrMode.NUMERIC;
-                }
-            }
-        }
-
-        /* If less than 6 numeric digits together then don't use numeric mode */
-        for (i = 0; i < length; i++) {
-            if (inputMode[i] == qrMode.NUMERIC) {
-                if (((i != 0) && (inputMode[i - 1] != qrMode.NUMERIC)) || (i == 0)) {
-                    mlen = 0;
-                    while (((mlen + i) < length) && (inputMode[mlen + i] == qrMode.NUMERIC)) {
-                        mlen++;
-                    }
-                    if (mlen < 6) {
-                        for (j = 0; j < mlen; j++) {
-                            inputMode[i + j] = qrMode.ALPHANUM;
-                        }
-                    }
-                }
-            }
-        }
-
-        /* If less than 4 alphanumeric characters together then don't use alphanumeric mode */
-        for (i = 0; i < length; i++) {
-            if (inputMode[i] == qrMode.ALPHANUM) {
-                if (((i != 0) && (inputMode[i - 1] != qrMode.ALPHANUM)) || (i == 0)) {
-                    mlen = 0;
-                    while (((mlen + i) < length) && (inputMode[mlen + i] == qrMode.ALPHANUM)) {
-                        mlen++;
-                    }
-                    if (mlen < 6) {
-                        for (j = 0; j < mlen; j++) {
-                            inputMode[i + j] = qrMode.BINARY;
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    private boolean in_alpha(char cglyph) {
-        /* Returns true if input glyph is in the Alphanumeric set */
-        boolean retval = false;
-
-        if ((cglyph >= '0') && (cglyph <= '9')) {
-            retval = true;
-        }
-        if ((cglyph >= 'A') && (cglyph <= 'Z')) {
-            retval = true;
+    private int versionClass(int version) {
+        /* Versions 1-9, 10-26 and 27-40 have different character count lengths */
+        if (version <= 9) {
+            return 0;
         }
-        switch (cglyph) {
-        case ' ':
-        case '$':
-        case '%':
-        case '*':
-        case '+':
-        case '-':
-        case '.':
-        case '/':
-        case ':':
-            retval = true;
-            break;
+        if (version <= 26) {
+            return 1;
         }
-
-        return retval;
-    }
-
-    private int estimate_binary_length() {
-        /* Make an estimate (worst case scenario) of how long the binary string will be */
-        int i, count = 0;
-        qrMode current = qrMode.NULL;
-        int a_count = 0;
-        int n_count = 0;
-
-        if (gs1) {
-            count += 4;
-        }
-
-        for (i = 0; i < content.length(); i++) {
-            if (inputMode[i] != current) {
-                switch (inputMode[i]) {
-                case KANJI:
-                    count += 12 + 4;
-                    current = qrMode.KANJI;
-                    break;
-                case BINARY:
-                    count += 16 + 4;
-                    current = qrMode.BINARY;
-                    break;
-                case ALPHANUM:
-                    count += 13 + 4;
-                    current = qrMode.ALPHANUM;
-                    a_count = 0;
-                    break;
-                case NUMERIC:
-                    count += 14 + 4;
-                    current = qrMode.NUMERIC;
-                    n_count = 0;
-                    break;
-                }
-            }
-
-            switch (inputMode[i]) {
-            case KANJI:
-                count += 13;
-                break;
-            case BINARY:
-                count += 8;
-                break;
-            case ALPHANUM:
-                a_count++;
-                if ((a_count & 1) == 0) {
-                    count += 5; // 11 in total
-                    a_count = 0;
-                } else
-                    count += 6;
-                break;
-            case NUMERIC:
-                n_count++;
-                if ((n_count % 3) == 0) {
-                    count += 3; // 10 in total
-                    n_count = 0;
-                } else if ((n_count & 1) == 0)
-                    count += 3; // 7 in total
-                else
-                    count += 4;
-                break;
-            }
-        }
-
-        return count;
+        return 2;
     }
 
     private boolean qr_binary(int version, int target_binlen, int est_binlen) {
@@ -495,12 +425,18 @@ public class QrCode extends Symbol {
         byte[] jisBytes;
         int msb, lsb, prod;
         int count, first, second, third;
-        int weight;
 
-        binary = "";
+        binary = new BitBuffer();
+
+        if (sa_total > 0) {
+            binary.append(0b0011, 4); /* Structured Append */
+            binary.append(sa_position, 4);
+            binary.append(sa_total - 1, 4);
+            binary.append(sa_parity, 8);
+        }
 
         if (gs1) {
-            binary += "0101"; /* FNC1 */
+            binary.append(0b0101, 4); /* FNC1 */
         }
 
         if (version <= 9) {
@@ -545,7 +481,7 @@ public class QrCode extends Symbol {
             case KANJI:
                 /* Kanji mode */
                 /* Mode indicator */
-                binary += "1000";
+                binary.append(0b1000, 4);
 
                 /* Character count indicator */
                 qr_bscan(short_data_block_length, 0x20 << (scheme * 2)); /* scheme = 1..3 */
@@ -593,7 +529,7 @@ public class QrCode extends Symbol {
             case BINARY:
                 /* Byte mode */
                 /* Mode indicator */
-                binary += "0100";
+                binary.append(0b0100, 4);
 
                 /* Character count indicator */
                 qr_bscan(short_data_block_length, scheme > 1 ? 0x8000 : 0x80); /* scheme = 1..3 */
@@ -625,10 +561,18 @@ public class QrCode extends Symbol {
             case ALPHANUM:
                 /* Alphanumeric mode */
                 /* Mode indicator */
-                binary += "0010";
-
-                /* Character count indicator */
-                qr_bscan(short_data_block_length, 0x40 << (2 * scheme)); /* scheme = 1..3 */
+                binary.append(0b0010, 4);
+
+                /* Character count indicator, counting GS1 percent signs twice */
+                count = short_data_block_length;
+                if (gs1) {
+                    for (i = 0; i < short_data_block_length; i++) {
+                        if (content.charAt(position + i) == '%') {
+                            count++;
+                        }
+                    }
+                }
+                qr_bscan(count, 0x40 << (2 * scheme)); /* scheme = 1..3 */
 
                 if (debug) {
                     System.out.printf("Alpha block (length %d)\n\t", short_data_block_length);
@@ -655,7 +599,7 @@ public class QrCode extends Symbol {
                             i++;
                             prod = first;
 
-                            if (inputMode[position + i] == qrMode.ALPHANUM) {
+                            if (i < short_data_block_length) {
                                 if (gs1 && (content.charAt(position + i) == '%')) {
                                     second = positionOf('%', rhodium);
                                     count = 2;
@@ -680,7 +624,7 @@ public class QrCode extends Symbol {
                         prod = first;
                         percent = 0;
 
-                        if (inputMode[position + i] == qrMode.ALPHANUM) {
+                        if (i < short_data_block_length) {
                             if (gs1 && (content.charAt(position + i) == '%')) {
                                 second = positionOf('%', rhodium);
                                 count = 2;
@@ -714,7 +658,7 @@ public class QrCode extends Symbol {
             case NUMERIC:
                 /* Numeric mode */
                 /* Mode indicator */
-                binary += "0001";
+                binary.append(0b0001, 4);
 
                 /* Character count indicator */
                 qr_bscan(short_data_block_length, 0x80 << (2 * scheme)); /* scheme = 1..3 */
@@ -762,7 +706,7 @@ public class QrCode extends Symbol {
         } while (position < content.length());
 
         /* Terminator */
-        binary += "0000";
+        binary.append(0b0000, 4);
 
         current_binlen = binary.length();
         padbits = 8 - (current_binlen % 8);
@@ -772,18 +716,11 @@ public class QrCode extends Symbol {
         current_bytes = (current_binlen + padbits) / 8;
 
         /* Padding bits */
-        for (i = 0; i < padbits; i++) {
-            binary += "0";
-        }
+        binary.append(0, padbits);
 
         /* Put data into 8-bit codewords */
         for (i = 0; i < current_bytes; i++) {
-            datastream[i] = 0x00;
-            for(weight = 0; weight < 8; weight++) {
-                if (binary.charAt((i * 8) + weight) == '1') {
-                    datastream[i] += (0x80 >> weight);
-                }
-            }
+            datastream[i] = binary.get(i * 8, 8);
         }
 
         /* Add pad codewords */
@@ -810,16 +747,8 @@ public class QrCode extends Symbol {
     }
 
     private void qr_bscan(int data, int h) {
-
-        for (;
-            (h != 0); h >>= 1) {
-            if ((data & h) != 0) {
-                binary += "1";
-            } else {
-                binary += "0";
-            }
-        }
-
+        /* Append data from bit h down */
+        binary.append(data, Integer.numberOfTrailingZeros(h) + 1);
     }
 
     private void add_ecc(int version, int data_cw, int blocks) {
@@ -839,7 +768,6 @@ public class QrCode extends Symbol {
         posn = 0;
 
         for (i = 0; i < blocks; i++) {
-            ReedSolomon rs = new ReedSolomon();
             if (i < qty_short_blocks) {
                 length_this_block = short_data_block_length;
             } else {
@@ -854,12 +782,7 @@ public class QrCode extends Symbol {
                 data_block[j] = datastream[posn + j];
             }
 
-            rs.init_gf(0x11d);
-            rs.init_code(ecc_block_length, 0);
-            rs.encode(length_this_block, data_block);
-            for (k = 0; k < ecc_block_length; k++) {
-                ecc_block[k] = rs.getResult(k);
-            }
+            ReedSolomon.encode(0x11d, ecc_block_length, 0, data_block, length_this_block, ecc_block);
             if (debug) {
                 System.out.printf("Block %d: ", i + 1);
                 for (j = 0; j < length_this_block; j++) {
@@ -1031,58 +954,63 @@ public class QrCode extends Symbol {
         }
     }
 
-    private void populate_grid(int size, int cw) {
-        boolean goingUp = true;
-        int row = 0; /* right hand side */
+    /**
+     * Function patterns of a version, shared by every symbol of that
+     * version. The version information is left out because the masks are
+     * scored without it.
+     */
+    private Template template(int size, int version) {
+        Template template = TEMPLATES.get(version - 1);
+
+        if (template != null) {
+            return template;
+        }
+        grid = new byte[size * size];
+        setup_grid(size, version);
+        TEMPLATES.compareAndSet(version - 1, null, new Template(grid, placement(size)));
+        return TEMPLATES.get(version - 1);
+    }
 
-        int i, n, x, y;
+    private int[] placement(int size) {
+        /* Data modules in the order codeword bits are placed in them */
+        boolean goingUp = true;
+        int[] placement = new int[size * size];
+        int count = 0;
+        int row, i, x, y;
 
-        n = cw * 8;
-        y = size - 1;
-        i = 0;
-        do {
+        for (row = 0; ; row++) { /* right hand side first */
             x = (size - 2) - (row * 2);
-            if (x < 6)
+            if (x < 6) {
                 x--; /* skip over vertical timing pattern */
-
-            if ((grid[(y * size) + (x + 1)] & 0xf0) == 0) {
-                if (cwbit(i)) {
-                    grid[(y * size) + (x + 1)] = 0x01;
-                } else {
-                    grid[(y * size) + (x + 1)] = 0x00;
-                }
-                i++;
             }
-
-            if (i < n) {
+            if (x < 0) {
+                break;
+            }
+            for (i = 0; i < size; i++) {
+                y = goingUp ? (size - 1 - i) : i;
+                if ((grid[(y * size) + (x + 1)] & 0xf0) == 0) {
+                    placement[count] = (y * size) + (x + 1);
+                    count++;
+                }
                 if ((grid[(y * size) + x] & 0xf0) == 0) {
-                    if (cwbit(i)) {
-                        grid[(y * size) + x] = 0x01;
-                    } else {
-                        grid[(y * size) + x] = 0x00;
-                    }
-                    i++;
+                    placement[count] = (y * size) + x;
+                    count++;
                 }
             }
+            goingUp = !goingUp;
+        }
+        return Arrays.copyOf(placement, count);
+    }
 
-            if (goingUp) {
-                y--;
-            } else {
-                y++;
-            }
-            if (y == -1) {
-                /* reached the top */
-                row++;
-                y = 0;
-                goingUp = false;
-            }
-            if (y == size) {
-                /* reached the bottom */
-                row++;
-                y = size - 1;
-                goingUp = true;
+    private void populate_grid(int[] placement, int cw) {
+        /* Data modules start out light in the template */
+        int i;
+
+        for (i = 0; i < cw * 8; i++) {
+            if (cwbit(i)) {
+                grid[placement[i]] = 0x01;
             }
-        } while (i < n);
+        }
     }
 
     private boolean cwbit(int i) {
@@ -1097,65 +1025,13 @@ public class QrCode extends Symbol {
 
     private int apply_bitmask(int size) {
         int x, y;
-        char p;
         int local_pattern;
         int best_val, best_pattern;
-        int[] penalty = new int[8];
-        byte[] mask = new byte[size * size];
-        eval = new byte[size * size];
-
-
-        /* Perform data masking */
-        for (x = 0; x < size; x++) {
-            for (y = 0; y < size; y++) {
-                mask[(y * size) + x] = 0x00;
-
-                if ((grid[(y * size) + x] & 0xf0) == 0) {
-                    if (((y + x) & 1) == 0) {
-                        mask[(y * size) + x] += 0x01;
-                    }
-                    if ((y & 1) == 0) {
-                        mask[(y * size) + x] += 0x02;
-                    }
-                    if ((x % 3) == 0) {
-                        mask[(y * size) + x] += 0x04;
-                    }
-                    if (((y + x) % 3) == 0) {
-                        mask[(y * size) + x] += 0x08;
-                    }
-                    if ((((y / 2) + (x / 3)) & 1) == 0) {
-                        mask[(y * size) + x] += 0x10;
-                    }
-                    if ((((y * x) & 1) + ((y * x) % 3)) == 0) {
-                        mask[(y * size) + x] += 0x20;
-                    }
-                    if (((((y * x) & 1) + ((y * x) % 3)) & 1) == 0) {
-                        mask[(y * size) + x] += 0x40;
-                    }
-                    if (((((y + x) & 1) + ((y * x) % 3)) & 1) == 0) {
-                        mask[(y * size) + x] += 0x80;
-                    }
-                }
-            }
-        }
-
-        for (x = 0; x < size; x++) {
-            for (y = 0; y < size; y++) {
-                if ((grid[(y * size) + x] & 0x01) != 0) {
-                    p = 0xff;
-                } else {
-                    p = 0x00;
-                }
-
-                eval[(y * size) + x] = (byte)(mask[(y * size) + x] ^ p);
-            }
-        }
-
+        int[] penalty;
+        QrMaskPenalty masks = new QrMaskPenalty(size, grid);
 
         /* Evaluate result */
-        for (local_pattern = 0; local_pattern < 8; local_pattern++) {
-            penalty[local_pattern] = evaluate(size, local_pattern);
-        }
+        penalty = masks.scoreAll(parallel);
 
         best_pattern = 0;
         best_val = penalty[0];
@@ -1169,7 +1045,7 @@ public class QrCode extends Symbol {
         /* Apply mask */
         for (x = 0; x < size; x++) {
             for (y = 0; y < size; y++) {
-                if ((mask[(y * size) + x] & (0x01 << best_pattern)) != 0) {
+                if (masks.inverts(best_pattern, x, y)) {
                     if ((grid[(y * size) + x] & 0x01) != 0) {
                         grid[(y * size) + x] = 0x00;
                     } else {
@@ -1182,122 +1058,6 @@ public class QrCode extends Symbol {
         return best_pattern;
     }
 
-    private int evaluate(int size, int pattern) {
-        int x, y, block;
-        int result = 0;
-        int state;
-        int p;
-        int weight;
-        int dark_mods;
-        int percentage, k;
-        byte[] local = new byte[size * size];
-
-
-        for (x = 0; x < size; x++) {
-            for (y = 0; y < size; y++) {
-                if ((eval[(y * size) + x] & (0x01 << pattern)) != 0) {
-                    local[(y * size) + x] = '1';
-                } else {
-                    local[(y * size) + x] = '0';
-                }
-            }
-        }
-
-        /* Test 1: Adjacent modules in row/column in same colour */
-        /* Vertical */
-        for (x = 0; x < size; x++) {
-            state = local[x];
-            block = 0;
-            for (y = 0; y < size; y++) {
-                if (local[(y * size) + x] == state) {
-                    block++;
-                } else {
-                    if (block > 5) {
-                        result += (3 + block);
-                    }
-                    block = 0;
-                    state = local[(y * size) + x];
-                }
-            }
-            if (block > 5) {
-                result += (3 + block);
-            }
-        }
-
-        /* Horizontal */
-        for (y = 0; y < size; y++) {
-            state = local[y * size];
-            block = 0;
-            for (x = 0; x < size; x++) {
-                if (local[(y * size) + x] == state) {
-                    block++;
-                } else {
-                    if (block > 5) {
-                        result += (3 + block);
-                    }
-                    block = 0;
-                    state = local[(y * size) + x];
-                }
-            }
-            if (block > 5) {
-                result += (3 + block);
-            }
-        }
-
-        /* Test 2 is not implimented */
-
-        /* Test 3: 1:1:3:1:1 ratio pattern in row/column */
-        /* Vertical */
-        for (x = 0; x < size; x++) {
-            for (y = 0; y < (size - 7); y++) {
-                p = 0;
-                for(weight = 0; weight < 7; weight++) {
-                    if (local[((y + weight) * size) + x] == '1') {
-                        p += (0x40 >> weight);
-                    }
-                }
-                if (p == 0x5d) {
-                    result += 40;
-                }
-            }
-        }
-
-        /* Horizontal */
-        for (y = 0; y < size; y++) {
-            for (x = 0; x < (size - 7); x++) {
-                p = 0;
-                for(weight = 0; weight < 7; weight++) {
-                    if (local[(y * size) + x + weight] == '1') {
-                        p += (0x40 >> weight);
-                    }
-                }
-                if (p == 0x5d) {
-                    result += 40;
-                }
-            }
-        }
-
-        /* Test 4: Proportion of dark modules in entire symbol */
-        dark_mods = 0;
-        for (x = 0; x < size; x++) {
-            for (y = 0; y < size; y++) {
-                if (local[(y * size) + x] == '1') {
-                    dark_mods++;
-                }
-            }
-        }
-        percentage = 100 * (dark_mods / (size * size));
-        if (percentage <= 50) {
-            k = ((100 - percentage) - 50) / 5;
-        } else {
-            k = (percentage - 50) / 5;
-        }
-
-        result += 10 * k;
-
-        return result;
-    }
-
     private void add_format_info(int size, eccMode ecc_level, int pattern) {
         /* Add format information to grid */
 
@@ -1354,4 +1114,14 @@ public class QrCode extends Symbol {
             grid[(i * size) + (size - 9)] += (version_data >> ((i * 3) + 2)) & 0x01;
         }
     }
+
+    private static final class Template {
+        final byte[] grid;
+        final int[] placement;
+
+        Template(byte[] grid, int[] placement) {
+            this.grid = grid;
+            this.placement = placement;
+        }
+    }
 }
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Scores the eight QR Code data masks on packed rows of modules.
+ * <p>
+ * The symbol is held as 64-bit words, once by row and once by column, and
+ * each mask is applied a word at a time as the score is worked out, so no
+ * masked copy of the symbol is ever built. Runs of the same colour and
+ * 1:1:3:1:1 finder-like patterns are found with shifts and masks, with the
+ * rare long runs then measured one at a time.
+ * <p>
+ * The scores are exactly those of the original module by module
+ * evaluation, including its quirks: a run after a change of colour counts
+ * one module short, finder-like patterns are not looked for in the last
+ * seven positions of a line, there is no 2x2 block test and the dark
+ * module proportion always scores as if there were no dark modules.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+final class QrMaskPenalty {
+
+    /** Smallest symbol worth scoring on several threads (version 21) */
+    static final int PARALLEL_SIZE = 101;
+
+    /** Mask patterns by row and by column for each symbol size, built on first use */
+    private static final AtomicReferenceArray<long[]> PATTERNS = new AtomicReferenceArray<>(178);
+
+    private final int size;
+    private final int words;
+    private final long[] patterns;
+    private final long[] darkRows;
+    private final long[] dataRows;
+    private final long[] darkColumns;
+    private final long[] dataColumns;
+
+    /**
+     * @param size width of the symbol in modules
+     * @param grid modules of the unmasked symbol; bit 0 is dark, and any of
+     * the top four bits marks a function module which is never masked
+     */
+    QrMaskPenalty(int size, byte[] grid) {
+        int x, y;
+
+        this.size = size;
+        words = (size + 63) >>> 6;
+        patterns = patterns(size);
+        darkRows = new long[size * words];
+        dataRows = new long[size * words];
+        darkColumns = new long[size * words];
+        dataColumns = new long[size * words];
+        for (y = 0; y < size; y++) {
+            for (x = 0; x < size; x++) {
+                if ((grid[(y * size) + x] & 0x01) != 0) {
+                    darkRows[(y * words) + (x >>> 6)] |= 1L << x;
+                    darkColumns[(x * words) + (y >>> 6)] |= 1L << y;
+                }
+                if ((grid[(y * size) + x] & 0xf0) == 0) {
+                    dataRows[(y * words) + (x >>> 6)] |= 1L << x;
+                    dataColumns[(x * words) + (y >>> 6)] |= 1L << y;
+                }
+            }
+        }
+    }
+
+    /** True if the given mask pattern inverts the module at x, y */
+    boolean inverts(int pattern, int x, int y) {
+        int i = (((pattern * 2 * size) + y) * words) + (x >>> 6);
+
+        return ((patterns[i] & dataRows[(y * words) + (x >>> 6)]) & (1L << x)) != 0;
+    }
+
+    /** Penalty for each of the eight mask patterns */
+    int[] scoreAll(boolean parallel) {
+        int[] penalty = new int[8];
+        List<Future<Integer>> results;
+        int pattern;
+
+        if (!parallel || size < PARALLEL_SIZE || Workers.isWorker()) {
+            Scratch scratch = new Scratch(words);
+
+            for (pattern = 0; pattern < 8; pattern++) {
+                penalty[pattern] = score(pattern, scratch);
+            }
+            return penalty;
+        }
+
+        results = new ArrayList<>(8);
+        for (pattern = 0; pattern < 8; pattern++) {
+            final int task = pattern;
+            results.add(Workers.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return score(task, new Scratch(words));
+                }
+            }));
+        }
+        try {
+            for (pattern = 0; pattern < 8; pattern++) {
+                penalty[pattern] = results.get(pattern).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while choosing a mask", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Mask evaluation failed", e.getCause());
+        }
+        return penalty;
+    }
+
+    /** Penalty for one mask pattern */
+    int score(int pattern, Scratch scratch) {
+        int rowBase = pattern * 2 * size * words;
+        int columnBase = rowBase + (size * words);
+        long[] line = scratch.line;
+        int result = 0;
+        int dark = 0;
+        int i, w, percentage, k;
+
+        for (i = 0; i < size; i++) {
+            for (w = 0; w < words; w++) {
+                line[w] = darkRows[(i * words) + w]
+                        ^ (patterns[rowBase + (i * words) + w] & dataRows[(i * words) + w]);
+                dark += Long.bitCount(line[w]);
+            }
+            result += scoreLine(scratch);
+        }
+        for (i = 0; i < size; i++) {
+            for (w = 0; w < words; w++) {
+                line[w] = darkColumns[(i * words) + w]
+                        ^ (patterns[columnBase + (i * words) + w] & dataColumns[(i * words) + w]);
+            }
+            result += scoreLine(scratch);
+        }
+
+        /* Test 2 is not implimented */
+
+        /* Test 4: Proportion of dark modules in entire symbol */
+        percentage = 100 * (dark / (size * size));
+        if (percentage <= 50) {
+            k = ((100 - percentage) - 50) / 5;
+        } else {
+            k = (percentage - 50) / 5;
+        }
+        result += 10 * k;
+
+        return result;
+    }
+
+    /** Tests 1 and 3 along one row or column held in scratch.line */
+    private int scoreLine(Scratch s) {
+        long[] line = s.line;
+        long[] same = s.same;
+        long[] found = s.found;
+        int result = 0;
+        int w, start, end, length;
+
+        /* Test 1: Adjacent modules in row/column in same colour */
+        /* same holds a bit for each module the same colour as the one before */
+        for (w = 0; w < words; w++) {
+            same[w] = ~(line[w] ^ ((line[w] << 1) | (w > 0 ? line[w - 1] >>> 63 : 0)))
+                    & range(w, 1, size);
+        }
+        /* found marks where at least five such modules follow one another */
+        for (w = 0; w < words; w++) {
+            found[w] = same[w];
+        }
+        for (w = 1; w < 5; w++) {
+            and(found, same, w, false);
+        }
+        start = nextSetBit(found, 0);
+        while (start < size) {
+            end = nextClearBit(same, start);
+            length = end - start;
+            if (start == 1) {
+                // The first run of a line is counted in full
+                length++;
+            }
+            if (length > 5) {
+                result += (3 + length);
+            }
+            start = nextSetBit(found, end);
+        }
+
+        /* Test 3: 1:1:3:1:1 ratio pattern in row/column */
+        /* found marks the first module of each dark-light-dark-dark-dark-light-dark */
+        if (size > 7) {
+            for (w = 0; w < words; w++) {
+                found[w] = line[w] & range(w, 0, size - 7);
+            }
+            and(found, line, 1, true);
+            and(found, line, 2, false);
+            and(found, line, 3, false);
+            and(found, line, 4, false);
+            and(found, line, 5, true);
+            and(found, line, 6, false);
+            for (w = 0; w < words; w++) {
+                result += 40 * Long.bitCount(found[w]);
+            }
+        }
+
+        return result;
+    }
+
+    /** target &= (source shifted down by k), or its inverse */
+    private void and(long[] target, long[] source, int k, boolean invert) {
+        long shifted;
+        int w;
+
+        for (w = 0; w < words; w++) {
+            shifted = source[w] >>> k;
+            if (w + 1 < words) {
+                shifted |= source[w + 1] << (64 - k);
+            }
+            if (invert) {
+                shifted = ~shifted;
+            }
+            target[w] &= shifted;
+        }
+    }
+
+    /** Bits from (inclusive) to (exclusive) which fall in word w */
+    private static long range(int w, int from, int to) {
+        int low = Math.max(from - (w << 6), 0);
+        int high = Math.min(to - (w << 6), 64);
+
+        if (low >= high) {
+            return 0;
+        }
+        if (high == 64) {
+            return -1L << low;
+        }
+        return (-1L << low) & ((1L << high) - 1);
+    }
+
+    private int nextSetBit(long[] bits, int from) {
+        int w = from >>> 6;
+        long word;
+
+        if (from >= size) {
+            return size;
+        }
+        word = bits[w] & (-1L << from);
+        while (word == 0) {
+            w++;
+            if (w == words) {
+                return size;
+            }
+            word = bits[w];
+        }
+        return Math.min((w << 6) + Long.numberOfTrailingZeros(word), size);
+    }
+
+    private int nextClearBit(long[] bits, int from) {
+        int w = from >>> 6;
+        long word;
+
+        if (from >= size) {
+            return size;
+        }
+        word = ~bits[w] & (-1L << from);
+        while (word == 0) {
+            w++;
+            if (w == words) {
+                return size;
+            }
+            word = ~bits[w];
+        }
+        return Math.min((w << 6) + Long.numberOfTrailingZeros(word), size);
+    }
+
+    /**
+     * Each pattern's rows followed by its columns. The masks depend only on
+     * the position in the symbol so one table serves every symbol of a size.
+     */
+    private static long[] patterns(int size) {
+        long[] table = PATTERNS.get(size);
+        int words = (size + 63) >>> 6;
+        int pattern, x, y, base;
+
+        if (table != null) {
+            return table;
+        }
+        table = new long[8 * 2 * size * words];
+        for (pattern = 0; pattern < 8; pattern++) {
+            base = pattern * 2 * size * words;
+            for (y = 0; y < size; y++) {
+                for (x = 0; x < size; x++) {
+                    if (masked(pattern, x, y)) {
+                        table[base + (y * words) + (x >>> 6)] |= 1L << x;
+                        table[base + ((size + x) * words) + (y >>> 6)] |= 1L << y;
+                    }
+                }
+            }
+        }
+        PATTERNS.compareAndSet(size, null, table);
+        return PATTERNS.get(size);
+    }
+
+    private static boolean masked(int pattern, int x, int y) {
+        switch (pattern) {
+            case 0:
+                return ((y + x) & 1) == 0;
+            case 1:
+                return (y & 1) == 0;
+            case 2:
+                return (x % 3) == 0;
+            case 3:
+                return ((y + x) % 3) == 0;
+            case 4:
+                return (((y / 2) + (x / 3)) & 1) == 0;
+            case 5:
+                return (((y * x) & 1) + ((y * x) % 3)) == 0;
+            case 6:
+                return ((((y * x) & 1) + ((y * x) % 3)) & 1) == 0;
+            default:
+                return ((((y + x) & 1) + ((y * x) % 3)) & 1) == 0;
+        }
+    }
+
+    /** Working space for scoring one pattern at a time on one thread */
+    static final class Scratch {
+        final long[] line;
+        final long[] same;
+        final long[] found;
+
+        Scratch(int words) {
+            line = new long[words];
+            same = new long[words];
+            found = new long[words];
+        }
+    }
+}
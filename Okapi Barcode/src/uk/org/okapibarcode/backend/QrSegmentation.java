@@ -0,0 +1,233 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.backend;
+
+/**
+ * Splits QR Code and Micro QR Code input into the run of numeric,
+ * alphanumeric, byte and Kanji mode segments which takes the fewest bits.
+ * <p>
+ * The cost of a segment depends only on its mode and length, so the best
+ * plan is found in one pass over the data, keeping for each mode the
+ * cheapest way of ending the data so far in that mode. Numeric and
+ * alphanumeric modes pack three digits and two characters at a time, so
+ * they are tracked once for each count of characters waiting to be packed,
+ * which keeps every running total an exact number of bits.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+final class QrSegmentation {
+
+    static final int NUMERIC = 0;
+    static final int ALPHANUM = 1;
+    static final int BYTE = 2;
+    static final int KANJI = 3;
+
+    /* States: numeric with 0, 1 or 2 digits waiting, alphanumeric with 0 or 1
+     * characters waiting, byte and Kanji */
+    private static final int STATES = 7;
+    private static final int[] STATE_MODE = {
+        NUMERIC, NUMERIC, NUMERIC, ALPHANUM, ALPHANUM, BYTE, KANJI
+    };
+    private static final int START = STATES;
+    private static final int NONE = Integer.MAX_VALUE / 2;
+
+    private final String content;
+    private final boolean gs1;
+    /* Bit 1 << mode set for each mode which can hold the character */
+    private final byte[] modes;
+
+    QrSegmentation(String content, boolean gs1) {
+        int i;
+        char c;
+
+        this.content = content;
+        this.gs1 = gs1;
+        modes = new byte[content.length()];
+        for (i = 0; i < content.length(); i++) {
+            c = content.charAt(i);
+            if (c > 0xff) {
+                modes[i] = 1 << KANJI;
+            } else {
+                modes[i] = 1 << BYTE;
+                if (isAlphanumeric(c) || (gs1 && (c == '['))) {
+                    modes[i] |= 1 << ALPHANUM;
+                }
+                if ((c >= '0') && (c <= '9')) {
+                    modes[i] |= 1 << NUMERIC;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the cheapest plan for one set of header sizes.
+     *
+     * @param indicatorBits length of each mode indicator
+     * @param countBits length of the character count for each mode, or -1
+     * where the mode cannot be used
+     * @param plan receives the mode of each character
+     * @return total length of the segments in bits, or -1 if some character
+     * cannot be encoded in any of the modes allowed
+     */
+    int plan(int indicatorBits, int[] countBits, int[] plan) {
+        int length = content.length();
+        byte[] from = new byte[length * STATES];
+        int[] cost = new int[STATES];
+        int[] next = new int[STATES];
+        int[] swap;
+        int best, bestState, i, s, units, header;
+        char c;
+
+        for (i = 0; i < length; i++) {
+            c = content.charAt(i);
+            /* A GS1 percent sign is sent as two in alphanumeric mode */
+            units = (gs1 && (c == '%')) ? 2 : 1;
+
+            /* Cheapest way to end the previous character, for a new segment */
+            best = 0;
+            bestState = START;
+            if (i > 0) {
+                best = NONE;
+                for (s = 0; s < STATES; s++) {
+                    if (cost[s] < best) {
+                        best = cost[s];
+                        bestState = s;
+                    }
+                }
+                if (best == NONE) {
+                    /* The previous character could not be encoded */
+                    return -1;
+                }
+            }
+
+            for (s = 0; s < STATES; s++) {
+                next[s] = NONE;
+            }
+
+            if (allowed(i, NUMERIC, countBits)) {
+                header = best + indicatorBits + countBits[NUMERIC];
+                /* A digit costs 4 bits on its own, 7 for two and 10 for three */
+                extend(next, from, i, 1, bestState, header + 4);
+                if (i > 0) {
+                    extend(next, from, i, 1, 0, cost[0] + 4);
+                    extend(next, from, i, 2, 1, cost[1] + 3);
+                    extend(next, from, i, 0, 2, cost[2] + 3);
+                }
+            }
+
+            if (allowed(i, ALPHANUM, countBits)) {
+                header = best + indicatorBits + countBits[ALPHANUM];
+                /* A character costs 6 bits on its own and 11 for a pair */
+                if (units == 1) {
+                    extend(next, from, i, 4, bestState, header + 6);
+                    if (i > 0) {
+                        extend(next, from, i, 4, 3, cost[3] + 6);
+                        extend(next, from, i, 3, 4, cost[4] + 5);
+                    }
+                } else {
+                    extend(next, from, i, 3, bestState, header + 11);
+                    if (i > 0) {
+                        extend(next, from, i, 3, 3, cost[3] + 11);
+                        extend(next, from, i, 4, 4, cost[4] + 11);
+                    }
+                }
+            }
+
+            if (allowed(i, BYTE, countBits)) {
+                header = best + indicatorBits + countBits[BYTE];
+                extend(next, from, i, 5, bestState, header + 8);
+                if (i > 0) {
+                    extend(next, from, i, 5, 5, cost[5] + 8);
+                }
+            }
+
+            if (allowed(i, KANJI, countBits)) {
+                header = best + indicatorBits + countBits[KANJI];
+                extend(next, from, i, 6, bestState, header + 13);
+                if (i > 0) {
+                    extend(next, from, i, 6, 6, cost[6] + 13);
+                }
+            }
+
+            swap = cost;
+            cost = next;
+            next = swap;
+        }
+
+        if (length == 0) {
+            return 0;
+        }
+
+        best = NONE;
+        bestState = 0;
+        for (s = 0; s < STATES; s++) {
+            if (cost[s] < best) {
+                best = cost[s];
+                bestState = s;
+            }
+        }
+        if (best == NONE) {
+            return -1;
+        }
+
+        /* Walk back through the choices to label each character */
+        s = bestState;
+        for (i = length - 1; i >= 0; i--) {
+            plan[i] = STATE_MODE[s];
+            s = from[(i * STATES) + s];
+        }
+
+        return best;
+    }
+
+    private boolean allowed(int i, int mode, int[] countBits) {
+        return ((modes[i] & (1 << mode)) != 0) && (countBits[mode] >= 0);
+    }
+
+    /**
+     * Keeps the cheaper way of reaching a state. Staying in the same segment
+     * is tried after starting a new one, so on a tie the fewer segments win.
+     */
+    private static void extend(int[] next, byte[] from, int i, int state, int previous,
+            int cost) {
+        if (cost <= next[state] && cost < NONE) {
+            next[state] = cost;
+            from[(i * STATES) + state] = (byte) previous;
+        }
+    }
+
+    static boolean isAlphanumeric(char c) {
+        if ((c >= '0') && (c <= '9')) {
+            return true;
+        }
+        if ((c >= 'A') && (c <= 'Z')) {
+            return true;
+        }
+        switch (c) {
+        case ' ':
+        case '$':
+        case '%':
+        case '*':
+        case '+':
+        case '-':
+        case '.':
+        case '/':
+        case ':':
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.backend;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Spreads data which is too long for one QR Code symbol over a Structured
+ * Append set of up to 16 symbols, according to ISO/IEC 18004:2006 section 9.
+ * <p>
+ * The data is cut into as few symbols as it will fit, and every symbol in
+ * the set is then the same version: the smallest which still needs no more
+ * symbols. Each symbol starts with a header giving its place in the set,
+ * the size of the set and a parity byte for the whole message, so a reader
+ * can put the data back together in any order. Data which fits in one
+ * symbol is encoded as a normal symbol with no header.
+ * <p>
+ * Only plain (not GS1 or HIBC) QR Code data can be split. The error
+ * correction level and smallest version are taken from option 1 and
+ * option 2 of the request, as for a single symbol.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+public final class QrStructuredAppend {
+
+    /** Most symbols in a Structured Append set */
+    public static final int MAX_SYMBOLS = 16;
+
+    /* Mode indicator, symbol position, symbol count and parity */
+    private static final int HEADER_BITS = 20;
+
+    private QrStructuredAppend() {
+    }
+
+    /**
+     * Encode data as a Structured Append set. When the request allows it
+     * with {@link BarcodeRequest.Builder#parallel} the symbols are encoded
+     * side by side on the shared worker threads.
+     *
+     * @param request a BARCODE_QRCODE request
+     * @return the symbols in the order they belong in the set, or a single
+     * invalid symbol holding the error if the data could not be encoded
+     */
+    public static List<EncodedSymbol> encode(BarcodeRequest request) {
+        String content = request.getContent();
+        QrCode tables = new QrCode();
+        int[] ends, candidate;
+        int version, minimum, parity, i;
+        final List<String> parts;
+        List<EncodedSymbol> symbols;
+
+        if (!(request.getSymbology().equals("BARCODE_QRCODE"))) {
+            return failed(request, "Structured Append is only available for QR Code");
+        }
+        if (request.isGs1()) {
+            return failed(request, "Structured Append is not available in GS1 mode");
+        }
+        if (content.isEmpty()) {
+            return failed(request, "No input data found");
+        }
+        tables.option1 = request.getOption1();
+        if (cost(content, 0, content.length(), tables.countBits(40)) < 0) {
+            return failed(request, "Invalid character(s) in input data");
+        }
+        parity = parity(content);
+        if (parity < 0) {
+            return failed(request, "Invalid character(s) in input data");
+        }
+
+        /* Find the fewest symbols the data fits in, then the smallest version
+         * which needs no more of them */
+        ends = split(content, tables, 40);
+        if (ends == null) {
+            return failed(request, "Input too long for Structured Append");
+        }
+        if (ends.length == 1) {
+            return Collections.singletonList(Barcode.encode(request));
+        }
+        minimum = 1;
+        if ((request.getOption2() >= 1) && (request.getOption2() <= 40)) {
+            minimum = request.getOption2();
+        }
+        version = 40;
+        for (i = minimum; i < 40; i++) {
+            candidate = split(content, tables, i);
+            if ((candidate != null) && (candidate.length <= ends.length)) {
+                ends = candidate;
+                version = i;
+                break;
+            }
+        }
+
+        parts = new ArrayList<>(ends.length);
+        for (i = 0; i < ends.length; i++) {
+            parts.add(content.substring(i == 0 ? 0 : ends[i - 1], ends[i]));
+        }
+        symbols = encodeParts(request, parts, version, parity);
+        for (EncodedSymbol symbol : symbols) {
+            if (!(symbol.isValid())) {
+                return Collections.singletonList(symbol);
+            }
+        }
+        return symbols;
+    }
+
+    /**
+     * Put the symbols of a set next to each other in one matrix, from left
+     * to right with their top edges level.
+     *
+     * @param symbols valid matrix symbols, normally the result of
+     * {@link #encode(BarcodeRequest)}
+     * @param gap number of light modules left between neighbouring symbols;
+     * QR Code needs a quiet zone 4 modules wide around each symbol
+     * @return the combined modules
+     */
+    public static BitMatrix layout(List<EncodedSymbol> symbols, int gap) {
+        BitMatrix combined, matrix;
+        int width = 0;
+        int height = 0;
+        int offset = 0;
+        int x, y, end;
+
+        for (EncodedSymbol symbol : symbols) {
+            if (symbol.getMatrix() == null) {
+                throw new IllegalArgumentException("Only valid matrix symbols can be laid out");
+            }
+            width += symbol.getMatrix().getWidth();
+            height = Math.max(height, symbol.getMatrix().getHeight());
+        }
+        if (!(symbols.isEmpty())) {
+            width += gap * (symbols.size() - 1);
+        }
+
+        combined = new BitMatrix(width, height);
+        for (EncodedSymbol symbol : symbols) {
+            matrix = symbol.getMatrix();
+            for (y = 0; y < matrix.getHeight(); y++) {
+                x = matrix.nextSetBit(y, 0);
+                while (x < matrix.getWidth()) {
+                    end = matrix.nextClearBit(y, x);
+                    for (; x < end; x++) {
+                        combined.set(offset + x, y);
+                    }
+                    x = matrix.nextSetBit(y, end);
+                }
+            }
+            offset += matrix.getWidth() + gap;
+        }
+        return combined;
+    }
+
+    /**
+     * Cut the data into pieces for symbols of one version, filling each
+     * symbol before moving on to the next.
+     *
+     * @return the end of each piece, or null if more than MAX_SYMBOLS
+     * symbols would be needed
+     */
+    private static int[] split(String content, QrCode tables, int version) {
+        int capacity = tables.dataCapacity(version) - HEADER_BITS;
+        int[] countBits = tables.countBits(version);
+        int[] ends = new int[MAX_SYMBOLS];
+        int count = 0;
+        int start = 0;
+        int low, high, middle;
+
+        while (start < content.length()) {
+            if (count == MAX_SYMBOLS) {
+                return null;
+            }
+            /* A piece never gets cheaper as it grows, so search for the longest
+             * which fits. No character takes less than 10 / 3 bits. */
+            low = start;
+            high = Math.min(content.length(), start + (capacity / 3) + 1);
+            while (low < high) {
+                middle = (low + high + 1) >>> 1;
+                if (cost(content, start, middle, countBits) <= capacity) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (low == start) {
+                return null;
+            }
+            ends[count] = low;
+            count++;
+            start = low;
+        }
+        return Arrays.copyOf(ends, count);
+    }
+
+    private static int cost(String content, int start, int end, int[] countBits) {
+        return new QrSegmentation(content.substring(start, end), false).plan(4, countBits,
+                new int[end - start]);
+    }
+
+    /**
+     * Exclusive or of all the bytes of the message, with Kanji characters
+     * taken as their two Shift JIS bytes
+     *
+     * @return the parity, or -1 if a character above 0xff has no two byte
+     * Shift JIS code in the ranges Kanji mode can hold
+     */
+    private static int parity(String content) {
+        CharsetEncoder sjis = Charset.forName("Shift_JIS").newEncoder();
+        ByteBuffer bytes;
+        int parity = 0;
+        int i, jis;
+        char c;
+
+        for (i = 0; i < content.length(); i++) {
+            c = content.charAt(i);
+            if (c <= 0xff) {
+                parity ^= c;
+                continue;
+            }
+            /* Unlike getBytes(), the encoder reports a character it cannot
+             * map instead of sending '?' */
+            try {
+                bytes = sjis.encode(CharBuffer.wrap(content, i, i + 1));
+            } catch (CharacterCodingException e) {
+                return -1;
+            }
+            if (bytes.remaining() != 2) {
+                return -1;
+            }
+            jis = ((bytes.get(0) & 0xff) << 8) | (bytes.get(1) & 0xff);
+            if (!(((jis >= 0x8140) && (jis <= 0x9ffc)) || ((jis >= 0xe040) && (jis <= 0xebbf)))) {
+                return -1;
+            }
+            parity ^= (jis >> 8) ^ (jis & 0xff);
+        }
+        return parity;
+    }
+
+    private static List<EncodedSymbol> encodeParts(final BarcodeRequest request,
+            final List<String> parts, final int version, final int parity) {
+        List<EncodedSymbol> symbols = new ArrayList<>(parts.size());
+        List<Future<EncodedSymbol>> results;
+        int i;
+
+        if (!request.isParallel() || Workers.isWorker()) {
+            for (i = 0; i < parts.size(); i++) {
+                symbols.add(encodePart(request, parts, i, version, parity));
+            }
+            return symbols;
+        }
+
+        results = new ArrayList<>(parts.size());
+        for (i = 0; i < parts.size(); i++) {
+            final int position = i;
+            results.add(Workers.submit(new Callable<EncodedSymbol>() {
+                @Override
+                public EncodedSymbol call() {
+                    return encodePart(request, parts, position, version, parity);
+                }
+            }));
+        }
+        try {
+            for (i = 0; i < parts.size(); i++) {
+                symbols.add(results.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while encoding Structured Append", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Structured Append encoding failed", e.getCause());
+        }
+        return symbols;
+    }
+
+    private static EncodedSymbol encodePart(BarcodeRequest request, List<String> parts,
+            int position, int version, int parity) {
+        Barcode barcode = new Barcode();
+        boolean valid;
+
+        request.applyTo(barcode);
+        barcode.setOption2(version);
+        barcode.setStructuredAppend(position, parts.size(), parity);
+        try {
+            valid = barcode.encode(request.getSymbology(), parts.get(position));
+        } catch (RuntimeException e) {
+            /* Report a failure as an invalid symbol, as the serial and
+             * parallel paths both promise */
+            barcode.error_msg = "Unable to encode symbol " + (position + 1) + " of the set";
+            valid = false;
+        }
+        return new EncodedSymbol(request.getSymbology(), valid, barcode);
+    }
+
+    private static List<EncodedSymbol> failed(BarcodeRequest request, String message) {
+        Barcode barcode = new Barcode();
+
+        barcode.error_msg = message;
+        return Collections.singletonList(new EncodedSymbol(request.getSymbology(), false, barcode));
+    }
+}
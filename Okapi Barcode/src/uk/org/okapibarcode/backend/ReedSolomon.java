@@ -15,17 +15,27 @@
  */
 package uk.org.okapibarcode.backend;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 /**
+ * Reed-Solomon error correction over GF(2^m).
+ * <p>
+ * Log tables are worked out once per field polynomial and generator
+ * polynomials once per (polynomial, number of codewords, first root), and
+ * are then shared. The static {@link #encode(int, int, int, int[], int, int[])}
+ * writes into a buffer supplied by the caller, allocates nothing once the
+ * tables are cached and is safe to call from any thread. A ReedSolomon
+ * instance is a thin wrapper around the same tables and should not be
+ * shared between threads.
  *
  * @author Robin Stuart <rstuart114@gmail.com>
  */
 public class ReedSolomon {
-    private int logmod;
-    private int rlen;
+    private static volatile Field[] fields = new Field[0];
 
-    private int[] logt;
-    private int[] alog;
+    private Field field;
     private int[] rspoly;
+    private int rlen;
     public int[] res;
 
     public int getResult(int count) {
@@ -33,71 +43,174 @@ public class ReedSolomon {
     }
 
     public void init_gf(int poly) {
-        int m, b, p, v;
+        field = field(poly);
+    }
+
+    public void init_code(int nsym, int index) {
+        rspoly = field.generator(nsym, index);
+        rlen = nsym;
+    }
+
+    public void encode(int len, int[] data) {
+        if (res == null || res.length != rlen) {
+            res = new int[rlen];
+        }
+        field.encode(rspoly, rlen, data, len, res);
+    }
+
+    /**
+     * Calculate error correction codewords
+     *
+     * @param poly field polynomial, e.g. 0x11d
+     * @param nsym number of error correction codewords
+     * @param index power of the first root of the generator polynomial
+     * @param data data codewords
+     * @param len number of data codewords to use
+     * @param ecc receives the nsym error correction codewords, last codeword
+     * first (the same order as {@link #getResult(int)})
+     */
+    public static void encode(int poly, int nsym, int index, int[] data, int len, int[] ecc) {
+        Field f = field(poly);
+
+        f.encode(f.generator(nsym, index), nsym, data, len, ecc);
+    }
 
-        // Find the top bit, and hence the symbol size
-        for (b = 1, m = 0; b <= poly; b <<= 1) {
-            m++;
+    private static Field field(int poly) {
+        Field[] known = fields;
+        Field[] grown;
+        int i;
+
+        for (i = 0; i < known.length; i++) {
+            if (known[i].poly == poly) {
+                return known[i];
+            }
         }
-        b >>= 1;
-        m--;
-
-        // Calculate the log/alog tables
-        logmod = (1 << m) - 1;
-        logt = new int[logmod + 1];
-        alog = new int[logmod];
-
-        for (p = 1, v = 0; v < logmod; v++) {
-            alog[v] = p;
-            logt[p] = v;
-            p <<= 1;
-            if ((p & b) != 0) {
-                p ^= poly;
+        synchronized (ReedSolomon.class) {
+            known = fields;
+            for (i = 0; i < known.length; i++) {
+                if (known[i].poly == poly) {
+                    return known[i];
+                }
             }
+            grown = new Field[known.length + 1];
+            System.arraycopy(known, 0, grown, 0, known.length);
+            grown[known.length] = new Field(poly);
+            fields = grown;
+            return grown[known.length];
         }
     }
 
-    public void init_code(int nsym, int index) {
-        int i, k;
+    /** Log tables for one field, with the generators built from them */
+    private static final class Field {
+        final int poly;
+        final int logmod;
+        final int[] logt;
+        /** Antilogs, repeated so that the sum of two logs needs no modulo */
+        final int[] alog;
+        /** Generators for a first root of 0 or 1, indexed by index * (logmod + 1) + nsym */
+        final AtomicReferenceArray<int[]> generators;
 
-        rspoly = new int[nsym + 1];
+        Field(int poly) {
+            int m, b, p, v;
 
-        rlen = nsym;
+            // Find the top bit, and hence the symbol size
+            for (b = 1, m = 0; b <= poly; b <<= 1) {
+                m++;
+            }
+            b >>= 1;
+            m--;
+
+            // Calculate the log/alog tables
+            this.poly = poly;
+            logmod = (1 << m) - 1;
+            logt = new int[logmod + 1];
+            alog = new int[2 * logmod];
 
-        rspoly[0] = 1;
-        for (i = 1; i <= nsym; i++) {
-            rspoly[i] = 1;
-            for (k = i - 1; k > 0; k--) {
-                if (rspoly[k] != 0) {
-                    rspoly[k] = alog[(logt[rspoly[k]] + index) % logmod];
+            for (p = 1, v = 0; v < logmod; v++) {
+                alog[v] = p;
+                alog[v + logmod] = p;
+                logt[p] = v;
+                p <<= 1;
+                if ((p & b) != 0) {
+                    p ^= poly;
                 }
-                rspoly[k] ^= rspoly[k - 1];
             }
-            rspoly[0] = alog[(logt[rspoly[0]] + index) % logmod];
-            index++;
+            generators = new AtomicReferenceArray<>(2 * (logmod + 1));
         }
-    }
 
-    public void encode(int len, int[] data) {
-        int i, k, m;
+        /**
+         * Generator polynomial held as the log of each coefficient, or -1
+         * where a coefficient is zero
+         */
+        int[] generator(int nsym, int index) {
+            int[] g;
+            int slot;
 
-        res = new int[rlen];
-        for (i = 0; i < rlen; i++) {
-            res[i] = 0;
+            if (index != 0 && index != 1) {
+                return buildGenerator(nsym, index);
+            }
+            slot = (index * (logmod + 1)) + nsym;
+            g = generators.get(slot);
+            if (g == null) {
+                g = buildGenerator(nsym, index);
+                generators.set(slot, g);
+            }
+            return g;
         }
-        for (i = 0; i < len; i++) {
-            m = res[rlen - 1] ^ data[i];
-            for (k = rlen - 1; k > 0; k--) {
-                if ((m != 0) && (rspoly[k] != 0)) {
-                    res[k] = res[k - 1] ^ alog[(logt[m] + logt[rspoly[k]]) % logmod];
-                } else {
-                    res[k] = res[k - 1];
+
+        private int[] buildGenerator(int nsym, int index) {
+            int[] rspoly = new int[nsym + 1];
+            int i, k;
+
+            rspoly[0] = 1;
+            for (i = 1; i <= nsym; i++) {
+                rspoly[i] = 1;
+                for (k = i - 1; k > 0; k--) {
+                    if (rspoly[k] != 0) {
+                        rspoly[k] = alog[(logt[rspoly[k]] + index) % logmod];
+                    }
+                    rspoly[k] ^= rspoly[k - 1];
                 }
+                rspoly[0] = alog[(logt[rspoly[0]] + index) % logmod];
+                index++;
+            }
+            for (i = 0; i <= nsym; i++) {
+                rspoly[i] = (rspoly[i] == 0) ? -1 : logt[rspoly[i]];
             }
-            if ((m != 0) && (rspoly[0] != 0)) {
-                res[0] = alog[(logt[m] + logt[rspoly[0]]) % logmod];
-            } else {
-                res[0] = 0;
+            return rspoly;
+        }
+
+        void encode(int[] rspoly, int rlen, int[] data, int len, int[] res) {
+            int i, k, m;
+
+            for (i = 0; i < rlen; i++) {
+                res[i] = 0;
+            }
+            if (rlen == 0) {
+                return;
+            }
+            for (i = 0; i < len; i++) {
+                m = res[rlen - 1] ^ data[i];
+                if (m == 0) {
+                    for (k = rlen - 1; k > 0; k--) {
+                        res[k] = res[k - 1];
+                    }
+                    res[0] = 0;
+                    continue;
+                }
+                m = logt[m];
+                for (k = rlen - 1; k > 0; k--) {
+                    if (rspoly[k] >= 0) {
+                        res[k] = res[k - 1] ^ alog[m + rspoly[k]];
+                    } else {
+                        res[k] = res[k - 1];
+                    }
+                }
+                if (rspoly[0] >= 0) {
+                    res[0] = alog[m + rspoly[0]];
+                } else {
+                    res[0] = 0;
+                }
             }
         }
     }
@@ -34,9 +34,15 @@ abstract class Symbol {
     public String content;
     public String readable;
     public String[] pattern;
+    public BitMatrix matrix;
+    public HexagonGrid hexGrid;
     public int row_count;
     public int[] row_height;
     public boolean debug = false;
+    /** Allow the encoder to spread large symbols over several threads */
+    public boolean parallel = false;
+    /** Look for the encodation which takes the fewest codewords */
+    public boolean optimize = false;
     public String error_msg;
     public int symbol_height;
     public int symbol_width;
@@ -53,7 +59,7 @@ abstract class Symbol {
     public ArrayList < Rectangle > rect = new ArrayList < > ();
     public ArrayList < TextBox > txt = new ArrayList < > ();
     public ArrayList < Hexagon > hex = new ArrayList < > ();
-    public static ArrayList<Ellipse2D.Double> target = new ArrayList < > ();    
+    public ArrayList<Ellipse2D.Double> target = new ArrayList < > ();
 
     public Symbol() {
         readable = "";
@@ -187,6 +193,23 @@ abstract class Symbol {
             y += h;
         }
         
+        plotReadable();
+    }
+
+    /**
+     * Finish a matrix symbol whose modules have been written to
+     * {@link #matrix}. Rectangles are not created here, they are built from
+     * the matrix only if a caller asks for them.
+     */
+    public void plotMatrix() {
+        rect.clear();
+        txt.clear();
+        symbol_width = Math.max(symbol_width, matrix.getDarkWidth());
+        symbol_height = Math.max(symbol_height, matrix.getHeight());
+        plotReadable();
+    }
+
+    private void plotReadable() {
         if (!(readable.isEmpty())) {
             TextBox thistext = new TextBox();
             // Calculated position is approximately central
@@ -446,7 +469,7 @@ abstract class Symbol {
                 }
                 last_ai = (10 * Character.getNumericValue(source.charAt(i + 1))) 
                         + Character.getNumericValue(source.charAt(i + 2));
-                System.out.println("last AI " + last_ai);
+                if (debug) System.out.println("last AI " + last_ai);
                 if ( ((last_ai >= 0) && (last_ai <= 4)) 
                         || ((last_ai >= 11) && (last_ai <= 20)) 
                         || (last_ai == 23) /* legacy support - see 5.3.8.2.2 */ 
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.backend;
+
+/**
+ * Registry of supported symbologies, keyed by the BARCODE_* names used by
+ * {@link Barcode}. Each entry knows what it supports and can build its own
+ * encoder, so only the encoder actually requested is ever created.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+public enum Symbology {
+    BARCODE_UPCA(false, false, true),
+    BARCODE_UPCE(false, false, true),
+    BARCODE_EANX(false, false, true),
+    BARCODE_ITF14(false, false, false),
+    BARCODE_CODE128(true, false, true),
+    BARCODE_HIBC_128(false, true, false),
+    BARCODE_CODABAR(false, false, false),
+    BARCODE_C25MATRIX(false, false, false),
+    BARCODE_C25IND(false, false, false),
+    BARCODE_C25INTER(false, false, false),
+    BARCODE_C25IATA(false, false, false),
+    BARCODE_C25LOGIC(false, false, false),
+    BARCODE_DPLEIT(false, false, false),
+    BARCODE_DPIDENT(false, false, false),
+    BARCODE_MSI_PLESSEY(false, false, false),
+    BARCODE_CODE39(false, false, false),
+    BARCODE_HIBC_39(false, true, false),
+    BARCODE_LOGMARS(false, false, false),
+    BARCODE_CODE11(false, false, false),
+    BARCODE_CODE93(false, false, false),
+    BARCODE_PZN(false, false, false),
+    BARCODE_EXCODE39(false, false, false),
+    BARCODE_TELEPEN(false, false, false),
+    BARCODE_TELEPEN_NUM(false, false, false),
+    BARCODE_CODE49(true, false, false),
+    BARCODE_KOREAPOST(false, false, false),
+    BARCODE_CODE16K(true, false, false),
+    BARCODE_POSTNET(false, false, false),
+    BARCODE_PLANET(false, false, false),
+    BARCODE_RM4SCC(false, false, false),
+    BARCODE_KIX(false, false, false),
+    BARCODE_JAPANPOST(false, false, false),
+    BARCODE_AUSPOST(false, false, false),
+    BARCODE_AUSREPLY(false, false, false),
+    BARCODE_AUSROUTE(false, false, false),
+    BARCODE_AUSREDIRECT(false, false, false),
+    BARCODE_CHANNEL(false, false, false),
+    BARCODE_PHARMA(false, false, false),
+    BARCODE_PHARMA_TWO(false, false, false),
+    BARCODE_CODE32(false, false, false),
+    BARCODE_PDF417(false, false, false),
+    BARCODE_HIBC_PDF(false, true, false),
+    BARCODE_PDF417TRUNC(false, false, false),
+    BARCODE_MICROPDF417(false, false, false),
+    BARCODE_HIBC_MICPDF(false, true, false),
+    BARCODE_AZTEC(true, false, false),
+    BARCODE_HIBC_AZTEC(false, true, false),
+    BARCODE_AZRUNE(false, false, false),
+    BARCODE_DATAMATRIX(true, false, false),
+    BARCODE_HIBC_DM(false, true, false),
+    BARCODE_ONECODE(false, false, false),
+    BARCODE_QRCODE(true, false, false),
+    BARCODE_HIBC_QR(false, true, false),
+    BARCODE_MICROQR(false, false, false),
+    BARCODE_CODEONE(true, false, false),
+    BARCODE_GRIDMATRIX(false, false, false),
+    BARCODE_RSS14(false, false, true),
+    BARCODE_RSS14STACK_OMNI(false, false, true),
+    BARCODE_RSS14STACK(false, false, true),
+    BARCODE_RSS_LTD(false, false, true),
+    BARCODE_RSS_EXP(true, false, true),
+    BARCODE_RSS_EXPSTACK(true, false, true),
+    BARCODE_MAXICODE(false, false, false),
+    BARCODE_CODABLOCKF(true, false, false),
+    BARCODE_HIBC_BLOCKF(false, true, false);
+
+    private final boolean gs1;
+    private final boolean hibc;
+    private final boolean composite;
+
+    private Symbology(boolean gs1, boolean hibc, boolean composite) {
+        this.gs1 = gs1;
+        this.hibc = hibc;
+        this.composite = composite;
+    }
+
+    /**
+     * Look up a symbology by its BARCODE_* name
+     *
+     * @param name symbology name, e.g. "BARCODE_QRCODE"
+     * @return the matching symbology, or null if the name is not recognised
+     */
+    public static Symbology forName(String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** True if data can be encoded in GS1 mode */
+    public boolean supportsGs1() {
+        return gs1;
+    }
+
+    /** True if this is a HIBC LIC variant of another symbology */
+    public boolean isHibc() {
+        return hibc;
+    }
+
+    /** True if a CC-A/B/C composite component can be added */
+    public boolean supportsComposite() {
+        return composite;
+    }
+
+    /**
+     * Create a new encoder for this symbology with any fixed mode already
+     * selected. Settings which depend on the request (options, GS1, linkage
+     * flags and so on) are left for the caller.
+     */
+    Symbol newSymbol() {
+        Upc upc;
+        Code2Of5 code2of5;
+        Telepen telepen;
+        Postnet postnet;
+        AustraliaPost australiaPost;
+        Pdf417 pdf417;
+        DataBar14 dataBar14;
+        DataBarExpanded dataBarExpanded;
+
+        switch (this) {
+            case BARCODE_UPCA:
+                upc = new Upc();
+                upc.setUpcaMode();
+                return upc;
+            case BARCODE_UPCE:
+                upc = new Upc();
+                upc.setUpceMode();
+                return upc;
+            case BARCODE_EANX:
+                return new Ean();
+            case BARCODE_ITF14:
+                code2of5 = new Code2Of5();
+                code2of5.setITF14Mode();
+                return code2of5;
+            case BARCODE_CODE128:
+            case BARCODE_HIBC_128:
+                return new Code128();
+            case BARCODE_CODABAR:
+                return new Codabar();
+            case BARCODE_C25MATRIX:
+                code2of5 = new Code2Of5();
+                code2of5.setMatrixMode();
+                return code2of5;
+            case BARCODE_C25IND:
+                code2of5 = new Code2Of5();
+                code2of5.setIndustrialMode();
+                return code2of5;
+            case BARCODE_C25INTER:
+                code2of5 = new Code2Of5();
+                code2of5.setInterleavedMode();
+                return code2of5;
+            case BARCODE_C25IATA:
+                code2of5 = new Code2Of5();
+                code2of5.setIATAMode();
+                return code2of5;
+            case BARCODE_C25LOGIC:
+                code2of5 = new Code2Of5();
+                code2of5.setDataLogicMode();
+                return code2of5;
+            case BARCODE_DPLEIT:
+                code2of5 = new Code2Of5();
+                code2of5.setDPLeitMode();
+                return code2of5;
+            case BARCODE_DPIDENT:
+                code2of5 = new Code2Of5();
+                code2of5.setDPIdentMode();
+                return code2of5;
+            case BARCODE_MSI_PLESSEY:
+                return new MsiPlessey();
+            case BARCODE_CODE39:
+            case BARCODE_HIBC_39:
+                return new Code3Of9();
+            case BARCODE_LOGMARS:
+                return new Logmars();
+            case BARCODE_CODE11:
+                return new Code11();
+            case BARCODE_CODE93:
+                return new Code93();
+            case BARCODE_PZN:
+                return new Pharmazentralnummer();
+            case BARCODE_EXCODE39:
+                return new Code3Of9Extended();
+            case BARCODE_TELEPEN:
+                telepen = new Telepen();
+                telepen.setNormalMode();
+                return telepen;
+            case BARCODE_TELEPEN_NUM:
+                telepen = new Telepen();
+                telepen.setNumericMode();
+                return telepen;
+            case BARCODE_CODE49:
+                return new Code49();
+            case BARCODE_KOREAPOST:
+                return new KoreaPost();
+            case BARCODE_CODE16K:
+                return new Code16k();
+            case BARCODE_POSTNET:
+                postnet = new Postnet();
+                postnet.setPostnet();
+                return postnet;
+            case BARCODE_PLANET:
+                postnet = new Postnet();
+                postnet.setPlanet();
+                return postnet;
+            case BARCODE_RM4SCC:
+                return new RoyalMail4State();
+            case BARCODE_KIX:
+                return new KixCode();
+            case BARCODE_JAPANPOST:
+                return new JapanPost();
+            case BARCODE_AUSPOST:
+                australiaPost = new AustraliaPost();
+                australiaPost.setPostMode();
+                return australiaPost;
+            case BARCODE_AUSREPLY:
+                australiaPost = new AustraliaPost();
+                australiaPost.setReplyMode();
+                return australiaPost;
+            case BARCODE_AUSROUTE:
+                australiaPost = new AustraliaPost();
+                australiaPost.setRouteMode();
+                return australiaPost;
+            case BARCODE_AUSREDIRECT:
+                australiaPost = new AustraliaPost();
+                australiaPost.setRedirectMode();
+                return australiaPost;
+            case BARCODE_CHANNEL:
+                return new ChannelCode();
+            case BARCODE_PHARMA:
+                return new PharmaCode();
+            case BARCODE_PHARMA_TWO:
+                return new PharmaCode2Track();
+            case BARCODE_CODE32:
+                return new Code32();
+            case BARCODE_PDF417:
+            case BARCODE_HIBC_PDF:
+                pdf417 = new Pdf417();
+                pdf417.setNormalMode();
+                return pdf417;
+            case BARCODE_PDF417TRUNC:
+                pdf417 = new Pdf417();
+                pdf417.setTruncMode();
+                return pdf417;
+            case BARCODE_MICROPDF417:
+            case BARCODE_HIBC_MICPDF:
+                pdf417 = new Pdf417();
+                pdf417.setMicroMode();
+                return pdf417;
+            case BARCODE_AZTEC:
+            case BARCODE_HIBC_AZTEC:
+                return new AztecCode();
+            case BARCODE_AZRUNE:
+                return new AztecRune();
+            case BARCODE_DATAMATRIX:
+            case BARCODE_HIBC_DM:
+                return new DataMatrix();
+            case BARCODE_ONECODE:
+                return new UspsOneCode();
+            case BARCODE_QRCODE:
+            case BARCODE_HIBC_QR:
+                return new QrCode();
+            case BARCODE_MICROQR:
+                return new MicroQrCode();
+            case BARCODE_CODEONE:
+                return new CodeOne();
+            case BARCODE_GRIDMATRIX:
+                return new GridMatrix();
+            case BARCODE_RSS14:
+                dataBar14 = new DataBar14();
+                dataBar14.setLinearMode();
+                return dataBar14;
+            case BARCODE_RSS14STACK_OMNI:
+                dataBar14 = new DataBar14();
+                dataBar14.setOmnidirectionalMode();
+                return dataBar14;
+            case BARCODE_RSS14STACK:
+                dataBar14 = new DataBar14();
+                dataBar14.setStackedMode();
+                return dataBar14;
+            case BARCODE_RSS_LTD:
+                return new DataBarLimited();
+            case BARCODE_RSS_EXP:
+                dataBarExpanded = new DataBarExpanded();
+                dataBarExpanded.gs1 = true;
+                dataBarExpanded.setNotStacked();
+                return dataBarExpanded;
+            case BARCODE_RSS_EXPSTACK:
+                dataBarExpanded = new DataBarExpanded();
+                dataBarExpanded.gs1 = true;
+                dataBarExpanded.setStacked();
+                return dataBarExpanded;
+            case BARCODE_MAXICODE:
+                return new MaxiCode();
+            case BARCODE_CODABLOCKF:
+            case BARCODE_HIBC_BLOCKF:
+                return new CodablockF();
+            default:
+                throw new IllegalStateException("No encoder for " + name());
+        }
+    }
+}
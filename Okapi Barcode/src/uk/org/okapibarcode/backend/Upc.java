@@ -390,7 +390,7 @@ public class Upc extends Symbol {
                         }
                     }
                 }
-                System.out.println("y " + (y + compositeOffset));
+                if (debug) System.out.println("y " + (y + compositeOffset));
                 Rectangle thisrect = new Rectangle(x + 6, y + compositeOffset, w, h);
                 rect.add(thisrect);
                 if ((x + w + 12) > symbol_width) {
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.backend;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared pool of daemon threads for encoders which split their work up
+ * when asked to with {@link Symbol#parallel}. The pool is only created the
+ * first time it is used and never stops the JVM from exiting. Work which
+ * is already running on the pool should not wait on more work from it, so
+ * callers check {@link #isWorker()} and stay on their own thread if so.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+final class Workers {
+
+    private Workers() {
+    }
+
+    static <T> Future<T> submit(Callable<T> task) {
+        return Holder.POOL.submit(task);
+    }
+
+    /** True if the current thread belongs to the pool */
+    static boolean isWorker() {
+        return Thread.currentThread() instanceof Worker;
+    }
+
+    private static final class Worker extends Thread {
+        Worker(Runnable task, String name) {
+            super(task, name);
+            setDaemon(true);
+        }
+    }
+
+    private static final class Holder {
+        static final ExecutorService POOL = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable task) {
+                        return new Worker(task, "okapi-worker-" + count.incrementAndGet());
+                    }
+                });
+    }
+}
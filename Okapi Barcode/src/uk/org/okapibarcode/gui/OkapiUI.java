@@ -41,6 +41,7 @@ import java.awt.event.WindowEvent;
 import javax.swing.JColorChooser;
 import javax.swing.JDialog;
 import uk.org.okapibarcode.backend.Barcode;
+import uk.org.okapibarcode.backend.Symbology;
 
 /**
  *
@@ -1864,6 +1865,7 @@ public class OkapiUI extends javax.swing.JFrame implements TreeSelectionListener
         DefaultMutableTreeNode node = (DefaultMutableTreeNode)
                 symbolTree.getLastSelectedPathComponent();
         SymbolType selectedSymbol;
+        Symbology type;
         Object nodeInfo;
         
         if (node != null) {
@@ -1874,43 +1876,26 @@ public class OkapiUI extends javax.swing.JFrame implements TreeSelectionListener
                 dataInput = dataInputField.getText();
                 compositeInput = compositeInputField.getText();
                 
-                switch(symbology) {
-                    case "BARCODE_AZTEC":
-                    case "BARCODE_CODE128":
-                    case "BARCODE_CODE16K":
-                    case "BARCODE_CODE49":
-                    case "BARCODE_CODEONE":
-                    case "BARCODE_DATAMATRIX":
-                    case "BARCODE_QRCODE":
-                        useGS1Check.setEnabled(true);
-                        break;
-                    default:
-                        useGS1Check.setEnabled(false);
+                type = Symbology.forName(symbology);
+                
+                if ((type != null) && type.supportsGs1()) {
+                    useGS1Check.setEnabled(true);
+                } else {
+                    useGS1Check.setEnabled(false);
                 }
                 
-                switch(symbology) {
-                    case "BARCODE_EANX":
-                    case "BARCODE_CODE128":
-                    case "BARCODE_UPCE":
-                    case "BARCODE_RSS14STACK_OMNI":
-                    case "BARCODE_RSS14STACK":
-                    case "BARCODE_RSS_LTD":
-                    case "BARCODE_RSS14":
-                    case "BARCODE_RSS_EXP":
-                    case "BARCODE_UPCA":
-                    case "BARCODE_RSS_EXPSTACK":
-                        useCompositeCheck.setEnabled(true);
-                        if (useCompositeCheck.isSelected()) {
-                            compositeLabel.setEnabled(true);
-                            compositeInputField.setEnabled(true);
-                            addCompositeButton.setEnabled(true);
-                        }
-                        break;
-                    default:
-                        useCompositeCheck.setEnabled(false);
-                        compositeLabel.setEnabled(false);
-                        compositeInputField.setEnabled(false);
-                        addCompositeButton.setEnabled(false);
+                if ((type != null) && type.supportsComposite()) {
+                    useCompositeCheck.setEnabled(true);
+                    if (useCompositeCheck.isSelected()) {
+                        compositeLabel.setEnabled(true);
+                        compositeInputField.setEnabled(true);
+                        addCompositeButton.setEnabled(true);
+                    }
+                } else {
+                    useCompositeCheck.setEnabled(false);
+                    compositeLabel.setEnabled(false);
+                    compositeInputField.setEnabled(false);
+                    addCompositeButton.setEnabled(false);
                 }
                 
                 encodeData();       
@@ -2128,12 +2113,12 @@ public class OkapiUI extends javax.swing.JFrame implements TreeSelectionListener
         }
 
         if (barcode.encode(symbology, dataInput)) {
-            bcs = barcode.rect;
+            bcs = barcode.getRectangles();
             height = barcode.symbol_height;
             width = barcode.symbol_width;
             txt = barcode.txt;
-            hex = barcode.hex;
-            target = barcode.target;
+            hex = barcode.getHexagons();
+            target = barcode.getTargets();
             encodeInfo = barcode.encodeInfo;
         } else {
             errorOutput = barcode.error_msg;
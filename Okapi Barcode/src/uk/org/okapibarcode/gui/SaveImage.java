@@ -15,12 +15,11 @@
  */
 package uk.org.okapibarcode.gui;
 
-import java.awt.image.BufferedImage;
 import java.io.File;
-import javax.imageio.ImageIO;
 import javax.swing.JPanel;
 import uk.org.okapibarcode.output.ScalableVectorGraphics;
 import uk.org.okapibarcode.output.PostScript;
+import uk.org.okapibarcode.output.Raster;
 
 /**
  * Save bar code image to image file
@@ -30,6 +29,7 @@ import uk.org.okapibarcode.output.PostScript;
 public class SaveImage {
     ScalableVectorGraphics svg;
     PostScript eps;
+    Raster raster;
 
     public void SaveImage(File file, JPanel panel) {
         try {
@@ -38,15 +38,22 @@ public class SaveImage {
             if (i > 0) {
                 extension = file.getName().substring(i+1);
             }
-            BufferedImage img = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
-            panel.paint(img.getGraphics());
             try {
                 switch (extension) {
                     case "png":
                     case "gif":
                     case "jpg":
                     case "bmp":
-                        ImageIO.write(img, extension, file);
+                        // Same magnification as SaveSymbol, drawn without the panel
+                        raster = new Raster();
+                        raster.setShapes(OkapiUI.bcs, OkapiUI.txt, OkapiUI.hex, OkapiUI.target);
+                        raster.setValues(OkapiUI.width, OkapiUI.height);
+                        raster.setColours(OkapiUI.inkColour, OkapiUI.paperColour);
+                        raster.setModuleSize(4);
+                        raster.setQuietZone(1);
+                        if (!(raster.write(file, extension))) {
+                            OkapiUI.errorOutput = "Error writing to file";
+                        }
                         break;
                     case "svg":
                         svg = new ScalableVectorGraphics();
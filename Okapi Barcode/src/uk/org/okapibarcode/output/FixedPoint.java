@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.output;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Writes numbers to vector output without going through String.format.
+ * Decimals always use a full stop whatever the default locale is. One
+ * instance holds a small scratch buffer and is not thread safe.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+final class FixedPoint {
+    private final char[] buf = new char[24];
+
+    /**
+     * Write a value rounded half up to two decimal places, e.g. "12.50".
+     * The digits are the same as String.format("%.2f") gives.
+     */
+    void write(Writer out, double value) throws IOException {
+        double scaled = Math.abs(value) * 100.0;
+        long hundredths = (long) Math.floor(scaled + 0.5);
+        boolean negative;
+        int pos = buf.length;
+
+        if (Math.abs(scaled - Math.floor(scaled) - 0.5) < 1.0e-6) {
+            // String.format rounds the shortest decimal form of the value, so
+            // near a tie the product alone cannot tell which way it goes
+            hundredths = BigDecimal.valueOf(Math.abs(value)).setScale(2, RoundingMode.HALF_UP)
+                    .unscaledValue().longValue();
+        }
+        negative = (value < 0) && (hundredths != 0);
+
+        buf[--pos] = (char) ('0' + (hundredths % 10));
+        hundredths /= 10;
+        buf[--pos] = (char) ('0' + (hundredths % 10));
+        hundredths /= 10;
+        buf[--pos] = '.';
+        do {
+            buf[--pos] = (char) ('0' + (hundredths % 10));
+            hundredths /= 10;
+        } while (hundredths != 0);
+        if (negative) {
+            buf[--pos] = '-';
+        }
+        out.write(buf, pos, buf.length - pos);
+    }
+
+    /** Write a whole number */
+    void write(Writer out, int value) throws IOException {
+        long remaining = Math.abs((long) value);
+        int pos = buf.length;
+
+        do {
+            buf[--pos] = (char) ('0' + (remaining % 10));
+            remaining /= 10;
+        } while (remaining != 0);
+        if (value < 0) {
+            buf[--pos] = '-';
+        }
+        out.write(buf, pos, buf.length - pos);
+    }
+}
@@ -17,35 +17,79 @@ package uk.org.okapibarcode.output;
 
 import java.awt.Rectangle;
 import java.awt.geom.Ellipse2D;
-import java.io.FileOutputStream;
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
+import uk.org.okapibarcode.backend.BitMatrix;
+import uk.org.okapibarcode.backend.EncodedSymbol;
+import uk.org.okapibarcode.backend.HexagonGrid;
+import uk.org.okapibarcode.backend.Hexagon;
 
 /**
  * Output to EPS file
+ * <p>
+ * The document is streamed to a {@link Writer} or {@link OutputStream} as
+ * it is built. Each row of bars or modules is written as a single call to
+ * a row procedure which takes alternating gap and bar lengths, and every
+ * MaxiCode hexagon is drawn by one procedure from its first vertex, so the
+ * file holds little more than the run lengths themselves.
  *
  * @author Robin Stuart <rstuart114@gmail.com>
  */
 public class PostScript {
-    public static ArrayList<Rectangle> rectangle = new ArrayList<>();
-    public static ArrayList<uk.org.okapibarcode.backend.TextBox> textbox = new ArrayList<>();
-    public static ArrayList<uk.org.okapibarcode.backend.Hexagon> hexagon = new ArrayList<>();
-    public static ArrayList<Ellipse2D.Double> ellipse = new ArrayList<>();
+    private List<Rectangle> rectangle = new ArrayList<>();
+    private List<uk.org.okapibarcode.backend.TextBox> textbox = new ArrayList<>();
+    private List<uk.org.okapibarcode.backend.Hexagon> hexagon = new ArrayList<>();
+    private List<Ellipse2D.Double> ellipse = new ArrayList<>();
+    private BitMatrix matrix;
+    private HexagonGrid hexGrid;
     private int symbol_width;
     private int symbol_height;
     private String symbol_text = "";
     double fgRed, fgGreen, fgBlue;
     double bgRed, bgGreen, bgBlue;
-    
-    public void setShapes(ArrayList<Rectangle> bcs, ArrayList<uk.org.okapibarcode.backend.TextBox> txt,
-            ArrayList<uk.org.okapibarcode.backend.Hexagon> hex, ArrayList<Ellipse2D.Double> target) {
+
+    public void setShapes(List<Rectangle> bcs, List<uk.org.okapibarcode.backend.TextBox> txt,
+            List<uk.org.okapibarcode.backend.Hexagon> hex, List<Ellipse2D.Double> target) {
         rectangle = bcs;
         textbox = txt;
         hexagon = hex;
         ellipse = target;
+        matrix = null;
+        hexGrid = null;
+    }
+
+    /**
+     * Take the shapes and size from an encoded symbol. Matrix symbols are
+     * drawn straight from their modules without building rectangles.
+     *
+     * @param symbol a valid encoded symbol
+     * @param readable text for the document title
+     */
+    public void setSymbol(EncodedSymbol symbol, String readable) {
+        int height = symbol.getHeight();
+
+        if (symbol.getMatrix() != null) {
+            setShapes(new ArrayList<Rectangle>(), symbol.getText(), symbol.getHexagons(),
+                    symbol.getTargets());
+            matrix = symbol.getMatrix();
+        } else if (symbol.getHexagonGrid() != null) {
+            setShapes(new ArrayList<Rectangle>(), symbol.getText(),
+                    new ArrayList<uk.org.okapibarcode.backend.Hexagon>(),
+                    new ArrayList<Ellipse2D.Double>());
+            hexGrid = symbol.getHexagonGrid();
+        } else {
+            setShapes(symbol.getRectangles(), symbol.getText(), symbol.getHexagons(),
+                    symbol.getTargets());
+        }
+        if (!(symbol.getText().isEmpty())) {
+            // Add some space for text
+            height += 10;
+        }
+        setValues(readable, symbol.getWidth(), height);
     }
-    
+
     public void setValues (String readable, int width, int height) {
         symbol_width = width;
         symbol_height = height;
@@ -53,133 +97,325 @@ public class PostScript {
         fgRed = fgGreen = fgBlue = 0.0;
         bgRed = bgGreen = bgBlue = 1.0;
     }
-    
+
     public boolean write(File file) {
-        String outStream;
-        int i, j;
-        
+        try (OutputStream out = new FileOutputStream(file)) {
+            write(out);
+            return true;
+        }
+
+        catch (IOException ioe) {
+            System.err.println("I/O error: " + ioe.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Write the document, one byte per character as PostScript expects.
+     * The stream is flushed but not closed.
+     */
+    public void write(OutputStream stream) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(stream,
+                StandardCharsets.ISO_8859_1));
+
+        write(out);
+        out.flush();
+    }
+
+    /** Write the document. The writer is not flushed or closed. */
+    public void write(Writer out) throws IOException {
+        FixedPoint num = new FixedPoint();
+        int i, rings;
+        double x, y, radius;
+
         // All y-dimensions are reversed because EPS co-ord (0,0) is bottom left
-        
-        try (FileOutputStream fos = new FileOutputStream(file)) {
-            // Header
-            outStream = "%!PS-Adobe-3.0 EPSF-3.0\n";
-            outStream += "%%Creator: Zint 3.0\n";
-            if (symbol_text.length() == 0) {
-                outStream += "%%Title: Zint Generated Symbol\n";
+
+        // Header
+        out.write("%!PS-Adobe-3.0 EPSF-3.0\n");
+        out.write("%%Creator: Zint 3.0\n");
+        if (symbol_text.length() == 0) {
+            out.write("%%Title: Zint Generated Symbol\n");
+        } else {
+            out.write("%%Title: ");
+            writeComment(out, symbol_text);
+            out.write("\n");
+        }
+        out.write("%%Pages: 0\n");
+        out.write("%%BoundingBox: 0 0 ");
+        num.write(out, symbol_width);
+        out.write(' ');
+        num.write(out, symbol_height);
+        out.write("\n");
+        out.write("%%EndComments\n");
+
+        // Definitions
+        // w h x y TF: fill a rectangle with its bottom left corner at x y
+        out.write("/TF { newpath moveto 1 index 0 rlineto 0 exch rlineto neg 0 rlineto closepath fill } bind def\n");
+        // [gap bar gap bar ...] y h TW: fill one row of bars, starting from x = 0
+        out.write("/TW { /th exch def /ty exch def /tg true def 0 exch {\n");
+        out.write("  tg { add } { 2 copy th 3 -1 roll ty TF add } ifelse /tg tg not def\n");
+        out.write("} forall pop } bind def\n");
+        // x y r TC: fill a circle
+        out.write("/TC { newpath 0 360 arc fill } bind def\n");
+        // x y TH: fill a hexagon from its first vertex, see writeHexagons
+        // x0 y0 ... x5 y5 TP: fill any six sided shape
+        out.write("/TP { newpath moveto lineto lineto lineto lineto lineto closepath fill } bind def\n");
+
+        // Background
+        writeColour(out, num, bgRed, bgGreen, bgBlue);
+        num.write(out, symbol_width);
+        out.write(' ');
+        num.write(out, symbol_height);
+        out.write(" 0 0 TF\n");
+        writeColour(out, num, fgRed, fgGreen, fgBlue);
+
+        // Rectangles
+        writeRectangles(out, num);
+        if (matrix != null) {
+            writeMatrix(out, num);
+        }
+
+        // Text
+        for(i = 0; i < textbox.size(); i++) {
+            out.write("matrix currentmatrix\n");
+            out.write("/Helvetica findfont\n");
+            out.write("8.00 scalefont setfont\n");
+            out.write(" 0 0 moveto ");
+            num.write(out, textbox.get(i).xPos);
+            out.write(' ');
+            num.write(out, symbol_height - textbox.get(i).yPos);
+            out.write(" translate 0.00 rotate 0 0 moveto\n");
+            out.write(" (");
+            writeString(out, textbox.get(i).arg);
+            out.write(") stringwidth\n");
+            out.write("pop\n");
+            out.write("-2 div 0 rmoveto\n");
+            out.write(" (");
+            writeString(out, textbox.get(i).arg);
+            out.write(") show\n");
+            out.write("setmatrix\n");
+        }
+
+        // Circles, alternately dark and light from the outside in
+        rings = (hexGrid != null) ? hexGrid.getRingCount() : ellipse.size();
+        for (i = 0; i < rings; i++) {
+            if ((i & 1) != 0) {
+                writeColour(out, num, bgRed, bgGreen, bgBlue);
+            } else if (i != 0) {
+                writeColour(out, num, fgRed, fgGreen, fgBlue);
+            }
+            if (hexGrid != null) {
+                radius = hexGrid.getRingRadius(i);
+                x = hexGrid.getRingCentreX();
+                y = hexGrid.getRingCentreY();
             } else {
-                outStream += "%%Title: " + symbol_text + "\n";
+                radius = ellipse.get(i).width / 2;
+                x = ellipse.get(i).x + radius;
+                y = ellipse.get(i).y + radius;
             }
-            outStream += "%%Pages: 0\n";
-            outStream += "%%BoundingBox: 0 0 " + symbol_width + " " 
-                    + symbol_height + "\n";
-            outStream += "%%EndComments\n";
-            
-            // Definitions
-            outStream += "/TL { setlinewidth moveto lineto stroke } bind def\n";
-            outStream += "/TC { moveto 0 360 arc 360 0 arcn fill } bind def\n";
-            outStream += "/TH { 0 setlinewidth moveto lineto lineto lineto lineto lineto closepath fill } bind def\n";
-            outStream += "/TB { 2 copy } bind def\n";
-            outStream += "/TR { newpath 4 1 roll exch moveto 1 index 0 rlineto 0 exch rlineto neg 0 rlineto closepath fill } bind def\n";
-            outStream += "/TE { pop pop } bind def\n";
-            outStream += "newpath\n";
-            
-            outStream += String.format("%.2f", fgRed) + " " 
-                    + String.format("%.2f", fgGreen) + " "
-                    + String.format("%.2f", fgBlue) + " setrgbcolor\n";
-            outStream += String.format("%.2f", bgRed) + " " 
-                    + String.format("%.2f", bgGreen) + " "
-                    + String.format("%.2f", bgBlue) + " setrgbcolor\n";
-            outStream += symbol_height + ".00 0.00 TB 0.00 " + symbol_width + ".00 TR\n";
-            
-            // Rectangles
-            for (i = 0; i < rectangle.size(); i++) {
-                if (i == 0) {
-                    outStream += "TE\n";
-                    outStream += String.format("%.2f", fgRed) + " " 
-                            + String.format("%.2f", fgGreen) + " "
-                            + String.format("%.2f", fgBlue) + " setrgbcolor\n";
-                    outStream += rectangle.get(i).height + ".00 "
-                            + (symbol_height - rectangle.get(i).y) + ".00 TB "
-                            + rectangle.get(i).x + ".00 "
-                            + rectangle.get(i).width + ".00 TR\n";
-                } else {
-                    if ((rectangle.get(i).height != rectangle.get(i - 1).height)
-                                || (rectangle.get(i).y != rectangle.get(i - 1).y)) {
-                        outStream += "TE\n";
-                        outStream += String.format("%.2f", fgRed) + " " 
-                                + String.format("%.2f", fgGreen) + " "
-                                + String.format("%.2f", fgBlue) + " setrgbcolor\n";                        
-                        outStream += rectangle.get(i).height + ".00 "
-                                + (symbol_height - rectangle.get(i).y) + ".00 ";
-                    }
-                    outStream += "TB " + rectangle.get(i).x + ".00 "
-                            + rectangle.get(i).width + ".00 TR\n";
+            num.write(out, x);
+            out.write(' ');
+            num.write(out, symbol_height - y);
+            out.write(' ');
+            num.write(out, radius);
+            out.write(" TC\n");
+        }
+        if (rings != 0) {
+            writeColour(out, num, fgRed, fgGreen, fgBlue);
+        }
+
+        // Hexagons
+        writeHexagons(out, num);
+        if (hexGrid != null) {
+            writeHexagonGrid(out, num);
+        }
+
+        // Footer
+        out.write("\nshowpage\n");
+    }
+
+    /**
+     * Write the rectangles as rows, starting a new row each time the top or
+     * height changes. Symbols plot their rectangles a row at a time so a
+     * linear symbol is usually a single row.
+     */
+    private void writeRectangles(Writer out, FixedPoint num) throws IOException {
+        Rectangle rect, first = null;
+        int i, x = 0;
+
+        for (i = 0; i < rectangle.size(); i++) {
+            rect = rectangle.get(i);
+            if (first == null || rect.y != first.y || rect.height != first.height) {
+                if (first != null) {
+                    endRow(out, num, symbol_height - first.y - first.height, first.height);
                 }
+                first = rect;
+                x = 0;
+                out.write('[');
+            } else {
+                out.write(' ');
             }
-            
-            // Text
-            for(i = 0; i < textbox.size(); i++) {
-                if (i == 0) {
-                    outStream += "TE\n";
-                    outStream += String.format("%.2f", fgRed) + " " 
-                            + String.format("%.2f", fgGreen) + " "
-                            + String.format("%.2f", fgBlue) + " setrgbcolor\\n";
-                }
-                outStream += "matrix currentmatrix\n";
-                outStream += "/Helvetica findfont\n";
-                outStream += "8.00 scalefont setfont\n";
-                outStream += " 0 0 moveto " 
-                        + String.format("%.2f", textbox.get(i).xPos) 
-                        + " " + String.format("%.2f", symbol_height - textbox.get(i).yPos)
-                        + " translate 0.00 rotate 0 0 moveto\n";
-                outStream += " (" + textbox.get(i).arg + ") stringwidth\n";
-                outStream += "pop\n";
-                outStream += "-2 div 0 rmoveto\n";
-                outStream += " (" + textbox.get(i).arg + ") show\n";
-                outStream += "setmatrix\n";
+            num.write(out, rect.x - x);
+            out.write(' ');
+            num.write(out, rect.width);
+            x = rect.x + rect.width;
+        }
+        if (first != null) {
+            endRow(out, num, symbol_height - first.y - first.height, first.height);
+        }
+    }
+
+    private void writeMatrix(Writer out, FixedPoint num) throws IOException {
+        int x, y, end, last;
+
+        for (y = 0; y < matrix.getHeight(); y++) {
+            x = matrix.nextSetBit(y, 0);
+            if (x == matrix.getWidth()) {
+                continue;
             }
-            
-            // Circles
-            for (i = 0; i < ellipse.size(); i += 2) {
-                if (i == 0) {
-                    outStream += "TE\n";
-                    outStream += String.format("%.2f", fgRed) + " " 
-                            + String.format("%.2f", fgGreen) + " "
-                            + String.format("%.2f", fgBlue) + " setrgbcolor\n";
-                    outStream += String.format("%.2f", fgRed) + " " 
-                            + String.format("%.2f", fgGreen) + " "
-                            + String.format("%.2f", fgBlue) + " setrgbcolor\n";                    
+            out.write('[');
+            last = 0;
+            while (x < matrix.getWidth()) {
+                end = matrix.nextClearBit(y, x);
+                if (last != 0) {
+                    out.write(' ');
                 }
-                outStream += String.format("%.2f", symbol_height - ellipse.get(i).x + (ellipse.get(i).width / 2))
-                        + " " + String.format("%.2f", ellipse.get(i).y + (ellipse.get(i).width / 2))
-                        + " " + String.format("%.2f", ellipse.get(i).width / 2)
-                        + " " + String.format("%.2f", ellipse.get(i + 1).x + (ellipse.get(i + 1).width / 2))
-                        + " " + String.format("%.2f", symbol_height - ellipse.get(i + 1).y + (ellipse.get(i + 1).width / 2))
-                        + " " + String.format("%.2f", ellipse.get(i + 1).width / 2)
-                        + " TC\n";
-            }            
-            
-            // Hexagons
-            for(i = 0; i < hexagon.size(); i++) {
-                for(j = 0; j < 6; j++) {
-                    outStream += String.format("%.2f", hexagon.get(i).pointX[j]) + " " 
-                            + String.format("%.2f", symbol_height - hexagon.get(i).pointY[j]) + " ";
+                num.write(out, x - last);
+                out.write(' ');
+                num.write(out, end - x);
+                last = end;
+                x = matrix.nextSetBit(y, end);
+            }
+            endRow(out, num, symbol_height - y - 1, 1);
+        }
+    }
+
+    private void endRow(Writer out, FixedPoint num, int bottom, int height) throws IOException {
+        out.write("] ");
+        num.write(out, bottom);
+        out.write(' ');
+        num.write(out, height);
+        out.write(" TW\n");
+    }
+
+    /**
+     * Every hexagon in a symbol has the same shape, so the outline is
+     * defined once relative to the first vertex and each hexagon is then
+     * just the position of that vertex. Any hexagon with a different shape
+     * is written out in full.
+     */
+    private void writeHexagons(Writer out, FixedPoint num) throws IOException {
+        Hexagon shape, hex;
+        int i, j;
+
+        if (hexagon.isEmpty()) {
+            return;
+        }
+        shape = hexagon.get(0);
+        out.write("/TH { newpath moveto");
+        for (j = 1; j < 6; j++) {
+            out.write(' ');
+            num.write(out, shape.pointX[j] - shape.pointX[j - 1]);
+            out.write(' ');
+            num.write(out, shape.pointY[j - 1] - shape.pointY[j]);
+            out.write(" rlineto");
+        }
+        out.write(" closepath fill } bind def\n");
+
+        for (i = 0; i < hexagon.size(); i++) {
+            hex = hexagon.get(i);
+            if (sameShape(shape, hex)) {
+                num.write(out, hex.pointX[0]);
+                out.write(' ');
+                num.write(out, symbol_height - hex.pointY[0]);
+                out.write(" TH\n");
+            } else {
+                for (j = 5; j >= 0; j--) {
+                    num.write(out, hex.pointX[j]);
+                    out.write(' ');
+                    num.write(out, symbol_height - hex.pointY[j]);
+                    out.write(' ');
                 }
-                outStream += " TH\n";
+                out.write("TP\n");
+            }
+        }
+    }
+
+    /** As for writeHexagons, with the outline taken from the grid */
+    private void writeHexagonGrid(Writer out, FixedPoint num) throws IOException {
+        BitMatrix modules = hexGrid.getModules();
+        int j, x, y;
+
+        out.write("/TH { newpath moveto");
+        for (j = 1; j < 6; j++) {
+            out.write(' ');
+            num.write(out, hexGrid.getVertexX(j) - hexGrid.getVertexX(j - 1));
+            out.write(' ');
+            num.write(out, hexGrid.getVertexY(j - 1) - hexGrid.getVertexY(j));
+            out.write(" rlineto");
+        }
+        out.write(" closepath fill } bind def\n");
+
+        for (y = 0; y < modules.getHeight(); y++) {
+            x = modules.nextSetBit(y, 0);
+            while (x < modules.getWidth()) {
+                num.write(out, hexGrid.getCentreX(x, y) + hexGrid.getVertexX(0));
+                out.write(' ');
+                num.write(out, symbol_height - (hexGrid.getCentreY(y) + hexGrid.getVertexY(0)));
+                out.write(" TH\n");
+                x = modules.nextSetBit(y, x + 1);
             }
-            
-            // Footer
-            outStream += "\nshowpage\n";
-            
-            // Output data to file
-            for (i = 0; i < outStream.length(); i++) {
-                fos.write(outStream.charAt(i));
+        }
+    }
+
+    private static boolean sameShape(Hexagon a, Hexagon b) {
+        int j;
+
+        for (j = 1; j < 6; j++) {
+            if (Math.abs((a.pointX[j] - a.pointX[0]) - (b.pointX[j] - b.pointX[0])) > 0.001
+                    || Math.abs((a.pointY[j] - a.pointY[0]) - (b.pointY[j] - b.pointY[0])) > 0.001) {
+                return false;
             }
         }
-        
-        catch (IOException ioe) {
-            System.err.println("I/O error: " + ioe.getMessage());
+        return true;
+    }
+
+    private static void writeColour(Writer out, FixedPoint num, double red, double green,
+            double blue) throws IOException {
+        num.write(out, red);
+        out.write(' ');
+        num.write(out, green);
+        out.write(' ');
+        num.write(out, blue);
+        out.write(" setrgbcolor\n");
+    }
+
+    /** Text inside a PostScript string, with brackets and backslashes escaped */
+    private static void writeString(Writer out, String text) throws IOException {
+        int i;
+        char c;
+
+        for (i = 0; i < text.length(); i++) {
+            c = text.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                out.write('\\');
+            }
+            out.write(c);
+        }
+    }
+
+    /** Text in a DSC comment, which must stay on one line */
+    private static void writeComment(Writer out, String text) throws IOException {
+        int i;
+        char c;
+
+        for (i = 0; i < text.length(); i++) {
+            c = text.charAt(i);
+            if (c == '\r' || c == '\n') {
+                out.write(' ');
+            } else {
+                out.write(c);
+            }
         }
-        return false;
     }
 }
@@ -0,0 +1,683 @@
+/*
+ * Copyright 2014 Robin Stuart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.org.okapibarcode.output;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOInvalidTreeException;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import uk.org.okapibarcode.backend.BitMatrix;
+import uk.org.okapibarcode.backend.EncodedSymbol;
+import uk.org.okapibarcode.backend.HexagonGrid;
+import uk.org.okapibarcode.backend.Hexagon;
+
+/**
+ * Renders barcode to a one bit per pixel bitmap
+ * <p>
+ * Shapes are rasterised straight into a packed bitmap, so no display,
+ * Swing component or Graphics2D is needed. Human readable text is drawn
+ * from glyphs which are rendered once for each size and then shared. Each module is a square of {@link #setModuleSize(int)}
+ * pixels and the symbol is surrounded by a quiet zone of
+ * {@link #setQuietZone(int)} modules.
+ * <p>
+ * The bitmap from {@link #render()} has one row after another, each
+ * {@link #getStride()} bytes long, with the leftmost pixel in the most
+ * significant bit and a set bit for ink. {@link #toImage()} wraps the same
+ * bytes in a TYPE_BYTE_BINARY image without copying them. One instance
+ * keeps its settings between symbols but is not thread safe.
+ *
+ * @author Robin Stuart <rstuart114@gmail.com>
+ */
+public class Raster {
+    private List<Rectangle> rectangle = new ArrayList<>();
+    private List<uk.org.okapibarcode.backend.TextBox> textbox = new ArrayList<>();
+    private List<uk.org.okapibarcode.backend.Hexagon> hexagon = new ArrayList<>();
+    private List<Ellipse2D.Double> ellipse = new ArrayList<>();
+    private BitMatrix matrix;
+    private HexagonGrid hexGrid;
+    private int symbol_width;
+    private int symbol_height;
+    private int moduleSize = 4;
+    private int quietZone = 0;
+    private int dpi = 0;
+    private Color inkColour = Color.BLACK;
+    private Color paperColour = Color.WHITE;
+
+    private byte[] bits;
+    private byte[] scratch;
+    private int stride;
+    private int imageWidth;
+    private int imageHeight;
+    private final double[] edgeX = new double[6];
+    private final double[] edgeY = new double[6];
+    private double[] spanLeft = new double[0];
+    private double[] spanRight = new double[0];
+
+    public void setShapes(List<Rectangle> bcs, List<uk.org.okapibarcode.backend.TextBox> txt,
+            List<uk.org.okapibarcode.backend.Hexagon> hex, List<Ellipse2D.Double> target) {
+        rectangle = bcs;
+        textbox = txt;
+        hexagon = hex;
+        ellipse = target;
+        matrix = null;
+        hexGrid = null;
+    }
+
+    /**
+     * Take the shapes and size from an encoded symbol. Matrix symbols are
+     * drawn straight from their modules without building rectangles.
+     *
+     * @param symbol a valid encoded symbol
+     */
+    public void setSymbol(EncodedSymbol symbol) {
+        int height = symbol.getHeight();
+
+        if (symbol.getMatrix() != null) {
+            setShapes(new ArrayList<Rectangle>(), symbol.getText(), symbol.getHexagons(),
+                    symbol.getTargets());
+            matrix = symbol.getMatrix();
+        } else if (symbol.getHexagonGrid() != null) {
+            setShapes(new ArrayList<Rectangle>(), symbol.getText(),
+                    new ArrayList<uk.org.okapibarcode.backend.Hexagon>(),
+                    new ArrayList<Ellipse2D.Double>());
+            hexGrid = symbol.getHexagonGrid();
+        } else {
+            setShapes(symbol.getRectangles(), symbol.getText(), symbol.getHexagons(),
+                    symbol.getTargets());
+        }
+        if (!(symbol.getText().isEmpty())) {
+            // Add some space for text
+            height += 10;
+        }
+        setValues(symbol.getWidth(), height);
+    }
+
+    /** Size of the symbol in modules, including any space for text */
+    public void setValues(int width, int height) {
+        symbol_width = width;
+        symbol_height = height;
+    }
+
+    /** Width and height of one module in pixels, 4 by default */
+    public void setModuleSize(int pixels) {
+        if (pixels < 1) {
+            throw new IllegalArgumentException("Invalid module size " + pixels);
+        }
+        moduleSize = pixels;
+    }
+
+    /**
+     * Choose the module size in millimetres at a given resolution. The
+     * module is rounded to a whole number of pixels, at least one, and the
+     * resolution is recorded in files written by {@link #write}.
+     */
+    public void setModuleSize(double millimetres, int dotsPerInch) {
+        setDpi(dotsPerInch);
+        setModuleSize((int) Math.max(1, Math.round(millimetres * dotsPerInch / 25.4)));
+    }
+
+    /** Light margin around the symbol, in modules. None by default. */
+    public void setQuietZone(int modules) {
+        if (modules < 0) {
+            throw new IllegalArgumentException("Invalid quiet zone " + modules);
+        }
+        quietZone = modules;
+    }
+
+    /** Resolution to record in files written by {@link #write}, or 0 for none */
+    public void setDpi(int dotsPerInch) {
+        if (dotsPerInch < 0) {
+            throw new IllegalArgumentException("Invalid resolution " + dotsPerInch);
+        }
+        dpi = dotsPerInch;
+    }
+
+    public void setColours(Color ink, Color paper) {
+        inkColour = ink;
+        paperColour = paper;
+    }
+
+    /** Width of the bitmap in pixels */
+    public int getWidth() {
+        return (symbol_width + (2 * quietZone)) * moduleSize;
+    }
+
+    /** Height of the bitmap in pixels */
+    public int getHeight() {
+        return (symbol_height + (2 * quietZone)) * moduleSize;
+    }
+
+    /** Number of bytes in each row of the bitmap */
+    public int getStride() {
+        return (getWidth() + 7) >>> 3;
+    }
+
+    /**
+     * Draw the symbol into a new bitmap
+     *
+     * @return packed rows, a set bit for ink
+     */
+    public byte[] render() {
+        imageWidth = getWidth();
+        imageHeight = getHeight();
+        stride = getStride();
+        bits = new byte[Math.max(stride * imageHeight, 1)];
+        if (scratch == null || scratch.length < stride) {
+            scratch = new byte[stride];
+        }
+
+        if (matrix != null) {
+            drawMatrix();
+        }
+        drawRectangles();
+        drawHexagons();
+        if (hexGrid != null) {
+            drawHexagonGrid();
+        }
+        drawTargets();
+        if (!(textbox.isEmpty())) {
+            drawText();
+        }
+        return bits;
+    }
+
+    /** Draw the symbol into a new TYPE_BYTE_BINARY image */
+    public BufferedImage toImage() {
+        return wrap(render());
+    }
+
+    /**
+     * Write the symbol as an image file
+     *
+     * @param file file to create
+     * @param format ImageIO format name, e.g. "png"
+     * @return true if the file was written
+     */
+    public boolean write(File file, String format) {
+        try (OutputStream out = new java.io.FileOutputStream(file)) {
+            write(out, format);
+            return true;
+        }
+
+        catch (IOException ioe) {
+            System.err.println("I/O error: " + ioe.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Write the symbol as an image, recording the resolution if one has
+     * been set and the format supports it. The stream is not closed.
+     *
+     * @param stream destination
+     * @param format ImageIO format name, e.g. "png"
+     * @throws IOException if the image cannot be written, or there is no
+     * writer for the format
+     */
+    public void write(OutputStream stream, String format) throws IOException {
+        BufferedImage img = toImage();
+        ImageTypeSpecifier type;
+        Iterator<ImageWriter> writers;
+        ImageWriter writer;
+        ImageWriteParam param;
+        IIOMetadata metadata;
+
+        if (format.equalsIgnoreCase("jpg") || format.equalsIgnoreCase("jpeg")) {
+            // JPEG has no indexed colour
+            img = toRgb(img);
+        }
+        type = ImageTypeSpecifier.createFromRenderedImage(img);
+        writers = ImageIO.getImageWriters(type, format);
+        if (!(writers.hasNext())) {
+            throw new IOException("No image writer for " + format);
+        }
+        writer = writers.next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(stream)) {
+            param = writer.getDefaultWriteParam();
+            metadata = writer.getDefaultImageMetadata(type, param);
+            if (dpi > 0) {
+                setResolution(metadata);
+            }
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(img, null, metadata), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private void setResolution(IIOMetadata metadata) {
+        String pixelSize = Double.toString(25.4 / dpi);
+        String pixelsPerMetre = Long.toString(Math.round(dpi / 0.0254));
+        IIOMetadataNode root, dimension, horizontal, vertical, physical;
+
+        if (metadata == null || metadata.isReadOnly()) {
+            return;
+        }
+        try {
+            if ("javax_imageio_png_1.0".equals(metadata.getNativeMetadataFormatName())) {
+                // The PNG writer misreads the standard pixel size, so set pHYs itself
+                physical = new IIOMetadataNode("pHYs");
+                physical.setAttribute("pixelsPerUnitXAxis", pixelsPerMetre);
+                physical.setAttribute("pixelsPerUnitYAxis", pixelsPerMetre);
+                physical.setAttribute("unitSpecifier", "meter");
+                root = new IIOMetadataNode("javax_imageio_png_1.0");
+                root.appendChild(physical);
+                metadata.mergeTree("javax_imageio_png_1.0", root);
+            } else if ("javax_imageio_jpeg_image_1.0".equals(metadata.getNativeMetadataFormatName())) {
+                // Likewise the JPEG writer, so set the JFIF density in dots per inch
+                root = (IIOMetadataNode) metadata.getAsTree("javax_imageio_jpeg_image_1.0");
+                physical = (IIOMetadataNode) root.getElementsByTagName("app0JFIF").item(0);
+                if (physical != null) {
+                    physical.setAttribute("resUnits", "1");
+                    physical.setAttribute("Xdensity", Integer.toString(dpi));
+                    physical.setAttribute("Ydensity", Integer.toString(dpi));
+                    metadata.setFromTree("javax_imageio_jpeg_image_1.0", root);
+                }
+            } else if (metadata.isStandardMetadataFormatSupported()) {
+                horizontal = new IIOMetadataNode("HorizontalPixelSize");
+                horizontal.setAttribute("value", pixelSize);
+                vertical = new IIOMetadataNode("VerticalPixelSize");
+                vertical.setAttribute("value", pixelSize);
+                dimension = new IIOMetadataNode("Dimension");
+                dimension.appendChild(horizontal);
+                dimension.appendChild(vertical);
+                root = new IIOMetadataNode("javax_imageio_1.0");
+                root.appendChild(dimension);
+                metadata.mergeTree("javax_imageio_1.0", root);
+            }
+        } catch (IIOInvalidTreeException e) {
+            // Format has nowhere to keep the resolution
+        }
+    }
+
+    /** A TYPE_BYTE_BINARY image sharing the bitmap, palette index 1 for ink */
+    private BufferedImage wrap(byte[] data) {
+        int width = Math.max(getWidth(), 1);
+        int height = Math.max(getHeight(), 1);
+        byte[] red = { (byte) paperColour.getRed(), (byte) inkColour.getRed() };
+        byte[] green = { (byte) paperColour.getGreen(), (byte) inkColour.getGreen() };
+        byte[] blue = { (byte) paperColour.getBlue(), (byte) inkColour.getBlue() };
+        IndexColorModel palette = new IndexColorModel(1, 2, red, green, blue);
+        MultiPixelPackedSampleModel model = new MultiPixelPackedSampleModel(
+                java.awt.image.DataBuffer.TYPE_BYTE, width, height, 1);
+        WritableRaster raster = java.awt.image.Raster.createWritableRaster(model,
+                new DataBufferByte(data, data.length), null);
+
+        return new BufferedImage(palette, raster, false, null);
+    }
+
+    private static BufferedImage toRgb(BufferedImage img) {
+        BufferedImage rgb = new BufferedImage(img.getWidth(), img.getHeight(),
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = rgb.createGraphics();
+
+        g2.drawImage(img, 0, 0, null);
+        g2.dispose();
+        return rgb;
+    }
+
+    /**
+     * Each module row is drawn once at the top of its band of pixels and
+     * then copied down, as nothing else has been drawn yet
+     */
+    private void drawMatrix() {
+        int x, y, end, top, i;
+
+        for (y = 0; y < matrix.getHeight(); y++) {
+            top = (y + quietZone) * moduleSize;
+            x = matrix.nextSetBit(y, 0);
+            if (x == matrix.getWidth()) {
+                continue;
+            }
+            while (x < matrix.getWidth()) {
+                end = matrix.nextClearBit(y, x);
+                fillSpan(top, (x + quietZone) * moduleSize, (end + quietZone) * moduleSize, true);
+                x = matrix.nextSetBit(y, end);
+            }
+            for (i = 1; i < moduleSize; i++) {
+                System.arraycopy(bits, top * stride, bits, (top + i) * stride, stride);
+            }
+        }
+    }
+
+    /**
+     * Symbols plot their rectangles a row at a time, so each run of
+     * rectangles with the same top and height is filled into a scratch row
+     * which is then laid over each pixel row they cover
+     */
+    private void drawRectangles() {
+        Rectangle rect, first;
+        int i, j, row, left, right, top, bottom, from, to;
+
+        i = 0;
+        while (i < rectangle.size()) {
+            first = rectangle.get(i);
+            top = (first.y + quietZone) * moduleSize;
+            bottom = Math.min(top + (first.height * moduleSize), imageHeight);
+            from = Integer.MAX_VALUE;
+            to = 0;
+            for (; i < rectangle.size(); i++) {
+                rect = rectangle.get(i);
+                if (rect.y != first.y || rect.height != first.height) {
+                    break;
+                }
+                left = (rect.x + quietZone) * moduleSize;
+                right = Math.min(left + (rect.width * moduleSize), imageWidth);
+                left = Math.max(left, 0);
+                if (left < right) {
+                    fillSpan(scratch, 0, left, right, true);
+                    from = Math.min(from, left >>> 3);
+                    to = Math.max(to, ((right - 1) >>> 3) + 1);
+                }
+            }
+            for (row = Math.max(top, 0); row < bottom && from < to; row++) {
+                for (j = from; j < to; j++) {
+                    bits[(row * stride) + j] |= scratch[j];
+                }
+            }
+            for (j = from; j < to; j++) {
+                scratch[j] = 0;
+            }
+        }
+    }
+
+    /**
+     * Fill each hexagon by scan line, taking a pixel as ink if its centre is
+     * inside. Hexagons are convex so each row is a single span.
+     */
+    private void drawHexagons() {
+        double offset = quietZone * moduleSize;
+        double top, bottom, y, left, right, x;
+        Hexagon hex;
+        int i, j, k, row, lastRow;
+
+        for (i = 0; i < hexagon.size(); i++) {
+            hex = hexagon.get(i);
+            top = Double.MAX_VALUE;
+            bottom = -Double.MAX_VALUE;
+            for (j = 0; j < 6; j++) {
+                edgeX[j] = (hex.pointX[j] * moduleSize) + offset;
+                edgeY[j] = (hex.pointY[j] * moduleSize) + offset;
+                top = Math.min(top, edgeY[j]);
+                bottom = Math.max(bottom, edgeY[j]);
+            }
+            row = (int) Math.ceil(top - 0.5);
+            lastRow = (int) Math.ceil(bottom - 0.5);
+            for (; row < lastRow; row++) {
+                y = row + 0.5;
+                left = Double.MAX_VALUE;
+                right = -Double.MAX_VALUE;
+                for (j = 0; j < 6; j++) {
+                    k = (j + 1) % 6;
+                    if ((edgeY[j] <= y && y < edgeY[k]) || (edgeY[k] <= y && y < edgeY[j])) {
+                        x = edgeX[j] + ((y - edgeY[j]) * (edgeX[k] - edgeX[j])
+                                / (edgeY[k] - edgeY[j]));
+                        left = Math.min(left, x);
+                        right = Math.max(right, x);
+                    }
+                }
+                if (left < right) {
+                    fillSpan(row, (int) Math.ceil(left - 0.5), (int) Math.ceil(right - 0.5), true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Every hexagon in a row of the grid covers the same pixel rows with the
+     * same outline, so the span of each pixel row is found once relative to
+     * the centre and then filled at each dark module of the row
+     */
+    private void drawHexagonGrid() {
+        BitMatrix modules = hexGrid.getModules();
+        double offset = quietZone * moduleSize;
+        double top, bottom, y, left, right, x, centreX;
+        int i, j, k, row, firstRow, rows, column;
+
+        for (row = 0; row < modules.getHeight(); row++) {
+            column = modules.nextSetBit(row, 0);
+            if (column == modules.getWidth()) {
+                continue;
+            }
+            top = Double.MAX_VALUE;
+            bottom = -Double.MAX_VALUE;
+            for (j = 0; j < 6; j++) {
+                edgeX[j] = hexGrid.getVertexX(j) * moduleSize;
+                edgeY[j] = ((hexGrid.getCentreY(row) + hexGrid.getVertexY(j)) * moduleSize) + offset;
+                top = Math.min(top, edgeY[j]);
+                bottom = Math.max(bottom, edgeY[j]);
+            }
+            firstRow = (int) Math.ceil(top - 0.5);
+            rows = (int) Math.ceil(bottom - 0.5) - firstRow;
+            if (spanLeft.length < rows) {
+                spanLeft = new double[rows];
+                spanRight = new double[rows];
+            }
+            for (i = 0; i < rows; i++) {
+                y = firstRow + i + 0.5;
+                left = Double.MAX_VALUE;
+                right = -Double.MAX_VALUE;
+                for (j = 0; j < 6; j++) {
+                    k = (j + 1) % 6;
+                    if ((edgeY[j] <= y && y < edgeY[k]) || (edgeY[k] <= y && y < edgeY[j])) {
+                        x = edgeX[j] + ((y - edgeY[j]) * (edgeX[k] - edgeX[j])
+                                / (edgeY[k] - edgeY[j]));
+                        left = Math.min(left, x);
+                        right = Math.max(right, x);
+                    }
+                }
+                spanLeft[i] = left;
+                spanRight[i] = right;
+            }
+            while (column < modules.getWidth()) {
+                centreX = (hexGrid.getCentreX(column, row) * moduleSize) + offset;
+                for (i = 0; i < rows; i++) {
+                    if (spanLeft[i] < spanRight[i]) {
+                        fillSpan(firstRow + i, (int) Math.ceil(centreX + spanLeft[i] - 0.5),
+                                (int) Math.ceil(centreX + spanRight[i] - 0.5), true);
+                    }
+                }
+                column = modules.nextSetBit(row, column + 1);
+            }
+        }
+    }
+
+    /** Circles alternate between ink and paper from the outside in */
+    private void drawTargets() {
+        double offset = quietZone * moduleSize;
+        double centreX, centreY, radius, dy, half;
+        Ellipse2D.Double circle;
+        int i, row, lastRow, rings;
+
+        rings = (hexGrid != null) ? hexGrid.getRingCount() : ellipse.size();
+        for (i = 0; i < rings; i++) {
+            if (hexGrid != null) {
+                radius = hexGrid.getRingRadius(i) * moduleSize;
+                centreX = (hexGrid.getRingCentreX() * moduleSize) + offset;
+                centreY = (hexGrid.getRingCentreY() * moduleSize) + offset;
+            } else {
+                circle = ellipse.get(i);
+                radius = (circle.width * moduleSize) / 2;
+                centreX = (circle.x * moduleSize) + offset + radius;
+                centreY = (circle.y * moduleSize) + offset + radius;
+            }
+            row = (int) Math.ceil(centreY - radius - 0.5);
+            lastRow = (int) Math.ceil(centreY + radius - 0.5);
+            for (; row < lastRow; row++) {
+                dy = (row + 0.5) - centreY;
+                if (dy * dy < radius * radius) {
+                    half = Math.sqrt((radius * radius) - (dy * dy));
+                    fillSpan(row, (int) Math.ceil(centreX - half - 0.5),
+                            (int) Math.ceil(centreX + half - 0.5), (i & 1) == 0);
+                }
+            }
+        }
+    }
+
+    /** Text is centred on its position, with the baseline at its height */
+    private void drawText() {
+        int size = 8 * moduleSize;
+        String text;
+        Glyph glyph;
+        int i, j, k, x, y, width;
+
+        for (i = 0; i < textbox.size(); i++) {
+            text = textbox.get(i).arg;
+            width = 0;
+            for (j = 0; j < text.length(); j++) {
+                width += Glyph.get(size, text.charAt(j)).advance;
+            }
+            x = (int) Math.round(((textbox.get(i).xPos + quietZone) * moduleSize) - (width / 2.0));
+            y = (int) Math.round((textbox.get(i).yPos + quietZone) * moduleSize);
+            for (j = 0; j < text.length(); j++) {
+                glyph = Glyph.get(size, text.charAt(j));
+                for (k = 0; k < glyph.spans.length; k += 3) {
+                    fillSpan(y + glyph.spans[k], x + glyph.spans[k + 1], x + glyph.spans[k + 2], true);
+                }
+                x += glyph.advance;
+            }
+        }
+    }
+
+    /** Set or clear pixels left (inclusive) to right (exclusive) of one row */
+    private void fillSpan(int row, int left, int right, boolean ink) {
+        if (row < 0 || row >= imageHeight) {
+            return;
+        }
+        fillSpan(bits, row * stride, Math.max(left, 0), Math.min(right, imageWidth), ink);
+    }
+
+    private static void fillSpan(byte[] target, int start, int left, int right, boolean ink) {
+        int first, last, i;
+        byte firstMask, lastMask;
+
+        if (left >= right) {
+            return;
+        }
+        first = start + (left >>> 3);
+        last = start + ((right - 1) >>> 3);
+        firstMask = (byte) (0xff >>> (left & 7));
+        lastMask = (byte) (0xff << (7 - ((right - 1) & 7)));
+        if (first == last) {
+            firstMask &= lastMask;
+            lastMask = firstMask;
+        }
+        if (ink) {
+            target[first] |= firstMask;
+            for (i = first + 1; i < last; i++) {
+                target[i] = (byte) 0xff;
+            }
+            target[last] |= lastMask;
+        } else {
+            target[first] &= ~firstMask;
+            for (i = first + 1; i < last; i++) {
+                target[i] = 0;
+            }
+            target[last] &= ~lastMask;
+        }
+    }
+
+    /**
+     * One character of human readable text as runs of ink, relative to the
+     * pen position on the baseline. Glyphs are drawn with Graphics2D the
+     * first time each character is needed at each size and kept for reuse.
+     */
+    private static final class Glyph {
+        private static final ConcurrentHashMap<Long, Glyph> CACHE = new ConcurrentHashMap<>();
+
+        /** Row, left and right of each run, right exclusive */
+        final int[] spans;
+        final int advance;
+
+        private Glyph(int[] spans, int advance) {
+            this.spans = spans;
+            this.advance = advance;
+        }
+
+        static Glyph get(int size, char c) {
+            Long key = ((long) size << 16) | c;
+            Glyph glyph = CACHE.get(key);
+            Glyph existing;
+
+            if (glyph == null) {
+                glyph = draw(size, c);
+                existing = CACHE.putIfAbsent(key, glyph);
+                if (existing != null) {
+                    glyph = existing;
+                }
+            }
+            return glyph;
+        }
+
+        private static Glyph draw(int size, char c) {
+            Font font = new Font(Font.SANS_SERIF, Font.PLAIN, size);
+            BufferedImage img = new BufferedImage(size * 2, size * 2, BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D g2 = img.createGraphics();
+            byte[] pixels = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+            int[] spans = new int[img.getWidth() * img.getHeight()];
+            int origin = size / 2;
+            int baseline = (size * 3) / 2;
+            int advance, count = 0;
+            int x, y, start;
+
+            g2.setColor(Color.WHITE);
+            g2.setFont(font);
+            g2.drawString(String.valueOf(c), origin, baseline);
+            advance = g2.getFontMetrics().charWidth(c);
+            g2.dispose();
+
+            for (y = 0; y < img.getHeight(); y++) {
+                x = 0;
+                while (x < img.getWidth()) {
+                    if ((pixels[(y * img.getWidth()) + x] & 0xff) < 128) {
+                        x++;
+                        continue;
+                    }
+                    start = x;
+                    while (x < img.getWidth() && (pixels[(y * img.getWidth()) + x] & 0xff) >= 128) {
+                        x++;
+                    }
+                    spans[count++] = y - baseline;
+                    spans[count++] = start - origin;
+                    spans[count++] = x - origin;
+                }
+            }
+            return new Glyph(java.util.Arrays.copyOf(spans, count), advance);
+        }
+    }
+}
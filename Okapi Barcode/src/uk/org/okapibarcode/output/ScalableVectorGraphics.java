@@ -18,30 +18,77 @@ package uk.org.okapibarcode.output;
 import java.awt.Rectangle;
 import java.awt.geom.Ellipse2D;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
+import uk.org.okapibarcode.backend.BitMatrix;
+import uk.org.okapibarcode.backend.EncodedSymbol;
+import uk.org.okapibarcode.backend.HexagonGrid;
 
 /**
  * Outputs barcode to .SVG files
+ * <p>
+ * The document is streamed to a {@link Writer} or {@link OutputStream} as
+ * it is built. By default each dark run is written as a separate
+ * <code>&lt;rect&gt;</code>; with {@link #setMergePaths(boolean)} all of the
+ * runs are written as one <code>&lt;path&gt;</code> instead, which is much
+ * smaller for large matrix and stacked symbols. A MaxiCode hexagon is
+ * defined once and each module is a <code>&lt;use&gt;</code> of it.
  *
  * @author Robin Stuart <rstuart114@gmail.com>
  */
 public class ScalableVectorGraphics {
-    public static ArrayList<Rectangle> rectangle = new ArrayList<>();
-    public static ArrayList<uk.org.okapibarcode.backend.TextBox> textbox = new ArrayList<>();
-    public static ArrayList<uk.org.okapibarcode.backend.Hexagon> hexagon = new ArrayList<>();
-    public static ArrayList<Ellipse2D.Double> ellipse = new ArrayList<>();
+    private List<Rectangle> rectangle = new ArrayList<>();
+    private List<uk.org.okapibarcode.backend.TextBox> textbox = new ArrayList<>();
+    private List<uk.org.okapibarcode.backend.Hexagon> hexagon = new ArrayList<>();
+    private List<Ellipse2D.Double> ellipse = new ArrayList<>();
+    private BitMatrix matrix;
+    private HexagonGrid hexGrid;
     private int symbol_width;
     private int symbol_height;
     private String symbol_text = "";
     private String fgColour = "000000";
     private String bgColour = "FFFFFF";
+    private boolean mergePaths = false;
     
-    public void setShapes(ArrayList<Rectangle> bcs, ArrayList<uk.org.okapibarcode.backend.TextBox> txt,
-            ArrayList<uk.org.okapibarcode.backend.Hexagon> hex, ArrayList<Ellipse2D.Double> target) {
+    public void setShapes(List<Rectangle> bcs, List<uk.org.okapibarcode.backend.TextBox> txt,
+            List<uk.org.okapibarcode.backend.Hexagon> hex, List<Ellipse2D.Double> target) {
         rectangle = bcs;
         textbox = txt;
         hexagon = hex;
         ellipse = target;
+        matrix = null;
+        hexGrid = null;
+    }
+    
+    /**
+     * Take the shapes and size from an encoded symbol. Matrix symbols are
+     * drawn straight from their modules without building rectangles.
+     *
+     * @param symbol a valid encoded symbol
+     * @param readable text for the document description
+     */
+    public void setSymbol(EncodedSymbol symbol, String readable) {
+        int height = symbol.getHeight();
+
+        if (symbol.getMatrix() != null) {
+            setShapes(new ArrayList<Rectangle>(), symbol.getText(), symbol.getHexagons(),
+                    symbol.getTargets());
+            matrix = symbol.getMatrix();
+        } else if (symbol.getHexagonGrid() != null) {
+            setShapes(new ArrayList<Rectangle>(), symbol.getText(),
+                    new ArrayList<uk.org.okapibarcode.backend.Hexagon>(),
+                    new ArrayList<Ellipse2D.Double>());
+            hexGrid = symbol.getHexagonGrid();
+        } else {
+            setShapes(symbol.getRectangles(), symbol.getText(), symbol.getHexagons(),
+                    symbol.getTargets());
+        }
+        if (!(symbol.getText().isEmpty())) {
+            // Add some space for text
+            height += 10;
+        }
+        setValues(readable, symbol.getWidth(), height);
     }
     
     public void setValues (String readable, int width, int height) {
@@ -50,91 +97,262 @@ public class ScalableVectorGraphics {
         symbol_text = readable;
     }
     
+    /** Write all the dark modules as a single path rather than one rect each */
+    public void setMergePaths(boolean merge) {
+        mergePaths = merge;
+    }
+    
     public boolean write(File file) {
-        String outStream;
-        int i, j;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            write(out);
+            return true;
+        }
+        
+        catch (IOException ioe) {
+            System.err.println("I/O error: " + ioe.getMessage());
+        }
+        return false;
+    }
+    
+    /** Write the document as UTF-8. The stream is flushed but not closed. */
+    public void write(OutputStream stream) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        
+        write(out);
+        out.flush();
+    }
+    
+    /** Write the document. The writer is not flushed or closed. */
+    public void write(Writer out) throws IOException {
+        FixedPoint num = new FixedPoint();
+        int i, j, rings;
+        double x, y, radius;
         String nowColour;
         
-        try (FileOutputStream fos = new FileOutputStream(file)) {
-            // Header
-            outStream = "<?xml version=\"1.0\" standalone=\"no\"?>\n";
-            outStream += "<!DOCTYPE svg PUBLIC \"-//W3C//DTD SVG 1.1//EN\"\n";
-            outStream += "   \"http://www.w3.org/Graphics/SVG/1.1/DTD/svg11.dtd\">\n";
-            outStream += "<svg width=\"" + symbol_width + "\" height=\"" 
-                    + symbol_height + "\" version=\"1.1\"\n";
-            outStream += "   xmlns=\"http://www.w3.org/2000/svg\">\n";
-            if (symbol_text.length() == 0) {
-                outStream += "   <desc>Zint Generated Symbol\n";
+        // Header
+        out.write("<?xml version=\"1.0\" standalone=\"no\"?>\n");
+        out.write("<!DOCTYPE svg PUBLIC \"-//W3C//DTD SVG 1.1//EN\"\n");
+        out.write("   \"http://www.w3.org/Graphics/SVG/1.1/DTD/svg11.dtd\">\n");
+        out.write("<svg width=\"");
+        num.write(out, symbol_width);
+        out.write("\" height=\"");
+        num.write(out, symbol_height);
+        out.write("\" version=\"1.1\"\n");
+        out.write("   xmlns=\"http://www.w3.org/2000/svg\"");
+        if (hexGrid != null) {
+            out.write("\n   xmlns:xlink=\"http://www.w3.org/1999/xlink\"");
+        }
+        out.write(">\n");
+        if (symbol_text.length() == 0) {
+            out.write("   <desc>Zint Generated Symbol\n");
+        } else {
+            out.write("   <desc>");
+            writeEscaped(out, symbol_text);
+            out.write("\n");
+        }
+        out.write("   </desc>\n");
+        out.write("\n   <g id=\"barcode\" fill=\"#" + fgColour + "\">\n");
+        out.write("      <rect x=\"0\" y=\"0\" width=\"");
+        num.write(out, symbol_width);
+        out.write("\" height=\"");
+        num.write(out, symbol_height);
+        out.write("\" fill=\"#" + bgColour + "\" />\n");
+        
+        // Rectangles
+        if (mergePaths) {
+            writePath(out, num);
+        } else {
+            writeRects(out, num);
+        }
+        
+        // Text
+        for(i = 0; i < textbox.size(); i++) {
+            out.write("      <text x=\"" + textbox.get(i).xPos + "\" y=\""
+                    + textbox.get(i).yPos + "\" text-anchor=\"middle\"\n");
+            out.write("         font-family=\"Helvetica\" font-size=\"8\" fill=\""
+                    + fgColour + "\" >\n");
+            out.write("         ");
+            writeEscaped(out, textbox.get(i).arg);
+            out.write("\n");
+            out.write("      </text>\n");
+        }
+        
+        // Circles
+        rings = (hexGrid != null) ? hexGrid.getRingCount() : ellipse.size();
+        for (i = 0; i < rings; i++) {
+            if ((i & 1) == 0) {
+                nowColour = fgColour;
             } else {
-                outStream += "   <desc>" + symbol_text + "\n";
+                nowColour = bgColour;
             }
-            outStream += "   </desc>\n";
-            outStream += "\n   <g id=\"barcode\" fill=\"#" + fgColour + "\">\n";
-            outStream += "      <rect x=\"0\" y=\"0\" width=\"" + symbol_width 
-                    + "\" height=\"" + symbol_height + "\" fill=\"#" 
-                    + bgColour + "\" />\n";
-            
-            // Rectangles
-            for (i = 0; i < rectangle.size(); i++) {
-                outStream += "      <rect x=\"" + rectangle.get(i).x  
-                        + ".00\" y=\"" + rectangle.get(i).y + ".00\" width=\"" 
-                        + rectangle.get(i).width + ".00\" height=\"" 
-                        + rectangle.get(i).height + ".00\" />\n";
-            }
-            
-            // Text
-            for(i = 0; i < textbox.size(); i++) {
-                outStream += "      <text x=\"" + textbox.get(i).xPos + "\" y=\""
-                        + textbox.get(i).yPos + "\" text-anchor=\"middle\"\n";
-                outStream += "         font-family=\"Helvetica\" font-size=\"8\" fill=\""
-                        + fgColour + "\" >\n";
-                outStream += "         " + textbox.get(i).arg + "\n";
-                outStream += "      </text>\n";
+            if (hexGrid != null) {
+                radius = hexGrid.getRingRadius(i);
+                x = hexGrid.getRingCentreX();
+                y = hexGrid.getRingCentreY();
+            } else {
+                radius = ellipse.get(i).width / 2;
+                x = ellipse.get(i).x + radius;
+                y = ellipse.get(i).y + radius;
             }
-            
-            // Circles
-            for (i = 0; i < ellipse.size(); i++) {
-                if ((i & 1) == 0) {
-                    nowColour = fgColour;
+            out.write("      <circle cx=\"");
+            num.write(out, x);
+            out.write("\" cy=\"");
+            num.write(out, y);
+            out.write("\" r=\"");
+            num.write(out, radius);
+            out.write("\" fill=\"#" + nowColour + "\" />\n");
+        }            
+        
+        // Hexagons
+        for(i = 0; i < hexagon.size(); i++) {
+            out.write("      <path d=\"");
+            for(j = 0; j < 6; j++) {
+                if (j == 0) {
+                    out.write("M ");
                 } else {
-                    nowColour = bgColour;
+                    out.write("L ");
                 }
-                outStream += "      <circle cx=\""
-                        + String.format("%.2f", ellipse.get(i).x + (ellipse.get(i).width / 2))
-                        + "\" cy=\"" 
-                        + String.format("%.2f", ellipse.get(i).y + (ellipse.get(i).width / 2))
-                        + "\" r=\"" + String.format("%.2f", ellipse.get(i).width / 2)
-                        + "\" fill=\"#" + nowColour + "\" />\n";
-            }            
-            
-            // Hexagons
-            for(i = 0; i < hexagon.size(); i++) {
-                outStream += "      <path d=\"";
-                for(j = 0; j < 6; j++) {
-                    if (j == 0) {
-                        outStream += "M ";
-                    } else {
-                        outStream += "L ";
-                    }
-                    outStream += String.format("%.2f", hexagon.get(i).pointX[j]) + " " 
-                            + String.format("%.2f", hexagon.get(i).pointY[j]) + " ";
+                num.write(out, hexagon.get(i).pointX[j]);
+                out.write(' ');
+                num.write(out, hexagon.get(i).pointY[j]);
+                out.write(' ');
+            }
+            out.write("Z\" />\n");
+        }
+        if (hexGrid != null) {
+            writeHexagonGrid(out, num);
+        }
+        
+        // Footer
+        out.write("   </g>\n");
+        out.write("</svg>\n");
+    }
+    
+    /**
+     * Define the outline of a hexagon about its centre once, then place a
+     * copy of it at the centre of each dark module
+     */
+    private void writeHexagonGrid(Writer out, FixedPoint num) throws IOException {
+        BitMatrix modules = hexGrid.getModules();
+        int j, x, y;
+
+        out.write("      <defs>\n");
+        out.write("         <path id=\"hexagon\" d=\"");
+        for (j = 0; j < 6; j++) {
+            out.write((j == 0) ? "M " : "L ");
+            num.write(out, hexGrid.getVertexX(j));
+            out.write(' ');
+            num.write(out, hexGrid.getVertexY(j));
+            out.write(' ');
+        }
+        out.write("Z\" />\n");
+        out.write("      </defs>\n");
+        for (y = 0; y < modules.getHeight(); y++) {
+            x = modules.nextSetBit(y, 0);
+            while (x < modules.getWidth()) {
+                out.write("      <use xlink:href=\"#hexagon\" x=\"");
+                num.write(out, hexGrid.getCentreX(x, y));
+                out.write("\" y=\"");
+                num.write(out, hexGrid.getCentreY(y));
+                out.write("\" />\n");
+                x = modules.nextSetBit(y, x + 1);
+            }
+        }
+    }
+    
+    private void writeRects(Writer out, FixedPoint num) throws IOException {
+        int i, x, y, end;
+        
+        for (i = 0; i < rectangle.size(); i++) {
+            writeRect(out, num, rectangle.get(i).x, rectangle.get(i).y,
+                    rectangle.get(i).width, rectangle.get(i).height);
+        }
+        if (matrix != null) {
+            for (y = 0; y < matrix.getHeight(); y++) {
+                x = matrix.nextSetBit(y, 0);
+                while (x < matrix.getWidth()) {
+                    end = matrix.nextClearBit(y, x);
+                    writeRect(out, num, x, y, end - x, 1);
+                    x = matrix.nextSetBit(y, end);
                 }
-                outStream += "Z\" />\n";
             }
-            
-            // Footer
-            outStream += "   </g>\n";
-            outStream += "</svg>\n";
-            
-            // Output data to file
-            for (i = 0; i < outStream.length(); i++) {
-                fos.write(outStream.charAt(i));
+        }
+    }
+    
+    private void writeRect(Writer out, FixedPoint num, int x, int y, int w, int h)
+            throws IOException {
+        out.write("      <rect x=\"");
+        num.write(out, x);
+        out.write(".00\" y=\"");
+        num.write(out, y);
+        out.write(".00\" width=\"");
+        num.write(out, w);
+        out.write(".00\" height=\"");
+        num.write(out, h);
+        out.write(".00\" />\n");
+    }
+    
+    private void writePath(Writer out, FixedPoint num) throws IOException {
+        int i, x, y, end;
+        
+        if (rectangle.isEmpty() && (matrix == null || matrix.cardinality() == 0)) {
+            return;
+        }
+        out.write("      <path d=\"");
+        for (i = 0; i < rectangle.size(); i++) {
+            writeSegment(out, num, rectangle.get(i).x, rectangle.get(i).y,
+                    rectangle.get(i).width, rectangle.get(i).height);
+        }
+        if (matrix != null) {
+            for (y = 0; y < matrix.getHeight(); y++) {
+                x = matrix.nextSetBit(y, 0);
+                while (x < matrix.getWidth()) {
+                    end = matrix.nextClearBit(y, x);
+                    writeSegment(out, num, x, y, end - x, 1);
+                    x = matrix.nextSetBit(y, end);
+                }
             }
         }
+        out.write("\" />\n");
+    }
+    
+    /** One closed rectangle in path syntax, e.g. "M3 4h2v1h-2Z" */
+    private void writeSegment(Writer out, FixedPoint num, int x, int y, int w, int h)
+            throws IOException {
+        out.write('M');
+        num.write(out, x);
+        out.write(' ');
+        num.write(out, y);
+        out.write('h');
+        num.write(out, w);
+        out.write('v');
+        num.write(out, h);
+        out.write('h');
+        num.write(out, -w);
+        out.write('Z');
+    }
+    
+    private static void writeEscaped(Writer out, String text) throws IOException {
+        int i;
+        char c;
         
-        catch (IOException ioe) {
-            System.err.println("I/O error: " + ioe.getMessage());
+        for (i = 0; i < text.length(); i++) {
+            c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    out.write("&amp;");
+                    break;
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                default:
+                    out.write(c);
+                    break;
+            }
         }
-        return false;
     }
 }